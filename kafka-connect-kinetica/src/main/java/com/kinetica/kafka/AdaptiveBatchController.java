@@ -0,0 +1,98 @@
+package com.kinetica.kafka;
+
+/**
+ * Adjusts the effective batch size of a single Kinetica table based on observed insert latency,
+ * following an additive-increase/multiplicative-decrease rule: 
+ * while full batches are inserted within the target latency the batch size grows by a fixed step,
+ * when an insert exceeds the target latency the batch size is halved. 
+ * The batch size always stays within configured bounds.
+ */
+public class AdaptiveBatchController {
+
+    // weight of the most recent observation in the smoothed throughput
+    private static final double EWMA_WEIGHT = 0.3;
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final int minSize;
+    private final int maxSize;
+    private final int increaseStep;
+    private final long targetLatencyMs;
+
+    private int batchSize;
+    private long lastLatencyMs;
+    private double recordsPerSecond;
+    private long increases;
+    private long decreases;
+
+    /**
+     * Creates a batch size controller
+     * @param initialSize      starting batch size, clamped into [minSize, maxSize]
+     * @param minSize          smallest allowed batch size
+     * @param maxSize          largest allowed batch size
+     * @param targetLatencyMs  insert round-trip time the controller aims to stay under
+     */
+    public AdaptiveBatchController(int initialSize, int minSize, int maxSize, long targetLatencyMs) {
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+        this.increaseStep = this.minSize;
+        this.targetLatencyMs = targetLatencyMs;
+        this.batchSize = Math.min(this.maxSize, Math.max(this.minSize, initialSize));
+    }
+
+    /**
+     * Updates the batch size after an insert into Kinetica completed 
+     * @param records         number of records inserted
+     * @param latencyNanos    insert round-trip time
+     * @param batchWasFull    true when the insert was triggered by the batch reaching its size limit
+     * @return new effective batch size
+     */
+    public int onFlush(long records, long latencyNanos, boolean batchWasFull) {
+        this.lastLatencyMs = latencyNanos / 1000000L;
+        if (records > 0 && latencyNanos > 0) {
+            double rate = records * 1e9 / latencyNanos;
+            this.recordsPerSecond = this.recordsPerSecond == 0 ? rate 
+                    : EWMA_WEIGHT * rate + (1 - EWMA_WEIGHT) * this.recordsPerSecond;
+        }
+
+        if (this.lastLatencyMs > this.targetLatencyMs) {
+            // Kinetica is slow to absorb current batch size, back off
+            int decreased = Math.max(this.minSize, (int) (this.batchSize * DECREASE_FACTOR));
+            if (decreased < this.batchSize) {
+                this.batchSize = decreased;
+                this.decreases++;
+            }
+        } else if (batchWasFull) {
+            // Kinetica keeps up, probe for a larger batch size
+            int increased = (int) Math.min((long) this.maxSize, (long) this.batchSize + this.increaseStep);
+            if (increased > this.batchSize) {
+                this.batchSize = increased;
+                this.increases++;
+            }
+        }
+        return this.batchSize;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    public long getLastLatencyMs() {
+        return this.lastLatencyMs;
+    }
+
+    public double getRecordsPerSecond() {
+        return this.recordsPerSecond;
+    }
+
+    public long getIncreases() {
+        return this.increases;
+    }
+
+    public long getDecreases() {
+        return this.decreases;
+    }
+}
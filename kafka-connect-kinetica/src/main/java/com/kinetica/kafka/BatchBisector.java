@@ -0,0 +1,213 @@
+package com.kinetica.kafka;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gpudb.GPUdbException;
+
+/**
+ * Inserts records of a batch Kinetica refused again, splitting them in halves until the records Kinetica
+ * rejects are isolated and reported one by one. A single bad record in a batch of n records costs about
+ * 2*log2(n) extra requests. When both halves of the first split are refused completely with the same error,
+ * the error concerns the batch rather than individual records, e.g. missing permissions, a dropped table
+ * or a type that no longer matches, and bisection stops instead of reporting every record. Transient
+ * errors stop bisection as well, leaving the records neither inserted nor reported for a retry.
+ *
+ * @param <T>  record type
+ */
+public class BatchBisector<T> {
+
+    /**
+     * Sends records to Kinetica
+     */
+    public interface Inserter<T> {
+        /**
+         * @param records   records to insert
+         * @param errors    collects exceptions of failed requests
+         * @return records not inserted, empty when all records were inserted
+         */
+        List<T> insert(List<T> records, List<GPUdbException> errors);
+    }
+
+    /**
+     * Receives records Kinetica rejected
+     */
+    public interface Reporter<T> {
+        /**
+         * @param record   rejected record
+         * @param error    exception of the failed request
+         */
+        void errant(T record, GPUdbException error);
+    }
+
+    private final Inserter<T> inserter;
+    private final Reporter<T> reporter;
+
+    /**
+     * Creates a bisector
+     * @param inserter   sends records to Kinetica
+     * @param reporter   receives the records Kinetica rejected
+     */
+    public BatchBisector(Inserter<T> inserter, Reporter<T> reporter) {
+        this.inserter = inserter;
+        this.reporter = reporter;
+    }
+
+    /**
+     * Inserts records, isolating and reporting the records Kinetica rejects
+     * @param records   records to insert
+     * @return outcome, with the records neither inserted nor reported when bisection stopped
+     */
+    public Result<T> insert(List<T> records) {
+        Attempt<T> whole = attempt(records);
+        if (whole.failed.isEmpty()) {
+            return new Result<>(whole.failed, null, false);
+        }
+        if (whole.retriable) {
+            return new Result<>(whole.failed, whole.error, true);
+        }
+        if (whole.failed.size() == 1) {
+            this.reporter.errant(whole.failed.get(0), whole.error);
+            return new Result<>(new ArrayList<T>(), null, false);
+        }
+        List<T> firstHalf = whole.failed.subList(0, whole.failed.size() / 2);
+        List<T> secondHalf = whole.failed.subList(whole.failed.size() / 2, whole.failed.size());
+        Attempt<T> first = attempt(firstHalf);
+        if (first.retriable) {
+            return new Result<>(concat(first.failed, secondHalf), first.error, true);
+        }
+        Attempt<T> second = attempt(secondHalf);
+        if (second.retriable) {
+            return new Result<>(concat(first.failed, second.failed), second.error, true);
+        }
+        if (first.failed.size() == firstHalf.size() && second.failed.size() == secondHalf.size()
+                && sameError(first.error, second.error)) {
+            // every record fails the same way, not worth isolating
+            return new Result<>(whole.failed, first.error, false);
+        }
+
+        ArrayDeque<Attempt<T>> failures = new ArrayDeque<>();
+        if (!second.failed.isEmpty()) {
+            failures.add(second);
+        }
+        if (!first.failed.isEmpty()) {
+            failures.addFirst(first);
+        }
+        while (!failures.isEmpty()) {
+            Attempt<T> failure = failures.poll();
+            if (failure.failed.size() == 1) {
+                this.reporter.errant(failure.failed.get(0), failure.error);
+                continue;
+            }
+            int middle = failure.failed.size() / 2;
+            List<T> tail = failure.failed.subList(middle, failure.failed.size());
+            Attempt<T> head = attempt(failure.failed.subList(0, middle));
+            if (head.retriable) {
+                return new Result<>(concat(concat(head.failed, tail), remaining(failures)), head.error, true);
+            }
+            Attempt<T> rest = attempt(tail);
+            if (rest.retriable) {
+                return new Result<>(concat(concat(head.failed, rest.failed), remaining(failures)), rest.error, true);
+            }
+            // depth first, so that records are reported in batch order
+            if (!rest.failed.isEmpty()) {
+                failures.addFirst(rest);
+            }
+            if (!head.failed.isEmpty()) {
+                failures.addFirst(head);
+            }
+        }
+        return new Result<>(new ArrayList<T>(), null, false);
+    }
+
+    private Attempt<T> attempt(List<T> records) {
+        List<GPUdbException> errors = new ArrayList<>();
+        List<T> failed = this.inserter.insert(new ArrayList<>(records), errors);
+        boolean retriable = false;
+        for (GPUdbException e : errors) {
+            retriable |= KineticaErrorClassifier.isRetriable(e);
+        }
+        return new Attempt<>(failed, errors.isEmpty() ? null : errors.get(errors.size() - 1), retriable);
+    }
+
+    private static <T> List<T> remaining(ArrayDeque<Attempt<T>> failures) {
+        List<T> remaining = new ArrayList<>();
+        for (Attempt<T> failure : failures) {
+            remaining.addAll(failure.failed);
+        }
+        return remaining;
+    }
+
+    private static <T> List<T> concat(List<T> first, List<T> second) {
+        List<T> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+
+    private static boolean sameError(GPUdbException first, GPUdbException second) {
+        if (first == null || second == null) {
+            return first == second;
+        }
+        String message = first.getMessage();
+        return message == null ? second.getMessage() == null : message.equals(second.getMessage());
+    }
+
+    /**
+     * Records of a request Kinetica refused, with the last error of the request
+     */
+    private static class Attempt<T> {
+        private final List<T> failed;
+        private final GPUdbException error;
+        private final boolean retriable;
+
+        Attempt(List<T> failed, GPUdbException error, boolean retriable) {
+            this.failed = failed;
+            this.error = error;
+            this.retriable = retriable;
+        }
+    }
+
+    /**
+     * Outcome of a bisecting insert
+     */
+    public static class Result<T> {
+        private final List<T> remaining;
+        private final GPUdbException error;
+        private final boolean retriable;
+
+        Result(List<T> remaining, GPUdbException error, boolean retriable) {
+            this.remaining = remaining;
+            this.error = error;
+            this.retriable = retriable;
+        }
+
+        /**
+         * @return true when every record was inserted or reported
+         */
+        public boolean isCompleted() {
+            return this.remaining.isEmpty();
+        }
+
+        /**
+         * @return records neither inserted nor reported, in batch order
+         */
+        public List<T> getRemaining() {
+            return this.remaining;
+        }
+
+        /**
+         * @return error that stopped bisection, null when completed
+         */
+        public GPUdbException getError() {
+            return this.error;
+        }
+
+        /**
+         * @return true when bisection stopped on a transient error, false when the batch as a whole was refused
+         */
+        public boolean isRetriable() {
+            return this.retriable;
+        }
+    }
+}
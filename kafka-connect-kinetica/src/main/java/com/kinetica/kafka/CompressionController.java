@@ -0,0 +1,181 @@
+package com.kinetica.kafka;
+
+/**
+ * Chooses whether insert requests of a single Kinetica table are compressed. In automatic mode the
+ * controller keeps the insert latency per uncompressed byte of batches sent compressed and of batches
+ * sent uncompressed, and uses the faster choice. A round trip includes request handling by Kinetica as
+ * well as the transfer, so the choice not in use is measured by sending one batch with it every
+ * {@link #PROBE_FLUSHES} flushes. Compression is only probed while the compression ratio and speed
+ * sampled from recent batches could make it pay off.
+ */
+public class CompressionController {
+
+    public static final String MODE_NONE   = "none";
+    public static final String MODE_SNAPPY = "snappy";
+    public static final String MODE_AUTO   = "auto";
+
+    // weight of the most recent observation in the smoothed latency
+    private static final double EWMA_WEIGHT = 0.3;
+    // number of flushes after which the compression ratio is sampled again
+    protected static final int RESAMPLE_FLUSHES = 100;
+    // number of flushes after which one batch is sent with the choice not in use
+    protected static final int PROBE_FLUSHES = 50;
+
+    private final String mode;
+    private boolean compressed;
+    private boolean probing;
+    private int flushesSinceSample = RESAMPLE_FLUSHES;
+    private int flushesSinceProbe;
+    private double ratio = 1.0;
+    private double compressBytesPerSecond;
+    // insert latency per uncompressed byte of batches sent compressed and uncompressed, 0 until measured
+    private double compressedNanosPerByte;
+    private double uncompressedNanosPerByte;
+    private long switches;
+
+    /**
+     * Creates a compression controller
+     * @param mode   none, snappy or auto
+     */
+    public CompressionController(String mode) {
+        this.mode = mode;
+        this.compressed = MODE_SNAPPY.equals(mode);
+    }
+
+    /**
+     * @return true when a compression sample should be taken before the next flush
+     */
+    public boolean needsSample() {
+        return MODE_AUTO.equals(this.mode) && this.flushesSinceSample >= RESAMPLE_FLUSHES;
+    }
+
+    /**
+     * Records a compression sample of pending records
+     * @param rawBytes          size of the encoded sample
+     * @param compressedBytes   size of the compressed sample
+     * @param compressNanos     time taken to compress the sample
+     */
+    public void sampled(long rawBytes, long compressedBytes, long compressNanos) {
+        this.flushesSinceSample = 0;
+        if (rawBytes <= 0) {
+            return;
+        }
+        this.ratio = (double) compressedBytes / rawBytes;
+        this.compressBytesPerSecond = rawBytes * 1e9 / Math.max(1, compressNanos);
+    }
+
+    /**
+     * Records the latency of a batch sent with the current codec and chooses the codec of the next batch
+     * @param bytes          estimated uncompressed size of the batch
+     * @param latencyNanos   insert round-trip time, including compression
+     * @return true when the next batch of the table is sent with the other codec
+     */
+    public boolean onFlush(long bytes, long latencyNanos) {
+        this.flushesSinceSample++;
+        if (!MODE_AUTO.equals(this.mode)) {
+            return false;
+        }
+        boolean wasCompressed = isCompressed();
+        if (bytes > 0 && latencyNanos > 0) {
+            double nanosPerByte = (double) latencyNanos / bytes;
+            if (wasCompressed) {
+                this.compressedNanosPerByte = measured(this.compressedNanosPerByte, nanosPerByte);
+            } else {
+                this.uncompressedNanosPerByte = measured(this.uncompressedNanosPerByte, nanosPerByte);
+            }
+        }
+        this.probing = false;
+        if (this.compressedNanosPerByte > 0 && this.uncompressedNanosPerByte > 0) {
+            boolean compress = this.compressedNanosPerByte < this.uncompressedNanosPerByte;
+            if (compress != this.compressed) {
+                this.compressed = compress;
+                this.switches++;
+            }
+        }
+        this.flushesSinceProbe++;
+        double other = this.compressed ? this.uncompressedNanosPerByte : this.compressedNanosPerByte;
+        if ((other == 0 || this.flushesSinceProbe >= PROBE_FLUSHES) && worthProbing(!this.compressed)) {
+            this.flushesSinceProbe = 0;
+            this.probing = true;
+        }
+        return isCompressed() != wasCompressed;
+    }
+
+    /**
+     * Smooths the latency of the codec in use, a probe replaces the previous latency of its codec
+     * since that may be many flushes old
+     */
+    private double measured(double previous, double nanosPerByte) {
+        if (previous == 0 || this.probing) {
+            return nanosPerByte;
+        }
+        return EWMA_WEIGHT * nanosPerByte + (1 - EWMA_WEIGHT) * previous;
+    }
+
+    /**
+     * Checks whether a batch should be sent with the other codec. Uncompressed batches are always worth
+     * measuring; compressed ones only when the sampled ratio and speed could beat uncompressed inserts,
+     * taking the whole uncompressed round trip as transfer time.
+     * @param compress   codec of the probe
+     * @return true when the probe may pay off
+     */
+    private boolean worthProbing(boolean compress) {
+        if (!compress) {
+            return true;
+        }
+        if (this.compressBytesPerSecond == 0) {
+            return false;
+        }
+        return this.uncompressedNanosPerByte == 0
+                || worthCompressing(this.ratio, 1e9 / this.uncompressedNanosPerByte, this.compressBytesPerSecond);
+    }
+
+    /**
+     * Compares the time to send one byte uncompressed with the time to compress it and send the result
+     * @param ratio                    compressed size relative to the uncompressed size
+     * @param networkBytesPerSecond    estimated network throughput
+     * @param compressBytesPerSecond   observed compression speed
+     * @return true when compression raises the effective throughput
+     */
+    protected static boolean worthCompressing(double ratio, double networkBytesPerSecond,
+            double compressBytesPerSecond) {
+        return 1.0 / compressBytesPerSecond + ratio / networkBytesPerSecond < 1.0 / networkBytesPerSecond;
+    }
+
+    /**
+     * @return true when the next insert into the table is compressed, also while probing
+     */
+    public boolean isCompressed() {
+        return this.probing != this.compressed;
+    }
+
+    /**
+     * @return true when the next insert into the table probes the codec not chosen
+     */
+    public boolean isProbing() {
+        return this.probing;
+    }
+
+    /**
+     * @return codec chosen for inserts of the table
+     */
+    public String getCodec() {
+        return this.compressed ? MODE_SNAPPY : MODE_NONE;
+    }
+
+    public double getRatio() {
+        return this.ratio;
+    }
+
+    public double getCompressedNanosPerByte() {
+        return this.compressedNanosPerByte;
+    }
+
+    public double getUncompressedNanosPerByte() {
+        return this.uncompressedNanosPerByte;
+    }
+
+    public long getSwitches() {
+        return this.switches;
+    }
+}
@@ -0,0 +1,104 @@
+package com.kinetica.kafka;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders table batch flushes earliest-deadline-first. The deadline of a table batch is the time its oldest
+ * pending record was added plus the max pending age divided by the table weight, so tables with a higher
+ * weight are flushed sooner and small, latency-sensitive tables are not held back by large ones.
+ * With a max pending age configured, batches past their deadline are flushed without waiting for 
+ * the batch to fill up or for the next offset commit.
+ */
+public class FlushScheduler {
+
+    // deadline horizon used for ordering when no max pending age is configured, matches offset.flush.interval.ms default
+    private static final long DEFAULT_HORIZON_MS = 60000L;
+
+    private final Map<String, Long> weights;
+    private final long maxPendingAgeMs;
+
+    /**
+     * Creates a flush scheduler
+     * @param weights           weight per table name, tables not listed have weight 1
+     * @param maxPendingAgeMs   longest time a record of a weight 1 table waits to be flushed, 0 to flush on commit only
+     */
+    public FlushScheduler(Map<String, Long> weights, long maxPendingAgeMs) {
+        this.weights = weights;
+        this.maxPendingAgeMs = maxPendingAgeMs;
+    }
+
+    /**
+     * @param tableName   Kinetica table name
+     * @return weight of the table
+     */
+    public long weightOf(String tableName) {
+        Long weight = this.weights.get(tableName);
+        return weight == null ? 1 : weight;
+    }
+
+    /**
+     * @param buffer   non-empty table batch
+     * @return time in milliseconds the batch is due to be flushed
+     */
+    public long deadlineOf(SinkTableBuffer buffer) {
+        long horizon = this.maxPendingAgeMs > 0 ? this.maxPendingAgeMs : DEFAULT_HORIZON_MS;
+        return buffer.getPendingSince() + horizon / weightOf(buffer.getTableName());
+    }
+
+    /**
+     * @param buffers   table batches
+     * @return names of tables with pending records, earliest deadline first
+     */
+    public List<String> flushOrder(Collection<SinkTableBuffer> buffers) {
+        List<String> order = new ArrayList<>();
+        for (SinkTableBuffer buffer : sortedPending(buffers)) {
+            order.add(buffer.getTableName());
+        }
+        return order;
+    }
+
+    /**
+     * @param buffers   table batches
+     * @param now       current time in milliseconds
+     * @return names of tables with batches past their deadline, earliest deadline first; 
+     * empty when no max pending age is configured
+     */
+    public List<String> overdue(Collection<SinkTableBuffer> buffers, long now) {
+        List<String> overdue = new ArrayList<>();
+        if (this.maxPendingAgeMs <= 0) {
+            return overdue;
+        }
+        for (SinkTableBuffer buffer : sortedPending(buffers)) {
+            if (deadlineOf(buffer) > now) {
+                break;
+            }
+            overdue.add(buffer.getTableName());
+        }
+        return overdue;
+    }
+
+    /**
+     * @param buffers   table batches
+     * @return table batches with pending records, earliest deadline first
+     */
+    private List<SinkTableBuffer> sortedPending(Collection<SinkTableBuffer> buffers) {
+        List<SinkTableBuffer> pending = new ArrayList<>();
+        for (SinkTableBuffer buffer : buffers) {
+            if (!buffer.isEmpty()) {
+                pending.add(buffer);
+            }
+        }
+        Collections.sort(pending, new Comparator<SinkTableBuffer>() {
+            @Override
+            public int compare(SinkTableBuffer b1, SinkTableBuffer b2) {
+                return Long.compare(deadlineOf(b1), deadlineOf(b2));
+            }
+        });
+        return pending;
+    }
+}
@@ -0,0 +1,185 @@
+package com.kinetica.kafka;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.common.config.ConfigException;
+
+/**
+ * Limits rows and bytes per second a sink task inserts into Kinetica, for the whole task 
+ * and for individual tables. Limits can be scaled by an hour-of-day schedule, 
+ * e.g. <code>22-6:4,12-14:0.5</code> quadruples limits from 22:00 to 06:00 and halves them from 12:00 to 14:00 
+ * local time.
+ */
+public class IngestRateLimiter {
+
+    private final long rowsPerSec;
+    private final long bytesPerSec;
+    private final Map<String, Long> tableRowsPerSec;
+    private final Map<String, Long> tableBytesPerSec;
+    // multiplier per hour of day
+    private final double[] schedule;
+
+    private final HashMap<String, TokenBucket> buckets = new HashMap<>();
+    private double multiplier = 1.0;
+
+    /**
+     * Creates a rate limiter
+     * @param rowsPerSec         rows per second for all tables, 0 for no limit
+     * @param bytesPerSec        estimated bytes per second for all tables, 0 for no limit
+     * @param tableRowsPerSec    rows per second per table name
+     * @param tableBytesPerSec   estimated bytes per second per table name
+     * @param schedule           limit multiplier per hour of day, 24 entries
+     */
+    public IngestRateLimiter(long rowsPerSec, long bytesPerSec, Map<String, Long> tableRowsPerSec, 
+            Map<String, Long> tableBytesPerSec, double[] schedule) {
+        this.rowsPerSec = rowsPerSec;
+        this.bytesPerSec = bytesPerSec;
+        this.tableRowsPerSec = tableRowsPerSec;
+        this.tableBytesPerSec = tableBytesPerSec;
+        this.schedule = schedule;
+    }
+
+    /**
+     * @return true when any limit is configured
+     */
+    public boolean isEnabled() {
+        return this.rowsPerSec > 0 || this.bytesPerSec > 0 
+                || !this.tableRowsPerSec.isEmpty() || !this.tableBytesPerSec.isEmpty();
+    }
+
+    /**
+     * @param tableName   Kinetica table name
+     * @param now         current time in milliseconds
+     * @return time in milliseconds until the next batch of the table may be inserted
+     */
+    public long delayMs(String tableName, long now) {
+        applySchedule(now);
+        long delay = 0;
+        for (TokenBucket bucket : rowBuckets(tableName, now)) {
+            delay = Math.max(delay, bucket.delayMs(now));
+        }
+        for (TokenBucket bucket : byteBuckets(tableName, now)) {
+            delay = Math.max(delay, bucket.delayMs(now));
+        }
+        return delay;
+    }
+
+    /**
+     * Charges an inserted batch against the task and table limits
+     * @param tableName   Kinetica table name
+     * @param rows        number of rows inserted
+     * @param bytes       estimated size of rows inserted
+     * @param now         current time in milliseconds
+     */
+    public void acquire(String tableName, long rows, long bytes, long now) {
+        applySchedule(now);
+        for (TokenBucket bucket : rowBuckets(tableName, now)) {
+            bucket.consume(rows, now);
+        }
+        for (TokenBucket bucket : byteBuckets(tableName, now)) {
+            bucket.consume(bytes, now);
+        }
+    }
+
+    /**
+     * @return current schedule multiplier of all limits
+     */
+    public double getMultiplier() {
+        return this.multiplier;
+    }
+
+    /**
+     * @return task and table row limits applicable to a table
+     */
+    private List<TokenBucket> rowBuckets(String tableName, long now) {
+        List<TokenBucket> result = new ArrayList<>(2);
+        if (this.rowsPerSec > 0) {
+            result.add(bucket("rows", this.rowsPerSec, now));
+        }
+        Long tableRows = this.tableRowsPerSec.get(tableName);
+        if (tableRows != null) {
+            result.add(bucket("rows:" + tableName, tableRows, now));
+        }
+        return result;
+    }
+
+    /**
+     * @return task and table byte limits applicable to a table
+     */
+    private List<TokenBucket> byteBuckets(String tableName, long now) {
+        List<TokenBucket> result = new ArrayList<>(2);
+        if (this.bytesPerSec > 0) {
+            result.add(bucket("bytes", this.bytesPerSec, now));
+        }
+        Long tableBytes = this.tableBytesPerSec.get(tableName);
+        if (tableBytes != null) {
+            result.add(bucket("bytes:" + tableName, tableBytes, now));
+        }
+        return result;
+    }
+
+    private TokenBucket bucket(String key, long baseRate, long now) {
+        TokenBucket bucket = this.buckets.get(key);
+        if (bucket == null) {
+            bucket = new TokenBucket(baseRate * this.multiplier, now);
+            this.buckets.put(key, bucket);
+        }
+        return bucket;
+    }
+
+    private void applySchedule(long now) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        double current = this.schedule[calendar.get(Calendar.HOUR_OF_DAY)];
+        if (current == this.multiplier) {
+            return;
+        }
+        double change = current / this.multiplier;
+        for (TokenBucket bucket : this.buckets.values()) {
+            bucket.setRate(bucket.getRate() * change, now);
+        }
+        this.multiplier = current;
+    }
+
+    /**
+     * Parses a comma-separated list of <code>fromHour-toHour:multiplier</code> entries, 
+     * hours wrap around midnight, toHour is exclusive
+     * @param value   config value
+     * @param param   config param name, for error messages
+     * @return multiplier per hour of day
+     */
+    public static double[] parseSchedule(String value, String param) {
+        double[] schedule = new double[24];
+        Arrays.fill(schedule, 1.0);
+        if (value == null || value.trim().isEmpty()) {
+            return schedule;
+        }
+        for (String entry : value.split(",")) {
+            try {
+                String[] parts = entry.trim().split(":");
+                String[] hours = parts[0].split("-");
+                int from = Integer.parseInt(hours[0].trim());
+                int to = Integer.parseInt(hours[1].trim());
+                double multiplier = Double.parseDouble(parts[1].trim());
+                if (parts.length != 2 || hours.length != 2 || from < 0 || from > 23 || to < 0 || to > 24 
+                        || multiplier <= 0) {
+                    throw new IllegalArgumentException();
+                }
+                // same from and to hours cover the whole day
+                int hour = from;
+                do {
+                    schedule[hour] = multiplier;
+                    hour = (hour + 1) % 24;
+                } while (hour != to % 24);
+            } catch (RuntimeException e) {
+                throw new ConfigException(param, value, "Expected comma-separated fromHour-toHour:multiplier entries");
+            }
+        }
+        return schedule;
+    }
+}
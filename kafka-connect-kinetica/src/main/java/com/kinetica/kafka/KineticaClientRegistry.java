@@ -0,0 +1,271 @@
+package com.kinetica.kafka;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gpudb.GPUdb;
+import com.gpudb.GPUdbException;
+import com.gpudb.WorkerList;
+
+/**
+ * Worker-wide registry of Kinetica clients. Connector tasks running in the same worker JVM with the same
+ * URL, credentials and connection settings share one GPUdb client, and with it one HTTP connection pool.
+ * The multi-head WorkerList of a client is looked up once and reused by all BulkInserters until it is
+ * refreshed after an HA failover or a cluster topology change.
+ */
+public class KineticaClientRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KineticaClientRegistry.class);
+
+    private static final HashMap<Key, Client> CLIENTS = new HashMap<>();
+
+    /**
+     * Creates Kinetica clients and looks up their worker lists
+     */
+    public interface Factory {
+        /**
+         * @param urls      head node URLs in configured order
+         * @param options   client options
+         * @return new GPUdb client
+         * @throws GPUdbException  when the client can not be created
+         */
+        GPUdb createClient(List<URL> urls, GPUdb.Options options) throws GPUdbException;
+
+        /**
+         * @param gpudb   GPUdb client
+         * @return multi-head worker list of the cluster the client is connected to
+         * @throws GPUdbException  when the worker list can not be retrieved
+         */
+        WorkerList createWorkerList(GPUdb gpudb) throws GPUdbException;
+    }
+
+    private static final Factory DEFAULT_FACTORY = new Factory() {
+        @Override
+        public GPUdb createClient(List<URL> urls, GPUdb.Options options) throws GPUdbException {
+            // with several URLs the client fails over between clusters by itself
+            return new GPUdb(urls, options);
+        }
+
+        @Override
+        public WorkerList createWorkerList(GPUdb gpudb) throws GPUdbException {
+            return new WorkerList(gpudb);
+        }
+    };
+
+    private static volatile Factory factory = DEFAULT_FACTORY;
+
+    /**
+     * Replaces the way clients are created, e.g. by clients not connected to Kinetica in tests
+     * @param clientFactory   creates clients and worker lists, null for Kinetica clients
+     */
+    protected static void setFactory(Factory clientFactory) {
+        factory = clientFactory == null ? DEFAULT_FACTORY : clientFactory;
+    }
+
+    /**
+     * Returns the shared client for the given settings, creating it on first use
+     * @param url                     Kinetica URL, or comma-separated head node URLs of HA clusters
+     * @param username                Kinetica user name
+     * @param password                Kinetica password
+     * @param timeout                 request timeout in milliseconds
+     * @param maxTotalConnections     HTTP connection pool size, 0 for the Kinetica API default
+     * @param maxConnectionsPerHost   HTTP connections per Kinetica host, 0 for the Kinetica API default
+     * @param useSnappy               true to compress requests with Snappy
+     * @return shared GPUdb client, to be released by the caller
+     * @throws GPUdbException  when the client can not be created
+     */
+    public static GPUdb acquire(String url, String username, String password, int timeout,
+            int maxTotalConnections, int maxConnectionsPerHost, boolean useSnappy) throws GPUdbException {
+        Key key = new Key(url, username, password, timeout, maxTotalConnections, maxConnectionsPerHost, useSnappy);
+        synchronized (CLIENTS) {
+            Client client = CLIENTS.get(key);
+            if (client == null) {
+                GPUdb.Options options = new GPUdb.Options()
+                        .setUsername(username)
+                        .setPassword(password)
+                        .setTimeout(timeout)
+                        .setUseSnappy(useSnappy);
+                if (maxTotalConnections > 0) {
+                    options.setMaxTotalConnections(maxTotalConnections);
+                }
+                if (maxConnectionsPerHost > 0) {
+                    options.setMaxConnectionsPerHost(maxConnectionsPerHost);
+                }
+                client = new Client(key, factory.createClient(parseUrls(url), options));
+                CLIENTS.put(key, client);
+                LOG.info("Created Kinetica client for <{}> as <{}>{}", url, username, useSnappy ? " with Snappy" : "");
+            }
+            client.refCount++;
+            return client.gpudb;
+        }
+    }
+
+    /**
+     * Releases a client obtained from acquire, the last release removes it from the registry
+     * @param gpudb   shared GPUdb client
+     */
+    public static void release(GPUdb gpudb) {
+        synchronized (CLIENTS) {
+            Client client = find(gpudb);
+            if (client == null) {
+                return;
+            }
+            client.refCount--;
+            if (client.refCount <= 0) {
+                CLIENTS.remove(client.key);
+                LOG.info("Released Kinetica client for <{}>", client.key.url);
+            }
+        }
+    }
+
+    /**
+     * Returns the multi-head WorkerList of a client, looking it up on first use
+     * @param gpudb   GPUdb client
+     * @return cached WorkerList
+     * @throws GPUdbException  when the worker list can not be retrieved
+     */
+    public static WorkerList getWorkerList(GPUdb gpudb) throws GPUdbException {
+        Client client;
+        synchronized (CLIENTS) {
+            client = find(gpudb);
+        }
+        if (client == null) {
+            // clients not obtained from the registry are not cached
+            return factory.createWorkerList(gpudb);
+        }
+        synchronized (client) {
+            if (client.workers == null) {
+                client.workers = factory.createWorkerList(gpudb);
+                LOG.debug("Loaded worker list of <{}>: {}", client.key.url, client.workers);
+            }
+            return client.workers;
+        }
+    }
+
+    /**
+     * Drops the cached WorkerList of a client, the next BulkInserter looks it up again
+     * @param gpudb   GPUdb client
+     */
+    public static void refreshWorkerList(GPUdb gpudb) {
+        Client client;
+        synchronized (CLIENTS) {
+            client = find(gpudb);
+        }
+        if (client != null) {
+            synchronized (client) {
+                client.workers = null;
+            }
+        }
+    }
+
+    /**
+     * @param gpudb   GPUdb client
+     * @return number of holders of a shared client, 0 when it is not registered
+     */
+    public static int getRefCount(GPUdb gpudb) {
+        synchronized (CLIENTS) {
+            Client client = find(gpudb);
+            return client == null ? 0 : client.refCount;
+        }
+    }
+
+    /**
+     * @param urls   Kinetica URL, or comma-separated head node URLs
+     * @return head node URLs in configured order
+     * @throws GPUdbException  when a URL is malformed
+     */
+    public static List<URL> parseUrls(String urls) throws GPUdbException {
+        List<URL> result = new ArrayList<>();
+        if (urls == null) {
+            throw new GPUdbException("Kinetica URL is not set");
+        }
+        for (String url : urls.split(",")) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                result.add(new URL(url.trim()));
+            } catch (MalformedURLException e) {
+                throw new GPUdbException("Invalid Kinetica URL " + url.trim(), e);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new GPUdbException("Kinetica URL is not set");
+        }
+        return result;
+    }
+
+    private static Client find(GPUdb gpudb) {
+        for (Client client : CLIENTS.values()) {
+            if (client.gpudb == gpudb) {
+                return client;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Shared client with its cached WorkerList
+     */
+    private static class Client {
+        private final Key key;
+        private final GPUdb gpudb;
+        private int refCount = 0;
+        private WorkerList workers;
+
+        Client(Key key, GPUdb gpudb) {
+            this.key = key;
+            this.gpudb = gpudb;
+        }
+    }
+
+    /**
+     * Registry key: URL, credentials and connection settings
+     */
+    private static class Key {
+        private final String url;
+        private final String username;
+        private final String password;
+        private final int timeout;
+        private final int maxTotalConnections;
+        private final int maxConnectionsPerHost;
+        private final boolean useSnappy;
+
+        Key(String url, String username, String password, int timeout, int maxTotalConnections,
+                int maxConnectionsPerHost, boolean useSnappy) {
+            this.url = url;
+            this.username = username;
+            this.password = password;
+            this.timeout = timeout;
+            this.maxTotalConnections = maxTotalConnections;
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+            this.useSnappy = useSnappy;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(this.url, other.url) && Objects.equals(this.username, other.username)
+                    && Objects.equals(this.password, other.password) && this.timeout == other.timeout
+                    && this.maxTotalConnections == other.maxTotalConnections
+                    && this.maxConnectionsPerHost == other.maxConnectionsPerHost
+                    && this.useSnappy == other.useSnappy;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.url, this.username, this.password, this.timeout, this.maxTotalConnections,
+                    this.maxConnectionsPerHost, this.useSnappy);
+        }
+    }
+}
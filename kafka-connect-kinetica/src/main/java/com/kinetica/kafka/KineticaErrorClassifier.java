@@ -0,0 +1,97 @@
+package com.kinetica.kafka;
+
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.gpudb.GPUdbException;
+
+/**
+ * Tells apart Kinetica errors expected to clear up on their own (timeouts, connection failures, 
+ * HTTP 5xx responses, HA failover) from errors that would fail again on retry (bad data, missing permissions).
+ */
+public class KineticaErrorClassifier {
+
+    // gpudb-api exceptions signalling the server is exiting or no HA cluster is reachable
+    private static final Set<String> RETRIABLE_EXCEPTIONS = new HashSet<>(Arrays.asList(
+            "GPUdbExitException", "GPUdbHAUnavailableException", "GPUdbFailoverDisabledException"));
+
+    // transport phrases gpudb-api puts in its own error messages, matched as whole words so that
+    // server errors naming a column such as timeout_ms or failover_count are not taken for them
+    private static final Pattern RETRIABLE_MESSAGES = Pattern.compile(
+            "\\b(timed out|connect timeout|read timeout|gateway timeout|connection refused|connection reset"
+            + "|broken pipe|no route to host|service unavailable|bad gateway|internal server error"
+            + "|system is in offline mode|kinetica is exiting|no response)\\b");
+
+    // gpudb-api reports HTTP failures as "... (HTTP 503) ..." or "... status 503 ..."
+    private static final Pattern RETRIABLE_STATUS = Pattern.compile("\\b(http|status|code)[ :=(]*5\\d\\d\\b");
+
+    private KineticaErrorClassifier() {
+    }
+
+    /**
+     * Walks the cause chain of an exception looking for transient failures. Exception types are 
+     * checked across the whole chain, HTTP status and message text only on the outermost 
+     * GPUdbException, the one gpudb-api raised for the failed request; nested causes may carry 
+     * server or data error text which says nothing about the transport.
+     * @param error   exception thrown by Kinetica API
+     * @return true when the failed operation may succeed if retried later
+     */
+    public static boolean isRetriable(Throwable error) {
+        GPUdbException transportError = null;
+        Throwable cause = error;
+        // guard against circular cause chains
+        for (int depth = 0; cause != null && depth < 16; depth++) {
+            if (cause instanceof InterruptedIOException 
+                    || cause instanceof ConnectException 
+                    || cause instanceof NoRouteToHostException 
+                    || cause instanceof SocketException) {
+                return true;
+            }
+            if (cause instanceof GPUdbException) {
+                if (((GPUdbException) cause).hadConnectionFailure()) {
+                    return true;
+                }
+                if (transportError == null) {
+                    transportError = (GPUdbException) cause;
+                }
+            }
+            if (RETRIABLE_EXCEPTIONS.contains(cause.getClass().getSimpleName())) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        if (transportError == null) {
+            return false;
+        }
+        return isRetriableStatus(transportError.getMessage()) || isRetriableMessage(transportError.getMessage());
+    }
+
+    /**
+     * @param message   exception message
+     * @return true when the message reports an HTTP 5xx status
+     */
+    protected static boolean isRetriableStatus(String message) {
+        if (message == null) {
+            return false;
+        }
+        return RETRIABLE_STATUS.matcher(message.toLowerCase(Locale.ROOT)).find();
+    }
+
+    /**
+     * @param message   exception message
+     * @return true when the message describes a timeout or connection failure
+     */
+    protected static boolean isRetriableMessage(String message) {
+        if (message == null) {
+            return false;
+        }
+        return RETRIABLE_MESSAGES.matcher(message.toLowerCase(Locale.ROOT)).find();
+    }
+}
@@ -10,7 +10,7 @@ import com.gpudb.Type.Column;
 public class KineticaFieldMapper {
 
 	private String tableName;
-	private Integer version;
+	private Long version;
 	private HashMap<String, Column> missing;
 	private HashMap<String, Column> mapped;
 	
@@ -26,9 +26,9 @@ public class KineticaFieldMapper {
 	 * Create a new KineticaFieldMapper instance
 	 * 
 	 * @param tableName Kinetica table to be populated with Kafka record
-	 * @param version   Kafka record schema version (may be null)
+	 * @param version   Kafka record schema key, see SinkSchemaManager.schemaKey (may be null)
 	 */
-	public KineticaFieldMapper(String tableName, Integer version) {
+	public KineticaFieldMapper(String tableName, Long version) {
 		this.tableName = tableName;
 		this.version = version;
 		this.missing = new HashMap<String, Column>();
@@ -47,12 +47,12 @@ public class KineticaFieldMapper {
 	}
 	/**
 	 * 
-	 * @return schema version of Kafka record
+	 * @return schema key of Kafka record
 	 */
-	public Integer getVersion() {
+	public Long getVersion() {
 		return version;
 	}
-	public void setVersion(Integer version) {
+	public void setVersion(Long version) {
 		this.version = version;
 	}
 	/**
@@ -0,0 +1,170 @@
+package com.kinetica.kafka;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background task probing the head nodes of Kinetica clusters configured for high availability.
+ * A head node is healthy while it answers HTTP requests at all, whatever the status code. The active
+ * head node stays the same while it is healthy; once it stops answering, the first healthy head node
+ * in configured order becomes active and the listener is notified, so that tasks can move to the new
+ * head node before their next request times out.
+ */
+public class KineticaHealthProbe implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KineticaHealthProbe.class);
+
+    /**
+     * Notified on the probe thread when the active head node changes
+     */
+    public interface Listener {
+        /**
+         * @param from   previously active head node
+         * @param to     new active head node
+         */
+        void failover(URL from, URL to);
+    }
+
+    private final List<URL> urls;
+    private final long intervalMs;
+    private final int timeoutMs;
+    private final Listener listener;
+    private final boolean[] healthy;
+    private final Thread thread;
+    private volatile int active = 0;
+    private volatile long failovers = 0;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a probe, the probe has to be started
+     * @param name         thread name
+     * @param urls         head node URLs in order of preference
+     * @param intervalMs   time between probe rounds
+     * @param timeoutMs    connect and read timeout of a probe
+     * @param listener     notified when the active head node changes, may be null
+     */
+    public KineticaHealthProbe(String name, List<URL> urls, long intervalMs, int timeoutMs, Listener listener) {
+        this.thread = KineticaThreads.newThread(name, this);
+        this.urls = new ArrayList<>(urls);
+        this.intervalMs = intervalMs;
+        this.timeoutMs = timeoutMs;
+        this.listener = listener;
+        this.healthy = new boolean[urls.size()];
+        Arrays.fill(this.healthy, true);
+    }
+
+    @Override
+    public void run() {
+        LOG.info("Starting health probe of {}", this.urls);
+        while (this.running && !Thread.currentThread().isInterrupted()) {
+            probeAll();
+            try {
+                Thread.sleep(this.intervalMs);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        LOG.info("Stopped health probe of {}", this.urls);
+    }
+
+    /**
+     * Starts probing on a background thread
+     */
+    public void start() {
+        this.thread.start();
+    }
+
+    /**
+     * Probes all head nodes once and fails over when the active one is down
+     * @return true when the active head node changed
+     */
+    public boolean probeAll() {
+        for (int i = 0; i < this.urls.size(); i++) {
+            boolean up = probe(this.urls.get(i));
+            synchronized (this.healthy) {
+                if (up != this.healthy[i]) {
+                    LOG.warn("Kinetica head node {} is {}", this.urls.get(i), up ? "up" : "down");
+                }
+                this.healthy[i] = up;
+            }
+        }
+        int current = this.active;
+        if (isHealthy(current)) {
+            return false;
+        }
+        for (int i = 0; i < this.urls.size(); i++) {
+            if (i != current && isHealthy(i)) {
+                this.active = i;
+                this.failovers++;
+                LOG.warn("Failing over from Kinetica head node {} to {}", this.urls.get(current), this.urls.get(i));
+                if (this.listener != null) {
+                    this.listener.failover(this.urls.get(current), this.urls.get(i));
+                }
+                return true;
+            }
+        }
+        // no healthy head node, stay with the current one
+        return false;
+    }
+
+    /**
+     * @param url   head node URL
+     * @return true when the head node answered an HTTP request
+     */
+    protected boolean probe(URL url) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(this.timeoutMs);
+            connection.setReadTimeout(this.timeoutMs);
+            connection.setRequestMethod("GET");
+            connection.getResponseCode();
+            return true;
+        } catch (IOException e) {
+            LOG.debug("Probe of {} failed: {}", url, e.getMessage());
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private boolean isHealthy(int index) {
+        synchronized (this.healthy) {
+            return this.healthy[index];
+        }
+    }
+
+    /**
+     * @return currently active head node
+     */
+    public URL getActiveUrl() {
+        return this.urls.get(this.active);
+    }
+
+    public long getFailovers() {
+        return this.failovers;
+    }
+
+    /**
+     * Stops probing and waits for the probe thread to end
+     * @param timeoutMs   longest time to wait
+     */
+    public void shutdown(long timeoutMs) {
+        this.running = false;
+        this.thread.interrupt();
+        try {
+            this.thread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
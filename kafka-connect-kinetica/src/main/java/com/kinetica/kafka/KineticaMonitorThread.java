@@ -29,14 +29,18 @@ import com.gpudb.Type.Column;
 import com.gpudb.protocol.CreateTableMonitorResponse;
 import com.gpudb.protocol.GetRecordsResponse;
 
-public class KineticaMonitorThread extends Thread {
+public class KineticaMonitorThread implements Runnable {
 
     private static final Logger LOG = LoggerFactory.getLogger(KineticaMonitorThread.class);
 
+    // table monitor types carry no column properties, they are cached apart from the types sink tasks insert with
+    protected static final String TYPE_CACHE_NAMESPACE = "monitor:";
+
     // control if record values should have a Schema
     private final boolean schemalessValues = false;
 
     private final GPUdb gpudb;
+    private final String typeCacheUrl;
     private final String kineticaTable;
     private final String kafkaTopic;
     private final int version;
@@ -56,6 +60,7 @@ public class KineticaMonitorThread extends Thread {
      */
     public KineticaMonitorThread(KineticaSourceTask source, GPUdb gpudb, String table, int schemaVersion) {
         this.gpudb = gpudb;
+        this.typeCacheUrl = TYPE_CACHE_NAMESPACE + source.getUrl();
         this.kafkaTopic = source.getTopicPrefix() + table;
         this.kineticaTable = table;
         this.zmqUrl = source.getZmqUrl();
@@ -76,6 +81,7 @@ public class KineticaMonitorThread extends Thread {
             // Create the table monitor.
             CreateTableMonitorResponse response = this.gpudb.createTableMonitor(this.kineticaTable, null);
             this.kineticaType = new Type(response.getTypeSchema());
+            KineticaTypeCache.update(this.typeCacheUrl, this.kineticaTable, this.kineticaType);
             this.zmqTopic = response.getTopicId();
 
             // Create a Kafka schema from the table type.
@@ -197,8 +203,18 @@ public class KineticaMonitorThread extends Thread {
         	inRecord = Avro.decode(this.kineticaType, ByteBuffer.wrap(frame.getData()));
     	} catch (GPUdbException e) {
     		// buffered message is not of expected type 
-    		// if kineticaType has been changed while Connector is running, get most recent one  
-    		this.kineticaType = Type.fromTable(this.gpudb, kineticaTable);
+    		// if kineticaType has been changed while Connector is running, get most recent one,
+    		// shared with the other source tasks of the worker
+    		this.kineticaType = KineticaTypeCache.refresh(this.typeCacheUrl, this.kineticaTable, this.kineticaType,
+    		        new KineticaTypeCache.Fetcher() {
+    		            @Override
+    		            public Type fetch() throws GPUdbException {
+    		                return Type.fromTable(KineticaMonitorThread.this.gpudb, KineticaMonitorThread.this.kineticaTable);
+    		            }
+    		        });
+    		if (this.kineticaType == null) {
+    		    throw new GPUdbException("Kinetica table " + this.kineticaTable + " does not exist");
+    		}
     		inRecord = Avro.decode(this.kineticaType, ByteBuffer.wrap(frame.getData()));
     	}
         final Object valueData;
@@ -0,0 +1,697 @@
+package com.kinetica.kafka;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.data.Struct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gpudb.ColumnProperty;
+import com.gpudb.GPUdb;
+import com.gpudb.GPUdbException;
+import com.gpudb.Type;
+
+/**
+ * Kafka producer partitioner routing records by their Kinetica shard key, so that all records of
+ * a Kafka partition belong to the same Kinetica rank. With multi-head ingest enabled, a sink task
+ * consuming such partitions sends each flush to few ranks in large requests instead of splitting it
+ * across all of them.
+ *
+ * The shard key columns and their types are read from the destination table: columns with the
+ * shard_key property, otherwise the primary key. Shard key values are encoded the way the Kinetica 
+ * Java API routes multi-head inserts, by Kinetica column type rather than Java type: fixed size 
+ * little-endian values, strings as the 64-bit hash of their UTF-8 bytes, charN reversed and 
+ * zero-padded, date and time columns as packed calendar fields, null values as zeros. The key is 
+ * hashed with MurmurHash3 and the hash selects a shard of the routing table read from Kinetica. 
+ * Kafka partition p receives the records of rank p modulo the number of ranks, topics should have 
+ * a multiple of the rank count partitions.
+ *
+ * Producer configuration:
+ * <pre>
+ * partitioner.class=com.kinetica.kafka.KineticaShardPartitioner
+ * kinetica.partitioner.url=http://localhost:9191
+ * kinetica.partitioner.table=ki_home.ticks
+ * </pre>
+ */
+public class KineticaShardPartitioner implements Partitioner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KineticaShardPartitioner.class);
+
+    public static final String PARAM_URL       = "kinetica.partitioner.url";
+    public static final String PARAM_USERNAME  = "kinetica.partitioner.username";
+    public static final String PARAM_PASSWORD  = "kinetica.partitioner.password";
+    public static final String PARAM_TABLE     = "kinetica.partitioner.table";
+
+    // seed of the Kinetica record key hash
+    protected static final int HASH_SEED = 10;
+
+    // shortest time between warnings about records partitioned by key instead of shard key
+    private static final long FALLBACK_WARN_INTERVAL_MS = 60000L;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final Pattern DATE_PATTERN = Pattern.compile("\\A\\s*(\\d{4})-(\\d{2})-(\\d{2})\\s*\\z");
+    private static final Pattern DATETIME_PATTERN = Pattern.compile(
+            "\\A\\s*(\\d{4})-(\\d{2})-(\\d{2})(?:[ T](\\d{1,2}):(\\d{2}):(\\d{2})(?:\\.(\\d{1,6}))?)?\\s*\\z");
+    private static final Pattern TIME_PATTERN = Pattern.compile(
+            "\\A\\s*(\\d{1,2}):(\\d{2}):(\\d{2})(?:\\.(\\d{1,3}))?\\s*\\z");
+    private static final Pattern IPV4_PATTERN = Pattern.compile(
+            "\\A\\s*(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})\\s*\\z");
+
+    /**
+     * Kinetica column types allowed in a shard key, with their size in the record key
+     */
+    private enum ColumnType {
+        CHAR1(1), CHAR2(2), CHAR4(4), CHAR8(8), CHAR16(16), CHAR32(32), CHAR64(64), CHAR128(128), CHAR256(256),
+        DATE(4), DATETIME(8), DECIMAL(8), DOUBLE(8), FLOAT(4), INT(4), INT8(1), INT16(2), IPV4(4), LONG(8), 
+        STRING(8), TIME(4), TIMESTAMP(8);
+
+        private final int size;
+
+        ColumnType(int size) {
+            this.size = size;
+        }
+    }
+
+    /**
+     * Shard key column of the destination table
+     */
+    private static final class KeyColumn {
+        private final String name;
+        private final ColumnType type;
+
+        KeyColumn(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    private List<KeyColumn> shardKey = Collections.emptyList();
+    private int keySize = 0;
+    // rank (1-based) of each shard, empty when Kinetica is not configured
+    private List<Integer> routingTable = Collections.emptyList();
+    private int rankCount = 0;
+    private final AtomicInteger counter = new AtomicInteger();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private volatile long lastFallbackWarning = 0;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object url = configs.get(PARAM_URL);
+        if (url == null || url.toString().trim().isEmpty()) {
+            LOG.warn("{} is not set, records are partitioned by key hash only", PARAM_URL);
+            return;
+        }
+        Object table = configs.get(PARAM_TABLE);
+        if (table == null || table.toString().trim().isEmpty()) {
+            throw new KafkaException(PARAM_TABLE + " is required with " + PARAM_URL);
+        }
+        String tableName = table.toString().trim();
+        try {
+            GPUdb gpudb = new GPUdb(url.toString().trim(), new GPUdb.Options()
+                    .setUsername(configs.get(PARAM_USERNAME) == null ? null : configs.get(PARAM_USERNAME).toString())
+                    .setPassword(configs.get(PARAM_PASSWORD) == null ? null : configs.get(PARAM_PASSWORD).toString()));
+            setShardKey(Type.fromTable(gpudb, tableName));
+            setRoutingTable(gpudb.adminShowShards(null).getRank());
+        } catch (GPUdbException e) {
+            throw new KafkaException("Unable to read the type and shard routing table of Kinetica table " 
+                    + tableName + " from " + url, e);
+        }
+        if (this.shardKey.isEmpty()) {
+            LOG.warn("Kinetica table {} has neither a shard key nor a primary key, its records are sharded at random "
+                    + "and partitioned by key hash only", tableName);
+            return;
+        }
+        LOG.info("Partitioning by shard key of Kinetica table {} over {} ranks", tableName, this.rankCount);
+    }
+
+    /**
+     * Takes the shard key from a Kinetica table type: columns with the shard_key property, 
+     * otherwise the primary key columns
+     * @param type   Kinetica table type including column properties
+     */
+    protected void setShardKey(Type type) {
+        List<KeyColumn> shardColumns = new ArrayList<>();
+        List<KeyColumn> primaryColumns = new ArrayList<>();
+        for (Type.Column column : type.getColumns()) {
+            List<String> properties = column.getProperties();
+            boolean shard = properties.contains(ColumnProperty.SHARD_KEY);
+            if (!shard && !properties.contains(ColumnProperty.PRIMARY_KEY)) {
+                continue;
+            }
+            ColumnType columnType = columnType(column);
+            if (columnType == null) {
+                throw new KafkaException(String.format("Shard key column %s of type %s%s is not supported", 
+                        column.getName(), column.getType().getSimpleName(), properties));
+            }
+            (shard ? shardColumns : primaryColumns).add(new KeyColumn(column.getName(), columnType));
+        }
+        this.shardKey = shardColumns.isEmpty() ? primaryColumns : shardColumns;
+        int size = 0;
+        for (KeyColumn column : this.shardKey) {
+            size += column.type.size;
+        }
+        this.keySize = size;
+    }
+
+    /**
+     * @param column   Kinetica column
+     * @return record key type of the column, null when it can not be part of a shard key
+     */
+    private static ColumnType columnType(Type.Column column) {
+        List<String> properties = column.getProperties();
+        Class<?> javaType = column.getType();
+        if (javaType == Integer.class) {
+            if (properties.contains(ColumnProperty.INT8)) {
+                return ColumnType.INT8;
+            }
+            return properties.contains(ColumnProperty.INT16) ? ColumnType.INT16 : ColumnType.INT;
+        }
+        if (javaType == Long.class) {
+            return properties.contains(ColumnProperty.TIMESTAMP) ? ColumnType.TIMESTAMP : ColumnType.LONG;
+        }
+        if (javaType == Float.class) {
+            return ColumnType.FLOAT;
+        }
+        if (javaType == Double.class) {
+            return ColumnType.DOUBLE;
+        }
+        if (javaType != String.class) {
+            return null;
+        }
+        for (ColumnType type : ColumnType.values()) {
+            if (type != ColumnType.STRING && properties.contains(type.name().toLowerCase(Locale.ROOT))) {
+                return type;
+            }
+        }
+        // unsigned and uuid strings are encoded as numbers by Kinetica
+        if (properties.contains("ulong") || properties.contains("uuid")) {
+            return null;
+        }
+        return ColumnType.STRING;
+    }
+
+    /**
+     * @param routingTable   rank (1-based) of each Kinetica shard
+     */
+    protected void setRoutingTable(List<Integer> routingTable) {
+        this.routingTable = routingTable;
+        int ranks = 0;
+        for (Integer rank : routingTable) {
+            ranks = Math.max(ranks, rank);
+        }
+        this.rankCount = ranks;
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes,
+            Cluster cluster) {
+        int numPartitions = cluster.partitionsForTopic(topic).size();
+        Long hash = this.shardKey.isEmpty() ? null : hash(key, value);
+        if (hash == null) {
+            if (keyBytes != null) {
+                return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+            }
+            return Utils.toPositive(this.counter.getAndIncrement()) % numPartitions;
+        }
+        return partitionFor(hash, this.routingTable, this.rankCount, numPartitions);
+    }
+
+    /**
+     * Maps a record key hash to a Kafka partition of its Kinetica rank
+     * @param hash            Kinetica record key hash
+     * @param routingTable    rank (1-based) of each Kinetica shard, empty when unknown
+     * @param rankCount       number of Kinetica ranks
+     * @param numPartitions   number of partitions of the topic
+     * @return Kafka partition
+     */
+    protected static int partitionFor(long hash, List<Integer> routingTable, int rankCount, int numPartitions) {
+        if (routingTable.isEmpty()) {
+            return (int) Math.abs(hash % numPartitions);
+        }
+        int rank = routingTable.get((int) Math.abs(hash % routingTable.size())) - 1;
+        if (numPartitions <= rankCount) {
+            return rank % numPartitions;
+        }
+        // spread a rank over all partitions p with p % rankCount == rank
+        int candidates = (numPartitions - rank + rankCount - 1) / rankCount;
+        return rank + rankCount * (int) Math.abs((hash >>> 32) % candidates);
+    }
+
+    /**
+     * Computes the Kinetica record key hash of a record. Shard key columns are read from the record
+     * value as a Connect Struct, Map or Avro record; when the value is none of these, from the record key,
+     * which may also be the plain value of a single shard key column. Missing and null fields are encoded 
+     * as zeros, like null column values.
+     * @param key     record key
+     * @param value   record value
+     * @return hash, null when the record has no usable shard key
+     */
+    protected Long hash(Object key, Object value) {
+        Object record = isRecord(value) ? value : key;
+        if (record == null) {
+            fallback("Record without value or key");
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(this.keySize).order(ByteOrder.LITTLE_ENDIAN);
+        if (!isRecord(record)) {
+            if (this.shardKey.size() != 1) {
+                fallback(String.format("Record of type %s has no shard key fields", record.getClass().getName()));
+                return null;
+            }
+            // the key is the value of the shard key column
+            if (!encode(buffer, this.shardKey.get(0).type, record)) {
+                fallback(String.format("Record key of type %s can not be encoded as Kinetica %s", 
+                        record.getClass().getName(), this.shardKey.get(0).type));
+                return null;
+            }
+        } else {
+            for (KeyColumn column : this.shardKey) {
+                Object fieldValue = field(record, column.name);
+                if (!encode(buffer, column.type, fieldValue)) {
+                    fallback(String.format("Field %s of type %s can not be encoded as Kinetica %s", 
+                            column.name, fieldValue.getClass().getName(), column.type));
+                    return null;
+                }
+            }
+        }
+        return murmurHash3(buffer.array(), 0, buffer.capacity(), HASH_SEED);
+    }
+
+    /**
+     * @return number of records partitioned by key because their shard key could not be read
+     */
+    protected long getFallbacks() {
+        return this.fallbacks.get();
+    }
+
+    /**
+     * Counts a record partitioned by key instead of shard key, warning at most once a minute
+     * @param reason   why the shard key could not be read
+     */
+    private void fallback(String reason) {
+        long count = this.fallbacks.incrementAndGet();
+        long now = System.currentTimeMillis();
+        if (now - this.lastFallbackWarning >= FALLBACK_WARN_INTERVAL_MS) {
+            this.lastFallbackWarning = now;
+            LOG.warn("{}, partitioning by key hash instead of Kinetica shard key ({} records so far)", reason, count);
+        }
+    }
+
+    /**
+     * @param object   record key or value
+     * @return true when shard key columns can be read from the object by name
+     */
+    private static boolean isRecord(Object object) {
+        return object instanceof Struct || object instanceof Map 
+                || object instanceof org.apache.avro.generic.GenericRecord;
+    }
+
+    /**
+     * @param record   Connect Struct, Map or Avro record
+     * @param name     field name
+     * @return field value, null when the record has no such field
+     */
+    private static Object field(Object record, String name) {
+        if (record instanceof Struct) {
+            Struct struct = (Struct) record;
+            return struct.schema().field(name) == null ? null : struct.get(name);
+        }
+        if (record instanceof Map) {
+            return ((Map<?, ?>) record).get(name);
+        }
+        org.apache.avro.generic.GenericRecord avro = (org.apache.avro.generic.GenericRecord) record;
+        return avro.getSchema().getField(name) == null ? null : avro.get(name);
+    }
+
+    /**
+     * Appends a shard key value in Kinetica record key encoding, null values as zeros
+     * @param buffer   little-endian key buffer
+     * @param type     Kinetica column type
+     * @param value    shard key value, may be null
+     * @return false when the value does not fit the column type
+     */
+    private static boolean encode(ByteBuffer buffer, ColumnType type, Object value) {
+        if (value == null) {
+            buffer.put(new byte[type.size]);
+            return true;
+        }
+        switch (type) {
+            case INT:
+            case INT8:
+            case INT16:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                if (!(value instanceof Number)) {
+                    return false;
+                }
+                encodeNumber(buffer, type, (Number) value);
+                return true;
+            case TIMESTAMP:
+                if (value instanceof Date) {
+                    buffer.putLong(timestampKey(((Date) value).getTime()));
+                    return true;
+                }
+                if (!(value instanceof Number)) {
+                    return false;
+                }
+                buffer.putLong(timestampKey(((Number) value).longValue()));
+                return true;
+            case STRING:
+                if (!(value instanceof CharSequence)) {
+                    return false;
+                }
+                byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                buffer.putLong(murmurHash3(bytes, 0, bytes.length, HASH_SEED));
+                return true;
+            case DATE:
+            case DATETIME:
+            case TIME:
+                return encodeCalendar(buffer, type, value);
+            case DECIMAL:
+                return encodeDecimal(buffer, value);
+            case IPV4:
+                return value instanceof CharSequence && encodeIpv4(buffer, value.toString());
+            default:
+                // charN
+                if (!(value instanceof CharSequence)) {
+                    return false;
+                }
+                encodeCharN(buffer, value.toString(), type.size);
+                return true;
+        }
+    }
+
+    private static void encodeNumber(ByteBuffer buffer, ColumnType type, Number value) {
+        switch (type) {
+            case INT8:
+                buffer.put((byte) value.intValue());
+                break;
+            case INT16:
+                buffer.putShort((short) value.intValue());
+                break;
+            case INT:
+                buffer.putInt(value.intValue());
+                break;
+            case LONG:
+                buffer.putLong(value.longValue());
+                break;
+            case FLOAT:
+                buffer.putFloat(value.floatValue());
+                break;
+            default:
+                buffer.putDouble(value.doubleValue());
+                break;
+        }
+    }
+
+    /**
+     * Appends a charN value: UTF-8 bytes truncated to N, in reverse order after zero padding
+     */
+    private static void encodeCharN(ByteBuffer buffer, String value, int size) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int count = Math.min(bytes.length, size);
+        for (int i = size; i > count; i--) {
+            buffer.put((byte) 0);
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            buffer.put(bytes[i]);
+        }
+    }
+
+    /**
+     * Appends a decimal value as a long with four fractional digits
+     * @return false when the value is not a decimal(18,4) number
+     */
+    private static boolean encodeDecimal(ByteBuffer buffer, Object value) {
+        try {
+            BigDecimal decimal = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString().trim());
+            buffer.putLong(decimal.movePointRight(4).longValueExact());
+            return true;
+        } catch (ArithmeticException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Appends an IPv4 address as a 32-bit integer
+     * @return false when the value is not a dotted quad address
+     */
+    private static boolean encodeIpv4(ByteBuffer buffer, String value) {
+        Matcher matcher = IPV4_PATTERN.matcher(value);
+        if (!matcher.matches()) {
+            return false;
+        }
+        int address = 0;
+        for (int i = 1; i <= 4; i++) {
+            int octet = Integer.parseInt(matcher.group(i));
+            if (octet > 255) {
+                return false;
+            }
+            address = (address << 8) | octet;
+        }
+        buffer.putInt(address);
+        return true;
+    }
+
+    /**
+     * Appends a date, datetime or time value given as Kinetica string or as java.util.Date 
+     * (Connect Date, Timestamp and Time logical types)
+     * @return false when the value is not a valid date or time
+     */
+    private static boolean encodeCalendar(ByteBuffer buffer, ColumnType type, Object value) {
+        int[] fields;
+        if (value instanceof Date) {
+            Calendar calendar = utcCalendar();
+            calendar.setTimeInMillis(((Date) value).getTime());
+            fields = new int[] { calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                    calendar.get(Calendar.DAY_OF_MONTH), calendar.get(Calendar.HOUR_OF_DAY), 
+                    calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND), calendar.get(Calendar.MILLISECOND) };
+        } else if (value instanceof CharSequence) {
+            fields = parseCalendar(type, value.toString());
+            if (fields == null) {
+                return false;
+            }
+        } else {
+            return false;
+        }
+        if (type == ColumnType.TIME) {
+            buffer.putInt((fields[3] << 26) | (fields[4] << 20) | (fields[5] << 14) | (fields[6] << 4));
+            return true;
+        }
+        if (fields[0] < 1000 || fields[0] > 2900) {
+            return false;
+        }
+        Calendar calendar = utcCalendar();
+        calendar.setLenient(false);
+        calendar.set(fields[0], fields[1] - 1, fields[2]);
+        int dayOfYear;
+        int dayOfWeek;
+        try {
+            dayOfYear = calendar.get(Calendar.DAY_OF_YEAR);
+            dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (type == ColumnType.DATE) {
+            buffer.putInt(((fields[0] - 1900) << 21) | (fields[1] << 17) | (fields[2] << 12) 
+                    | (dayOfYear << 3) | dayOfWeek);
+        } else {
+            buffer.putLong(datetimeKey(fields, dayOfYear, dayOfWeek));
+        }
+        return true;
+    }
+
+    /**
+     * @param type    date, datetime or time
+     * @param value   Kinetica date (YYYY-MM-DD), datetime (YYYY-MM-DD [HH:MM:SS[.mmm]]) or time (HH:MM:SS[.mmm])
+     * @return year, month, day, hour, minute, second and millisecond, null when the value does not parse
+     */
+    private static int[] parseCalendar(ColumnType type, String value) {
+        int[] fields = new int[7];
+        Matcher matcher;
+        if (type == ColumnType.TIME) {
+            matcher = TIME_PATTERN.matcher(value);
+            if (!matcher.matches()) {
+                return null;
+            }
+            fields[3] = Integer.parseInt(matcher.group(1));
+            fields[4] = Integer.parseInt(matcher.group(2));
+            fields[5] = Integer.parseInt(matcher.group(3));
+            fields[6] = millis(matcher.group(4));
+        } else {
+            matcher = (type == ColumnType.DATE ? DATE_PATTERN : DATETIME_PATTERN).matcher(value);
+            if (!matcher.matches()) {
+                return null;
+            }
+            fields[0] = Integer.parseInt(matcher.group(1));
+            fields[1] = Integer.parseInt(matcher.group(2));
+            fields[2] = Integer.parseInt(matcher.group(3));
+            if (type == ColumnType.DATETIME && matcher.group(4) != null) {
+                fields[3] = Integer.parseInt(matcher.group(4));
+                fields[4] = Integer.parseInt(matcher.group(5));
+                fields[5] = Integer.parseInt(matcher.group(6));
+                fields[6] = millis(matcher.group(7));
+            }
+        }
+        if (fields[3] > 23 || fields[4] > 59 || fields[5] > 59) {
+            return null;
+        }
+        return fields;
+    }
+
+    /**
+     * @param fraction   fractional seconds digits, may be null
+     * @return milliseconds
+     */
+    private static int millis(String fraction) {
+        if (fraction == null) {
+            return 0;
+        }
+        String digits = (fraction + "00").substring(0, 3);
+        return Integer.parseInt(digits);
+    }
+
+    /**
+     * @param epochMs   milliseconds since epoch
+     * @return timestamp in Kinetica record key encoding
+     */
+    private static long timestampKey(long epochMs) {
+        Calendar calendar = utcCalendar();
+        calendar.setTimeInMillis(epochMs);
+        int[] fields = { calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH), calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE),
+                calendar.get(Calendar.SECOND), calendar.get(Calendar.MILLISECOND) };
+        return datetimeKey(fields, calendar.get(Calendar.DAY_OF_YEAR), calendar.get(Calendar.DAY_OF_WEEK));
+    }
+
+    private static long datetimeKey(int[] fields, int dayOfYear, int dayOfWeek) {
+        return ((long) (fields[0] - 1900) << 53)
+                | ((long) fields[1] << 49)
+                | ((long) fields[2] << 44)
+                | ((long) fields[3] << 39)
+                | ((long) fields[4] << 33)
+                | ((long) fields[5] << 27)
+                | ((long) fields[6] << 17)
+                | ((long) dayOfYear << 8)
+                | ((long) dayOfWeek << 5);
+    }
+
+    /**
+     * @return proleptic Gregorian calendar in UTC, as used by Kinetica
+     */
+    private static Calendar utcCalendar() {
+        GregorianCalendar calendar = new GregorianCalendar(UTC);
+        calendar.setGregorianChange(new Date(Long.MIN_VALUE));
+        calendar.clear();
+        return calendar;
+    }
+
+    /**
+     * MurmurHash3 x64 128-bit hash
+     * @param data     bytes to hash
+     * @param offset   first byte
+     * @param length   number of bytes
+     * @param seed     hash seed
+     * @return lower 64 bits of the hash
+     */
+    protected static long murmurHash3(byte[] data, int offset, int length, int seed) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        long h1 = seed & 0x00000000FFFFFFFFL;
+        long h2 = seed & 0x00000000FFFFFFFFL;
+        ByteBuffer buffer = ByteBuffer.wrap(data, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+        int end = offset + (length & ~15);
+        while (buffer.position() < end) {
+            long k1 = buffer.getLong();
+            long k2 = buffer.getLong();
+            k1 *= c1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            k2 *= c2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= c1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        long k1 = 0;
+        long k2 = 0;
+        int tail = end;
+        switch (length & 15) {
+            case 15: k2 ^= ((long) data[tail + 14] & 0xff) << 48;
+            case 14: k2 ^= ((long) data[tail + 13] & 0xff) << 40;
+            case 13: k2 ^= ((long) data[tail + 12] & 0xff) << 32;
+            case 12: k2 ^= ((long) data[tail + 11] & 0xff) << 24;
+            case 11: k2 ^= ((long) data[tail + 10] & 0xff) << 16;
+            case 10: k2 ^= ((long) data[tail + 9] & 0xff) << 8;
+            case 9:
+                k2 ^= ((long) data[tail + 8] & 0xff);
+                k2 *= c2;
+                k2 = Long.rotateLeft(k2, 33);
+                k2 *= c1;
+                h2 ^= k2;
+            case 8: k1 ^= ((long) data[tail + 7] & 0xff) << 56;
+            case 7: k1 ^= ((long) data[tail + 6] & 0xff) << 48;
+            case 6: k1 ^= ((long) data[tail + 5] & 0xff) << 40;
+            case 5: k1 ^= ((long) data[tail + 4] & 0xff) << 32;
+            case 4: k1 ^= ((long) data[tail + 3] & 0xff) << 24;
+            case 3: k1 ^= ((long) data[tail + 2] & 0xff) << 16;
+            case 2: k1 ^= ((long) data[tail + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= ((long) data[tail] & 0xff);
+                k1 *= c1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= c2;
+                h1 ^= k1;
+            default:
+                break;
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        return h1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -86,7 +86,11 @@ public class KineticaSinkConnector extends SinkConnector {
         List<Map<String, String>> taskConfigs = new ArrayList<>();
 
         for (int i = 0; i < maxTasks; i++) {
-            taskConfigs.add(new HashMap<>(this.configProps));
+            Map<String, String> taskConfig = new HashMap<>(this.configProps);
+            // connector-wide rate limits are split evenly between tasks
+            taskConfig.put(KineticaSinkConnectorConfig.TASK_COUNT, Integer.toString(maxTasks));
+            taskConfig.put(KineticaSinkConnectorConfig.TASK_ID, Integer.toString(i));
+            taskConfigs.add(taskConfig);
         }
         return taskConfigs;
     }
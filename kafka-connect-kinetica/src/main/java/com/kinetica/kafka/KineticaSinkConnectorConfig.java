@@ -22,6 +22,49 @@ public class KineticaSinkConnectorConfig extends AbstractConfig {
     public static final String PARAM_ENABLE_MULTI_HEAD = "kinetica.enable_multihead";
     public static final String PARAM_RETRY_COUNT       = "kinetica.retry_count";
     public static final String PARAM_BATCH_SIZE        = "kinetica.batch_size";
+    public static final String PARAM_BATCH_SIZE_BYTES  = "kinetica.batch_size_bytes";
+    public static final String PARAM_OFFSET_LEDGER     = "kinetica.offset_ledger.table";
+    public static final String PARAM_MAX_CONNECTIONS          = "kinetica.connections.max_total";
+    public static final String PARAM_MAX_CONNECTIONS_PER_HOST = "kinetica.connections.max_per_host";
+
+    public static final String PARAM_ADAPTIVE_BATCH_ENABLED        = "kinetica.adaptive_batch.enabled";
+    public static final String PARAM_ADAPTIVE_BATCH_MIN_SIZE       = "kinetica.adaptive_batch.min_size";
+    public static final String PARAM_ADAPTIVE_BATCH_MAX_SIZE       = "kinetica.adaptive_batch.max_size";
+    public static final String PARAM_ADAPTIVE_BATCH_TARGET_LATENCY = "kinetica.adaptive_batch.target_latency_ms";
+    public static final String PARAM_MEMORY_BUDGET_BYTES           = "kinetica.memory_budget_bytes";
+    public static final String PARAM_CACHE_MAX_TABLES              = "kinetica.cache.max_tables";
+    public static final String PARAM_CACHE_IDLE_TIMEOUT            = "kinetica.cache.idle_timeout_ms";
+    public static final String PARAM_CACHE_TYPE_TTL                = "kinetica.cache.type_ttl_ms";
+    public static final String PARAM_CACHE_WARM_START_DIR          = "kinetica.cache.warm_start_dir";
+    public static final String PARAM_COALESCE_UPDATES              = "kinetica.coalesce_updates";
+    public static final String PARAM_BACKPRESSURE_LATENCY          = "kinetica.backpressure.latency_ms";
+    public static final String PARAM_BACKPRESSURE_PENDING_BYTES    = "kinetica.backpressure.pending_bytes";
+    public static final String PARAM_BACKPRESSURE_MAX_PAUSE        = "kinetica.backpressure.max_pause_ms";
+    public static final String PARAM_RETRY_BACKOFF                 = "kinetica.retry.backoff_ms";
+    public static final String PARAM_RETRY_MAX_BACKOFF             = "kinetica.retry.max_backoff_ms";
+    public static final String PARAM_RETRY_MAX_RETRIES             = "kinetica.retry.max_retries";
+    public static final String PARAM_RATE_LIMIT_ROWS               = "kinetica.rate_limit.rows_per_sec";
+    public static final String PARAM_RATE_LIMIT_BYTES              = "kinetica.rate_limit.bytes_per_sec";
+    public static final String PARAM_RATE_LIMIT_TABLE_ROWS         = "kinetica.rate_limit.table_rows_per_sec";
+    public static final String PARAM_RATE_LIMIT_TABLE_BYTES        = "kinetica.rate_limit.table_bytes_per_sec";
+    public static final String PARAM_RATE_LIMIT_SCHEDULE           = "kinetica.rate_limit.schedule";
+    public static final String PARAM_FLUSH_TABLE_WEIGHTS           = "kinetica.flush.table_weights";
+    public static final String PARAM_FLUSH_MAX_PENDING_AGE         = "kinetica.flush.max_pending_age_ms";
+    public static final String PARAM_SPILL_DIR                     = "kinetica.spill.dir";
+    public static final String PARAM_SPILL_SEGMENT_BYTES           = "kinetica.spill.segment_bytes";
+    public static final String PARAM_SPILL_MAX_BYTES               = "kinetica.spill.max_bytes";
+    public static final String PARAM_FLUSH_TABLE_THREADS           = "kinetica.flush.table_threads";
+    public static final String PARAM_FLUSH_RANK_THREADS            = "kinetica.flush.rank_threads";
+    public static final String PARAM_FLUSH_SHARED_INSERTERS        = "kinetica.flush.shared_inserters";
+    public static final String PARAM_COMPRESSION                   = "kinetica.compression";
+    public static final String PARAM_HA_PROBE_INTERVAL             = "kinetica.ha.probe_interval_ms";
+
+    // number of tasks sharing connector-wide limits, set by the connector in task configs
+    public static final String TASK_COUNT = "kinetica.task_count";
+    // task number within the connector, set by the connector in task configs
+    public static final String TASK_ID = "kinetica.task_id";
+    // connector name, set by Kafka Connect
+    public static final String CONNECTOR_NAME = "name";
     
     public static final String DEPRECATED_PARAM_COLLECTION                   = "kinetica.collection_name";
     public static final String DEPRECATED_PARAM_DEST_TABLE_OVERRIDE          = "kinetica.dest_table_override";
@@ -46,9 +89,31 @@ public class KineticaSinkConnectorConfig extends AbstractConfig {
 
     private static final String DEFAULT_TIMEOUT = "0";
     private static final String DEFAULT_BATCH_SIZE = "10000";
+    public static final String DEFAULT_BATCH_SIZE_BYTES = "8388608";
+    public static final String DEFAULT_ADAPTIVE_BATCH_MIN_SIZE = "1000";
+    public static final String DEFAULT_ADAPTIVE_BATCH_MAX_SIZE = "100000";
+    public static final String DEFAULT_ADAPTIVE_BATCH_TARGET_LATENCY = "1000";
+    public static final String DEFAULT_MEMORY_BUDGET_BYTES = "268435456";
+    public static final String DEFAULT_CACHE_MAX_TABLES = "0";
+    public static final String DEFAULT_CACHE_IDLE_TIMEOUT = "0";
+    public static final String DEFAULT_CACHE_TYPE_TTL = "60000";
+    public static final String DEFAULT_BACKPRESSURE_LATENCY = "0";
+    public static final String DEFAULT_BACKPRESSURE_PENDING_BYTES = "0";
+    public static final String DEFAULT_BACKPRESSURE_MAX_PAUSE = "30000";
+    public static final String DEFAULT_RETRY_BACKOFF = "1000";
+    public static final String DEFAULT_RETRY_MAX_BACKOFF = "60000";
+    public static final String DEFAULT_RETRY_MAX_RETRIES = "10";
+    public static final String DEFAULT_RATE_LIMIT = "0";
+    public static final String DEFAULT_FLUSH_MAX_PENDING_AGE = "0";
+    public static final String DEFAULT_SPILL_SEGMENT_BYTES = "67108864";
+    public static final String DEFAULT_SPILL_MAX_BYTES = "1073741824";
+    public static final String DEFAULT_HA_PROBE_INTERVAL = "5000";
+    public static final String DEFAULT_FLUSH_TABLE_THREADS = "1";
+    public static final String DEFAULT_FLUSH_RANK_THREADS = "1";
     public static final String DEFAULT_DOT_REPLACEMENT = "_";
 
     private static final String PARAM_GROUP = "Kinetica Properties";
+    private static final String TUNING_GROUP = "Kinetica Ingest Tuning";
 
     static ConfigDef config = baseConfigDef();
     private final String connectorName;
@@ -64,12 +129,14 @@ public class KineticaSinkConnectorConfig extends AbstractConfig {
         // When SinkConnector has a single_table_per_topic flag set, check the lengths of topics name list
         // and destination table override names list, exit with error if list lengths differ
         if ( new Boolean(props.get(PARAM_SINGLE_TABLE_PER_TOPIC)) &&
-            !validateOverride(props.get(SinkTask.TOPICS_CONFIG), props.get(PARAM_DEST_TABLE_OVERRIDE))) {
+            !validateOverride(props.get(SinkTask.TOPICS_CONFIG), props.get(SinkTask.TOPICS_REGEX_CONFIG),
+                    props.get(PARAM_DEST_TABLE_OVERRIDE))) {
             throw new ConnectException("Invalid configuration, with " +
                     PARAM_SINGLE_TABLE_PER_TOPIC + " = " + props.get(PARAM_SINGLE_TABLE_PER_TOPIC) + "\n" +
                     "expected exactly one destination table name per each topic name:\n" +
                     PARAM_DEST_TABLE_OVERRIDE + " = " + props.get(PARAM_DEST_TABLE_OVERRIDE) + "\n" +
                     SinkTask.TOPICS_CONFIG + " = " + props.get(SinkTask.TOPICS_CONFIG) + "\n" +
+                    SinkTask.TOPICS_REGEX_CONFIG + " = " + props.get(SinkTask.TOPICS_REGEX_CONFIG) + "\n" +
                     "Both parameters can be comma-separated lists of equal length or " + PARAM_DEST_TABLE_OVERRIDE + " can be left blank.");
         }
         if (!props.containsKey(PARAM_TABLE_PREFIX)) {
@@ -153,7 +220,8 @@ public class KineticaSinkConnectorConfig extends AbstractConfig {
     public static ConfigDef baseConfigDef() {
         return new ConfigDef()
                 .define(PARAM_URL, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH,
-                        "Kinetica URL, e.g. 'http://localhost:9191'", PARAM_GROUP, 1, ConfigDef.Width.SHORT,
+                        "Kinetica URL, e.g. 'http://localhost:9191', or comma-separated head node URLs of "
+                        + "Kinetica clusters in an HA ring", PARAM_GROUP, 1, ConfigDef.Width.SHORT,
                         "Kinetica URL")
 
                 .define(PARAM_USERNAME, ConfigDef.Type.STRING, "", ConfigDef.Importance.MEDIUM,
@@ -254,7 +322,209 @@ public class KineticaSinkConnectorConfig extends AbstractConfig {
                 .define(DEPRECATED_PARAM_UPDATE_ON_EXISTING_PK, ConfigDef.Type.BOOLEAN, true, ConfigDef.Importance.LOW,
                         "Allow update on existing PK when inserting Kafka messages. (deprecated, use " + PARAM_UPDATE_ON_EXISTING_PK + 
                         " instead)", PARAM_GROUP, 25, ConfigDef.Width.SHORT,
-                        String.format("%s (deprecated)", DEPRECATED_PARAM_UPDATE_ON_EXISTING_PK));
+                        String.format("%s (deprecated)", DEPRECATED_PARAM_UPDATE_ON_EXISTING_PK))
+
+                .define(PARAM_OFFSET_LEDGER, ConfigDef.Type.STRING, "", ConfigDef.Importance.LOW,
+                        "Kinetica table storing the highest inserted offset per connector and topic partition, "
+                        + "created when missing. Partitions resume right after their ledger offset, so that records "
+                        + "already inserted are not processed again after a restart. (optional, default disabled)",
+                        PARAM_GROUP, 26, ConfigDef.Width.LONG, "Offset ledger table")
+
+                .define(PARAM_MAX_CONNECTIONS, ConfigDef.Type.INT, 0, Range.atLeast(0), ConfigDef.Importance.LOW,
+                        "Size of the HTTP connection pool of the Kinetica client shared by the tasks of a worker. "
+                        + "(optional, default 0); 0 = Kinetica API default",
+                        PARAM_GROUP, 27, ConfigDef.Width.SHORT, "Max connections")
+
+                .define(PARAM_MAX_CONNECTIONS_PER_HOST, ConfigDef.Type.INT, 0, Range.atLeast(0), ConfigDef.Importance.LOW,
+                        "HTTP connections per Kinetica host of the shared Kinetica client. "
+                        + "(optional, default 0); 0 = Kinetica API default",
+                        PARAM_GROUP, 28, ConfigDef.Width.SHORT, "Max connections per host")
+
+                .define(PARAM_BATCH_SIZE_BYTES, ConfigDef.Type.LONG, DEFAULT_BATCH_SIZE_BYTES, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Estimated size in bytes of encoded records at which a table batch is flushed, "
+                        + "whichever of " + PARAM_BATCH_SIZE + " or this limit is reached first. (optional, default " 
+                        + DEFAULT_BATCH_SIZE_BYTES + "); 0 = no byte limit",
+                        TUNING_GROUP, 1, ConfigDef.Width.SHORT, "Batch size (bytes)")
+
+                .define(PARAM_ADAPTIVE_BATCH_ENABLED, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.LOW,
+                        "Adjust the batch size of each table based on observed insert latency, starting from " 
+                        + PARAM_BATCH_SIZE + ". (optional, default false)",
+                        TUNING_GROUP, 2, ConfigDef.Width.SHORT, "Adaptive batch size")
+
+                .define(PARAM_ADAPTIVE_BATCH_MIN_SIZE, ConfigDef.Type.INT, DEFAULT_ADAPTIVE_BATCH_MIN_SIZE, Range.atLeast(1),
+                        ConfigDef.Importance.LOW, "Smallest batch size and batch size increment used by adaptive batching. "
+                        + "(optional, default " + DEFAULT_ADAPTIVE_BATCH_MIN_SIZE + ")",
+                        TUNING_GROUP, 3, ConfigDef.Width.SHORT, "Adaptive batch min size")
+
+                .define(PARAM_ADAPTIVE_BATCH_MAX_SIZE, ConfigDef.Type.INT, DEFAULT_ADAPTIVE_BATCH_MAX_SIZE, Range.atLeast(1),
+                        ConfigDef.Importance.LOW, "Largest batch size used by adaptive batching. (optional, default " 
+                        + DEFAULT_ADAPTIVE_BATCH_MAX_SIZE + ")",
+                        TUNING_GROUP, 4, ConfigDef.Width.SHORT, "Adaptive batch max size")
+
+                .define(PARAM_ADAPTIVE_BATCH_TARGET_LATENCY, ConfigDef.Type.LONG, DEFAULT_ADAPTIVE_BATCH_TARGET_LATENCY, 
+                        Range.atLeast(1), ConfigDef.Importance.LOW, "Insert latency in milliseconds above which adaptive batching "
+                        + "halves the batch size. (optional, default " + DEFAULT_ADAPTIVE_BATCH_TARGET_LATENCY + ")",
+                        TUNING_GROUP, 5, ConfigDef.Width.SHORT, "Adaptive batch target latency (ms)")
+
+                .define(PARAM_MEMORY_BUDGET_BYTES, ConfigDef.Type.LONG, DEFAULT_MEMORY_BUDGET_BYTES, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Estimated size in bytes of records pending in all table batches of a task. "
+                        + "When exceeded, the largest table batches are flushed first. (optional, default " 
+                        + DEFAULT_MEMORY_BUDGET_BYTES + "); 0 = no budget",
+                        TUNING_GROUP, 6, ConfigDef.Width.SHORT, "Memory budget (bytes)")
+
+                .define(PARAM_CACHE_MAX_TABLES, ConfigDef.Type.INT, DEFAULT_CACHE_MAX_TABLES, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Number of tables a task keeps BulkInserters, types and field mappers for. "
+                        + "Least recently used tables are flushed and evicted beyond this limit. (optional, default " 
+                        + DEFAULT_CACHE_MAX_TABLES + "); 0 = unlimited",
+                        TUNING_GROUP, 7, ConfigDef.Width.SHORT, "Cached tables limit")
+
+                .define(PARAM_CACHE_IDLE_TIMEOUT, ConfigDef.Type.LONG, DEFAULT_CACHE_IDLE_TIMEOUT, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Time in milliseconds after which a table that received no records is flushed "
+                        + "and evicted from the task cache. (optional, default " + DEFAULT_CACHE_IDLE_TIMEOUT + "); 0 = never",
+                        TUNING_GROUP, 8, ConfigDef.Width.SHORT, "Cached table idle timeout (ms)")
+
+                .define(PARAM_COALESCE_UPDATES, ConfigDef.Type.BOOLEAN, true, ConfigDef.Importance.LOW,
+                        "When " + PARAM_UPDATE_ON_EXISTING_PK + " is true, keep only the most recent record per primary key "
+                        + "in a table batch, so that each flush sends at most one row per key. (optional, default true)",
+                        TUNING_GROUP, 9, ConfigDef.Width.SHORT, "Coalesce updates by primary key")
+
+                .define(PARAM_BACKPRESSURE_LATENCY, ConfigDef.Type.LONG, DEFAULT_BACKPRESSURE_LATENCY, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Insert latency in milliseconds above which the topic partitions that fed "
+                        + "the slow batch are paused for as long as the insert took. (optional, default " 
+                        + DEFAULT_BACKPRESSURE_LATENCY + "); 0 = disabled",
+                        TUNING_GROUP, 10, ConfigDef.Width.SHORT, "Backpressure latency (ms)")
+
+                .define(PARAM_BACKPRESSURE_PENDING_BYTES, ConfigDef.Type.LONG, DEFAULT_BACKPRESSURE_PENDING_BYTES, 
+                        Range.atLeast(0), ConfigDef.Importance.LOW, "Estimated size in bytes of pending records above which "
+                        + "all topic partitions of a task are paused until pending records drop below half of it. "
+                        + "(optional, default " + DEFAULT_BACKPRESSURE_PENDING_BYTES + "); 0 = disabled",
+                        TUNING_GROUP, 11, ConfigDef.Width.SHORT, "Backpressure pending bytes")
+
+                .define(PARAM_BACKPRESSURE_MAX_PAUSE, ConfigDef.Type.LONG, DEFAULT_BACKPRESSURE_MAX_PAUSE, Range.atLeast(1),
+                        ConfigDef.Importance.LOW, "Longest time in milliseconds a topic partition stays paused by backpressure. "
+                        + "(optional, default " + DEFAULT_BACKPRESSURE_MAX_PAUSE + ")",
+                        TUNING_GROUP, 12, ConfigDef.Width.SHORT, "Backpressure max pause (ms)")
+
+                .define(PARAM_RETRY_BACKOFF, ConfigDef.Type.LONG, DEFAULT_RETRY_BACKOFF, Range.atLeast(1),
+                        ConfigDef.Importance.LOW, "Backoff in milliseconds before the first retry after a transient Kinetica "
+                        + "error (timeout, connection failure, HTTP 5xx, HA failover), doubled with each consecutive retry. "
+                        + "(optional, default " + DEFAULT_RETRY_BACKOFF + ")",
+                        TUNING_GROUP, 13, ConfigDef.Width.SHORT, "Retry backoff (ms)")
+
+                .define(PARAM_RETRY_MAX_BACKOFF, ConfigDef.Type.LONG, DEFAULT_RETRY_MAX_BACKOFF, Range.atLeast(1),
+                        ConfigDef.Importance.LOW, "Longest backoff in milliseconds between retries after transient Kinetica "
+                        + "errors. (optional, default " + DEFAULT_RETRY_MAX_BACKOFF + ")",
+                        TUNING_GROUP, 14, ConfigDef.Width.SHORT, "Retry max backoff (ms)")
+
+                .define(PARAM_RETRY_MAX_RETRIES, ConfigDef.Type.INT, DEFAULT_RETRY_MAX_RETRIES, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Consecutive retries after transient Kinetica errors before the task fails. "
+                        + "(optional, default " + DEFAULT_RETRY_MAX_RETRIES + "); 0 = retry forever",
+                        TUNING_GROUP, 15, ConfigDef.Width.SHORT, "Retry max retries")
+
+                .define(PARAM_RATE_LIMIT_ROWS, ConfigDef.Type.LONG, DEFAULT_RATE_LIMIT, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Rows per second the connector inserts into Kinetica, shared evenly by its "
+                        + "tasks. Partitions are paused while the limit is exceeded. (optional, default " 
+                        + DEFAULT_RATE_LIMIT + "); 0 = unlimited",
+                        TUNING_GROUP, 16, ConfigDef.Width.SHORT, "Rate limit (rows/sec)")
+
+                .define(PARAM_RATE_LIMIT_BYTES, ConfigDef.Type.LONG, DEFAULT_RATE_LIMIT, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Estimated bytes per second the connector inserts into Kinetica, shared evenly "
+                        + "by its tasks. (optional, default " + DEFAULT_RATE_LIMIT + "); 0 = unlimited",
+                        TUNING_GROUP, 17, ConfigDef.Width.SHORT, "Rate limit (bytes/sec)")
+
+                .define(PARAM_RATE_LIMIT_TABLE_ROWS, ConfigDef.Type.STRING, "", ConfigDef.Importance.LOW, 
+                        "Rows per second each task inserts into individual Kinetica tables, as comma-separated "
+                        + "table:limit pairs; a table fed by several tasks receives up to the limit from each. (optional)",
+                        TUNING_GROUP, 18, ConfigDef.Width.LONG, "Table rate limits (rows/sec)")
+
+                .define(PARAM_RATE_LIMIT_TABLE_BYTES, ConfigDef.Type.STRING, "", ConfigDef.Importance.LOW, 
+                        "Estimated bytes per second each task inserts into individual Kinetica tables, as comma-separated "
+                        + "table:limit pairs; a table fed by several tasks receives up to the limit from each. (optional)",
+                        TUNING_GROUP, 19, ConfigDef.Width.LONG, "Table rate limits (bytes/sec)")
+
+                .define(PARAM_RATE_LIMIT_SCHEDULE, ConfigDef.Type.STRING, "", ConfigDef.Importance.LOW, 
+                        "Multipliers of all rate limits by local time of day, as comma-separated fromHour-toHour:multiplier "
+                        + "entries, e.g. 22-6:4 to quadruple limits at night. (optional)",
+                        TUNING_GROUP, 20, ConfigDef.Width.LONG, "Rate limit schedule")
+
+                .define(PARAM_FLUSH_TABLE_WEIGHTS, ConfigDef.Type.STRING, "", ConfigDef.Importance.LOW, 
+                        "Flush weights of individual Kinetica tables, as comma-separated table:weight pairs. Batches are "
+                        + "flushed earliest deadline first, a table with weight N is due N times sooner than tables "
+                        + "with the default weight 1. (optional)",
+                        TUNING_GROUP, 21, ConfigDef.Width.LONG, "Table flush weights")
+
+                .define(PARAM_FLUSH_MAX_PENDING_AGE, ConfigDef.Type.LONG, DEFAULT_FLUSH_MAX_PENDING_AGE, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Longest time in milliseconds a record of a weight 1 table waits in a batch "
+                        + "before the batch is flushed, divided by the table weight. (optional, default " 
+                        + DEFAULT_FLUSH_MAX_PENDING_AGE + "); 0 = flush on batch size or offset commit only",
+                        TUNING_GROUP, 22, ConfigDef.Width.SHORT, "Flush max pending age (ms)")
+
+                .define(PARAM_SPILL_DIR, ConfigDef.Type.STRING, "", ConfigDef.Importance.LOW, 
+                        "Local directory of the spill journal. While Kinetica is unreachable, table batches are "
+                        + "written to the journal, offsets are committed and the journal is replayed into Kinetica "
+                        + "in the background once it recovers. Each task uses a <connector name>-<task id> "
+                        + "subdirectory. (optional, default disabled)",
+                        TUNING_GROUP, 23, ConfigDef.Width.LONG, "Spill journal directory")
+
+                .define(PARAM_SPILL_SEGMENT_BYTES, ConfigDef.Type.LONG, DEFAULT_SPILL_SEGMENT_BYTES, 
+                        Range.between(65536, Integer.MAX_VALUE), ConfigDef.Importance.LOW, 
+                        "Size of a memory-mapped spill journal segment file. (optional, default " 
+                        + DEFAULT_SPILL_SEGMENT_BYTES + ")",
+                        TUNING_GROUP, 24, ConfigDef.Width.SHORT, "Spill segment size (bytes)")
+
+                .define(PARAM_SPILL_MAX_BYTES, ConfigDef.Type.LONG, DEFAULT_SPILL_MAX_BYTES, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Most bytes of batches waiting in the spill journal of a task, "
+                        + "once full the task retries inserts instead. (optional, default " 
+                        + DEFAULT_SPILL_MAX_BYTES + "); 0 = unlimited",
+                        TUNING_GROUP, 25, ConfigDef.Width.SHORT, "Spill journal max size (bytes)")
+
+                .define(PARAM_FLUSH_TABLE_THREADS, ConfigDef.Type.INT, DEFAULT_FLUSH_TABLE_THREADS, 
+                        Range.between(1, 64), ConfigDef.Importance.LOW, "Number of tables a task inserts into "
+                        + "Kinetica concurrently during a flush, at most one insert per table is in flight. "
+                        + "(optional, default " + DEFAULT_FLUSH_TABLE_THREADS + ")",
+                        TUNING_GROUP, 26, ConfigDef.Width.SHORT, "Flush table threads")
+
+                .define(PARAM_FLUSH_RANK_THREADS, ConfigDef.Type.INT, DEFAULT_FLUSH_RANK_THREADS, 
+                        Range.between(1, 64), ConfigDef.Importance.LOW, "Number of threads the BulkInserter of "
+                        + "a table uses to send the queues of its ranks concurrently in multi-head mode, so that a "
+                        + "single table flushes its ranks in parallel. (optional, default " 
+                        + DEFAULT_FLUSH_RANK_THREADS + ")",
+                        TUNING_GROUP, 27, ConfigDef.Width.SHORT, "Flush rank threads")
+
+                .define(PARAM_FLUSH_SHARED_INSERTERS, ConfigDef.Type.BOOLEAN, false, ConfigDef.Importance.LOW,
+                        "When true, tasks of the connector running in the same worker share one insert pipeline "
+                        + "per table, batches flushed at the same time are sent to Kinetica together. The batch size is then "
+                        + "the size of the combined insert, each task buffers the batch size divided by tasks.max. "
+                        + "(optional, default false)",
+                        TUNING_GROUP, 28, ConfigDef.Width.SHORT, "Share inserters across tasks")
+
+                .define(PARAM_COMPRESSION, ConfigDef.Type.STRING, CompressionController.MODE_NONE, 
+                        ConfigDef.ValidString.in(CompressionController.MODE_NONE, CompressionController.MODE_SNAPPY, 
+                                CompressionController.MODE_AUTO), ConfigDef.Importance.LOW,
+                        "Compression of insert requests: none, snappy, or auto to compress the inserts of a table "
+                        + "only while compressed batches insert faster than uncompressed ones, the codec not in use is "
+                        + "measured with one batch every 50 flushes. "
+                        + "(optional, default none)",
+                        TUNING_GROUP, 29, ConfigDef.Width.SHORT, "Insert compression")
+
+                .define(PARAM_HA_PROBE_INTERVAL, ConfigDef.Type.LONG, DEFAULT_HA_PROBE_INTERVAL, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Time between health probes of the head nodes when several Kinetica "
+                        + "URLs are configured, BulkInserters are rebuilt against the next healthy head node once the "
+                        + "active one is down. (optional, default " + DEFAULT_HA_PROBE_INTERVAL + "); 0 = no probing",
+                        TUNING_GROUP, 30, ConfigDef.Width.SHORT, "HA probe interval (ms)")
+
+                .define(PARAM_CACHE_TYPE_TTL, ConfigDef.Type.LONG, DEFAULT_CACHE_TYPE_TTL, Range.atLeast(0),
+                        ConfigDef.Importance.LOW, "Time in milliseconds Kinetica table types are cached for all tasks "
+                        + "of the worker. Types are fetched again earlier when inserts fail, at most once per backoff. "
+                        + "(optional, default " + DEFAULT_CACHE_TYPE_TTL + "); 0 = fetch on every lookup",
+                        TUNING_GROUP, 31, ConfigDef.Width.SHORT, "Table type cache TTL (ms)")
+
+                .define(PARAM_CACHE_WARM_START_DIR, ConfigDef.Type.STRING, "", ConfigDef.Importance.LOW, 
+                        "Local directory of the warm-start cache. Table types, known schemas and field mappings "
+                        + "are saved to a <connector name>.warm file at offset commits and loaded when tasks start, "
+                        + "so that restarted tasks do not look up every table before inserting. Loaded types are "
+                        + "validated against Kinetica in the background. (optional, default disabled)",
+                        TUNING_GROUP, 32, ConfigDef.Width.LONG, "Warm-start cache directory");
 
     }
 
@@ -266,15 +536,20 @@ public class KineticaSinkConnectorConfig extends AbstractConfig {
      * Validates the table override parameters
      *
      * @param topicNames list of topics as a String
+     * @param topicsRegex topic subscription pattern, could be left empty
      * @param tableOverrideNames list of table names overriding topic names in Kinetica, could be left empty
      *
      * @return whether tableOverrideNames is well-formed and override is possible
      */
-    private static boolean validateOverride (String topicNames, String tableOverrideNames) {
+    private static boolean validateOverride (String topicNames, String topicsRegex, String tableOverrideNames) {
         if (tableOverrideNames == null || tableOverrideNames.isEmpty()) {
             // no override to be performed
             return true;
         }
+        if ((topicNames == null || topicNames.isEmpty()) && topicsRegex != null && !topicsRegex.isEmpty()) {
+            // all topics matching the regex go into a single override table
+            return !tableOverrideNames.contains(",");
+        }
         if (topicNames!=null && !topicNames.isEmpty()) {
             if (!topicNames.contains(",") && !tableOverrideNames.contains(",")) {
                 // single topic name found and single override name found
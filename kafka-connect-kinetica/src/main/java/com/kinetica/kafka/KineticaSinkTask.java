@@ -1,13 +1,27 @@
 package com.kinetica.kafka;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
 import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.KafkaException;
@@ -16,11 +30,15 @@ import org.apache.kafka.common.utils.AppInfoParser;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.errors.RetriableException;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.apache.kafka.connect.sink.SinkTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xerial.snappy.Snappy;
 
+import com.gpudb.Avro;
 import com.gpudb.BulkInserter;
 import com.gpudb.BulkInserter.InsertException;
 import com.gpudb.GPUdbException;
@@ -48,13 +66,56 @@ public class KineticaSinkTask extends SinkTask {
     // Dates larger than this will fail in 6.1
     private final static long MAX_DATE = 29379542399999L;
     private final static long MIN_DATE = -30610224000000L;
+    // time to wait for an ongoing spill journal replay when the task stops
+    private final static long SPILL_DRAINER_SHUTDOWN_MS = 10000L;
+    private final static long HEALTH_PROBE_SHUTDOWN_MS = 1000L;
+    // records encoded to sample the compression ratio of a table
+    private final static int COMPRESSION_SAMPLE_RECORDS = 100;
 
     // cached objects
     private final HashMap<String, BulkInserter<GenericRecord>> biMap = new HashMap<>();
+    // worker-wide insert pipelines per table, when enabled
+    private final HashMap<String, SharedTableInserter> sharedInserters = new HashMap<>();
     private final HashMap<String, Type> typeMap = new HashMap<>();
+    private final HashMap<String, SinkTableBuffer> bufferMap = new HashMap<>();
+    // offset of the last record added to a table batch per partition, records redelivered after a retry are skipped
+    private final HashMap<TopicPartition, Long> bufferedOffsets = new HashMap<>();
+    // time of the last record per cached table, in least recently used order
+    private final LinkedHashMap<String, Long> tableAccess = new LinkedHashMap<>(16, 0.75f, true);
 
     private final SimpleDateFormat tsFormatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
     SinkSchemaManager schemaMgr;
+    // task identifier used to name JMX metrics, Connect names task threads after connector name and task id
+    private String taskName;
+    private SinkTaskMetrics taskMetrics;
+    // dead letter queue reporter, null when errors.tolerance is none or the Connect runtime predates Kafka 2.6
+    private ErrantRecordReporter reporter;
+    // pauses partitions while Kinetica falls behind, null when disabled
+    private PartitionBackpressure backpressure;
+    // backoff between retries after transient Kinetica errors
+    private RetryBackoff retryBackoff;
+    // ingest rate limits, null when not configured
+    private IngestRateLimiter rateLimiter;
+    // orders table flushes by pending age and weight
+    private FlushScheduler flushScheduler;
+    // local journal of batches spilled while Kinetica is unreachable, null when disabled
+    private SpillJournal spillJournal;
+    // replays the spill journal into Kinetica
+    private SpillDrainer spillDrainer;
+    // probes head nodes of HA clusters, null with a single Kinetica URL
+    private KineticaHealthProbe healthProbe;
+    // set by the health probe, BulkInserters are rebuilt on the task thread
+    private volatile boolean failoverPending = false;
+    // runs table batch inserts concurrently, null when tables are flushed one at a time
+    private ExecutorService flushExecutor;
+    // highest inserted offset per partition kept in Kinetica, null when disabled
+    private OffsetLedger offsetLedger;
+    // table state saved across restarts of the connector, null when disabled
+    private WarmStartCache warmStart;
+    // tables with a full batch held back by rate limits
+    private final HashSet<String> throttledTables = new HashSet<>();
+    // estimated size of records pending in all table batches
+    private long pendingBytes = 0;
 
     /**
      * Start the Task. This should handle any configuration parsing and one-time setup of the task.
@@ -63,10 +124,193 @@ public class KineticaSinkTask extends SinkTask {
     @Override
     public void start(Map<String, String> props) {
         this.schemaMgr = new SinkSchemaManager(props);
+        this.taskName = Thread.currentThread().getName();
+        this.retryBackoff = this.schemaMgr.createRetryBackoff();
+        this.rateLimiter = this.schemaMgr.createRateLimiter();
+        this.flushScheduler = this.schemaMgr.createFlushScheduler();
+        this.taskMetrics = new SinkTaskMetrics(this.taskName, this.schemaMgr.getMemoryBudgetBytes());
+        this.taskMetrics.register();
+        try {
+            this.reporter = this.context == null ? null : this.context.errantRecordReporter();
+        } catch (NoSuchMethodError | NoClassDefFoundError e) {
+            LOG.warn("Errant record reporting is not supported by this Kafka Connect runtime");
+            this.reporter = null;
+        }
+        // pausing partitions requires the task context
+        this.backpressure = this.context == null ? null : this.schemaMgr.createBackpressure();
+        this.offsetLedger = this.schemaMgr.createOffsetLedger();
+        this.warmStart = this.schemaMgr.openWarmStartCache();
+        this.flushExecutor = createFlushExecutor(this.schemaMgr.getFlushTableThreads());
+        this.spillJournal = this.schemaMgr.openSpillJournal();
+        if (this.spillJournal != null) {
+            final SinkSchemaManager mgr = this.schemaMgr;
+            this.taskMetrics.spillChanged(this.spillJournal);
+            this.spillDrainer = new SpillDrainer(this.taskName + "-spill-drainer", this.spillJournal, 
+                    new SpillDrainer.Replayer() {
+                        @Override
+                        public void replay(String tableName, List<ByteBuffer> records) throws Exception {
+                            mgr.insertEncoded(tableName, records);
+                        }
+
+                        @Override
+                        public void refreshType(String tableName) throws Exception {
+                            mgr.refreshType(tableName);
+                        }
+                    }, this.schemaMgr.createRetryBackoff(), this.taskMetrics);
+            this.spillDrainer.start();
+        }
+        this.healthProbe = this.schemaMgr.createHealthProbe(this.taskName + "-ha-probe", 
+                new KineticaHealthProbe.Listener() {
+                    @Override
+                    public void failover(URL from, URL to) {
+                        // handled on the task thread before the next insert
+                        KineticaSinkTask.this.failoverPending = true;
+                    }
+                });
+        if (this.healthProbe != null) {
+            this.healthProbe.start();
+        }
+    }
+
+    /**
+     * Rebuilds BulkInserters after the health probe reported a head node failover, so that pending
+     * batches are inserted through the new head node and its workers instead of failing and being retried
+     */
+    private void handleFailover() {
+        if (!this.failoverPending) {
+            return;
+        }
+        this.failoverPending = false;
+        this.schemaMgr.refreshWorkerList();
+        for (String tableName : new ArrayList<>(this.biMap.keySet())) {
+            try {
+                this.biMap.put(tableName, this.schemaMgr.getBulkInserter(tableName, this.typeMap.get(tableName)));
+            } catch (GPUdbException e) {
+                // the current BulkInserter stays, inserts fail over within the Kinetica client
+                LOG.warn("Unable to rebuild BulkInserter of Kinetica table {} after failover: {}", tableName, e.getMessage());
+            }
+        }
+        this.taskMetrics.failedOver();
+        LOG.info("[{}] Rebuilt {} BulkInserters after Kinetica failover", this.taskName, this.biMap.size());
+    }
+
+    /**
+     * @param threads   number of concurrent table batch inserts
+     * @return flush executor with background threads named after the task, null for a single thread
+     */
+    private ExecutorService createFlushExecutor(int threads) {
+        if (threads <= 1) {
+            return null;
+        }
+        // the pool size bounds concurrent inserts also when its threads are virtual
+        return Executors.newFixedThreadPool(threads, KineticaThreads.newThreadFactory(this.taskName + "-flush-"));
+    }
+
+    /**
+     * Prefetches Kinetica types and BulkInserters of tables fed by newly assigned partitions, 
+     * state of tables already cached is kept across rebalances.
+     * @param partitions   topic partitions assigned to the task
+     */
+    @Override
+    public void open(Collection<TopicPartition> partitions) {
+        if (this.schemaMgr == null) {
+            return;
+        }
+        HashSet<String> topics = new HashSet<>();
+        for (TopicPartition tp : partitions) {
+            topics.add(tp.topic());
+        }
+        for (String topic : topics) {
+            String tableName = this.schemaMgr.getTopicTable(topic);
+            if (tableName == null || this.biMap.containsKey(tableName)) {
+                continue;
+            }
+            try {
+                Type gpudbSchema = this.schemaMgr.getExistingType(tableName);
+                if (gpudbSchema == null) {
+                    // table is created from the schema of the first record
+                    continue;
+                }
+                this.typeMap.put(tableName, gpudbSchema);
+                this.biMap.put(tableName, this.schemaMgr.getBulkInserter(tableName, gpudbSchema));
+                this.tableAccess.put(tableName, System.currentTimeMillis());
+                LOG.debug("[{}] Prefetched type of <{}> for topic {}", this.taskName, tableName, topic);
+            } catch (Exception e) {
+                // records of the topic look the table up again
+                LOG.warn("Unable to prefetch type of Kinetica table {} for topic {}: {}", tableName, topic, e.getMessage());
+            }
+        }
+        this.taskMetrics.cachedTablesChanged(this.biMap.size());
+        if (this.offsetLedger != null) {
+            seekToLedgerOffsets(partitions);
+        }
+    }
+
+    /**
+     * Positions assigned partitions right after their offset ledger entries, 
+     * records up to the ledger offset have been inserted already
+     * @param partitions   topic partitions assigned to the task
+     */
+    private void seekToLedgerOffsets(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, Long> ledgerOffsets;
+        try {
+            ledgerOffsets = this.offsetLedger.load(partitions);
+        } catch (GPUdbException e) {
+            // committed offsets are never ahead of the ledger, records are only processed again
+            LOG.warn("Unable to read offset ledger {}, resuming from committed offsets: {}", 
+                    this.offsetLedger.getTableName(), e.getMessage());
+            return;
+        }
+        Map<TopicPartition, Long> seekOffsets = new HashMap<>();
+        for (Map.Entry<TopicPartition, Long> entry : ledgerOffsets.entrySet()) {
+            seekOffsets.put(entry.getKey(), entry.getValue() + 1);
+            // records delivered before the seek takes effect are skipped as well
+            this.bufferedOffsets.put(entry.getKey(), entry.getValue());
+        }
+        if (!seekOffsets.isEmpty() && this.context != null) {
+            this.context.offset(seekOffsets);
+            LOG.info("[{}] Resuming {} partitions after offset ledger entries: {}", this.taskName, 
+                    seekOffsets.size(), seekOffsets);
+        }
     }
 
     /**
-     * Loop through all Kinetica BulkInserters in biMap to flush all inserted records 
+     * Drops buffered records and redelivery state of revoked partitions. Offsets were committed right before, 
+     * so records still buffered were not inserted and are redelivered to the new owner of the partition.
+     * Types, BulkInserters and field mappers of tables are kept for partitions assigned again later.
+     * @param partitions   topic partitions revoked from the task
+     */
+    @Override
+    public void close(Collection<TopicPartition> partitions) {
+        for (SinkTableBuffer buffer : this.bufferMap.values()) {
+            long bytesBefore = buffer.getPendingBytes();
+            int dropped = buffer.removePartitions(partitions);
+            if (dropped > 0) {
+                this.pendingBytes -= bytesBefore - buffer.getPendingBytes();
+                if (buffer.isEmpty()) {
+                    this.throttledTables.remove(buffer.getTableName());
+                }
+                LOG.info("[{}] Dropped {} records of revoked partitions buffered for <{}>", 
+                        this.taskName, dropped, buffer.getTableName());
+            }
+        }
+        for (TopicPartition tp : partitions) {
+            this.bufferedOffsets.remove(tp);
+        }
+        if (this.offsetLedger != null) {
+            this.offsetLedger.forget(partitions);
+        }
+        if (this.backpressure != null) {
+            this.backpressure.forget(partitions);
+            this.taskMetrics.backpressureChanged(this.backpressure);
+        }
+        if (this.taskMetrics != null) {
+            this.taskMetrics.pendingBytesChanged(this.pendingBytes);
+        }
+    }
+
+    /**
+     * Loop through all table batches in bufferMap, earliest deadline first, to flush all inserted records 
      * that have been {@link #put(Collection)} for the specified topic-partitions.
      *
      * @param currentOffsets the current offset state as of the last call to {@link #put(Collection)}},
@@ -75,23 +319,18 @@ public class KineticaSinkTask extends SinkTask {
      */
     @Override
     public void flush(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
-
-        for(BulkInserter<GenericRecord> bi : this.biMap.values()) {
-            try {
-                long recordsBefore = bi.getCountInserted();
-                bi.flush();
-                long recordsInserted = bi.getCountInserted() - recordsBefore;
-
-                if(recordsInserted == 0) {
-                    continue;
-                }
-                LOG.debug("[{}] Flushing {} records for <{}>",
-                        Thread.currentThread().getName(), recordsInserted, bi.getTableName());
-            }
-            catch (GPUdbException ex) {
-                LOG.error("Unable to insert into table: {}", bi.getTableName(), ex);
-                throw new ConnectException(ex);
-            }
+        if (this.flushScheduler == null) {
+            return;
+        }
+        handleFailover();
+        flushTables(this.flushScheduler.flushOrder(this.bufferMap.values()));
+        evictIdleTables();
+        writeOffsetLedger();
+        saveWarmStart();
+        this.retryBackoff.reset();
+        this.taskMetrics.pendingBytesChanged(this.pendingBytes);
+        if (this.backpressure != null) {
+            this.taskMetrics.backpressureChanged(this.backpressure);
         }
     }
     
@@ -100,25 +339,54 @@ public class KineticaSinkTask extends SinkTask {
      */
     @Override
     public void stop() {
-        for(BulkInserter<GenericRecord> bi : this.biMap.values()) {
-            try {
-                long recordsBefore = bi.getCountInserted();
-                bi.flush();
-                long recordsInserted = bi.getCountInserted() - recordsBefore;
-
-                if(recordsInserted == 0) {
-                    continue;
-                }
-                LOG.debug("[{}] Flushing {} records for <{}>",
-                        Thread.currentThread().getName(), recordsInserted, bi.getTableName());
+        try {
+            if (this.flushScheduler != null) {
+                flushTables(this.flushScheduler.flushOrder(this.bufferMap.values()));
+            }
+        } finally {
+            if (this.warmStart != null) {
+                saveWarmStart();
+                this.warmStart.release();
+                this.warmStart = null;
+            }
+            if (this.healthProbe != null) {
+                this.healthProbe.shutdown(HEALTH_PROBE_SHUTDOWN_MS);
+                this.healthProbe = null;
+            }
+            if (this.spillDrainer != null) {
+                // batches not replayed yet stay on disk for the next start of this task
+                this.spillDrainer.shutdown(SPILL_DRAINER_SHUTDOWN_MS);
+                this.spillDrainer = null;
+            }
+            if (this.spillJournal != null) {
+                this.spillJournal.close();
+                this.spillJournal = null;
+            }
+            if (this.flushExecutor != null) {
+                this.flushExecutor.shutdownNow();
+                this.flushExecutor = null;
+            }
+            for(SinkTableBuffer buffer : this.bufferMap.values()) {
+                buffer.getMetrics().unregister();
             }
-            catch (GPUdbException ex) {
-                LOG.error("Unable to insert into table: {}", bi.getTableName(), ex);
-                throw new ConnectException(ex);
+            if (this.taskMetrics != null) {
+                this.taskMetrics.unregister();
+            }
+            for (SharedTableInserter shared : this.sharedInserters.values()) {
+                shared.release();
+            }
+            this.sharedInserters.clear();
+            this.bufferMap.clear();
+            this.biMap.clear();
+            this.typeMap.clear();
+            this.tableAccess.clear();
+            this.bufferedOffsets.clear();
+            this.throttledTables.clear();
+            this.pendingBytes = 0;
+            if (this.schemaMgr != null) {
+                this.schemaMgr.close();
             }
         }
-        this.biMap.clear();
-        this.typeMap.clear();
     }
 
     /**
@@ -135,6 +403,14 @@ public class KineticaSinkTask extends SinkTask {
      */
     @Override
     public void put(Collection<SinkRecord> sinkRecords) {
+        // put() keeps being called with no records while all partitions are paused
+        if (this.backpressure != null) {
+            this.backpressure.maybeResume(this.context, this.pendingBytes, System.currentTimeMillis());
+            this.taskMetrics.backpressureChanged(this.backpressure);
+        }
+        handleFailover();
+        flushThrottledTables();
+        flushOverdueTables();
         if (sinkRecords.isEmpty()) {
             return;
         }
@@ -143,21 +419,31 @@ public class KineticaSinkTask extends SinkTask {
         // Loop through all sink records in the collection and create records
         // out of them.
         for (SinkRecord sinkRecord : sinkRecords) {
+            TopicPartition tp = sinkRecord.kafkaPartition() == null ? null 
+                    : new TopicPartition(sinkRecord.topic(), sinkRecord.kafkaPartition());
+            Long bufferedOffset = tp == null ? null : this.bufferedOffsets.get(tp);
+            if (bufferedOffset != null && sinkRecord.kafkaOffset() <= bufferedOffset) {
+                // redelivered after a retriable error, record is already in a table batch or inserted
+                continue;
+            }
             LOG.debug("sinkRecord " + sinkRecord + " \nkeySchema = [" + sinkRecord.keySchema() + "] \nvalueSchema = [" + sinkRecord.valueSchema() + 
                     "] \nkey = [" + sinkRecord.key() + "] \nvalue =[" + sinkRecord.value() + "]");
             Type gpudbSchema;
             BulkInserter<GenericRecord> builkInserter;
             String tableName = null;
             KineticaFieldMapper mapper;
-            Integer schemaVersion;
+            ResolvedSchema resolved = null;
+            Long schemaVersion;
             try {
+                // resolve destination table and schema key, once per distinct schema
+                resolved = resolveSchema(sinkRecord);
                 // lookup a matching BulkInserter object for the given record 
-                builkInserter = getBulkInserter(sinkRecord);
+                builkInserter = getBulkInserter(sinkRecord, resolved);
                 // lookup Kinetica schema type
                 gpudbSchema = this.typeMap.get(builkInserter.getTableName());
-                // extract tablename and schema version for mapper lookup
+                // extract tablename and schema key for mapper lookup
                 tableName = builkInserter.getTableName();
-                schemaVersion = this.schemaMgr.versionOf(sinkRecord.valueSchema());
+                schemaVersion = resolved.getSchemaKey();
                 // lookup a KineticaFieldMapper in the schema manager by tablename/version
                 // KineticaFieldMapper maps record values to columns in the Kinetica table
                 mapper = this.schemaMgr.getFieldMapper(tableName, schemaVersion);
@@ -168,30 +454,25 @@ public class KineticaSinkTask extends SinkTask {
                 LOG.debug("Mapped fields:" + Arrays.asList(mapper.getMapped().keySet().toArray(new String[mapper.getMapped().keySet().size()])));
                 LOG.debug("Missing fields:" + Arrays.asList(mapper.getMissing().keySet().toArray(new String[mapper.getMissing().keySet().size()])));
             }
+            catch (RetriableException ex) {
+                throw ex;
+            }
             catch (Exception ex) {
+                if (KineticaErrorClassifier.isRetriable(ex)) {
+                    throw retryOrFail(String.format("Unable to obtain schema for %s", tableName), ex);
+                }
                 KafkaException kex = new KafkaException(String.format("Unable to obtain schema: %s",
                         ex.getMessage()), ex);
                 LOG.error(kex.getMessage(), ex);
-                this.schemaMgr.addToBlackListed(tableName, sinkRecord.valueSchema());
+                this.schemaMgr.addToBlackListed(tableName, resolved != null ? resolved.getSchema() : sinkRecord.valueSchema());
                 throw kex;
             }
+            this.tableAccess.put(tableName, System.currentTimeMillis());
 
             GenericRecord gpudbRecord;
 
             try {
                 gpudbRecord = convertRecord(sinkRecord.value(), gpudbSchema, mapper);
-                builkInserter.insert(gpudbRecord);
-            }
-            catch (InsertException e) {
-                // If the current BulkInserter failed because Kinetica table has been modified,
-                // get the most up-to-date Type and syncronize local cached BulkInserter and Type.
-                // if there is a deeper error, it would be rethrown from syncBulkInserter method
-                try {
-                    syncBulkInserter(tableName, e.getRecords());
-                    syncMapper(tableName, schemaVersion, mapper);
-                } catch (Exception ex) {
-                    throw new ConnectException(ex);
-                }
             }
             catch(Exception ex) {
                 // catch and rethrow format-related exceptions
@@ -200,60 +481,84 @@ public class KineticaSinkTask extends SinkTask {
                 LOG.error(kex.getMessage(), ex);
                 throw kex;
             }
+
+            // add record to the table batch, batch is flushed when it reaches record count or size limit
+            SinkTableBuffer buffer = getTableBuffer(tableName);
+            long bytesBefore = buffer.getPendingBytes();
+            buffer.add(gpudbRecord, gpudbSchema, sinkRecord);
+            this.pendingBytes += buffer.getPendingBytes() - bytesBefore;
+            if (tp != null) {
+                this.bufferedOffsets.put(tp, sinkRecord.kafkaOffset());
+            }
+            if (buffer.isFull() && !isThrottled(buffer) && flushTable(tableName)) {
+                // BulkInserter was synchronized with modified Kinetica table, mapper needs an update as well
+                syncMapper(tableName, schemaVersion, mapper);
+            }
+            enforceMemoryBudget();
+            evictLeastRecentlyUsed();
+        }
+        this.taskMetrics.pendingBytesChanged(this.pendingBytes);
+        if (this.backpressure != null) {
+            // records left pending after the memory budget was enforced
+            this.backpressure.onPending(this.context, this.pendingBytes, System.currentTimeMillis());
+            this.taskMetrics.backpressureChanged(this.backpressure);
         }
 
         LOG.debug("Sunk {} records", sinkRecords.size());
     }
 
     /**
-     * Return BulkInserter for a pre-existing or created on demand Kinetica table
+     * Resolves the destination table and schema key of a record. Kafka Schemas are resolved once per
+     * distinct schema by the schema manager, schemaless records are routed by their key or topic.
      * @param record    incoming Kafka record
-     * @return BulkInserter object
+     * @return resolved routing and conversion state
      * @throws Exception
      */
-    private BulkInserter<GenericRecord> getBulkInserter(SinkRecord record) throws Exception {
-        
-        LOG.debug(" getBulkInserter..... ");
-        
-        String tableName;
-        Object genericSchema = record.valueSchema();
-        
-        if(genericSchema == null) {
-            
-            LOG.debug(" getBulkInserter.....schema is null ");
-            
-            // this must be a schemaless record
-
-            Object keyValue = record.key();
-            String sourceTable = null;
-            if(keyValue!=null && keyValue.getClass() == String.class) {
-                // for schemaless records assume the key has the table name
-                sourceTable = (String)keyValue;
-            }
+    private ResolvedSchema resolveSchema(SinkRecord record) throws Exception {
+        Schema valueSchema = record.valueSchema();
+        if (valueSchema != null) {
+            LOG.debug(" resolveSchema.....schema is kafka " + valueSchema + " " + valueSchema.getClass());
+            // table name generated from topic or kafka schema
+            return this.schemaMgr.resolve(record.topic(), valueSchema);
+        }
 
-            if (sourceTable == null) {
-                sourceTable = record.topic();
-            }
-            // get that tablename from the key
-            tableName = this.schemaMgr.getDestTable(record.topic(), sourceTable);
+        LOG.debug(" resolveSchema.....schema is null ");
 
-            @SuppressWarnings("unchecked")
-            HashMap<String, Object> valueHash = (HashMap<String, Object>)record.value();
-            
-            LOG.debug(" Value hash is " + valueHash);
-            
-            genericSchema = getColumnsFromMap(valueHash);
+        // this must be a schemaless record
+        Object keyValue = record.key();
+        String sourceTable = null;
+        if(keyValue!=null && keyValue.getClass() == String.class) {
+            // for schemaless records assume the key has the table name
+            sourceTable = (String)keyValue;
         }
-        else {
-            LOG.debug(" getBulkInserter.....schema is kafka " + genericSchema + " " + genericSchema.getClass());
-            // must be a kafka Schema
-            Schema kafkaSchema = (Schema)genericSchema;
 
-            
-            // generate tablename from kafka schema
-            tableName = this.schemaMgr.getDestTable(record.topic(), kafkaSchema.name());
-            LOG.debug("set the table name..."+tableName);
+        if (sourceTable == null) {
+            sourceTable = record.topic();
         }
+        // get that tablename from the key
+        String tableName = this.schemaMgr.getDestTable(record.topic(), sourceTable);
+
+        @SuppressWarnings("unchecked")
+        HashMap<String, Object> valueHash = (HashMap<String, Object>)record.value();
+
+        LOG.debug(" Value hash is " + valueHash);
+
+        return new ResolvedSchema(record.topic(), tableName, getColumnsFromMap(valueHash), null);
+    }
+
+    /**
+     * Return BulkInserter for a pre-existing or created on demand Kinetica table
+     * @param record    incoming Kafka record
+     * @param resolved  destination table and schema of the record
+     * @return BulkInserter object
+     * @throws Exception
+     */
+    private BulkInserter<GenericRecord> getBulkInserter(SinkRecord record, ResolvedSchema resolved) throws Exception {
+        
+        LOG.debug(" getBulkInserter..... ");
+        
+        String tableName = resolved.getTableName();
+        Object genericSchema = resolved.getSchema();
 
         if (this.schemaMgr.isBlackListed(tableName, genericSchema)) {
             LOG.debug("Schema is blacklisted " + tableName );
@@ -265,10 +570,19 @@ public class KineticaSinkTask extends SinkTask {
         
         BulkInserter<GenericRecord> bulkInserter;
         Type gpudbSchema = this.typeMap.get(tableName);
+        if (needsSchemaMapping && gpudbSchema == null) {
+            // schemas restored from the warm-start cache, the table type is needed to match a new schema
+            gpudbSchema = this.schemaMgr.getExistingType(tableName);
+            if (gpudbSchema != null) {
+                this.typeMap.put(tableName, gpudbSchema);
+            }
+            // the table may have changed or been dropped since the cache was saved
+            needsSchemaMapping = gpudbSchema != null && this.schemaMgr.needsSchemaMapping(tableName, genericSchema);
+        }
         
         if (needsSchemaMapping) {
             // in case Kinetica table and GPUdb Type have to be updated, old BulkInserter should be flushed 
-            this.biMap.get(tableName).flush();
+            flushTable(tableName);
             // match the schemas and get the result of merge
             AlterTableColumnsRequest alterTableRequest = this.schemaMgr.matchSchemas(tableName, genericSchema, gpudbSchema);
             
@@ -284,21 +598,21 @@ public class KineticaSinkTask extends SinkTask {
                 bulkInserter = this.schemaMgr.getBulkInserter(tableName, gpudbSchema);
                 this.biMap.put(tableName, bulkInserter);
 
-                // add new schema to known schemas
-                this.schemaMgr.addToKnownSchemas(tableName, gpudbSchema);
-                
                 // need to update cached field mappers as well
-                // lookup schema version
-                Integer version = this.schemaMgr.versionOf(record.valueSchema());
-                // lookup mapper in the schema manager by tablename/version
-                KineticaFieldMapper mapper = this.schemaMgr.getFieldMapper(tableName, version);
+                // lookup mapper in the schema manager by tablename/schema key
+                KineticaFieldMapper mapper = this.schemaMgr.getFieldMapper(tableName, resolved.getSchemaKey());
 
-                syncMapper(tableName, version, mapper);
+                syncMapper(tableName, resolved.getSchemaKey(), mapper);
+            }
+            if (!this.schemaMgr.isBlackListed(tableName, genericSchema)) {
+                // add new schema to known schemas, so that it is matched only once
+                this.schemaMgr.addToKnownSchemas(tableName, genericSchema);
             }
         } 
 
         // lookup bulkInserter in the local cache
         bulkInserter = this.biMap.get(tableName);
+        this.taskMetrics.tableLookup(bulkInserter != null);
         
         if (bulkInserter != null) {
             return bulkInserter;
@@ -317,6 +631,554 @@ public class KineticaSinkTask extends SinkTask {
         return bulkInserter;
     }
     
+    /**
+     * Return the batch of pending records for a Kinetica table, create one on first use
+     * @param tableName   Kinetica table name
+     * @return SinkTableBuffer for this table
+     */
+    private SinkTableBuffer getTableBuffer(String tableName) {
+        SinkTableBuffer buffer = this.bufferMap.get(tableName);
+        if (buffer == null) {
+            SinkTableMetrics metrics = new SinkTableMetrics(this.taskName, tableName);
+            metrics.register();
+            buffer = new SinkTableBuffer(tableName, this.schemaMgr.getBatchSize(), 
+                    this.schemaMgr.getBatchSizeBytes(), metrics, this.schemaMgr.createBatchController(),
+                    this.schemaMgr.isCoalesceByPrimaryKey());
+            buffer.setCompression(this.schemaMgr.createCompressionController());
+            this.bufferMap.put(tableName, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Inserts all pending records of the table batch into Kinetica
+     * @param tableName   Kinetica table name
+     * @return true when BulkInserter and Type had to be synchronized with a modified Kinetica table
+     */
+    private boolean flushTable(String tableName) {
+        SinkTableBuffer buffer = this.bufferMap.get(tableName);
+        if (buffer == null || buffer.isEmpty()) {
+            return false;
+        }
+        if (this.spillJournal != null && this.spillJournal.hasPending(tableName)) {
+            // earlier batches of the table are waiting in the spill journal, keep them in order
+            spill(buffer, buffer.getRecords(), null);
+            return false;
+        }
+        sampleCompression(buffer);
+        SharedTableInserter shared = getSharedInserter(tableName);
+        if (shared != null) {
+            return completeFlush(buffer, insertShared(shared, buffer.getRecords()));
+        }
+        return completeFlush(buffer, insertBatch(this.biMap.get(tableName), buffer.getRecords()));
+    }
+
+    /**
+     * Returns the worker-wide insert pipeline of a table when sharing is enabled, 
+     * a pipeline of an outdated Type is released and the one of the current Type acquired 
+     * @param tableName   Kinetica table name
+     * @return shared pipeline, null when disabled
+     */
+    private SharedTableInserter getSharedInserter(final String tableName) {
+        if (!this.schemaMgr.isSharedInserters()) {
+            return null;
+        }
+        final Type type = this.typeMap.get(tableName);
+        SharedTableInserter shared = this.sharedInserters.get(tableName);
+        if (shared != null && shared.getType() == type) {
+            return shared;
+        }
+        releaseSharedInserter(tableName);
+        try {
+            shared = SharedTableInserter.acquire(this.schemaMgr.getConnectorName(), tableName, type, 
+                    new SharedTableInserter.Factory() {
+                        @Override
+                        public BulkInserter<GenericRecord> create() throws GPUdbException {
+                            return KineticaSinkTask.this.schemaMgr.getSharedBulkInserter(tableName, type);
+                        }
+                    });
+        } catch (GPUdbException e) {
+            throw retryOrFail(String.format("Unable to create shared inserter for Kinetica table %s", tableName), e);
+        }
+        this.sharedInserters.put(tableName, shared);
+        return shared;
+    }
+
+    /**
+     * @param tableName   Kinetica table name
+     */
+    private void releaseSharedInserter(String tableName) {
+        SharedTableInserter shared = this.sharedInserters.remove(tableName);
+        if (shared != null) {
+            shared.release();
+        }
+    }
+
+    /**
+     * Flushes table batches, inserts of different tables run concurrently on the flush executor when one 
+     * is configured; requests to the ranks of one table are left to its BulkInserter.
+     * Every batch is completed before the first error, if any, is rethrown.
+     * @param tableNames   Kinetica table names in flush order
+     */
+    private void flushTables(List<String> tableNames) {
+        if (this.flushExecutor == null || tableNames.size() < 2) {
+            for (String tableName : tableNames) {
+                flushTable(tableName);
+            }
+            return;
+        }
+        long start = System.currentTimeMillis();
+        LinkedHashMap<String, Future<BatchInsert>> inserts = new LinkedHashMap<>();
+        List<String> serial = new ArrayList<>();
+        for (String tableName : tableNames) {
+            SinkTableBuffer buffer = this.bufferMap.get(tableName);
+            if (buffer == null || buffer.isEmpty()) {
+                continue;
+            }
+            if (this.spillJournal != null && this.spillJournal.hasPending(tableName)) {
+                serial.add(tableName);
+                continue;
+            }
+            sampleCompression(buffer);
+            final BulkInserter<GenericRecord> bi = this.biMap.get(tableName);
+            final SharedTableInserter shared = getSharedInserter(tableName);
+            final List<GenericRecord> records = buffer.getRecords();
+            inserts.put(tableName, this.flushExecutor.submit(new Callable<BatchInsert>() {
+                @Override
+                public BatchInsert call() {
+                    return shared != null ? insertShared(shared, records) : insertBatch(bi, records);
+                }
+            }));
+        }
+        RuntimeException error = null;
+        for (Map.Entry<String, Future<BatchInsert>> insert : inserts.entrySet()) {
+            try {
+                completeFlush(this.bufferMap.get(insert.getKey()), insert.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = error != null ? error : new ConnectException("Interrupted while flushing Kinetica tables", e);
+            } catch (ExecutionException e) {
+                error = error != null ? error : new ConnectException(String.format("Insert into Kinetica table %s failed", 
+                        insert.getKey()), e.getCause());
+            } catch (RuntimeException e) {
+                error = error != null ? error : e;
+            }
+        }
+        for (String tableName : serial) {
+            flushTable(tableName);
+        }
+        this.taskMetrics.parallelFlushed(inserts.size(), System.currentTimeMillis() - start);
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Inserts records of a table batch, touches no task state so that it may run on a flush executor thread
+     * @param bi        BulkInserter of the table
+     * @param records   pending records of the table batch
+     * @return outcome of the insert
+     */
+    private static BatchInsert insertBatch(BulkInserter<GenericRecord> bi, List<GenericRecord> records) {
+        long start = System.nanoTime();
+        long recordsBefore = bi.getCountInserted() + bi.getCountUpdated();
+        List<InsertException> errors = new ArrayList<>();
+        List<GenericRecord> failed = insertAll(bi, records, errors);
+        long inserted = bi.getCountInserted() + bi.getCountUpdated() - recordsBefore;
+        return new BatchInsert(inserted, failed, errors, System.nanoTime() - start);
+    }
+
+    /**
+     * Inserts records of a table batch through the worker-wide pipeline, together with batches of other tasks
+     * @param shared    shared pipeline of the table
+     * @param records   pending records of the table batch
+     * @return outcome of the insert
+     */
+    private static BatchInsert insertShared(SharedTableInserter shared, List<GenericRecord> records) {
+        long start = System.nanoTime();
+        List<InsertException> errors = new ArrayList<>();
+        List<GenericRecord> failed = shared.insert(records, errors);
+        return new BatchInsert(records.size() - failed.size(), failed, errors, System.nanoTime() - start);
+    }
+
+    /**
+     * Handles the outcome of a table batch insert: spills or retries batches Kinetica could not be reached for,
+     * isolates rejected records, updates limits, backpressure and metrics, and clears the batch
+     * @param buffer   table batch
+     * @param insert   outcome of the insert
+     * @return true when BulkInserter and Type had to be synchronized with a modified Kinetica table
+     */
+    private boolean completeFlush(SinkTableBuffer buffer, BatchInsert insert) {
+        String tableName = buffer.getTableName();
+        List<GenericRecord> failed = insert.failed;
+        List<InsertException> errors = insert.errors;
+        boolean synced = false;
+        long start = System.nanoTime() - insert.latencyNanos;
+        if (!failed.isEmpty() && isRetriable(errors)) {
+            InsertException error = errors.get(errors.size() - 1);
+            if (this.spillJournal == null) {
+                // Kinetica is unreachable, keep the records not inserted and have the framework retry them later;
+                // records of queues sent before the failure are not inserted again
+                retainFailed(buffer, failed);
+                throw retryOrFail(String.format("Insert into Kinetica table %s failed", tableName), error);
+            }
+            // Kinetica is unreachable, records not inserted are replayed from the spill journal once it recovers
+            spill(buffer, failed, error);
+            return false;
+        }
+        if (failed.isEmpty()) {
+            LOG.debug("[{}] Flushing {} records ({} bytes estimated) for <{}>",
+                    Thread.currentThread().getName(), insert.inserted, buffer.getPendingBytes(), tableName);
+        } else {
+            // If the current BulkInserter failed because Kinetica table has been modified,
+            // get the most up-to-date Type and syncronize local cached BulkInserter and Type.
+            // Records still failing with the new BulkInserter are isolated and reported as errant.
+            buffer.getMetrics().batchFailed();
+            BulkInserter<GenericRecord> bi = syncBulkInserter(tableName);
+            synced = true;
+            IdentityHashMap<GenericRecord, SinkRecord> sources = new IdentityHashMap<>();
+            List<GenericRecord> records = buffer.getRecords();
+            List<SinkRecord> sinkRecords = buffer.getSources();
+            for (int i = 0; i < records.size(); i++) {
+                sources.put(records.get(i), sinkRecords.get(i));
+            }
+            insertBisecting(bi, buffer, failed, sources);
+        }
+        long latencyNanos = System.nanoTime() - start;
+        if (this.rateLimiter != null) {
+            // batches flushed on commit or memory pressure are charged as well, delaying the following batches
+            this.rateLimiter.acquire(tableName, buffer.size(), buffer.getPendingBytes(), System.currentTimeMillis());
+        }
+        this.throttledTables.remove(tableName);
+        if (this.backpressure != null && this.backpressure.isLatencyEnabled()) {
+            this.backpressure.onFlush(this.context, partitionsOf(buffer), latencyNanos / 1000000L, 
+                    System.currentTimeMillis());
+            this.taskMetrics.backpressureChanged(this.backpressure);
+        }
+        updateCompression(buffer, latencyNanos);
+        this.pendingBytes -= buffer.getPendingBytes();
+        buffer.flushed(latencyNanos);
+        return synced;
+    }
+
+    /**
+     * Samples compression ratio and speed of pending records when the table's compression controller asks for it
+     * @param buffer   table batch
+     */
+    private void sampleCompression(SinkTableBuffer buffer) {
+        CompressionController compression = buffer.getCompression();
+        if (compression == null || !compression.needsSample()) {
+            return;
+        }
+        List<GenericRecord> records = buffer.getRecords();
+        ByteArrayOutputStream sample = new ByteArrayOutputStream();
+        try {
+            for (int i = 0; i < records.size() && i < COMPRESSION_SAMPLE_RECORDS; i++) {
+                ByteBuffer encoded = Avro.encode(records.get(i));
+                sample.write(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
+            }
+            byte[] raw = sample.toByteArray();
+            long start = System.nanoTime();
+            byte[] compressed = Snappy.compress(raw);
+            compression.sampled(raw.length, compressed.length, System.nanoTime() - start);
+        } catch (GPUdbException | IOException e) {
+            LOG.debug("Unable to sample compression of <{}>: {}", buffer.getTableName(), e.getMessage());
+            compression.sampled(0, 0, 0);
+        }
+    }
+
+    /**
+     * Reconsiders compression of a table after a flush, the BulkInserter is replaced when the codec of the
+     * next batch changes, either by a new choice or to probe the other codec
+     * @param buffer         table batch
+     * @param latencyNanos   insert round-trip time
+     */
+    private void updateCompression(SinkTableBuffer buffer, long latencyNanos) {
+        CompressionController compression = buffer.getCompression();
+        if (compression == null) {
+            return;
+        }
+        String tableName = buffer.getTableName();
+        long switches = compression.getSwitches();
+        if (compression.onFlush(buffer.getPendingBytes(), latencyNanos)) {
+            this.schemaMgr.setCompressed(tableName, compression.isCompressed());
+            try {
+                this.biMap.put(tableName, this.schemaMgr.getBulkInserter(tableName, this.typeMap.get(tableName)));
+                if (compression.getSwitches() != switches) {
+                    LOG.info("[{}] Switched inserts into <{}> to {} compression, ratio {}", this.taskName, tableName, 
+                            compression.getCodec(), String.format("%.2f", compression.getRatio()));
+                } else {
+                    LOG.debug("[{}] Sending next batch of <{}> {}", this.taskName, tableName, 
+                            compression.isCompressed() ? "compressed" : "uncompressed");
+                }
+            } catch (GPUdbException e) {
+                // keep the current BulkInserter, the choice is reconsidered after the next flush
+                LOG.warn("Unable to switch compression of Kinetica table {}: {}", tableName, e.getMessage());
+            }
+        }
+        buffer.getMetrics().compressionUpdated(compression);
+    }
+
+    /**
+     * Outcome of a table batch insert
+     */
+    private static class BatchInsert {
+        private final long inserted;
+        private final List<GenericRecord> failed;
+        private final List<InsertException> errors;
+        private final long latencyNanos;
+
+        BatchInsert(long inserted, List<GenericRecord> failed, List<InsertException> errors, long latencyNanos) {
+            this.inserted = inserted;
+            this.failed = failed;
+            this.errors = errors;
+            this.latencyNanos = latencyNanos;
+        }
+    }
+
+    /**
+     * Stores types, known schemas and field mappers of the tables cached by this task in the
+     * warm-start cache, the file is rewritten when any of them changed
+     */
+    private void saveWarmStart() {
+        if (this.warmStart == null) {
+            return;
+        }
+        for (Map.Entry<String, Type> entry : this.typeMap.entrySet()) {
+            if (entry.getValue() != null) {
+                this.warmStart.put(this.schemaMgr.exportTable(entry.getKey(), entry.getValue()));
+            }
+        }
+        try {
+            this.warmStart.save();
+        } catch (IOException e) {
+            // the previous file stays, restarts look changed tables up again
+            LOG.warn("[{}] Unable to save warm-start cache: {}", this.taskName, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes offsets of records added to table batches, all of which have been flushed, to the offset ledger.
+     * A failed write fails the flush, so that Kafka Connect does not commit offsets ahead of the ledger.
+     */
+    private void writeOffsetLedger() {
+        if (this.offsetLedger == null) {
+            return;
+        }
+        for (Map.Entry<TopicPartition, Long> entry : this.bufferedOffsets.entrySet()) {
+            this.offsetLedger.record(entry.getKey(), entry.getValue());
+        }
+        try {
+            int rows = this.offsetLedger.write();
+            LOG.debug("[{}] Updated {} offset ledger rows", this.taskName, rows);
+        } catch (GPUdbException e) {
+            throw retryOrFail(String.format("Unable to update offset ledger %s", this.offsetLedger.getTableName()), e);
+        }
+    }
+
+    /**
+     * Writes records of a table batch to the spill journal and clears the batch, so that their offsets 
+     * can be committed. Falls back to retrying the batch when the journal is full or can not be written.
+     * @param buffer    table batch
+     * @param records   records of the batch not inserted into Kinetica
+     * @param cause     transient Kinetica error, null when the table has earlier batches in the journal
+     */
+    private void spill(SinkTableBuffer buffer, List<GenericRecord> records, Throwable cause) {
+        String tableName = buffer.getTableName();
+        try {
+            List<ByteBuffer> encoded = new ArrayList<>(records.size());
+            for (GenericRecord record : records) {
+                encoded.add(Avro.encode(record));
+            }
+            if (!this.spillJournal.append(tableName, encoded)) {
+                throw new IOException(String.format("spill journal is full with %d bytes pending", 
+                        this.spillJournal.getPendingBytes()));
+            }
+        } catch (IOException | GPUdbException ex) {
+            throw retryOrFail(String.format("Unable to spill %d records of Kinetica table %s", 
+                    records.size(), tableName), cause == null ? ex : cause);
+        }
+        LOG.debug("[{}] Spilled {} records for <{}>, {} batches pending in spill journal",
+                Thread.currentThread().getName(), records.size(), tableName, this.spillJournal.getPendingEntries());
+        this.taskMetrics.spilled(records.size(), this.spillJournal);
+        this.throttledTables.remove(tableName);
+        this.pendingBytes -= buffer.getPendingBytes();
+        buffer.spilled();
+    }
+
+    /**
+     * Checks ingest rate limits before flushing a full table batch. While the table is over its limit,
+     * partitions that fed the batch are paused until the limit allows the next insert.
+     * @param buffer   full table batch
+     * @return true when the flush has to be held back
+     */
+    private boolean isThrottled(SinkTableBuffer buffer) {
+        if (this.rateLimiter == null || this.backpressure == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long delay = this.rateLimiter.delayMs(buffer.getTableName(), now);
+        if (delay <= 0) {
+            return false;
+        }
+        if (this.throttledTables.add(buffer.getTableName())) {
+            this.backpressure.pauseUntil(this.context, partitionsOf(buffer), now + delay, 
+                    String.format("table <%s> over rate limit for %d ms", buffer.getTableName(), delay));
+            this.taskMetrics.throttled(delay, this.rateLimiter.getMultiplier());
+            this.taskMetrics.backpressureChanged(this.backpressure);
+        }
+        return true;
+    }
+
+    /**
+     * Flushes full table batches held back by rate limits once their limits allow it
+     */
+    private void flushThrottledTables() {
+        if (this.throttledTables.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (String tableName : new ArrayList<>(this.throttledTables)) {
+            if (this.rateLimiter.delayMs(tableName, now) <= 0) {
+                flushTable(tableName);
+                this.throttledTables.remove(tableName);
+            }
+        }
+    }
+
+    /**
+     * Flushes table batches past their deadline, earliest deadline first
+     */
+    private void flushOverdueTables() {
+        for (String tableName : this.flushScheduler.overdue(this.bufferMap.values(), System.currentTimeMillis())) {
+            if (!isThrottled(this.bufferMap.get(tableName))) {
+                flushTable(tableName);
+            }
+        }
+    }
+
+    /**
+     * @param buffer   table batch
+     * @return topic partitions of the records in the batch
+     */
+    private static HashSet<TopicPartition> partitionsOf(SinkTableBuffer buffer) {
+        HashSet<TopicPartition> partitions = new HashSet<>();
+        for (SinkRecord source : buffer.getSources()) {
+            if (source != null && source.kafkaPartition() != null) {
+                partitions.add(new TopicPartition(source.topic(), source.kafkaPartition()));
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Flushes the largest table batches when records pending across all tables exceed the task memory budget.
+     * Flushing is synchronous, so put() is held back until pending records fit into the budget again.
+     */
+    private void enforceMemoryBudget() {
+        long budget = this.schemaMgr.getMemoryBudgetBytes();
+        List<SinkTableBuffer> largest = selectBudgetFlushes(this.bufferMap.values(), this.pendingBytes, budget);
+        if (largest.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        for (SinkTableBuffer buffer : largest) {
+            flushTable(buffer.getTableName());
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        this.taskMetrics.budgetFlushed(largest.size(), elapsed);
+        LOG.debug("[{}] Memory budget of {} bytes exceeded, flushed {} tables in {} ms",
+                this.taskName, budget, largest.size(), elapsed);
+    }
+
+    /**
+     * Selects the largest table batches to flush once records pending across all tables exceed the memory budget,
+     * down to a low watermark of 75% of the budget so that the following records do not trigger another round
+     * of flushes
+     * @param buffers        pending table batches
+     * @param pendingBytes   bytes pending across all tables
+     * @param budget         task memory budget in bytes, 0 for no budget
+     * @return table batches to flush, largest first, empty while within the budget
+     */
+    protected static List<SinkTableBuffer> selectBudgetFlushes(Collection<SinkTableBuffer> buffers, 
+            long pendingBytes, long budget) {
+        List<SinkTableBuffer> selected = new ArrayList<>();
+        if (budget <= 0 || pendingBytes <= budget) {
+            return selected;
+        }
+        long lowWatermark = budget - budget / 4;
+        List<SinkTableBuffer> sorted = new ArrayList<>(buffers);
+        Collections.sort(sorted, new Comparator<SinkTableBuffer>() {
+            @Override
+            public int compare(SinkTableBuffer b1, SinkTableBuffer b2) {
+                return Long.compare(b2.getPendingBytes(), b1.getPendingBytes());
+            }
+        });
+        for (SinkTableBuffer buffer : sorted) {
+            if (pendingBytes <= lowWatermark || buffer.isEmpty()) {
+                break;
+            }
+            selected.add(buffer);
+            pendingBytes -= buffer.getPendingBytes();
+        }
+        return selected;
+    }
+
+    /**
+     * Evicts least recently used tables while the task cache holds more tables than configured
+     */
+    private void evictLeastRecentlyUsed() {
+        int maxTables = this.schemaMgr.getCacheMaxTables();
+        while (maxTables > 0 && this.tableAccess.size() > maxTables) {
+            evictTable(this.tableAccess.keySet().iterator().next(), false);
+        }
+        this.taskMetrics.cachedTablesChanged(this.tableAccess.size());
+    }
+
+    /**
+     * Evicts tables that received no records within the configured idle timeout
+     */
+    private void evictIdleTables() {
+        long idleTimeout = this.schemaMgr == null ? 0 : this.schemaMgr.getCacheIdleTimeout();
+        if (idleTimeout <= 0) {
+            return;
+        }
+        long idleSince = System.currentTimeMillis() - idleTimeout;
+        List<String> idleTables = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : this.tableAccess.entrySet()) {
+            if (entry.getValue() > idleSince) {
+                // entries are in access order, all following tables are more recent
+                break;
+            }
+            idleTables.add(entry.getKey());
+        }
+        for (String tableName : idleTables) {
+            evictTable(tableName, true);
+        }
+    }
+
+    /**
+     * Flushes pending records of a table and drops its BulkInserter, Type, batch and field mappers,
+     * they are rebuilt with the next record for this table
+     * @param tableName   Kinetica table name
+     * @param idle        true when the table is evicted for being idle
+     */
+    private void evictTable(String tableName, boolean idle) {
+        flushTable(tableName);
+        SinkTableBuffer buffer = this.bufferMap.remove(tableName);
+        if (buffer != null) {
+            buffer.getMetrics().unregister();
+        }
+        this.biMap.remove(tableName);
+        releaseSharedInserter(tableName);
+        this.typeMap.remove(tableName);
+        this.tableAccess.remove(tableName);
+        this.throttledTables.remove(tableName);
+        this.schemaMgr.evictTable(tableName);
+        this.taskMetrics.tableEvicted(idle, this.tableAccess.size());
+        LOG.debug("[{}] Evicted {} table <{}>", this.taskName, idle ? "idle" : "least recently used", tableName);
+    }
+
     /**
      * Formats incoming Kafka record before inserting it into Kinetica table
      * @param inRecord       incoming generic record
@@ -525,46 +1387,208 @@ public class KineticaSinkTask extends SinkTask {
     }
     
     /**
-     * Gets the most recent Type for the Kinetica table and attempts to re-insert the failed records
+     * Gets the most recent Type for the Kinetica table and syncronizes local cached BulkInserter and Type
      * @param tableName   table to be populated
-     * @param records     records that failed inserting
+     * @return BulkInserter for the most recent Type
      */
-    private void syncBulkInserter(String tableName, List<?> records) {
+    private BulkInserter<GenericRecord> syncBulkInserter(String tableName) {
         Type newType;
         BulkInserter<GenericRecord> bi;
         try {
-            // attempt to get updated gpudbType directly from Kinetica and create a BulkInserter for it
-            newType = this.schemaMgr.getGpudbType(tableName);
+            // attempt to get updated gpudbType directly from Kinetica and create a BulkInserter for it,
+            // workers may have changed as well
+            this.schemaMgr.refreshWorkerList();
+            newType = this.schemaMgr.getGpudbType(tableName, this.typeMap.get(tableName));
+            if (newType == null) {
+                throw new ConnectException(String.format("Kinetica table %s does not exist", tableName));
+            }
             bi = this.schemaMgr.getBulkInserter(tableName, newType);
         } catch (GPUdbException ge) {
+            if (KineticaErrorClassifier.isRetriable(ge)) {
+                throw retryOrFail(String.format("Unable to access Kinetica table %s", tableName), ge);
+            }
             LOG.error(ge.getMessage(), ge);
             throw new ConnectException(String.format("Unable to access Kinetica table %s for %s: %s", tableName, ge.getMessage()), ge); 
         }
-        
+        this.typeMap.put(tableName, newType);
+        this.biMap.put(tableName, bi);
+        this.schemaMgr.addToKnownSchemas(tableName, newType);
+        return bi;
+    }
+
+    /**
+     * Inserts records and flushes all BulkInserter queues, collecting records of failed requests
+     * @param bi        BulkInserter of the table
+     * @param records   records to insert
+     * @param errors    collects exceptions of failed requests, may be null
+     * @return records rejected by Kinetica, empty when all records were inserted
+     */
+    static List<GenericRecord> insertAll(BulkInserter<GenericRecord> bi, List<GenericRecord> records,
+            List<InsertException> errors) {
+        List<GenericRecord> failed = new ArrayList<>();
         try {
-            // attempt to insert the records that failed before
-            bi.insert((List<GenericRecord>)records);
-            bi.flush();            
+            bi.insert(records);
         } catch (InsertException e) {
-            // catch Kinetica-related exceptions
-            LOG.error(e.getMessage(), e);
-            ConnectException ce = new ConnectException(String.format("Insert record into Kinetica table %s failed for %s: %s", 
-                    tableName, e.getMessage()), e);            
-            throw ce;
+            // exception holds the failed queue along with records not yet queued
+            addFailedRecords(failed, e);
+            if (errors != null) {
+                errors.add(e);
+            }
+        }
+        // BulkInserter stops flushing at the first failed queue, keep flushing until all queues are sent
+        while (true) {
+            try {
+                bi.flush();
+                break;
+            } catch (InsertException e) {
+                if (errors != null) {
+                    errors.add(e);
+                }
+                if (!addFailedRecords(failed, e)) {
+                    break;
+                }
+            }
+        }
+        return failed;
+    }
 
+    /**
+     * Collects records of a failed BulkInserter request
+     * @param failed   list of failed records
+     * @param e        BulkInserter exception
+     * @return false when the exception holds no records
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean addFailedRecords(List<GenericRecord> failed, InsertException e) {
+        List<?> records = e.getRecords();
+        if (records == null || records.isEmpty()) {
+            return false;
         }
-        this.typeMap.put(tableName, newType);
-        this.biMap.put(tableName, bi);
-        this.schemaMgr.addToKnownSchemas(tableName, newType);
+        failed.addAll((List<GenericRecord>) records);
+        return true;
+    }
+
+    /**
+     * Inserts failed records again, splitting them in halves until the records rejected by Kinetica are isolated
+     * and reported as errant. Fails the task when Kinetica refuses the batch as a whole.
+     * @param bi        BulkInserter of the table
+     * @param buffer    table batch the records belong to
+     * @param records   records to insert
+     * @param sources   Kafka records the records were converted from
+     */
+    private void insertBisecting(final BulkInserter<GenericRecord> bi, final SinkTableBuffer buffer, 
+            List<GenericRecord> records, final IdentityHashMap<GenericRecord, SinkRecord> sources) {
+        BatchBisector<GenericRecord> bisector = new BatchBisector<>(new BatchBisector.Inserter<GenericRecord>() {
+            @Override
+            public List<GenericRecord> insert(List<GenericRecord> batch, List<GPUdbException> errors) {
+                buffer.getMetrics().bisectRequested();
+                List<InsertException> insertErrors = new ArrayList<>();
+                List<GenericRecord> failed = insertAll(bi, batch, insertErrors);
+                errors.addAll(insertErrors);
+                return failed;
+            }
+        }, new BatchBisector.Reporter<GenericRecord>() {
+            @Override
+            public void errant(GenericRecord record, GPUdbException error) {
+                reportErrantRecord(buffer, record, sources.get(record), error);
+            }
+        });
+        BatchBisector.Result<GenericRecord> result = bisector.insert(records);
+        if (result.isCompleted()) {
+            return;
+        }
+        if (result.isRetriable()) {
+            // records inserted or reported as errant before the transient error are not sent again
+            retainFailed(buffer, result.getRemaining());
+            throw retryOrFail(String.format("Insert into Kinetica table %s failed", buffer.getTableName()), 
+                    result.getError());
+        }
+        String msg = String.format("Kinetica table %s refused all %d records of the batch: %s", 
+                buffer.getTableName(), result.getRemaining().size(), result.getError().getMessage());
+        LOG.error(msg, result.getError());
+        throw new ConnectException(msg, result.getError());
+    }
+
+    /**
+     * Drops records of a table batch that were inserted or reported before a transient error,
+     * so that only the records not inserted are retried
+     * @param buffer   table batch
+     * @param failed   records of the batch neither inserted nor reported
+     */
+    private void retainFailed(SinkTableBuffer buffer, List<GenericRecord> failed) {
+        long bytesBefore = buffer.getPendingBytes();
+        int dropped = buffer.retain(failed);
+        if (dropped > 0) {
+            this.pendingBytes -= bytesBefore - buffer.getPendingBytes();
+            LOG.info("[{}] Keeping {} records of <{}> for a retry, {} were inserted or reported before the failure", 
+                    this.taskName, buffer.size(), buffer.getTableName(), dropped);
+        }
+    }
+
+    /**
+     * @param errors   exceptions of failed requests
+     * @return true when any of the requests failed for a transient reason
+     */
+    private static boolean isRetriable(List<InsertException> errors) {
+        for (InsertException e : errors) {
+            if (KineticaErrorClassifier.isRetriable(e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Asks the framework to redeliver the current records after a jittered exponential backoff,
+     * pending table batches are kept intact. Fails the task once retries are exhausted.
+     * @param msg     error description
+     * @param cause   transient Kinetica error
+     * @return RetriableException to be thrown, or ConnectException when retries are exhausted
+     */
+    private ConnectException retryOrFail(String msg, Throwable cause) {
+        long backoff = this.retryBackoff.nextBackoff();
+        if (this.retryBackoff.isExhausted()) {
+            LOG.error("{}, giving up after {} retries: {}", msg, this.retryBackoff.getAttempts() - 1, cause.getMessage());
+            return new ConnectException(String.format("%s: %s", msg, cause.getMessage()), cause);
+        }
+        if (this.context != null) {
+            this.context.timeout(backoff);
+        }
+        this.taskMetrics.retried(backoff);
+        LOG.warn("{}, retrying in {} ms (attempt {}): {}", msg, backoff, this.retryBackoff.getAttempts(), cause.getMessage());
+        return new RetriableException(String.format("%s: %s", msg, cause.getMessage()), cause);
+    }
+
+    /**
+     * Reports a record rejected by Kinetica to the dead letter queue, 
+     * fails the task when errant record reporting is not configured
+     * @param buffer    table batch the record belongs to
+     * @param record    rejected record
+     * @param source    Kafka record the record was converted from
+     * @param error     exception of the failed request
+     */
+    private void reportErrantRecord(SinkTableBuffer buffer, GenericRecord record, SinkRecord source, 
+            GPUdbException error) {
+        String msg = String.format("Insert record into Kinetica table %s failed for %s: %s", 
+                buffer.getTableName(), record, error.getMessage());
+        ConnectException ce = new ConnectException(msg, error);
+        if (this.reporter == null || source == null) {
+            LOG.error(msg, error);
+            throw ce;
+        }
+        LOG.warn("{}, reporting {}-{} offset {} as errant record", msg, 
+                source.topic(), source.kafkaPartition(), source.kafkaOffset());
+        this.reporter.report(source, ce);
+        buffer.getMetrics().recordErrant();
     }
     
     /**
      * Updates mapper for the Kinetica table
      * @param tableName   Kinetica table name
-     * @param version     Schema version
+     * @param version     Schema key
      * @param mapper      mapper to be syncronized
      */
-    private void syncMapper(String tableName, Integer version, KineticaFieldMapper mapper) {
+    private void syncMapper(String tableName, Long version, KineticaFieldMapper mapper) {
         Type type = this.typeMap.get(tableName);
         if (type.getColumnCount()!=mapper.getMapped().size()) {
             // number of fields changed
@@ -22,9 +22,12 @@ public class KineticaSourceConnectorConfig extends AbstractConfig {
     public static final String PARAM_TABLE_NAMES = "kinetica.table_names";
     public static final String PARAM_TOPIC_PREFIX = "kinetica.topic_prefix";
     public static final String PARAM_SCHEMA_VERSION = "kinetica.kafka_schema_version";
+    public static final String PARAM_MONITOR_URLS = "kinetica.monitor_urls";
+    public static final String PARAM_HA_PROBE_INTERVAL = "kinetica.ha.probe_interval_ms";
 
     private static final String PARAM_GROUP = "Kinetica Properties";
     private static final String DEFAULT_TIMEOUT = "0";
+    public static final String DEFAULT_HA_PROBE_INTERVAL = "5000";
 
     static ConfigDef config = baseConfigDef();
     private final String connectorName;
@@ -60,7 +63,8 @@ public class KineticaSourceConnectorConfig extends AbstractConfig {
     	return new ConfigDef()
                 .define(PARAM_URL, ConfigDef.Type.STRING,
                         ConfigDef.Importance.HIGH,
-                        "Kinetica URL, e.g. 'http://localhost:9191'",
+                        "Kinetica URL, e.g. 'http://localhost:9191', or comma-separated head node URLs of "
+                        + "Kinetica clusters in an HA ring",
                         PARAM_GROUP, 1, ConfigDef.Width.LONG, "Kinetica URL")
 
                 .define(PARAM_TIMEOUT, ConfigDef.Type.INT, DEFAULT_TIMEOUT, Range.atLeast(0),
@@ -91,7 +95,21 @@ public class KineticaSourceConnectorConfig extends AbstractConfig {
                 .define(PARAM_PASSWORD, ConfigDef.Type.STRING, "",
                         ConfigDef.Importance.MEDIUM,
                         "Kinetica password (optional)",
-                        PARAM_GROUP, 7, ConfigDef.Width.SHORT, "Password");
+                        PARAM_GROUP, 7, ConfigDef.Width.SHORT, "Password")
+
+                .define(PARAM_MONITOR_URLS, ConfigDef.Type.STRING, "",
+                        ConfigDef.Importance.LOW,
+                        "Comma-separated table monitor (ZMQ) endpoints, e.g. 'tcp://localhost:9002', one per "
+                        + "Kinetica URL in the same order. (optional, default derived from the head node host "
+                        + "and the table monitor port)",
+                        PARAM_GROUP, 8, ConfigDef.Width.LONG, "Table monitor URLs")
+
+                .define(PARAM_HA_PROBE_INTERVAL, ConfigDef.Type.LONG, DEFAULT_HA_PROBE_INTERVAL, Range.atLeast(0),
+                        ConfigDef.Importance.LOW,
+                        "Time between health probes of the head nodes when several Kinetica URLs are configured, "
+                        + "table monitors move to the next healthy head node once the active one is down. "
+                        + "(optional, default " + DEFAULT_HA_PROBE_INTERVAL + "); 0 = no probing",
+                        PARAM_GROUP, 9, ConfigDef.Width.SHORT, "HA probe interval (ms)");
     }
 
     public static void main(String[] args) {
@@ -43,11 +43,32 @@ public class KineticaSourceTask extends SourceTask {
     private int[] schemaVersions;
     private String zmqUrl;
     private String topicPrefix;
+    private GPUdb gpudb;
+    // client pinned to the head node whose table monitor endpoint is used
+    private GPUdb monitorGpudb;
+    private Map<String, String> props;
+    private String url;
+    // head node URLs and their table monitor endpoints, in configured order
+    private List<URL> urls;
+    private List<String> monitorUrls = new ArrayList<>();
+    private KineticaHealthProbe healthProbe;
+
+    public String getUrl() {
+        return this.url;
+    }
 
     public String getZmqUrl() {
         return this.zmqUrl;
     }
 
+    public synchronized GPUdb getMonitorGpudb() {
+        return this.monitorGpudb;
+    }
+
+    public synchronized List<Thread> getMonitorThreads() {
+        return new ArrayList<>(this.monitorThreads);
+    }
+
     public LinkedBlockingQueue<SourceRecord> getQueue() {
         return this.queue;
     }
@@ -61,8 +82,25 @@ public class KineticaSourceTask extends SourceTask {
         GPUdb gpudb;
 
         try {
-            gpudb = getGpudb(props);
-            this.zmqUrl = getZmqUrl(gpudb);
+            gpudb = getGpudb(props, props.get(KineticaSourceConnectorConfig.PARAM_URL));
+            this.gpudb = gpudb;
+            this.props = props;
+            this.url = props.get(KineticaSourceConnectorConfig.PARAM_URL);
+            this.urls = KineticaClientRegistry.parseUrls(this.url);
+            String monitors = props.get(KineticaSourceConnectorConfig.PARAM_MONITOR_URLS);
+            if (monitors != null && !monitors.trim().isEmpty()) {
+                for (String monitor : monitors.split(",")) {
+                    this.monitorUrls.add(monitor.trim());
+                }
+                if (this.monitorUrls.size() != this.urls.size()) {
+                    throw new ConnectException(String.format("Expected one %s entry per Kinetica URL", 
+                            KineticaSourceConnectorConfig.PARAM_MONITOR_URLS));
+                }
+            }
+            // table monitors are created on the head node their endpoint belongs to, 
+            // not on whichever head node the failover client of the task moves to
+            this.monitorGpudb = getGpudb(props, gpudb.getURL().toString());
+            this.zmqUrl = getZmqUrl(this.monitorGpudb, gpudb.getURL());
             this.topicPrefix = props.get(KineticaSourceConnectorConfig.PARAM_TOPIC_PREFIX);
             this.sourceTables = props.get(KineticaSourceConnectorConfig.PARAM_TABLE_NAMES).split(",");
             
@@ -95,26 +133,46 @@ public class KineticaSourceTask extends SourceTask {
             throw new ConnectException(ex);
         }
 
-        // Create a thread for each table that will manage the table monitor and
-        // convert records from the monitor into source records and put them
-        // into the source record queue. 
+        startMonitors();
+
+        long probeInterval = SinkSchemaManager.parseLong(props, KineticaSourceConnectorConfig.PARAM_HA_PROBE_INTERVAL,
+                KineticaSourceConnectorConfig.DEFAULT_HA_PROBE_INTERVAL);
+        if (this.urls.size() > 1 && probeInterval > 0) {
+            this.healthProbe = new KineticaHealthProbe("kinetica-source-probe-" + this.sourceTables[0], this.urls,
+                    probeInterval, (int) Math.min(probeInterval, Integer.MAX_VALUE), 
+                    new KineticaHealthProbe.Listener() {
+                        @Override
+                        public void failover(URL from, URL to) {
+                            moveMonitors(to);
+                        }
+                    });
+            this.healthProbe.start();
+        }
+    }
 
+    /**
+     * Creates a thread for each table that will manage the table monitor and
+     * convert records from the monitor into source records and put them
+     * into the source record queue. On Java 21 and later these are virtual threads.
+     */
+    private synchronized void startMonitors() {
+        LOG.info("Starting {} table monitors on {} threads", this.sourceTables.length,
+                KineticaThreads.isVirtual() ? "virtual" : "platform");
         for (int i = 0; i < this.sourceTables.length; i++) {
         final String table = this.sourceTables[i];
             // Assign pre-configured supported schema version for existing Kafka topics 
             // or set a default schema version value (1) for Kafka topic to be created on demand 
-            KineticaMonitorThread monitorThread = new KineticaMonitorThread(this, gpudb, table, this.schemaVersions[i]);
+            Thread monitorThread = KineticaThreads.newThread("kinetica-monitor-" + table,
+                    new KineticaMonitorThread(this, this.monitorGpudb, table, this.schemaVersions[i]));
             monitorThread.start();
             this.monitorThreads.add(monitorThread);
         }
     }
 
     /**
-     * Terminates the monitor thread 
+     * Interrupts the monitor threads and waits for them to terminate
      */
-    @Override
-    public void stop() {
-        // Interrupt the monitor threads and wait for them to terminate.
+    private synchronized void stopMonitors() {
         for (Thread monitorThread : this.monitorThreads) {
             monitorThread.interrupt();
         }
@@ -125,6 +183,55 @@ public class KineticaSourceTask extends SourceTask {
             } catch (InterruptedException ex) {
             }
         }
+        this.monitorThreads.clear();
+    }
+
+    /**
+     * Recreates table monitors on a new head node after a failover, with a client pinned to it
+     * so that monitors are created where their endpoint is subscribed to.
+     * Records inserted while no head node was monitored are not sourced
+     * @param head   head node that became active
+     */
+    private synchronized void moveMonitors(URL head) {
+        stopMonitors();
+        GPUdb pinned = null;
+        try {
+            pinned = getGpudb(this.props, head.toString());
+            this.zmqUrl = getZmqUrl(pinned, head);
+            KineticaClientRegistry.release(this.monitorGpudb);
+            this.monitorGpudb = pinned;
+        } catch (GPUdbException | MalformedURLException ex) {
+            if (pinned != null) {
+                KineticaClientRegistry.release(pinned);
+            }
+            LOG.error("Unable to get table monitor URL of {}: {}", head, ex.getMessage());
+            // table monitors are recreated with the previous client and endpoint, the next failover retries
+        }
+        LOG.info("Moving table monitors to <{}>", this.zmqUrl);
+        startMonitors();
+    }
+
+    /**
+     * Terminates the monitor thread 
+     */
+    @Override
+    public void stop() {
+        if (this.healthProbe != null) {
+            this.healthProbe.shutdown(1000);
+            this.healthProbe = null;
+        }
+        // Interrupt the monitor threads and wait for them to terminate.
+        stopMonitors();
+        synchronized (this) {
+            if (this.monitorGpudb != null) {
+                KineticaClientRegistry.release(this.monitorGpudb);
+                this.monitorGpudb = null;
+            }
+        }
+        if (this.gpudb != null) {
+            KineticaClientRegistry.release(this.gpudb);
+            this.gpudb = null;
+        }
     }
 
     @Override
@@ -154,13 +261,20 @@ public class KineticaSourceTask extends SourceTask {
     }
 
     /**
-     * Retrieves table monitor URL from gpudb instance  
+     * Retrieves table monitor URL of a head node, configured or derived from gpudb instance  
      * @param gpudb   Kinetica DB access object
+     * @param head    head node URL
      * @return table monitor URL
      * @throws GPUdbException
      * @throws MalformedURLException
      */
-    private static String getZmqUrl(GPUdb gpudb) throws GPUdbException, MalformedURLException {
+    private String getZmqUrl(GPUdb gpudb, URL head) throws GPUdbException, MalformedURLException {
+        int index = this.urls.indexOf(head);
+        if (!this.monitorUrls.isEmpty() && index >= 0) {
+            LOG.info("Got ZMQ URL <{}>", this.monitorUrls.get(index));
+            return this.monitorUrls.get(index);
+        }
+
         // Get the table monitor URL from /show/system/properties. If table
         // monitor support is not enabled or the port is invalid, fail.
         String zmqPortString = gpudb.showSystemProperties(GPUdbBase.options()).getPropertyMap().get(CONF_MONITOR_PORT);
@@ -181,7 +295,7 @@ public class KineticaSourceTask extends SourceTask {
             throw new ConnectException("Invalid table monitor port (" + zmqPortString + ").");
         }
 
-        String hostname = gpudb.getURL().getHost();
+        String hostname = head.getHost();
         String zmqUrl = String.format("tcp://%s:%d", hostname, zmqPort);
         LOG.info("Got ZMQ URL <{}>", zmqUrl);
 
@@ -191,13 +305,12 @@ public class KineticaSourceTask extends SourceTask {
     /**
      * Creates a connection to GPUdb and returns Kinetica DB access object
      * @param props                Connector config params
+     * @param url                  Kinetica URLs to connect to, comma-separated
      * @return Kinetica DB access object
      * @throws GPUdbException 
      * @throws MalformedURLException
      */
-    private static GPUdb getGpudb(Map<String, String> props) throws GPUdbException, MalformedURLException {
-        final URL url = new URL(props.get(KineticaSourceConnectorConfig.PARAM_URL));
-
+    private static GPUdb getGpudb(Map<String, String> props, String url) throws GPUdbException, MalformedURLException {
         int timeout = Integer.parseInt(props.get(KineticaSourceConnectorConfig.PARAM_TIMEOUT));
         String user = props.get(KineticaSourceConnectorConfig.PARAM_USERNAME);
         String passwd = props.get(KineticaSourceConnectorConfig.PARAM_PASSWORD);
@@ -206,11 +319,8 @@ public class KineticaSourceTask extends SourceTask {
         
         LOG.debug(" UID/PWD " + user + "/" + passwd);
         
-        GPUdb gpudb = new GPUdb(url, new GPUdb.Options()
-                .setUsername(user)
-                .setPassword(passwd)
-                .setTimeout(timeout));
-        return gpudb;
+        // tasks of the worker connecting with the same settings share one client
+        return KineticaClientRegistry.acquire(url, user, passwd, timeout, 0, 0, false);
     }
 
 }
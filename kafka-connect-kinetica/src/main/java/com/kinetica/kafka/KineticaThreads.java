@@ -0,0 +1,53 @@
+package com.kinetica.kafka;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the background threads of the connector: table monitors, flush workers, spill drainers
+ * and health probes. On Java 8 to 20 these are daemon platform threads. The connector jar is a
+ * multi-release jar, on Java 21 and later the version of this class in META-INF/versions/21 creates
+ * virtual threads instead, unless the JVM is started with -Dkinetica.threads.virtual=false.
+ */
+public class KineticaThreads {
+
+    public static final String PROP_VIRTUAL = "kinetica.threads.virtual";
+
+    private KineticaThreads() {
+    }
+
+    /**
+     * Creates a background thread, the thread has to be started
+     * @param name   thread name
+     * @param task   code run by the thread
+     * @return unstarted thread
+     */
+    public static Thread newThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Creates a factory of background threads named prefix followed by a sequence number
+     * @param prefix   thread name prefix
+     * @return thread factory
+     */
+    public static ThreadFactory newThreadFactory(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return KineticaThreads.newThread(prefix + this.count.incrementAndGet(), runnable);
+            }
+        };
+    }
+
+    /**
+     * @return true when background threads are virtual threads
+     */
+    public static boolean isVirtual() {
+        return false;
+    }
+}
@@ -0,0 +1,205 @@
+package com.kinetica.kafka;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gpudb.GPUdbException;
+import com.gpudb.Type;
+
+/**
+ * Worker-wide cache of Kinetica table types shared by sink and source tasks, keyed by Kinetica URL and
+ * qualified table name. Cached types are served until their time to live expires; a caller finding a
+ * cached type out of date (an insert or decode failed) asks for a refresh. Concurrent fetches of a table
+ * are single-flight, and a table is not fetched again before a backoff that doubles while fetches fail
+ * or return an unchanged type, so failing batches or frames cost at most one /show/table request per
+ * backoff interval. Tables altered by the connector are updated explicitly. Source tasks cache the types
+ * of table monitors, which carry no column properties, under a namespaced URL apart from sink types.
+ */
+public class KineticaTypeCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KineticaTypeCache.class);
+
+    public static final long DEFAULT_TTL_MS = 60000;
+    // shortest and longest time between fetches of a table
+    protected static final long MIN_REFRESH_BACKOFF_MS = 100;
+    protected static final long MAX_REFRESH_BACKOFF_MS = 30000;
+
+    private static final ConcurrentHashMap<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+    private static final SingleFlight<String, Type> FETCHES = new SingleFlight<>();
+
+    private KineticaTypeCache() {
+    }
+
+    /**
+     * Fetches the type of a Kinetica table
+     */
+    public interface Fetcher {
+        /**
+         * @return table type, null when the table does not exist
+         * @throws GPUdbException  when the type can not be fetched
+         */
+        Type fetch() throws GPUdbException;
+    }
+
+    /**
+     * Returns the cached type of a table, fetching it when it is not cached or expired
+     * @param url         Kinetica URL as configured
+     * @param tableName   qualified table name
+     * @param ttlMs       time to live of the cached type, 0 to fetch on every call
+     * @param fetcher     fetches the type from Kinetica
+     * @return table type, null when the table does not exist
+     * @throws GPUdbException  when the type can not be fetched, also within the backoff after a failed fetch
+     */
+    public static Type get(String url, String tableName, long ttlMs, Fetcher fetcher) throws GPUdbException {
+        String key = key(url, tableName);
+        Entry entry = ENTRIES.get(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.type != null && now - entry.fetchedAt < ttlMs) {
+            return entry.type;
+        }
+        if (entry != null && now < entry.retryAt) {
+            return entry.current();
+        }
+        return fetch(key, fetcher, false);
+    }
+
+    /**
+     * Returns a more recent type than the one a caller found out of date. The type is fetched unless
+     * another caller refreshed it already or the table was fetched within the refresh backoff.
+     * @param url         Kinetica URL as configured
+     * @param tableName   qualified table name
+     * @param stale       type found out of date, may be null
+     * @param fetcher     fetches the type from Kinetica
+     * @return most recent known table type
+     * @throws GPUdbException  when the type can not be fetched
+     */
+    public static Type refresh(String url, String tableName, Type stale, Fetcher fetcher) throws GPUdbException {
+        String key = key(url, tableName);
+        Entry entry = ENTRIES.get(key);
+        if (entry != null && entry.type != null && entry.type != stale) {
+            return entry.type;
+        }
+        if (entry != null && System.currentTimeMillis() < entry.retryAt) {
+            return entry.current();
+        }
+        return fetch(key, fetcher, true);
+    }
+
+    /**
+     * Replaces the cached type of a table the connector altered or created
+     * @param url         Kinetica URL as configured
+     * @param tableName   qualified table name
+     * @param type        current table type
+     */
+    public static void update(String url, String tableName, Type type) {
+        ENTRIES.put(key(url, tableName), new Entry(type, null, System.currentTimeMillis(), MIN_REFRESH_BACKOFF_MS));
+    }
+
+    /**
+     * Caches a table type known from a previous run unless the table is cached already. The type is
+     * served until its time to live expires and refreshed when a caller finds it out of date.
+     * @param url         Kinetica URL as configured
+     * @param tableName   qualified table name
+     * @param type        table type of a previous run
+     */
+    public static void preload(String url, String tableName, Type type) {
+        ENTRIES.putIfAbsent(key(url, tableName), new Entry(type, null, System.currentTimeMillis(), MIN_REFRESH_BACKOFF_MS));
+    }
+
+    /**
+     * Drops the cached type of a table, the next lookup fetches it
+     * @param url         Kinetica URL as configured
+     * @param tableName   qualified table name
+     */
+    public static void invalidate(String url, String tableName) {
+        ENTRIES.remove(key(url, tableName));
+    }
+
+    /**
+     * @return number of type fetches sent to Kinetica
+     */
+    public static long getFetches() {
+        return FETCHES.getCalls();
+    }
+
+    private static Type fetch(final String key, final Fetcher fetcher, final boolean refresh)
+            throws GPUdbException {
+        try {
+            return FETCHES.execute(key, new SingleFlight.Call<Type>() {
+                @Override
+                public Type call() throws Exception {
+                    return fetchNow(key, fetcher, refresh);
+                }
+            });
+        } catch (GPUdbException | RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GPUdbException("Interrupted while waiting for type of " + key, e);
+        } catch (Exception e) {
+            throw new GPUdbException(e.getMessage(), e);
+        }
+    }
+
+    private static Type fetchNow(String key, Fetcher fetcher, boolean refresh) throws GPUdbException {
+        Entry previous = ENTRIES.get(key);
+        long now = System.currentTimeMillis();
+        // only repeated refreshes and failures back off, expired types are fetched on schedule
+        long backoff = previous == null || (!refresh && previous.error == null) ? MIN_REFRESH_BACKOFF_MS
+                : Math.min(previous.backoffMs * 2, MAX_REFRESH_BACKOFF_MS);
+        Type type;
+        try {
+            type = fetcher.fetch();
+        } catch (GPUdbException e) {
+            // keep serving the previous type, the error is reported until the backoff expires
+            ENTRIES.put(key, new Entry(previous == null ? null : previous.type, e,
+                    previous == null ? 0 : previous.fetchedAt, backoff).retryFrom(now));
+            throw e;
+        }
+        if (type == null || (previous != null && previous.type != null && !previous.type.equals(type))) {
+            if (type != null) {
+                LOG.info("Type of Kinetica table {} changed", key);
+            }
+            // missing tables may be created any time, changed types may change again
+            backoff = MIN_REFRESH_BACKOFF_MS;
+        }
+        ENTRIES.put(key, new Entry(type, null, now, backoff).retryFrom(now));
+        return type;
+    }
+
+    private static String key(String url, String tableName) {
+        return url + "|" + tableName;
+    }
+
+    /**
+     * Cached type or error of a table
+     */
+    private static class Entry {
+        private final Type type;
+        private final GPUdbException error;
+        private final long fetchedAt;
+        private final long backoffMs;
+        private long retryAt;
+
+        Entry(Type type, GPUdbException error, long fetchedAt, long backoffMs) {
+            this.type = type;
+            this.error = error;
+            this.fetchedAt = fetchedAt;
+            this.backoffMs = backoffMs;
+        }
+
+        Entry retryFrom(long now) {
+            this.retryAt = now + this.backoffMs;
+            return this;
+        }
+
+        Type current() throws GPUdbException {
+            if (this.error != null && this.type == null) {
+                throw this.error;
+            }
+            return this.type;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.kinetica.kafka;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gpudb.ColumnProperty;
+import com.gpudb.GPUdb;
+import com.gpudb.GPUdbBase;
+import com.gpudb.GPUdbException;
+import com.gpudb.GenericRecord;
+import com.gpudb.Type;
+import com.gpudb.Type.Column;
+import com.gpudb.protocol.CreateTableRequest;
+import com.gpudb.protocol.GetRecordsRequest;
+import com.gpudb.protocol.GetRecordsResponse;
+import com.gpudb.protocol.InsertRecordsRequest;
+
+/**
+ * Kinetica table holding the highest offset per connector and topic partition whose records have been
+ * inserted into Kinetica. The ledger is written at the end of each flush cycle, before Kafka Connect
+ * commits offsets, so it is never behind the committed offsets. After a restart or rebalance, partitions
+ * are positioned right after their ledger offset and already inserted records are not processed again.
+ */
+public class OffsetLedger {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OffsetLedger.class);
+
+    public static final String COLUMN_CONNECTOR = "connector";
+    public static final String COLUMN_TOPIC     = "topic";
+    public static final String COLUMN_PARTITION = "topic_partition";
+    public static final String COLUMN_OFFSET    = "kafka_offset";
+    public static final String COLUMN_UPDATED   = "updated_at";
+
+    // ledger rows are read in a single request
+    private static final long MAX_ROWS = 100000L;
+
+    private final GPUdb gpudb;
+    private final String tableName;
+    private final String connectorName;
+    private Type type;
+
+    // offsets not written to the ledger yet
+    private final HashMap<TopicPartition, Long> pending = new HashMap<>();
+    // offsets last written to or read from the ledger
+    private final HashMap<TopicPartition, Long> written = new HashMap<>();
+
+    /**
+     * Creates the ledger of a connector
+     * @param gpudb           Kinetica DB access object
+     * @param tableName       Kinetica ledger table name
+     * @param connectorName   Kafka connector name, several connectors may share a ledger table
+     */
+    public OffsetLedger(GPUdb gpudb, String tableName, String connectorName) {
+        this.gpudb = gpudb;
+        this.tableName = tableName;
+        this.connectorName = connectorName;
+    }
+
+    /**
+     * @return Type of the ledger table
+     */
+    public static Type ledgerType() {
+        List<Column> columns = new ArrayList<>();
+        columns.add(new Column(COLUMN_CONNECTOR, String.class, ColumnProperty.PRIMARY_KEY));
+        columns.add(new Column(COLUMN_TOPIC, String.class, ColumnProperty.PRIMARY_KEY));
+        columns.add(new Column(COLUMN_PARTITION, Integer.class, ColumnProperty.PRIMARY_KEY));
+        columns.add(new Column(COLUMN_OFFSET, Long.class));
+        columns.add(new Column(COLUMN_UPDATED, Long.class, ColumnProperty.TIMESTAMP));
+        return new Type(columns);
+    }
+
+    /**
+     * Creates the ledger table when it does not exist
+     * @throws GPUdbException  when the table can not be created
+     */
+    public void ensureTable() throws GPUdbException {
+        if (this.gpudb.hasTable(this.tableName, null).getTableExists()) {
+            this.type = Type.fromTable(this.gpudb, this.tableName);
+            return;
+        }
+        Type ledgerType = ledgerType();
+        String typeId = ledgerType.create(this.gpudb);
+        this.gpudb.createTable(this.tableName, typeId,
+                GPUdbBase.options(CreateTableRequest.Options.NO_ERROR_IF_EXISTS, CreateTableRequest.Options.TRUE));
+        this.type = ledgerType;
+        LOG.info("Created offset ledger table {}", this.tableName);
+    }
+
+    /**
+     * Reads ledger offsets of the given partitions
+     * @param partitions   topic partitions assigned to the task
+     * @return highest inserted offset per partition found in the ledger
+     * @throws GPUdbException  when the ledger can not be read
+     */
+    public Map<TopicPartition, Long> load(Collection<TopicPartition> partitions) throws GPUdbException {
+        HashMap<TopicPartition, Long> offsets = new HashMap<>();
+        if (partitions.isEmpty()) {
+            return offsets;
+        }
+        GetRecordsResponse<GenericRecord> response = this.gpudb.getRecords(this.tableName, 0, MAX_ROWS,
+                GPUdbBase.options(GetRecordsRequest.Options.EXPRESSION, expression(this.connectorName, partitions)));
+        for (GenericRecord record : response.getData()) {
+            TopicPartition tp = new TopicPartition((String) record.get(COLUMN_TOPIC),
+                    (Integer) record.get(COLUMN_PARTITION));
+            if (partitions.contains(tp)) {
+                Long offset = (Long) record.get(COLUMN_OFFSET);
+                offsets.put(tp, offset);
+                this.written.put(tp, offset);
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Records that all records of a partition up to the given offset have been processed
+     * @param tp       topic partition
+     * @param offset   highest processed offset
+     */
+    public void record(TopicPartition tp, long offset) {
+        Long last = this.written.get(tp);
+        if (last != null && last >= offset) {
+            return;
+        }
+        Long current = this.pending.get(tp);
+        if (current == null || current < offset) {
+            this.pending.put(tp, offset);
+        }
+    }
+
+    /**
+     * Upserts recorded offsets into the ledger table
+     * @return number of ledger rows written
+     * @throws GPUdbException  when the ledger can not be written, recorded offsets are kept for the next attempt
+     */
+    public int write() throws GPUdbException {
+        if (this.pending.isEmpty()) {
+            return 0;
+        }
+        if (this.type == null) {
+            ensureTable();
+        }
+        long now = System.currentTimeMillis();
+        List<GenericRecord> rows = new ArrayList<>(this.pending.size());
+        for (Map.Entry<TopicPartition, Long> entry : this.pending.entrySet()) {
+            GenericRecord row = new GenericRecord(this.type);
+            row.put(COLUMN_CONNECTOR, this.connectorName);
+            row.put(COLUMN_TOPIC, entry.getKey().topic());
+            row.put(COLUMN_PARTITION, entry.getKey().partition());
+            row.put(COLUMN_OFFSET, entry.getValue());
+            row.put(COLUMN_UPDATED, now);
+            rows.add(row);
+        }
+        this.gpudb.insertRecords(this.tableName, rows, GPUdbBase.options(
+                InsertRecordsRequest.Options.UPDATE_ON_EXISTING_PK, InsertRecordsRequest.Options.TRUE));
+        this.written.putAll(this.pending);
+        this.pending.clear();
+        return rows.size();
+    }
+
+    /**
+     * Forgets offsets of partitions no longer assigned to the task
+     * @param partitions   revoked partitions
+     */
+    public void forget(Collection<TopicPartition> partitions) {
+        for (TopicPartition tp : partitions) {
+            this.pending.remove(tp);
+            this.written.remove(tp);
+        }
+    }
+
+    /**
+     * @return offsets not written to the ledger yet
+     */
+    public Map<TopicPartition, Long> getPending() {
+        return this.pending;
+    }
+
+    /**
+     * @return ledger table name
+     */
+    public String getTableName() {
+        return this.tableName;
+    }
+
+    /**
+     * Builds the filter expression selecting ledger rows of a connector and the topics of the given partitions
+     * @param connectorName   Kafka connector name
+     * @param partitions      topic partitions
+     * @return Kinetica filter expression
+     */
+    protected static String expression(String connectorName, Collection<TopicPartition> partitions) {
+        TreeSet<String> topics = new TreeSet<>();
+        for (TopicPartition tp : partitions) {
+            topics.add(tp.topic());
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(COLUMN_CONNECTOR).append(" = ").append(quote(connectorName));
+        sb.append(" and ").append(COLUMN_TOPIC).append(" in (");
+        boolean first = true;
+        for (String topic : topics) {
+            if (!first) {
+                sb.append(", ");
+            }
+            sb.append(quote(topic));
+            first = false;
+        }
+        return sb.append(")").toString();
+    }
+
+    /**
+     * @param value   string value
+     * @return value as a quoted string literal
+     */
+    private static String quote(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,201 @@
+package com.kinetica.kafka;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pauses consumption of topic partitions while Kinetica falls behind, instead of blocking the task thread.
+ * Partitions are paused for two reasons:
+ * <ul>
+ * <li>a table insert took longer than the latency threshold: partitions that fed the slow batch are paused 
+ * for as long as the insert took, up to the max pause time</li>
+ * <li>records pending across all table batches exceed the pending bytes threshold: all assigned partitions 
+ * are paused and a commit is requested, so that pending batches get flushed; partitions are resumed once 
+ * pending records drop below half of the threshold, or after the max pause time</li>
+ * <li>a table is over its ingest rate limit: partitions that fed the table batch are paused until 
+ * the limit allows the next insert</li>
+ * </ul>
+ * Paused partitions keep the consumer polling and heartbeating, so a slow Kinetica does not trigger rebalances.
+ */
+public class PartitionBackpressure {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionBackpressure.class);
+
+    private final long latencyThresholdMs;
+    private final long pendingBytesThreshold;
+    private final long maxPauseMs;
+
+    // partitions paused after a slow insert or by rate limits, with the time they may be resumed
+    private final Map<TopicPartition, Long> timedPaused = new HashMap<>();
+    // partitions paused while too many records are pending
+    private final Set<TopicPartition> pendingPaused = new HashSet<>();
+    private long pendingPausedUntil;
+    private long pauseCount;
+
+    /**
+     * Creates backpressure thresholds of a sink task
+     * @param latencyThresholdMs      insert latency above which partitions are paused, 0 to disable
+     * @param pendingBytesThreshold   pending records size above which partitions are paused, 0 to disable
+     * @param maxPauseMs              longest time a partition stays paused
+     */
+    public PartitionBackpressure(long latencyThresholdMs, long pendingBytesThreshold, long maxPauseMs) {
+        this.latencyThresholdMs = latencyThresholdMs;
+        this.pendingBytesThreshold = pendingBytesThreshold;
+        this.maxPauseMs = maxPauseMs;
+    }
+
+    /**
+     * @return true when latency-based pausing is enabled
+     */
+    public boolean isLatencyEnabled() {
+        return this.latencyThresholdMs > 0;
+    }
+
+    /**
+     * Pauses partitions that fed a batch when its insert exceeded the latency threshold
+     * @param context      sink task context
+     * @param partitions   partitions of the records in the batch
+     * @param latencyMs    insert round-trip time
+     * @param now          current time in milliseconds
+     */
+    public void onFlush(SinkTaskContext context, Collection<TopicPartition> partitions, long latencyMs, long now) {
+        if (!isLatencyEnabled() || latencyMs <= this.latencyThresholdMs || partitions.isEmpty()) {
+            return;
+        }
+        pauseUntil(context, partitions, now + Math.min(latencyMs, this.maxPauseMs), 
+                String.format("insert took %d ms", latencyMs));
+    }
+
+    /**
+     * Pauses partitions until the given time
+     * @param context      sink task context
+     * @param partitions   partitions to pause
+     * @param resumeAt     time in milliseconds the partitions may be resumed
+     * @param reason       pause reason to be logged
+     */
+    public void pauseUntil(SinkTaskContext context, Collection<TopicPartition> partitions, long resumeAt, String reason) {
+        List<TopicPartition> toPause = new ArrayList<>();
+        for (TopicPartition tp : partitions) {
+            if (!isPaused(tp)) {
+                toPause.add(tp);
+            }
+            Long current = this.timedPaused.get(tp);
+            if (current == null || current < resumeAt) {
+                this.timedPaused.put(tp, resumeAt);
+            }
+        }
+        pause(context, toPause, reason);
+    }
+
+    /**
+     * Pauses all assigned partitions when pending records exceed the threshold
+     * @param context        sink task context
+     * @param pendingBytes   estimated size of pending records
+     * @param now            current time in milliseconds
+     */
+    public void onPending(SinkTaskContext context, long pendingBytes, long now) {
+        if (this.pendingBytesThreshold <= 0 || pendingBytes <= this.pendingBytesThreshold 
+                || !this.pendingPaused.isEmpty()) {
+            return;
+        }
+        List<TopicPartition> toPause = new ArrayList<>();
+        for (TopicPartition tp : context.assignment()) {
+            if (!isPaused(tp)) {
+                toPause.add(tp);
+            }
+            this.pendingPaused.add(tp);
+        }
+        this.pendingPausedUntil = now + this.maxPauseMs;
+        pause(context, toPause, String.format("%d bytes pending", pendingBytes));
+        // have the framework flush pending batches on its next iteration
+        context.requestCommit();
+    }
+
+    /**
+     * Resumes partitions whose pause is over
+     * @param context        sink task context
+     * @param pendingBytes   estimated size of pending records
+     * @param now            current time in milliseconds
+     */
+    public void maybeResume(SinkTaskContext context, long pendingBytes, long now) {
+        List<TopicPartition> toResume = new ArrayList<>();
+        Iterator<Map.Entry<TopicPartition, Long>> it = this.timedPaused.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<TopicPartition, Long> entry = it.next();
+            if (entry.getValue() <= now) {
+                it.remove();
+                if (!this.pendingPaused.contains(entry.getKey())) {
+                    toResume.add(entry.getKey());
+                }
+            }
+        }
+        if (!this.pendingPaused.isEmpty() 
+                && (pendingBytes <= this.pendingBytesThreshold / 2 || this.pendingPausedUntil <= now)) {
+            for (TopicPartition tp : this.pendingPaused) {
+                if (!this.timedPaused.containsKey(tp)) {
+                    toResume.add(tp);
+                }
+            }
+            this.pendingPaused.clear();
+        }
+        if (!toResume.isEmpty()) {
+            LOG.info("Resuming {} partitions", toResume.size());
+            context.resume(toResume.toArray(new TopicPartition[toResume.size()]));
+        }
+    }
+
+    /**
+     * Forgets pause state of partitions no longer assigned to the task
+     * @param partitions   revoked partitions
+     */
+    public void forget(Collection<TopicPartition> partitions) {
+        for (TopicPartition tp : partitions) {
+            this.timedPaused.remove(tp);
+            this.pendingPaused.remove(tp);
+        }
+    }
+
+    /**
+     * @param tp   topic partition
+     * @return true when the partition is paused
+     */
+    public boolean isPaused(TopicPartition tp) {
+        return this.timedPaused.containsKey(tp) || this.pendingPaused.contains(tp);
+    }
+
+    /**
+     * @return number of currently paused partitions
+     */
+    public int getPausedCount() {
+        Set<TopicPartition> paused = new HashSet<>(this.timedPaused.keySet());
+        paused.addAll(this.pendingPaused);
+        return paused.size();
+    }
+
+    /**
+     * @return number of times partitions were paused
+     */
+    public long getPauseCount() {
+        return this.pauseCount;
+    }
+
+    private void pause(SinkTaskContext context, List<TopicPartition> partitions, String reason) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        this.pauseCount++;
+        LOG.info("Pausing {} partitions, {}", partitions.size(), reason);
+        context.pause(partitions.toArray(new TopicPartition[partitions.size()]));
+    }
+}
@@ -0,0 +1,113 @@
+package com.kinetica.kafka;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.gpudb.GenericRecord;
+import com.gpudb.Type;
+import com.gpudb.Type.Column;
+
+/**
+ * A helper class estimating the size of a record once it is Avro-encoded for an insert request, 
+ * so that table batches can be bounded by bytes as well as by record count.
+ * Estimates follow the Avro binary encoding: zig-zag varints for int/long, fixed width
+ * for float/double, length-prefixed UTF-8 strings and bytes, and a union branch marker
+ * for nullable columns.
+ */
+public class RecordSizeEstimator {
+
+    /**
+     * Estimates the encoded size of a Kinetica record 
+     * @param record       converted Kinetica record
+     * @param gpudbSchema  gpudb Type of the destination table
+     * @return estimated size in bytes
+     */
+    public static long estimate(GenericRecord record, Type gpudbSchema) {
+        long size = 0;
+        List<Column> columns = gpudbSchema.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (column.isNullable()) {
+                // union branch index
+                size += 1;
+            }
+            size += estimateValue(record.get(i));
+        }
+        return size;
+    }
+
+    /**
+     * Estimates the encoded size of a single column value
+     * @param value   column value
+     * @return estimated size in bytes
+     */
+    protected static long estimateValue(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Integer) {
+            return varintSize(zigZag(((Integer)value).longValue()));
+        }
+        if (value instanceof Long) {
+            return varintSize(zigZag((Long)value));
+        }
+        if (value instanceof Float) {
+            return 4;
+        }
+        if (value instanceof Double) {
+            return 8;
+        }
+        if (value instanceof String) {
+            long length = utf8Length((String)value);
+            return varintSize(zigZag(length)) + length;
+        }
+        if (value instanceof ByteBuffer) {
+            long length = ((ByteBuffer)value).remaining();
+            return varintSize(zigZag(length)) + length;
+        }
+        if (value instanceof byte[]) {
+            long length = ((byte[])value).length;
+            return varintSize(zigZag(length)) + length;
+        }
+        // unknown types are encoded as strings by the API
+        long length = utf8Length(value.toString());
+        return varintSize(zigZag(length)) + length;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Counts UTF-8 bytes of a string without encoding it
+     * @param value   string value
+     * @return number of bytes in UTF-8 encoding
+     */
+    private static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch < 0x80) {
+                length += 1;
+            } else if (ch < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(ch)) {
+                // surrogate pair encodes into 4 bytes
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,48 @@
+package com.kinetica.kafka;
+
+/**
+ * Resolved routing and conversion state of a Kafka record schema: the destination Kinetica table
+ * and the key under which known schemas, blacklisted schemas and field mappers of the table are cached.
+ */
+public class ResolvedSchema {
+
+    private final String topic;
+    private final String tableName;
+    private final Object schema;
+    private final Long schemaKey;
+
+    /**
+     * @param topic       Kafka topic
+     * @param tableName   destination Kinetica table
+     * @param schema      Kafka Schema, or column map of a schemaless record
+     * @param schemaKey   schema fingerprint, null for schemaless records
+     */
+    public ResolvedSchema(String topic, String tableName, Object schema, Long schemaKey) {
+        this.topic = topic;
+        this.tableName = tableName;
+        this.schema = schema;
+        this.schemaKey = schemaKey;
+    }
+
+    public String getTopic() {
+        return this.topic;
+    }
+
+    public String getTableName() {
+        return this.tableName;
+    }
+
+    /**
+     * @return Kafka Schema, or column map of a schemaless record
+     */
+    public Object getSchema() {
+        return this.schema;
+    }
+
+    /**
+     * @return schema fingerprint, null for schemaless records
+     */
+    public Long getSchemaKey() {
+        return this.schemaKey;
+    }
+}
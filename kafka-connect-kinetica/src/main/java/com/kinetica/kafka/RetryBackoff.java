@@ -0,0 +1,68 @@
+package com.kinetica.kafka;
+
+import java.util.Random;
+
+/**
+ * Exponential backoff with jitter between retries of a failed Kinetica operation.
+ * The n-th consecutive retry waits between half and all of min(initial * 2^(n-1), max) milliseconds,
+ * so that tasks failing at the same time do not retry in lockstep.
+ */
+public class RetryBackoff {
+
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final int maxRetries;
+    private final Random random;
+
+    private int attempts = 0;
+
+    /**
+     * Creates a backoff policy
+     * @param initialBackoffMs   backoff before the first retry
+     * @param maxBackoffMs       longest backoff between retries
+     * @param maxRetries         consecutive retries allowed before giving up, 0 for unlimited
+     * @param random             source of jitter
+     */
+    public RetryBackoff(long initialBackoffMs, long maxBackoffMs, int maxRetries, Random random) {
+        this.initialBackoffMs = Math.max(1, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+        this.maxRetries = maxRetries;
+        this.random = random;
+    }
+
+    /**
+     * Counts a new consecutive failure and computes the time to wait before retrying
+     * @return backoff in milliseconds
+     */
+    public long nextBackoff() {
+        this.attempts++;
+        long backoff = this.initialBackoffMs;
+        for (int i = 1; i < this.attempts && backoff < this.maxBackoffMs; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, this.maxBackoffMs);
+        long half = backoff / 2;
+        return half + (long) (this.random.nextDouble() * (backoff - half + 1));
+    }
+
+    /**
+     * @return true when the number of consecutive failures exceeds the allowed retries
+     */
+    public boolean isExhausted() {
+        return this.maxRetries > 0 && this.attempts > this.maxRetries;
+    }
+
+    /**
+     * @return number of consecutive failures
+     */
+    public int getAttempts() {
+        return this.attempts;
+    }
+
+    /**
+     * Clears consecutive failures after a successful operation
+     */
+    public void reset() {
+        this.attempts = 0;
+    }
+}
@@ -0,0 +1,96 @@
+package com.kinetica.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+
+/**
+ * Structural fingerprints of Kafka record schemas. Two schemas have the same fingerprint when they
+ * declare the same name, version, type, optionality, parameters and fields, so schemas without a
+ * version are told apart by their structure, and equal Schema objects created for every record
+ * (JsonConverter with schemas.enable=true) share cached state. Schemaless records have no fingerprint.
+ */
+public class SchemaFingerprint {
+
+    // 64-bit FNV-1a
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private SchemaFingerprint() {
+    }
+
+    /**
+     * @param schema   Kafka Schema or Avro schema of a record, column map of a schemaless record
+     * @return fingerprint of the schema, null for schemaless records
+     */
+    public static Long of(Object schema) {
+        if (schema == null || schema instanceof Map) {
+            return null;
+        }
+        if (schema instanceof Schema) {
+            return mix(OFFSET_BASIS, (Schema) schema);
+        }
+        if (schema instanceof org.apache.avro.Schema) {
+            return mix(OFFSET_BASIS, schema.toString());
+        }
+        return null;
+    }
+
+    private static long mix(long hash, Schema schema) {
+        if (schema == null) {
+            return mix(hash, 0L);
+        }
+        hash = mix(hash, schema.type().getName());
+        hash = mix(hash, schema.isOptional() ? 1L : 2L);
+        hash = mix(hash, schema.name());
+        hash = mix(hash, schema.version() == null ? 0L : schema.version() + 1L);
+        if (schema.parameters() != null) {
+            // order independent, parameters are a map
+            long parameters = 0;
+            for (Map.Entry<String, String> parameter : schema.parameters().entrySet()) {
+                parameters += mix(mix(OFFSET_BASIS, parameter.getKey()), parameter.getValue());
+            }
+            hash = mix(hash, parameters);
+        }
+        switch (schema.type()) {
+            case STRUCT:
+                for (Field field : schema.fields()) {
+                    hash = mix(hash, field.name());
+                    hash = mix(hash, field.schema());
+                }
+                break;
+            case ARRAY:
+                hash = mix(hash, schema.valueSchema());
+                break;
+            case MAP:
+                hash = mix(hash, schema.keySchema());
+                hash = mix(hash, schema.valueSchema());
+                break;
+            default:
+                break;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return mix(hash, 0L);
+        }
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= PRIME;
+        }
+        // separates adjacent strings
+        return mix(hash, (long) value.length());
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= PRIME;
+        }
+        return hash;
+    }
+}
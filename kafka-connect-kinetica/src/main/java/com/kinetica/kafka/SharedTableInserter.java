@@ -0,0 +1,216 @@
+package com.kinetica.kafka;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gpudb.BulkInserter;
+import com.gpudb.BulkInserter.InsertException;
+import com.gpudb.GPUdbException;
+import com.gpudb.GenericRecord;
+import com.gpudb.Type;
+
+/**
+ * Insert pipeline of a Kinetica table shared by the sink tasks of a connector running in the same worker JVM.
+ * Table batches handed over while another insert is in progress are combined and sent as one batch by the
+ * next task to get hold of the pipeline (group commit), so concurrent flushes of many tasks turn into few
+ * large requests. Every task waits until its own records have been sent and gets back only its own failed
+ * records, so that each task keeps acknowledging its own partition offsets.
+ */
+public class SharedTableInserter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedTableInserter.class);
+
+    // worker-wide registry of shared pipelines
+    private static final HashMap<Key, SharedTableInserter> REGISTRY = new HashMap<>();
+
+    /**
+     * Creates the BulkInserter of a new shared pipeline
+     */
+    public interface Factory {
+        BulkInserter<GenericRecord> create() throws GPUdbException;
+    }
+
+    private final Key key;
+    private final BulkInserter<GenericRecord> bi;
+    private int refCount = 0;
+    // serializes inserts, the holder sends the sealed group of batches
+    private final ReentrantLock insertLock = new ReentrantLock();
+    // group collecting batches while the previous group is sent
+    private Group current = new Group();
+    private long combinedBatches = 0;
+    private long groups = 0;
+
+    private SharedTableInserter(Key key, BulkInserter<GenericRecord> bi) {
+        this.key = key;
+        this.bi = bi;
+    }
+
+    /**
+     * Returns the shared pipeline of a table, creating it on first use
+     * @param connectorName   Kafka connector name, pipelines are shared among tasks of the same connector
+     * @param tableName       Kinetica table name
+     * @param type            Type of the records inserted, tasks holding different Types use different pipelines
+     * @param factory         creates the BulkInserter when there is no pipeline yet
+     * @return shared pipeline, to be released by the caller
+     * @throws GPUdbException  when the BulkInserter can not be created
+     */
+    public static SharedTableInserter acquire(String connectorName, String tableName, Type type, Factory factory)
+            throws GPUdbException {
+        Key key = new Key(connectorName, tableName, type);
+        synchronized (REGISTRY) {
+            SharedTableInserter inserter = REGISTRY.get(key);
+            if (inserter == null) {
+                inserter = new SharedTableInserter(key, factory.create());
+                REGISTRY.put(key, inserter);
+                LOG.debug("Created shared inserter for <{}> of connector {}", tableName, connectorName);
+            }
+            inserter.refCount++;
+            return inserter;
+        }
+    }
+
+    /**
+     * Releases a pipeline obtained from acquire, the last release removes it from the registry
+     */
+    public void release() {
+        synchronized (REGISTRY) {
+            this.refCount--;
+            if (this.refCount <= 0 && REGISTRY.get(this.key) == this) {
+                REGISTRY.remove(this.key);
+                LOG.debug("Released shared inserter for <{}> of connector {}", this.key.tableName, this.key.connectorName);
+            }
+        }
+    }
+
+    /**
+     * Inserts a table batch together with batches of other tasks waiting for the pipeline
+     * @param records   records of the table batch
+     * @param errors    collects insert errors of requests that failed records of this batch
+     * @return records of this batch that failed to insert, empty on success
+     */
+    public List<GenericRecord> insert(List<GenericRecord> records, List<InsertException> errors) {
+        Group group;
+        synchronized (this) {
+            group = this.current;
+            group.batches.add(records);
+        }
+        this.insertLock.lock();
+        try {
+            if (!group.done) {
+                synchronized (this) {
+                    // batches handed over from now on go to the next group
+                    this.current = new Group();
+                    this.groups++;
+                    this.combinedBatches += group.batches.size();
+                }
+                group.send(this.bi);
+            }
+        } finally {
+            this.insertLock.unlock();
+        }
+        if (group.failed.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<GenericRecord> failed = new ArrayList<>();
+        for (GenericRecord record : records) {
+            if (group.failed.containsKey(record)) {
+                failed.add(record);
+            }
+        }
+        if (!failed.isEmpty()) {
+            errors.addAll(group.errors);
+        }
+        return failed;
+    }
+
+    /**
+     * @return Type of the records inserted through this pipeline
+     */
+    public Type getType() {
+        return this.key.type;
+    }
+
+    /**
+     * @return number of task batches sent per insert on average
+     */
+    public synchronized double getAverageGroupSize() {
+        return this.groups == 0 ? 0 : (double) this.combinedBatches / this.groups;
+    }
+
+    /**
+     * @return number of tasks holding this pipeline
+     */
+    public int getRefCount() {
+        synchronized (REGISTRY) {
+            return this.refCount;
+        }
+    }
+
+    /**
+     * Table batches of several tasks sent as one insert
+     */
+    private static class Group {
+        private final List<List<GenericRecord>> batches = new ArrayList<>();
+        private final IdentityHashMap<GenericRecord, Boolean> failed = new IdentityHashMap<>();
+        private final List<InsertException> errors = new ArrayList<>();
+        private volatile boolean done = false;
+
+        private void send(BulkInserter<GenericRecord> bi) {
+            List<GenericRecord> combined = new ArrayList<>();
+            for (List<GenericRecord> batch : this.batches) {
+                combined.addAll(batch);
+            }
+            for (GenericRecord record : KineticaSinkTask.insertAll(bi, combined, this.errors)) {
+                this.failed.put(record, Boolean.TRUE);
+            }
+            this.done = true;
+        }
+    }
+
+    /**
+     * Registry key: pipelines are shared per connector, table and record Type
+     */
+    private static class Key {
+        private final String connectorName;
+        private final String tableName;
+        private final Type type;
+
+        Key(String connectorName, String tableName, Type type) {
+            this.connectorName = connectorName;
+            this.tableName = tableName;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.connectorName.equals(other.connectorName) && this.tableName.equals(other.tableName)
+                    && Objects.equals(this.type, other.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.connectorName, this.tableName, this.type);
+        }
+    }
+
+    /**
+     * @return number of shared pipelines in this worker, for tests
+     */
+    protected static int registrySize() {
+        synchronized (REGISTRY) {
+            return REGISTRY.size();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.kinetica.kafka;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs at most one call per key at a time. Callers arriving while a call for the same key is in flight
+ * wait for it and share its result or exception instead of repeating it, so that sink tasks of a worker
+ * starting against the same new table look up its type and create or alter it once. Results are not
+ * kept once the call completes, the next caller runs the call again.
+ *
+ * @param <K>  call key
+ * @param <V>  call result
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * Call shared by concurrent callers
+     */
+    public interface Call<V> {
+        V call() throws Exception;
+    }
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * Runs the call, or waits for the call in flight for the same key
+     * @param key    call key
+     * @param call   call to run when none is in flight for the key
+     * @return result of the call
+     * @throws Exception  thrown by the call, or InterruptedException while waiting
+     */
+    public V execute(K key, Call<V> call) throws Exception {
+        Flight<V> flight = new Flight<>();
+        Flight<V> inFlight = this.flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            this.shared.incrementAndGet();
+            return inFlight.await();
+        }
+        this.calls.incrementAndGet();
+        try {
+            flight.result = call.call();
+        } catch (Exception e) {
+            flight.error = e;
+        } finally {
+            this.flights.remove(key, flight);
+            flight.done.countDown();
+        }
+        return flight.await();
+    }
+
+    /**
+     * @return number of calls run
+     */
+    public long getCalls() {
+        return this.calls.get();
+    }
+
+    /**
+     * @return number of callers that shared the result of a call in flight
+     */
+    public long getShared() {
+        return this.shared.get();
+    }
+
+    /**
+     * Result of a call, published to waiting callers by the latch
+     */
+    private static class Flight<V> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private V result;
+        private Exception error;
+
+        private V await() throws Exception {
+            this.done.await();
+            if (this.error != null) {
+                throw this.error;
+            }
+            return this.result;
+        }
+    }
+}
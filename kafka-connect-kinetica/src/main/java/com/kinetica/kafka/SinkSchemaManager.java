@@ -1,11 +1,20 @@
 package com.kinetica.kafka;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
+import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.sink.SinkTask;
@@ -26,6 +35,7 @@ import com.gpudb.protocol.CreateTableRequest;
 import com.gpudb.protocol.CreateTableResponse;
 import com.gpudb.protocol.HasSchemaRequest;
 import com.gpudb.protocol.InsertRecordsRequest;
+import com.gpudb.protocol.RawInsertRecordsRequest;
 import com.gpudb.protocol.ShowTableRequest;
 
 public class SinkSchemaManager {
@@ -34,11 +44,61 @@ public class SinkSchemaManager {
 
     // from configuration
     private int batchSize;
+    private final long batchSizeBytes;
+    private final boolean adaptiveBatchEnabled;
+    private final int adaptiveBatchMinSize;
+    private final int adaptiveBatchMaxSize;
+    private final long adaptiveBatchTargetLatency;
+    private final long memoryBudgetBytes;
+    private final int cacheMaxTables;
+    private final int flushTableThreads;
+    private final int flushRankThreads;
+    private final boolean sharedInserters;
+    // tasks whose batches make up one shared insert, 1 without shared inserters
+    private final long sharingTasks;
+    private final long cacheIdleTimeout;
+    private final long typeTtl;
+    private final boolean coalesceUpdates;
+    private final long backpressureLatency;
+    private final long backpressurePendingBytes;
+    private final long backpressureMaxPause;
+    private final long retryBackoff;
+    private final long retryMaxBackoff;
+    private final int retryMaxRetries;
+    private final long rateLimitRows;
+    private final long rateLimitBytes;
+    private final Map<String, Long> rateLimitTableRows;
+    private final Map<String, Long> rateLimitTableBytes;
+    private final double[] rateLimitSchedule;
+    private final Map<String, Long> flushTableWeights;
+    private final long flushMaxPendingAge;
+    private final String spillDir;
+    private final String warmStartDir;
+    private final String offsetLedgerTable;
+    private final long spillSegmentBytes;
+    private final long spillMaxBytes;
+    private final String connectorName;
+    private final String taskId;
     protected final String tablePrefix;
     protected final String tableOverride;
     protected final String collectionName;
     protected final String topics;
+    // topic to table routes, computed at task start
+    private final TopicTableRouter router;
     protected final GPUdb gpudb;
+    private boolean closed = false;
+    // settings of the Kinetica client, kept to acquire the Snappy client on demand
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int timeout;
+    private final int maxConnections;
+    private final int maxConnectionsPerHost;
+    private final String compression;
+    private final long haProbeInterval;
+    // client compressing requests, used for tables automatic compression is switched on for
+    private GPUdb snappyGpudb;
+    private final HashSet<String> compressedTables = new HashSet<>();
     protected final boolean createTable;
     protected final boolean addNewColumns;
     protected final boolean alterColumnsToNullable;
@@ -48,9 +108,20 @@ public class SinkSchemaManager {
     protected final boolean multiHeadEnabled;
     private final int retryCount;
     
-    private final HashMap<String, List<Integer>> knownSchemas = new HashMap<>();
-    private final HashMap<String, List<Integer>> blackListedSchemas = new HashMap<>();
-    private final HashMap<String, HashMap<Integer, KineticaFieldMapper>> knownMappers = new HashMap<>();
+    // schema keys (fingerprints, see schemaKey) of each table
+    private final HashMap<String, Set<Long>> knownSchemas = new HashMap<>();
+    private final HashMap<String, Set<Long>> blackListedSchemas = new HashMap<>();
+    private final HashMap<String, HashMap<Long, KineticaFieldMapper>> knownMappers = new HashMap<>();
+    // table types loaded from the warm-start cache, checked against the Kinetica type on first use
+    private final HashMap<String, Type> warmTypes = new HashMap<>();
+    // Kinetica table lookups and DDL of all sink tasks in this worker, by cluster and table
+    private static final SingleFlight<String, TableType> TABLE_TYPES = new SingleFlight<>();
+    private static final SingleFlight<String, Type> ALTERATIONS = new SingleFlight<>();
+    // schema resolution cache, by Schema object identity and by topic and fingerprint
+    private static final int MAX_CACHED_SCHEMAS = 1024;
+    private final IdentityHashMap<Object, Long> schemaKeys = new IdentityHashMap<>();
+    private final IdentityHashMap<Schema, ResolvedSchema> resolvedByIdentity = new IdentityHashMap<>();
+    private final HashMap<String, HashMap<Long, ResolvedSchema>> resolvedByKey = new HashMap<>();
 
     /**
      * Singleton schema management class. It parses schemas, when possible maps Kafka types to Kinetica avro types
@@ -75,6 +146,8 @@ public class SinkSchemaManager {
                 props.get( SinkTask.TOPICS_CONFIG );
         this.singleTablePerTopic = Boolean.parseBoolean( 
                 props.get(KineticaSinkConnectorConfig.PARAM_SINGLE_TABLE_PER_TOPIC) );
+        this.router = new TopicTableRouter(this.topics, props.get(SinkTask.TOPICS_REGEX_CONFIG),
+                this.tableOverride, this.tablePrefix, this.collectionName, this.singleTablePerTopic);
         this.createTable = Boolean.parseBoolean(
                 props.get(KineticaSinkConnectorConfig.PARAM_CREATE_TABLE) );
         this.addNewColumns = Boolean.parseBoolean(
@@ -89,13 +162,96 @@ public class SinkSchemaManager {
                 props.get(KineticaSinkConnectorConfig.PARAM_UPDATE_ON_EXISTING_PK) );
         this.multiHeadEnabled = Boolean.parseBoolean(
         		props.get(KineticaSinkConnectorConfig.PARAM_ENABLE_MULTI_HEAD) );
+        this.batchSizeBytes = parseLong(props, KineticaSinkConnectorConfig.PARAM_BATCH_SIZE_BYTES,
+                KineticaSinkConnectorConfig.DEFAULT_BATCH_SIZE_BYTES);
+        this.adaptiveBatchEnabled = Boolean.parseBoolean(
+                props.get(KineticaSinkConnectorConfig.PARAM_ADAPTIVE_BATCH_ENABLED) );
+        this.adaptiveBatchMinSize = (int) parseLong(props, KineticaSinkConnectorConfig.PARAM_ADAPTIVE_BATCH_MIN_SIZE,
+                KineticaSinkConnectorConfig.DEFAULT_ADAPTIVE_BATCH_MIN_SIZE);
+        this.adaptiveBatchMaxSize = (int) parseLong(props, KineticaSinkConnectorConfig.PARAM_ADAPTIVE_BATCH_MAX_SIZE,
+                KineticaSinkConnectorConfig.DEFAULT_ADAPTIVE_BATCH_MAX_SIZE);
+        this.adaptiveBatchTargetLatency = parseLong(props, KineticaSinkConnectorConfig.PARAM_ADAPTIVE_BATCH_TARGET_LATENCY,
+                KineticaSinkConnectorConfig.DEFAULT_ADAPTIVE_BATCH_TARGET_LATENCY);
+        this.memoryBudgetBytes = parseLong(props, KineticaSinkConnectorConfig.PARAM_MEMORY_BUDGET_BYTES,
+                KineticaSinkConnectorConfig.DEFAULT_MEMORY_BUDGET_BYTES);
+        this.cacheMaxTables = (int) parseLong(props, KineticaSinkConnectorConfig.PARAM_CACHE_MAX_TABLES,
+                KineticaSinkConnectorConfig.DEFAULT_CACHE_MAX_TABLES);
+        this.cacheIdleTimeout = parseLong(props, KineticaSinkConnectorConfig.PARAM_CACHE_IDLE_TIMEOUT,
+                KineticaSinkConnectorConfig.DEFAULT_CACHE_IDLE_TIMEOUT);
+        this.typeTtl = parseLong(props, KineticaSinkConnectorConfig.PARAM_CACHE_TYPE_TTL,
+                KineticaSinkConnectorConfig.DEFAULT_CACHE_TYPE_TTL);
+        String coalesce = props.get(KineticaSinkConnectorConfig.PARAM_COALESCE_UPDATES);
+        this.coalesceUpdates = coalesce == null || Boolean.parseBoolean(coalesce);
+        this.backpressureLatency = parseLong(props, KineticaSinkConnectorConfig.PARAM_BACKPRESSURE_LATENCY,
+                KineticaSinkConnectorConfig.DEFAULT_BACKPRESSURE_LATENCY);
+        this.backpressurePendingBytes = parseLong(props, KineticaSinkConnectorConfig.PARAM_BACKPRESSURE_PENDING_BYTES,
+                KineticaSinkConnectorConfig.DEFAULT_BACKPRESSURE_PENDING_BYTES);
+        this.backpressureMaxPause = parseLong(props, KineticaSinkConnectorConfig.PARAM_BACKPRESSURE_MAX_PAUSE,
+                KineticaSinkConnectorConfig.DEFAULT_BACKPRESSURE_MAX_PAUSE);
+        this.retryBackoff = parseLong(props, KineticaSinkConnectorConfig.PARAM_RETRY_BACKOFF,
+                KineticaSinkConnectorConfig.DEFAULT_RETRY_BACKOFF);
+        this.retryMaxBackoff = parseLong(props, KineticaSinkConnectorConfig.PARAM_RETRY_MAX_BACKOFF,
+                KineticaSinkConnectorConfig.DEFAULT_RETRY_MAX_BACKOFF);
+        this.retryMaxRetries = (int) parseLong(props, KineticaSinkConnectorConfig.PARAM_RETRY_MAX_RETRIES,
+                KineticaSinkConnectorConfig.DEFAULT_RETRY_MAX_RETRIES);
+        long taskCount = Math.max(1, parseLong(props, KineticaSinkConnectorConfig.TASK_COUNT, "1"));
+        this.rateLimitRows = divideLimit(parseLong(props, KineticaSinkConnectorConfig.PARAM_RATE_LIMIT_ROWS,
+                KineticaSinkConnectorConfig.DEFAULT_RATE_LIMIT), taskCount);
+        this.rateLimitBytes = divideLimit(parseLong(props, KineticaSinkConnectorConfig.PARAM_RATE_LIMIT_BYTES,
+                KineticaSinkConnectorConfig.DEFAULT_RATE_LIMIT), taskCount);
+        // per-table limits apply to each task, a table may be fed by a single task or by all of them
+        this.rateLimitTableRows = parseTableValues(
+                props.get(KineticaSinkConnectorConfig.PARAM_RATE_LIMIT_TABLE_ROWS), 
+                KineticaSinkConnectorConfig.PARAM_RATE_LIMIT_TABLE_ROWS);
+        this.rateLimitTableBytes = parseTableValues(
+                props.get(KineticaSinkConnectorConfig.PARAM_RATE_LIMIT_TABLE_BYTES), 
+                KineticaSinkConnectorConfig.PARAM_RATE_LIMIT_TABLE_BYTES);
+        this.rateLimitSchedule = IngestRateLimiter.parseSchedule(
+                props.get(KineticaSinkConnectorConfig.PARAM_RATE_LIMIT_SCHEDULE), 
+                KineticaSinkConnectorConfig.PARAM_RATE_LIMIT_SCHEDULE);
+        this.flushTableWeights = parseTableValues(
+                props.get(KineticaSinkConnectorConfig.PARAM_FLUSH_TABLE_WEIGHTS), 
+                KineticaSinkConnectorConfig.PARAM_FLUSH_TABLE_WEIGHTS);
+        this.flushMaxPendingAge = parseLong(props, KineticaSinkConnectorConfig.PARAM_FLUSH_MAX_PENDING_AGE,
+                KineticaSinkConnectorConfig.DEFAULT_FLUSH_MAX_PENDING_AGE);
+        String dir = props.get(KineticaSinkConnectorConfig.PARAM_SPILL_DIR);
+        this.spillDir = dir == null ? "" : dir.trim();
+        dir = props.get(KineticaSinkConnectorConfig.PARAM_CACHE_WARM_START_DIR);
+        this.warmStartDir = dir == null ? "" : dir.trim();
+        this.spillSegmentBytes = parseLong(props, KineticaSinkConnectorConfig.PARAM_SPILL_SEGMENT_BYTES,
+                KineticaSinkConnectorConfig.DEFAULT_SPILL_SEGMENT_BYTES);
+        this.spillMaxBytes = parseLong(props, KineticaSinkConnectorConfig.PARAM_SPILL_MAX_BYTES,
+                KineticaSinkConnectorConfig.DEFAULT_SPILL_MAX_BYTES);
+        this.flushTableThreads = (int) parseLong(props, KineticaSinkConnectorConfig.PARAM_FLUSH_TABLE_THREADS,
+                KineticaSinkConnectorConfig.DEFAULT_FLUSH_TABLE_THREADS);
+        this.flushRankThreads = (int) parseLong(props, KineticaSinkConnectorConfig.PARAM_FLUSH_RANK_THREADS,
+                KineticaSinkConnectorConfig.DEFAULT_FLUSH_RANK_THREADS);
+        this.sharedInserters = Boolean.parseBoolean(
+                props.get(KineticaSinkConnectorConfig.PARAM_FLUSH_SHARED_INSERTERS) );
+        // the batch size is the size of a combined insert, each task buffers its share of it
+        this.sharingTasks = this.sharedInserters ? taskCount : 1;
+        String ledger = props.get(KineticaSinkConnectorConfig.PARAM_OFFSET_LEDGER);
+        this.offsetLedgerTable = ledger == null ? "" : ledger.trim();
+        String name = props.get(KineticaSinkConnectorConfig.CONNECTOR_NAME);
+        this.connectorName = name == null ? "kinetica-sink" : name;
+        String id = props.get(KineticaSinkConnectorConfig.TASK_ID);
+        this.taskId = id == null ? "0" : id;
 
-        String url = props.get(KineticaSinkConnectorConfig.PARAM_URL);
+        this.haProbeInterval = parseLong(props, KineticaSinkConnectorConfig.PARAM_HA_PROBE_INTERVAL,
+                KineticaSinkConnectorConfig.DEFAULT_HA_PROBE_INTERVAL);
+        String mode = props.get(KineticaSinkConnectorConfig.PARAM_COMPRESSION);
+        this.compression = mode == null || mode.trim().isEmpty() ? CompressionController.MODE_NONE : mode.trim();
+        this.url = props.get(KineticaSinkConnectorConfig.PARAM_URL);
+        this.username = props.get(KineticaSinkConnectorConfig.PARAM_USERNAME);
+        this.password = props.get(KineticaSinkConnectorConfig.PARAM_PASSWORD);
+        this.timeout = Integer.parseInt( props.get(KineticaSinkConnectorConfig.PARAM_TIMEOUT));
+        this.maxConnections = (int) parseLong(props, KineticaSinkConnectorConfig.PARAM_MAX_CONNECTIONS, "0");
+        this.maxConnectionsPerHost = (int) parseLong(props, KineticaSinkConnectorConfig.PARAM_MAX_CONNECTIONS_PER_HOST, "0");
         try {
-            this.gpudb = new GPUdb(url, new GPUdb.Options()
-                    .setUsername( props.get(KineticaSinkConnectorConfig.PARAM_USERNAME))
-                    .setPassword( props.get(KineticaSinkConnectorConfig.PARAM_PASSWORD))
-                    .setTimeout(Integer.parseInt( props.get(KineticaSinkConnectorConfig.PARAM_TIMEOUT))));
+            // tasks of the worker connecting with the same settings share one client and connection pool
+            this.gpudb = KineticaClientRegistry.acquire(this.url, this.username, this.password, this.timeout,
+                    this.maxConnections, this.maxConnectionsPerHost, 
+                    CompressionController.MODE_SNAPPY.equals(this.compression));
         }
         catch (GPUdbException ex) {
             ConnectException cex = new ConnectException("Unable to connect to Kinetica at: " + url, ex);
@@ -112,116 +268,548 @@ public class SinkSchemaManager {
      * @throws GPUdbException
      */
     public BulkInserter<GenericRecord> getBulkInserter(String tableName, Type gpudbSchema) throws GPUdbException {
-        HashMap<String,String> options = new HashMap<>();
-        options.put(InsertRecordsRequest.Options.UPDATE_ON_EXISTING_PK, 
-                (this.updateOnExistingPK ? InsertRecordsRequest.Options.TRUE : InsertRecordsRequest.Options.FALSE));
+        // table batches are inserted as a whole, with adaptive batching a batch may grow up to the max size,
+        // BulkInserter queues should not split it into several requests
+        int queueSize = this.adaptiveBatchEnabled ? Math.max(this.batchSize, this.adaptiveBatchMaxSize) : this.batchSize;
+        return createBulkInserter(tableName, gpudbSchema, taskShare(queueSize));
+    }
+
+    /**
+     * Create a new BulkInserter for the pipeline of a Kinetica table shared by the tasks of the connector, 
+     * its queues hold the batches of all tasks so that a combined insert is sent as one request per rank
+     * @param  tableName      Kinetica tablename
+     * @param  gpudbSchema    gpudb schema type
+     * @return BulkInserter  for this Kinetica table
+     * @throws GPUdbException
+     */
+    public BulkInserter<GenericRecord> getSharedBulkInserter(String tableName, Type gpudbSchema) throws GPUdbException {
+        int queueSize = this.adaptiveBatchEnabled ? Math.max(this.batchSize, this.adaptiveBatchMaxSize) : this.batchSize;
+        long combined = (long) taskShare(queueSize) * this.sharingTasks;
+        return createBulkInserter(tableName, gpudbSchema, (int) Math.min(combined, Integer.MAX_VALUE));
+    }
+
+    /**
+     * @param  tableName      Kinetica tablename
+     * @param  gpudbSchema    gpudb schema type
+     * @param  queueSize      records per BulkInserter queue
+     * @return BulkInserter  for this Kinetica table
+     * @throws GPUdbException
+     */
+    private BulkInserter<GenericRecord> createBulkInserter(String tableName, Type gpudbSchema, int queueSize) 
+            throws GPUdbException {
+        HashMap<String,String> options = getInsertOptions();
+        GPUdb client = this.compressedTables.contains(tableName) ? getSnappyGpudb() : this.gpudb;
         BulkInserter<GenericRecord> result = null;
         if (this.multiHeadEnabled) {
-            result = new BulkInserter<>(this.gpudb, tableName, gpudbSchema, this.batchSize, options, new com.gpudb.WorkerList(this.gpudb));     	
+            // the queues of the ranks are sent by a pool of threads, a single table flushes its ranks in parallel
+            result = new BulkInserter<>(client, tableName, gpudbSchema, queueSize, options, 
+                    KineticaClientRegistry.getWorkerList(client), this.flushRankThreads);
         } else {
-            result = new BulkInserter<>(this.gpudb, tableName, gpudbSchema, this.batchSize, options);
+            result = new BulkInserter<>(client, tableName, gpudbSchema, queueSize, options);
         }
         
         result.setRetryCount(this.retryCount);
         return result;
     }
     
-    public boolean isSingleTablePerTopic() {
-        return this.singleTablePerTopic;
+    /**
+     * @return client compressing requests with Snappy, acquired on first use
+     * @throws GPUdbException  when the client can not be created
+     */
+    private synchronized GPUdb getSnappyGpudb() throws GPUdbException {
+        if (this.snappyGpudb == null) {
+            this.snappyGpudb = KineticaClientRegistry.acquire(this.url, this.username, this.password, this.timeout,
+                    this.maxConnections, this.maxConnectionsPerHost, true);
+        }
+        return this.snappyGpudb;
     }
 
     /**
-     * Generate a Kinetica table name based on Connector configuration and incoming class type 
-     * @param topic          Kafka topic name
-     * @param inputSchema    record schema/class type
-     * @return               Kinetica table name
-     * @throws Exception
+     * Sets whether BulkInserters created for a table from now on compress their requests,
+     * used in automatic compression mode
+     * @param tableName    Kinetica table name
+     * @param compressed   true to compress inserts into the table
      */
-    public String getDestTable(String topic, String inputSchema) throws Exception {
-        // override tablename is not empty
-        if(this.tableOverride!=null && !this.tableOverride.isEmpty()) {
-            // override tablename is not a list and topics not a list
-            if (!this.tableOverride.contains(",") 
-                    && !this.topics.contains(",")){
-                return addCollection(this.tableOverride);
-            } else if (this.topics.split(",").length == this.tableOverride.split(",").length){
-                for (int i=0; i<this.topics.split(",").length; i++) {
-                    // find the topic position in config, then find a corresponding override name
-                    if (topic.trim().equalsIgnoreCase(this.topics.split(",")[i].trim())) {
-                        return addCollection(this.tableOverride.split(",")[i]);
+    public void setCompressed(String tableName, boolean compressed) {
+        if (compressed) {
+            this.compressedTables.add(tableName);
+        } else {
+            this.compressedTables.remove(tableName);
+        }
+    }
+
+    /**
+     * Creates the insert compression controller for a Kinetica table
+     * @return CompressionController
+     */
+    public CompressionController createCompressionController() {
+        return new CompressionController(this.compression);
+    }
+
+    /**
+     * Drops the cached multi-head worker list, BulkInserters created afterwards look up the current workers
+     */
+    public void refreshWorkerList() {
+        KineticaClientRegistry.refreshWorkerList(this.gpudb);
+        if (this.snappyGpudb != null) {
+            KineticaClientRegistry.refreshWorkerList(this.snappyGpudb);
+        }
+    }
+
+    /**
+     * Releases the Kinetica client shared with other tasks of the worker
+     */
+    public synchronized void close() {
+        if (!this.closed) {
+            this.closed = true;
+            KineticaClientRegistry.release(this.gpudb);
+            if (this.snappyGpudb != null) {
+                KineticaClientRegistry.release(this.snappyGpudb);
+            }
+        }
+    }
+
+    /**
+     * @return options of record inserts
+     */
+    private HashMap<String, String> getInsertOptions() {
+        HashMap<String,String> options = new HashMap<>();
+        options.put(InsertRecordsRequest.Options.UPDATE_ON_EXISTING_PK, 
+                (this.updateOnExistingPK ? InsertRecordsRequest.Options.TRUE : InsertRecordsRequest.Options.FALSE));
+        return options;
+    }
+
+    /**
+     * @param topic   Kafka topic
+     * @return Kinetica table name of the topic when it can be derived without a record schema, null otherwise
+     */
+    public String getTopicTable(String topic) {
+        if (!this.router.isOverridden() && !this.singleTablePerTopic) {
+            return null;
+        }
+        try {
+            return getDestTable(topic, null);
+        } catch (Exception e) {
+            LOG.debug("Unable to determine table name for topic {}: {}", topic, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Looks up the type of an existing Kinetica table, tables are not created
+     * @param tableName   Kinetica table name
+     * @return Type of the table, null when the table does not exist
+     * @throws GPUdbException  when Kinetica can not be queried
+     */
+    public Type getExistingType(String tableName) throws GPUdbException {
+        Type type = KineticaTypeCache.get(this.url, tableName, this.typeTtl, typeFetcher(tableName));
+        checkWarmType(tableName, type);
+        return type;
+    }
+
+    /**
+     * Drops known schemas and field mappers restored from the warm-start cache on first use of a table 
+     * whose type changed since they were saved
+     * @param tableName   Kinetica table name
+     * @param type        current Kinetica table type, null when the table does not exist
+     */
+    private void checkWarmType(String tableName, Type type) {
+        Type warm = this.warmTypes.remove(tableName);
+        if (warm != null && !WarmStartCache.sameType(warm, type)) {
+            // schemas of the table are matched again
+            LOG.info("Type of Kinetica table {} changed since last run, dropping cached field mappers", tableName);
+            knownSchemas.remove(tableName);
+            knownMappers.remove(tableName);
+        }
+    }
+
+    /**
+     * @param tableName   Kinetica table name
+     * @return fetcher of the table type for the worker-wide type cache
+     */
+    private KineticaTypeCache.Fetcher typeFetcher(final String tableName) {
+        return new KineticaTypeCache.Fetcher() {
+            @Override
+            public Type fetch() throws GPUdbException {
+                GPUdb gpudb = SinkSchemaManager.this.gpudb;
+                try {
+                    return Type.fromTable(gpudb, tableName);
+                } catch (GPUdbException e) {
+                    if (!KineticaErrorClassifier.isRetriable(e) && !gpudb.hasTable(tableName, null).getTableExists()) {
+                        return null;
                     }
+                    throw e;
                 }
-                // no topic name matched current topic
-                throw new ConnectException("Could not determine an override table name for the topic from config params.");  
             }
+        };
+    }
+
+    /**
+     * Inserts Avro encoded records replayed from the spill journal
+     * @param tableName   Kinetica table name
+     * @param records     Avro encoded records
+     * @throws GPUdbException  when the insert fails
+     */
+    public void insertEncoded(String tableName, List<ByteBuffer> records) throws GPUdbException {
+        this.gpudb.insertRecordsRaw(new RawInsertRecordsRequest(tableName, records, getInsertOptions()));
+    }
+
+    /**
+     * Creates the health probe of the configured head nodes, the probe has to be started
+     * @param name       probe thread name
+     * @param listener   notified when the active head node changes
+     * @return KineticaHealthProbe, null with a single Kinetica URL or when probing is disabled
+     */
+    public KineticaHealthProbe createHealthProbe(String name, KineticaHealthProbe.Listener listener) {
+        List<URL> urls;
+        try {
+            urls = KineticaClientRegistry.parseUrls(this.url);
+        } catch (GPUdbException e) {
+            throw new ConnectException(e.getMessage(), e);
         }
-        
-        if (topic != null && topic.contains(".")) {
-            // Clean up topic name from deprecated dot symbol. 
-            topic = topic.replaceAll("[.]", KineticaSinkConnectorConfig.DEFAULT_DOT_REPLACEMENT); 
+        if (urls.size() < 2 || this.haProbeInterval <= 0) {
+            return null;
         }
-        // Clean up prefix
-        String prefix = (this.tablePrefix != null && !this.tablePrefix.isEmpty()) ? this.tablePrefix.trim() : "";
-        
-        // no override defined, determine table name from topic/schema and prefix
-        if (this.singleTablePerTopic) {
-            // single table per topic
-            LOG.debug("Single table per topic");
-            // if topic is undefined, take simple name of schema object
-            if (topic == null || topic.isEmpty()) {
-                return addCollection(prefix + getSimpleName(inputSchema));
+        return new KineticaHealthProbe(name, urls, this.haProbeInterval, 
+                (int) Math.min(this.haProbeInterval, Integer.MAX_VALUE), listener);
+    }
+
+    /**
+     * Creates the offset ledger of a sink task, the ledger table is created when missing
+     * @return OffsetLedger, null when no ledger table is configured
+     */
+    public OffsetLedger createOffsetLedger() {
+        if (this.offsetLedgerTable.isEmpty()) {
+            return null;
+        }
+        OffsetLedger ledger = new OffsetLedger(this.gpudb, this.offsetLedgerTable, this.connectorName);
+        try {
+            ledger.ensureTable();
+        } catch (GPUdbException e) {
+            ConnectException cex = new ConnectException("Unable to create offset ledger table " + this.offsetLedgerTable, e);
+            LOG.error(cex.getMessage(), e);
+            throw cex;
+        }
+        return ledger;
+    }
+
+    /**
+     * Opens the spill journal of a sink task in a subdirectory named after connector and task id,
+     * batches spilled by a previous run of the same task are recovered
+     * @return SpillJournal, null when no spill directory is configured
+     */
+    public SpillJournal openSpillJournal() {
+        if (this.spillDir.isEmpty()) {
+            return null;
+        }
+        File dir = new File(this.spillDir, this.connectorName + "-" + this.taskId);
+        try {
+            return new SpillJournal(dir, this.spillSegmentBytes, this.spillMaxBytes);
+        } catch (IOException e) {
+            ConnectException cex = new ConnectException("Unable to open spill journal " + dir.getAbsolutePath(), e);
+            LOG.error(cex.getMessage(), e);
+            throw cex;
+        }
+    }
+
+    /**
+     * Opens the warm-start cache of the connector and restores known schemas and field mappers of the
+     * tables it holds, loaded table types are served from the type cache and validated in the background
+     * @return WarmStartCache to be released by the task, null when no warm-start directory is configured
+     */
+    public WarmStartCache openWarmStartCache() {
+        if (this.warmStartDir.isEmpty()) {
+            return null;
+        }
+        File file = new File(this.warmStartDir, this.connectorName + WarmStartCache.FILE_SUFFIX);
+        WarmStartCache cache;
+        try {
+            cache = WarmStartCache.acquire(file);
+        } catch (IOException e) {
+            ConnectException cex = new ConnectException("Unable to open warm-start cache " + file.getAbsolutePath(), e);
+            LOG.error(cex.getMessage(), e);
+            throw cex;
+        }
+        for (WarmStartCache.Table table : cache.getLoaded()) {
+            warmStart(table);
+        }
+        cache.startValidation(this.connectorName + "-warm-start-validator", new WarmStartCache.Validator() {
+            @Override
+            public Type validate(String tableName, Type type) throws Exception {
+                // a changed type replaces the loaded one for all tasks of the worker
+                return KineticaTypeCache.refresh(SinkSchemaManager.this.url, tableName, type, typeFetcher(tableName));
             }
-            // otherwise name table after topic
-            return addCollection(prefix + topic);
-        } else {
-            // for multiple tables per topic
-            LOG.debug("Multiple tables per topic objects " + inputSchema);
-            if(inputSchema == null) {
-                LOG.error("Could not determine table name from Schema, generating table name from topic.");
-                return addCollection(prefix + topic);
+        });
+        return cache;
+    }
+
+    /**
+     * Restores known schemas and field mappers of a table from the warm-start cache
+     * @param table   table state saved by a previous run
+     */
+    private void warmStart(WarmStartCache.Table table) {
+        String tableName = table.getName();
+        Type type = table.getType();
+        KineticaTypeCache.preload(this.url, tableName, type);
+        this.warmTypes.put(tableName, type);
+        if (this.allowSchemaEvolution) {
+            // without schema evolution the first schema of a run is accepted, other schemas are blacklisted
+            for (Long key : table.getSchemas()) {
+                addToKnownSchemas(tableName, key);
+            }
+        }
+        for (Map.Entry<Long, List<String>> entry : table.getMapped().entrySet()) {
+            KineticaFieldMapper mapper = addBlankFieldMapper(tableName, entry.getKey());
+            for (String colName : entry.getValue()) {
+                Column col = type.getColumn(colName);
+                if (col != null) {
+                    mapper.getMapped().put(colName, col);
+                }
+            }
+            List<String> missing = table.getMissing().get(entry.getKey());
+            if (missing != null) {
+                for (String colName : missing) {
+                    Column col = type.getColumn(colName);
+                    if (col != null) {
+                        mapper.getMissing().put(colName, col);
+                    }
+                }
             }
-        
-            // generate the table from the schema
-            return addCollection(prefix + getSimpleName(inputSchema));
         }
-        
     }
-    
+
     /**
-     * Add collection name to table name, if available in connector config
-     * @param name      table name
-     * @return String   table name with collection prefix, if available
+     * Captures known schemas and field mappers of a table for the warm-start cache
+     * @param tableName   Kinetica table name
+     * @param type        current Kinetica table type
+     * @return table state
      */
-    private String addCollection(String name) {
-        if (name.contains(".")) {
-            // There is collection name in table name already, let core Kinetica validate it
-            return name;
-        } else {
-            // Table name does not have collection portion.
-            if (this.collectionName == null || this.collectionName.isEmpty()) {
-                // no collection name available
-                return name;
-            } else {    
-                // Add collection name from config
-                return this.collectionName + "." + name;
+    public WarmStartCache.Table exportTable(String tableName, Type type) {
+        Map<Long, List<String>> mapped = new HashMap<>();
+        Map<Long, List<String>> missing = new HashMap<>();
+        HashMap<Long, KineticaFieldMapper> mappers = knownMappers.get(tableName);
+        if (mappers != null) {
+            for (Map.Entry<Long, KineticaFieldMapper> entry : mappers.entrySet()) {
+                List<String> names = new ArrayList<>(entry.getValue().getMapped().keySet());
+                Collections.sort(names);
+                mapped.put(entry.getKey(), names);
+                names = new ArrayList<>(entry.getValue().getMissing().keySet());
+                Collections.sort(names);
+                missing.put(entry.getKey(), names);
             }
-        } 
+        }
+        return new WarmStartCache.Table(tableName, type, knownSchemas.get(tableName), mapped, missing);
     }
-    
+
+    public boolean isSingleTablePerTopic() {
+        return this.singleTablePerTopic;
+    }
+
     /**
-     * Remove package portion of class name
-     * @param fullName  full class name
-     * @return String   simple class name 
+     * @return number of records at which a table batch of this task is flushed, 
+     *         the batch size for each rank in multi-head mode
      */
-    private String getSimpleName(String fullName) {
-        if(fullName!= null && fullName.contains(".")) {
-            // name is dot-separated, remove the schema part
-            String[] parts = fullName.split("\\.");
-            return parts[parts.length-1];
-        } else {
-            return fullName;
+    public int getBatchSize() {
+        return taskShare(this.batchSize);
+    }
+
+    /**
+     * @return estimated encoded size in bytes at which a table batch of this task is flushed, 0 when unlimited
+     */
+    public long getBatchSizeBytes() {
+        return this.batchSizeBytes <= 0 ? this.batchSizeBytes : Math.max(1, this.batchSizeBytes / this.sharingTasks);
+    }
+
+    /**
+     * @param size   records of an insert request
+     * @return records of a table batch buffered by each task, the whole batch without shared inserters.
+     *         In multi-head mode a batch is split across ranks, it holds an insert of the given size for each rank.
+     */
+    private int taskShare(int size) {
+        long batch = (long) size * getRankCount();
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (batch + this.sharingTasks - 1) / this.sharingTasks));
+    }
+
+    /**
+     * @return number of ranks multi-head inserts split a table batch across, 1 without multi-head inserts
+     */
+    public int getRankCount() {
+        if (!this.multiHeadEnabled) {
+            return 1;
+        }
+        try {
+            // the worker list is cached by the client registry
+            return Math.max(1, KineticaClientRegistry.getWorkerList(this.gpudb).size());
+        } catch (GPUdbException e) {
+            LOG.warn("Unable to get worker list of <{}>, sizing table batches for a single rank: {}", 
+                    this.url, e.getMessage());
+            return 1;
         }
-        
+    }
+
+    /**
+     * @return estimated size in bytes of records a task may keep pending across all tables, 0 when unlimited
+     */
+    public long getMemoryBudgetBytes() {
+        return this.memoryBudgetBytes;
+    }
+
+    /**
+     * @return number of tables a task keeps cached state for, 0 when unlimited
+     */
+    public int getCacheMaxTables() {
+        return this.cacheMaxTables;
+    }
+
+    /**
+     * @return number of table batches a task inserts concurrently during a flush
+     */
+    public int getFlushTableThreads() {
+        return this.flushTableThreads;
+    }
+
+    /**
+     * @return number of threads a BulkInserter uses to send the queues of its ranks in multi-head mode
+     */
+    public int getFlushRankThreads() {
+        return this.flushRankThreads;
+    }
+
+    /**
+     * @return true when tasks in the same worker share one insert pipeline per table
+     */
+    public boolean isSharedInserters() {
+        return this.sharedInserters;
+    }
+
+    /**
+     * @return Kafka connector name
+     */
+    public String getConnectorName() {
+        return this.connectorName;
+    }
+
+    /**
+     * @return time in milliseconds after which an idle table is evicted from the task cache, 0 when never
+     */
+    public long getCacheIdleTimeout() {
+        return this.cacheIdleTimeout;
+    }
+
+    /**
+     * @return true when table batches keep only the most recent record per primary key, 
+     * which is equivalent to sending all of them only when existing records are updated on PK match 
+     */
+    public boolean isCoalesceByPrimaryKey() {
+        return this.updateOnExistingPK && this.coalesceUpdates;
+    }
+
+    /**
+     * Creates the backoff policy for retries after transient Kinetica errors
+     * @return RetryBackoff
+     */
+    public RetryBackoff createRetryBackoff() {
+        return new RetryBackoff(this.retryBackoff, this.retryMaxBackoff, this.retryMaxRetries, new Random());
+    }
+
+    /**
+     * Creates the table flush scheduler of a sink task
+     * @return FlushScheduler
+     */
+    public FlushScheduler createFlushScheduler() {
+        return new FlushScheduler(this.flushTableWeights, this.flushMaxPendingAge);
+    }
+
+    /**
+     * Creates the ingest rate limiter of a sink task
+     * @return IngestRateLimiter, null when no limits are configured
+     */
+    public IngestRateLimiter createRateLimiter() {
+        IngestRateLimiter limiter = new IngestRateLimiter(this.rateLimitRows, this.rateLimitBytes, 
+                this.rateLimitTableRows, this.rateLimitTableBytes, this.rateLimitSchedule);
+        return limiter.isEnabled() ? limiter : null;
+    }
+
+    /**
+     * Divides a connector-wide limit between tasks, a limit never drops to 0 (which means unlimited)
+     */
+    private static long divideLimit(long limit, long taskCount) {
+        return limit <= 0 ? limit : Math.max(1, limit / taskCount);
+    }
+
+    /**
+     * Creates partition backpressure of a sink task, pausing partitions on thresholds and rate limits
+     * @return PartitionBackpressure
+     */
+    public PartitionBackpressure createBackpressure() {
+        return new PartitionBackpressure(this.backpressureLatency, this.backpressurePendingBytes, 
+                this.backpressureMaxPause);
+    }
+
+    /**
+     * Creates a batch size controller for a Kinetica table
+     * @return AdaptiveBatchController, null when adaptive batching is disabled
+     */
+    public AdaptiveBatchController createBatchController() {
+        if (!this.adaptiveBatchEnabled) {
+            return null;
+        }
+        return new AdaptiveBatchController(taskShare(this.batchSize), taskShare(this.adaptiveBatchMinSize), 
+                taskShare(this.adaptiveBatchMaxSize), this.adaptiveBatchTargetLatency);
+    }
+
+    /**
+     * Parses an optional comma-separated list of <code>table:value</code> pairs
+     * @param value   config value
+     * @param param   config param name, for error messages
+     * @return positive value per table name
+     */
+    protected static Map<String, Long> parseTableValues(String value, String param) {
+        Map<String, Long> result = new HashMap<>();
+        if (value == null || value.trim().isEmpty()) {
+            return result;
+        }
+        for (String entry : value.split(",")) {
+            int split = entry.lastIndexOf(':');
+            try {
+                long number = Long.parseLong(entry.substring(split + 1).trim());
+                if (split <= 0 || number <= 0) {
+                    throw new NumberFormatException();
+                }
+                result.put(entry.substring(0, split).trim(), number);
+            } catch (NumberFormatException e) {
+                throw new ConfigException(param, value, "Expected comma-separated table:value pairs with positive values");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads an optional numeric config value, falling back to the default when the property is not set
+     * (task configs built outside of the Connector, e.g. in tests, may omit tuning options)
+     * @param props          Connector config properties
+     * @param key            config param name
+     * @param defaultValue   default value of the config param
+     * @return long value of the config param
+     */
+    protected static long parseLong(Map<String, String> props, String key, String defaultValue) {
+        String value = props.get(key);
+        if (value == null || value.trim().isEmpty()) {
+            value = defaultValue;
+        }
+        return Long.parseLong(value.trim());
+    }
+
+    /**
+     * Generate a Kinetica table name based on Connector configuration and incoming class type 
+     * @param topic          Kafka topic name
+     * @param inputSchema    record schema/class type
+     * @return               Kinetica table name
+     * @throws Exception
+     */
+    public String getDestTable(String topic, String inputSchema) throws Exception {
+        // routes are computed once per topic and schema name
+        return this.router.route(topic, inputSchema);
     }
     
     /**
@@ -232,26 +820,16 @@ public class SinkSchemaManager {
      * @return true when the schema was blacklisted
      */
     public boolean isBlackListed(String tableName, Object genericSchema) {
-        Integer version = versionOf(genericSchema);
-        if (!this.allowSchemaEvolution  && knownSchemas.containsKey(tableName) 
-                && !knownSchemas.get(tableName).contains(version)) {
+        Long key = schemaKey(genericSchema);
+        Set<Long> known = knownSchemas.get(tableName);
+        if (!this.allowSchemaEvolution && known != null && !known.contains(key)) {
             // Schema evolution is not allowed, but new version of schema is found
             // blacklist the schema version
-            if (!blackListedSchemas.containsKey(tableName)) {
-                blackListedSchemas.put(tableName, new ArrayList<Integer>());
-            }
-            blackListedSchemas.get(tableName).add(version);
-        }
-        if (!blackListedSchemas.containsKey(tableName)) {
-            // when tablename is not in blackListed map, schema is not blacklisted
-            return false; 
-        } else 
-            // tablename is found in blacklisted map
-            if (!blackListedSchemas.get(tableName).contains(version)) {
-                // when tablename is known, but its version is unknown, schema is not blacklisted
-                return false;
+            addToSchemaSet(blackListedSchemas, tableName, key);
         }
-        return true;
+        Set<Long> blackListed = blackListedSchemas.get(tableName);
+        // when tablename is not in blackListed map or its version is unknown, schema is not blacklisted
+        return blackListed != null && blackListed.contains(key);
     }
 
     /**
@@ -260,17 +838,12 @@ public class SinkSchemaManager {
      * @param genericSchema  Kafka record object
      */
     public void addToBlackListed(String tableName, Object genericSchema) {
-        Integer version = versionOf(genericSchema);
-        if (!blackListedSchemas.containsKey(tableName)) {
-            // if tablename not recognized, put it into map, create a blank list of Integer schema versions 
-            // to populate with schema versions (null is a valid version value)
-            blackListedSchemas.put(tableName, new ArrayList<Integer>());
-        }
-        // add the version to the list of blacklisted schema versions
-        blackListedSchemas.get(tableName).add(version);
+        Long key = schemaKey(genericSchema);
+        // add the version to the set of blacklisted schema versions (null is a valid version value)
+        addToSchemaSet(blackListedSchemas, tableName, key);
         // remove blacklisted schema version from "whitelist" of knownSchemas
-        if (knownSchemas.containsKey(tableName) && knownSchemas.get(tableName).contains(version)) {
-            knownSchemas.get(tableName).remove(version);
+        if (knownSchemas.containsKey(tableName)) {
+            knownSchemas.get(tableName).remove(key);
         }
     }
     
@@ -287,17 +860,17 @@ public class SinkSchemaManager {
         if (!this.allowSchemaEvolution || !this.singleTablePerTopic || !this.createTable)
             return false;
         
-        Integer version = versionOf(genericSchema);
+        Long key = schemaKey(genericSchema);
 
-        LOG.debug("needsSchemaMapping started for [" + tableName + " " + version + "] " + (genericSchema!=null ? genericSchema.getClass().getName() : "null"));
+        LOG.debug("needsSchemaMapping started for [" + tableName + " " + key + "] " + (genericSchema!=null ? genericSchema.getClass().getName() : "null"));
         // if this tablename has never been seen before
         if (!knownSchemas.containsKey(tableName)) {
             // entirely new tablename should be added to knownSchemas map, no schema/table columns mapping needed            
             LOG.debug("entirely new schema");
-            addToKnownSchemas(tableName, version);
+            addToKnownSchemas(tableName, key);
             return false;
         } else {
-            if (knownSchemas.get(tableName).contains(version)) {
+            if (knownSchemas.get(tableName).contains(key)) {
                 // known schema, known version, mapping has been performed
                 LOG.debug("known schema, known version");
                 return false;
@@ -318,14 +891,9 @@ public class SinkSchemaManager {
      * @return true if it's a known schema
      */
     protected boolean isKnownSchema(String tableName, Object genericSchema) {
-        Integer version = versionOf(genericSchema);
-        if (knownSchemas.containsKey(tableName) && knownSchemas.get(tableName).contains(version)) {
-            // known tablename, known version
-            return true;
-        } else {
-            //unknown tablename OR new version of existing tablename
-            return false;
-        } 
+        Set<Long> known = knownSchemas.get(tableName);
+        // unknown tablename OR new version of existing tablename
+        return known != null && known.contains(schemaKey(genericSchema));
     }
     
     /**
@@ -342,19 +910,69 @@ public class SinkSchemaManager {
         
         return null;
     }
+
+    /**
+     * Returns the key under which state of a Kafka record schema is cached: its structural fingerprint,
+     * looked up by Schema object identity first, so that converters reusing Schema objects skip hashing.
+     * Unversioned schemas with different fields get different keys, schemaless records share the null key.
+     * @param genericSchema   Kafka record object
+     * @return schema fingerprint or null for schemaless records
+     */
+    public Long schemaKey(Object genericSchema) {
+        if (genericSchema == null || genericSchema instanceof Map) {
+            return null;
+        }
+        Long key = this.schemaKeys.get(genericSchema);
+        if (key == null) {
+            key = SchemaFingerprint.of(genericSchema);
+            if (this.schemaKeys.size() >= MAX_CACHED_SCHEMAS) {
+                this.schemaKeys.clear();
+            }
+            this.schemaKeys.put(genericSchema, key);
+        }
+        return key;
+    }
+
+    /**
+     * Resolves the destination table and cache key of a Kafka record schema, once per distinct schema:
+     * by Schema object identity first, then by structural fingerprint for equal Schema objects
+     * created per record.
+     * @param topic    Kafka topic
+     * @param schema   Kafka record value schema
+     * @return resolved routing and conversion state
+     * @throws Exception  when no destination table can be determined
+     */
+    public ResolvedSchema resolve(String topic, Schema schema) throws Exception {
+        ResolvedSchema resolved = this.resolvedByIdentity.get(schema);
+        if (resolved != null && resolved.getTopic().equals(topic)) {
+            return resolved;
+        }
+        Long key = schemaKey(schema);
+        HashMap<Long, ResolvedSchema> topicSchemas = this.resolvedByKey.get(topic);
+        if (topicSchemas == null) {
+            topicSchemas = new HashMap<>();
+            this.resolvedByKey.put(topic, topicSchemas);
+        }
+        resolved = topicSchemas.get(key);
+        if (resolved == null) {
+            resolved = new ResolvedSchema(topic, getDestTable(topic, schema.name()), schema, key);
+            topicSchemas.put(key, resolved);
+        }
+        if (this.resolvedByIdentity.size() >= MAX_CACHED_SCHEMAS) {
+            this.resolvedByIdentity.clear();
+        }
+        this.resolvedByIdentity.put(schema, resolved);
+        return resolved;
+    }
     
     /**
      * Adds tablename/version combination to the knownSchemas collection
      * @param tableName      Kinetica table name
-     * @param version        Kafka topic version
+     * @param key            Kafka record schema key
      */
-    private void addToKnownSchemas(String tableName, Integer version) {
-        if (!knownSchemas.containsKey(tableName)) {
-            // add a new table to the map of table names
-            knownSchemas.put(tableName, new ArrayList<Integer>());
-        }
-        // add version to the list of table schema versions
-        knownSchemas.get(tableName).add(version);
+    private void addToKnownSchemas(String tableName, Long key) {
+        // add version to the set of table schema versions
+        addToSchemaSet(knownSchemas, tableName, key);
     }
 
     /**
@@ -364,36 +982,88 @@ public class SinkSchemaManager {
      */
     public void addToKnownSchemas(String tableName, Object genericSchema) {
         // determine the version
-        Integer version = versionOf(genericSchema);
-        // add this version to the list of schema versions
-        addToKnownSchemas(tableName, version);
+        Long key = schemaKey(genericSchema);
+        // add this version to the set of schema versions
+        addToKnownSchemas(tableName, key);
+    }
+
+    private static void addToSchemaSet(HashMap<String, Set<Long>> schemas, String tableName, Long key) {
+        Set<Long> keys = schemas.get(tableName);
+        if (keys == null) {
+            // add a new table to the map of table names
+            keys = new HashSet<>();
+            schemas.put(tableName, keys);
+        }
+        keys.add(key);
     }
 
     /**
-     * Finds or creates a matching gpudbType for the incoming Kafka record object 
+     * Finds or creates a matching gpudbType for the incoming Kafka record object.
+     * Sink tasks of this worker looking up the same table at the same time share a single
+     * lookup, and the table is created once from the schema of the task running the lookup.
      * @param tableName      Kinetica table name
      * @param schema         incoming Kafka record object
      * @return gpudbType of existing Kinetica table
      * @throws Exception
      */
-    public Type getType(String tableName, Object schema) throws Exception {
+    public Type getType(String tableName, final Object schema) throws Exception {
+        final String requested = tableName;
+        // set when this task ran the lookup rather than waiting for another task's
+        final boolean[] led = new boolean[1];
+        TableType tableType = TABLE_TYPES.execute(flightKey(tableName), new SingleFlight.Call<TableType>() {
+            @Override
+            public TableType call() throws Exception {
+                led[0] = true;
+                return fetchOrCreateType(requested, schema);
+            }
+        });
+        tableName = tableType.tableName;
+        Type gpudbType = tableType.type;
+        checkWarmType(tableName, gpudbType);
+        // extract schema key
+        Long version = schemaKey(schema);
+        if (tableType.created && led[0]) {
+            // table was created from this schema, add it to recognized schemas; tasks that shared
+            // the lookup match their own schemas against the new table like for any existing one
+            addToKnownSchemas(tableName, schema);
+        }
+
+        if (!knownMappers.containsKey(tableName) || !knownMappers.get(tableName).containsKey(version)) {
+            // for a brand new table create a mapper
+            addFieldMapper(tableName, version, gpudbType);
+        } 
+        mapAllFields(tableName, version, gpudbType);
+
+        return gpudbType;
+    }
+
+    /**
+     * Looks up the type of a Kinetica table, creating the table when it does not exist
+     * @param tableName      Kinetica table name
+     * @param schema         incoming Kafka record object
+     * @return type, qualified name of the table and whether it was created
+     * @throws Exception
+     */
+    private TableType fetchOrCreateType(String tableName, Object schema) throws Exception {
         
         Type gpudbType = null;
         boolean kineticaTableExists;
         
         try {
-            gpudbType = Type.fromTable(this.gpudb, tableName);
-            kineticaTableExists = true;
-
-            LOG.debug("Found type for table: {}", tableName);            
+            gpudbType = KineticaTypeCache.get(this.url, tableName, this.typeTtl, typeFetcher(tableName));
+            kineticaTableExists = gpudbType != null;
+            if (kineticaTableExists) {
+                LOG.debug("Found type for table: {}", tableName);
+            }
         
         } catch (GPUdbException e) {
+            if (KineticaErrorClassifier.isRetriable(e)) {
+                // Kinetica is unreachable, table may well exist
+                throw e;
+            }
             kineticaTableExists = false;
             LOG.debug("Kinetica table {} does not exist, type not found", tableName);
         }
-        // extract schema version
-        Integer version = versionOf(schema);
-        
         if (!kineticaTableExists) {
             // table does not exist and can't be created
             if(!this.createTable) {
@@ -442,21 +1112,14 @@ public class SinkSchemaManager {
             CreateTableResponse response = this.gpudb.createTable(tableName, typeId,
                 GPUdbBase.options(CreateTableRequest.Options.COLLECTION_NAME, this.collectionName) );
             String responseValue = response.getInfo().get(CreateTableResponse.Info.QUALIFIED_TABLE_NAME);
+            KineticaTypeCache.update(this.url, tableName, gpudbType);
             if (!tableName.equals(responseValue)) {
                 tableName = responseValue;
                 LOG.info("Created table: {}", tableName);        
+                KineticaTypeCache.update(this.url, tableName, gpudbType);
             }
-            // and add table name to recognized schemas
-            addToKnownSchemas(tableName, schema);
         }
-        
-        if (!knownMappers.containsKey(tableName) || !knownMappers.get(tableName).containsKey(version)) {
-            // for a brand new table create a mapper
-            addFieldMapper(tableName, version, gpudbType);
-        } 
-        mapAllFields(tableName, version, gpudbType);
-
-        return gpudbType;
+        return new TableType(tableName, gpudbType, !kineticaTableExists);
     }
 
 
@@ -489,7 +1152,7 @@ public class SinkSchemaManager {
         HashMap<String, Column> existingFields = new HashMap<String, Column>();        
         HashMap<String, Column> incomingFields = new HashMap<String, Column>();
         
-        Integer version = versionOf(genericSchema);
+        Long version = schemaKey(genericSchema);
 
         KineticaFieldMapper mapper = addBlankFieldMapper(tableName, version);
 
@@ -582,24 +1245,52 @@ public class SinkSchemaManager {
      * @throws GPUdbException
      */
     
-    public Type alterTable(String tableName, AlterTableColumnsRequest request) throws GPUdbException {
-        try {
-            this.gpudb.alterTableColumns(request);
-            
-        } catch (GPUdbException e) {
-            LOG.error("AlterTableColumns exception: " + e.getMessage() + e.getStackTrace());
-            return Type.fromTable(this.gpudb, tableName);
-        }
-        return Type.fromTable(this.gpudb, tableName);
+    public Type alterTable(final String tableName, final AlterTableColumnsRequest request) throws GPUdbException {
+        // tasks applying the same alterations to a table at the same time share a single request
+        String key = flightKey(tableName) + "|" + request.getColumnAlterations();
+        return singleFlight(ALTERATIONS, key, new SingleFlight.Call<Type>() {
+            @Override
+            public Type call() throws Exception {
+                try {
+                    SinkSchemaManager.this.gpudb.alterTableColumns(request);
+                    
+                } catch (GPUdbException e) {
+                    LOG.error("AlterTableColumns exception: " + e.getMessage() + e.getStackTrace());
+                }
+                // altered type replaces the cached one for all tasks
+                Type altered = Type.fromTable(SinkSchemaManager.this.gpudb, tableName);
+                KineticaTypeCache.update(SinkSchemaManager.this.url, tableName, altered);
+                return altered;
+            }
+        });
+    }
+
+    /**
+     * Drops known schema versions and field mappers of an evicted table, 
+     * they are rebuilt from the Kinetica table type with the next record for this table.
+     * Blacklisted schemas are kept, so that records known to fail are not retried.
+     * @param tableName  Kinetica table name
+     */
+    public void evictTable(String tableName) {
+        knownSchemas.remove(tableName);
+        knownMappers.remove(tableName);
+    }
+
+    /**
+     * @param tableName  Kinetica table name
+     * @return true while known schema versions or field mappers of the table are cached
+     */
+    public boolean isTableCached(String tableName) {
+        return knownSchemas.containsKey(tableName) || knownMappers.containsKey(tableName);
     }
 
     /**
      * Lookup the FieldMapper by table name and version in the cache
      * @param tableName  Kinetica table name
-     * @param version    Kafka record schema version
+     * @param version    Kafka record schema key (see schemaKey)
      * @return           KineticaFieldMapper
      */
-    public KineticaFieldMapper getFieldMapper(String tableName, Integer version) {
+    public KineticaFieldMapper getFieldMapper(String tableName, Long version) {
         if (!knownMappers.containsKey(tableName) || !knownMappers.get(tableName).containsKey(version)) {
             // create a blank KineticaFieldMapper for unrecognized table/version combination 
             return addBlankFieldMapper(tableName, version);
@@ -612,10 +1303,10 @@ public class SinkSchemaManager {
      * Add all the columns from gpudbType to the mapped columns of cached KineticaFieldMapper for this tablename/version
      * then update all previous KineticaFieldMappers of this table
      * @param tableName  Kinetica table name
-     * @param version    Kafka record schema version
+     * @param version    Kafka record schema key (see schemaKey)
      * @param gpudbType  Kinetica table record type
      */
-    public void mapAllFields(String tableName, Integer version, Type gpudbType) {
+    public void mapAllFields(String tableName, Long version, Type gpudbType) {
         KineticaFieldMapper mapper = getFieldMapper(tableName, version);
         for (Column col : gpudbType.getColumns()) {
             mapper.getMapped().put(col.getName(), col);
@@ -627,11 +1318,11 @@ public class SinkSchemaManager {
      * Create a new KineticaFieldMapper for this table name and schema version 
      * and populate it with fields from type
      * @param tableName  Kinetica table name
-     * @param version    Kafka record schema version
+     * @param version    Kafka record schema key (see schemaKey)
      * @param gpudbType  Kinetica table record type
      * @return
      */
-    private void addFieldMapper(String tableName, Integer version, Type gpudbType) {
+    private void addFieldMapper(String tableName, Long version, Type gpudbType) {
         KineticaFieldMapper mapper = addBlankFieldMapper(tableName, version);
         for (Column col : gpudbType.getColumns()) {
             mapper.getMapped().put(col.getName(), col);
@@ -642,12 +1333,12 @@ public class SinkSchemaManager {
     /**
      * Create a new KineticaFieldMapper for this table name and schema version 
      * @param tableName  Kinetica table name
-     * @param version    Kafka record schema version
+     * @param version    Kafka record schema key (see schemaKey)
      * @return
      */
-    private KineticaFieldMapper addBlankFieldMapper(String tableName, Integer version) {
+    private KineticaFieldMapper addBlankFieldMapper(String tableName, Long version) {
         if (!knownMappers.containsKey(tableName)) {
-            knownMappers.put(tableName, new HashMap<Integer,KineticaFieldMapper>());
+            knownMappers.put(tableName, new HashMap<Long,KineticaFieldMapper>());
         }
         if (!knownMappers.get(tableName).containsKey(version)) {            
             knownMappers.get(tableName).put(version, new KineticaFieldMapper(tableName, version));
@@ -659,10 +1350,10 @@ public class SinkSchemaManager {
      * Loop through all previous KineticaFieldMappers for the given table name and version and add
      * fields unknown to previous mappers to their collections of missing fields 
      * @param tableName  Kinetica table name
-     * @param version    Kafka record schema version
+     * @param version    Kafka record schema key (see schemaKey)
      * @param mapper     KineticaFieldMapper for this tablename/version
      */
-    public void updateFieldMappers(String tableName, Integer version, KineticaFieldMapper mapper) {
+    public void updateFieldMappers(String tableName, Long version, KineticaFieldMapper mapper) {
         
         if (knownMappers.get(tableName)!=null) {
             LOG.debug("Found Previous mappers for [tableName=" + tableName + "] " + knownMappers.get(tableName).size());
@@ -690,13 +1381,58 @@ public class SinkSchemaManager {
     }
     
     /**
-     * Retrieves most recent Type for the given table (in case table was modified at the time of execution) 
-     * @param tableName
-     * @return  gpudbType for the table
+     * Gets a more recent type of a Kinetica table than the one an insert failed with, 
+     * types are fetched at most once per refresh backoff for all tasks of the worker
+     * @param tableName   Kinetica table name
+     * @param stale       type found out of date, may be null
+     * @return most recent known Kinetica table type
+     * @throws GPUdbException
+     */
+    public Type getGpudbType(String tableName, Type stale) throws GPUdbException {
+        return KineticaTypeCache.refresh(this.url, tableName, stale, typeFetcher(tableName));
+    }
+
+    /**
+     * Fetches the type of a Kinetica table again unless another task of the worker did within the refresh 
+     * backoff. Only the worker-wide type cache is updated, so the method may be called from other threads.
+     * @param tableName   Kinetica table name
+     * @return current Kinetica table type, null when the table does not exist
      * @throws GPUdbException
      */
-    public Type getGpudbType(String tableName) throws GPUdbException {
-        return Type.fromTable(this.gpudb, tableName);
+    public Type refreshType(String tableName) throws GPUdbException {
+        KineticaTypeCache.Fetcher fetcher = typeFetcher(tableName);
+        Type cached = KineticaTypeCache.get(this.url, tableName, this.typeTtl, fetcher);
+        return KineticaTypeCache.refresh(this.url, tableName, cached, fetcher);
+    }
+
+    /**
+     * @param tableName   Kinetica table name
+     * @return key of single-flight calls for a table of the Kinetica cluster of this task
+     */
+    private String flightKey(String tableName) {
+        return this.url + "|" + tableName;
+    }
+
+    /**
+     * Runs a single-flight call of Kinetica requests
+     * @param flights   single-flight calls of one kind
+     * @param key       call key
+     * @param call      Kinetica requests
+     * @return result of the call
+     * @throws GPUdbException  when the call fails or the task is interrupted while waiting for it
+     */
+    private static <V> V singleFlight(SingleFlight<String, V> flights, String key, SingleFlight.Call<V> call)
+            throws GPUdbException {
+        try {
+            return flights.execute(key, call);
+        } catch (GPUdbException | RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GPUdbException("Interrupted while waiting for Kinetica table " + key, e);
+        } catch (Exception e) {
+            throw new GPUdbException(e.getMessage(), e);
+        }
     }
     
     protected String getFieldDefaultValue(String name, Object genericSchema) {
@@ -715,4 +1451,19 @@ public class SinkSchemaManager {
             return null;
         }
     }
+
+    /**
+     * Type of a Kinetica table looked up or created for a record schema
+     */
+    private static class TableType {
+        private final String tableName;
+        private final Type type;
+        private final boolean created;
+
+        TableType(String tableName, Type type, boolean created) {
+            this.tableName = tableName;
+            this.type = type;
+            this.created = created;
+        }
+    }
 }
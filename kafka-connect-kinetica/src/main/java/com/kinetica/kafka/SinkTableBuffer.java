@@ -0,0 +1,372 @@
+package com.kinetica.kafka;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import com.gpudb.ColumnProperty;
+import com.gpudb.GenericRecord;
+import com.gpudb.Type;
+import com.gpudb.Type.Column;
+
+/**
+ * Converted records waiting to be inserted into a single Kinetica table.
+ * The batch is considered full when either the record count limit or the estimated
+ * encoded size limit is reached, so that tables with wide rows produce insert requests
+ * of a size comparable to tables with narrow rows.
+ * When an {@link AdaptiveBatchController} is attached, the record count limit follows
+ * the batch size it derives from insert latency.
+ * When coalescing by primary key, a newer record replaces the pending record with the same 
+ * primary key in place, so that a batch holds at most one record per key.
+ */
+public class SinkTableBuffer {
+
+    private final String tableName;
+    private final long maxBytes;
+    private final SinkTableMetrics metrics;
+    private final AdaptiveBatchController controller;
+    private final boolean coalesceByPrimaryKey;
+    private int maxRecords;
+    private CompressionController compression;
+
+    private final List<GenericRecord> records = new ArrayList<>();
+    // Kafka records the pending records were converted from, at the same positions
+    private final List<SinkRecord> sources = new ArrayList<>();
+    // estimated encoded size of the pending records, at the same positions
+    private final List<Long> recordSizes = new ArrayList<>();
+    private long pendingBytes = 0;
+    // time the oldest pending record was added
+    private long pendingSince = 0;
+
+    // position of the pending record per primary key value
+    private final HashMap<List<Object>, Integer> keySlots = new HashMap<>();
+    // primary key column positions of the last seen table type
+    private Type keyType;
+    private int[] keyColumns;
+
+    /**
+     * Creates an empty batch for a Kinetica table
+     * @param tableName    Kinetica table name
+     * @param maxRecords   number of records at which the batch is full
+     * @param maxBytes     estimated encoded size at which the batch is full, 0 for no byte limit
+     * @param metrics      table metrics to be updated
+     */
+    public SinkTableBuffer(String tableName, int maxRecords, long maxBytes, SinkTableMetrics metrics) {
+        this(tableName, maxRecords, maxBytes, metrics, null);
+    }
+
+    /**
+     * Creates an empty batch for a Kinetica table with a latency-driven record count limit
+     * @param tableName    Kinetica table name
+     * @param maxRecords   number of records at which the batch is full, used when controller is null
+     * @param maxBytes     estimated encoded size at which the batch is full, 0 for no byte limit
+     * @param metrics      table metrics to be updated
+     * @param controller   batch size controller, null for a fixed record count limit
+     */
+    public SinkTableBuffer(String tableName, int maxRecords, long maxBytes, SinkTableMetrics metrics,
+            AdaptiveBatchController controller) {
+        this(tableName, maxRecords, maxBytes, metrics, controller, false);
+    }
+
+    /**
+     * Creates an empty batch for a Kinetica table
+     * @param tableName             Kinetica table name
+     * @param maxRecords            number of records at which the batch is full, used when controller is null
+     * @param maxBytes              estimated encoded size at which the batch is full, 0 for no byte limit
+     * @param metrics               table metrics to be updated
+     * @param controller            batch size controller, null for a fixed record count limit
+     * @param coalesceByPrimaryKey  true to keep only the most recent record per primary key
+     */
+    public SinkTableBuffer(String tableName, int maxRecords, long maxBytes, SinkTableMetrics metrics,
+            AdaptiveBatchController controller, boolean coalesceByPrimaryKey) {
+        this.coalesceByPrimaryKey = coalesceByPrimaryKey;
+        this.tableName = tableName;
+        this.maxBytes = maxBytes;
+        this.metrics = metrics;
+        this.controller = controller;
+        this.maxRecords = controller != null ? controller.getBatchSize() : maxRecords;
+        this.metrics.batchSizeChanged(this.maxRecords);
+    }
+
+    /**
+     * Adds a converted record to the batch, estimating its encoded size
+     * @param record       converted Kinetica record
+     * @param gpudbSchema  gpudb Type of the destination table
+     */
+    public void add(GenericRecord record, Type gpudbSchema) {
+        add(record, gpudbSchema, null);
+    }
+
+    /**
+     * Adds a converted record to the batch, estimating its encoded size
+     * @param record       converted Kinetica record
+     * @param gpudbSchema  gpudb Type of the destination table
+     * @param source       Kafka record the record was converted from
+     */
+    public void add(GenericRecord record, Type gpudbSchema, SinkRecord source) {
+        long recordBytes = RecordSizeEstimator.estimate(record, gpudbSchema);
+        List<Object> key = primaryKeyOf(record, gpudbSchema);
+        Integer slot = key == null ? null : this.keySlots.get(key);
+        if (slot != null) {
+            // records arrive in offset order, the newer record wins
+            this.records.set(slot, record);
+            this.sources.set(slot, source);
+            this.pendingBytes += recordBytes - this.recordSizes.set(slot, recordBytes);
+            this.metrics.recordCoalesced();
+        } else {
+            if (key != null) {
+                this.keySlots.put(key, this.records.size());
+            }
+            if (this.records.isEmpty()) {
+                this.pendingSince = System.currentTimeMillis();
+            }
+            this.records.add(record);
+            this.sources.add(source);
+            this.recordSizes.add(recordBytes);
+            this.pendingBytes += recordBytes;
+        }
+        this.metrics.recordBuffered(recordBytes, this.records.size(), this.pendingBytes);
+    }
+
+    /**
+     * Drops pending records converted from the given topic partitions, keeping the order of the others
+     * @param partitions   topic partitions no longer assigned to the task
+     * @return number of dropped records
+     */
+    public int removePartitions(Collection<TopicPartition> partitions) {
+        HashSet<TopicPartition> revoked = new HashSet<>(partitions);
+        boolean[] dropped = new boolean[this.records.size()];
+        for (int i = 0; i < dropped.length; i++) {
+            SinkRecord source = this.sources.get(i);
+            dropped[i] = source != null && source.kafkaPartition() != null 
+                    && revoked.contains(new TopicPartition(source.topic(), source.kafkaPartition()));
+        }
+        return remove(dropped);
+    }
+
+    /**
+     * Keeps only the given pending records, in the order they were added, after the others were inserted 
+     * into Kinetica or reported as errant while the batch as a whole could not be completed
+     * @param remaining   pending records still to be inserted, the same instances as added
+     * @return number of dropped records
+     */
+    public int retain(Collection<GenericRecord> remaining) {
+        Set<GenericRecord> kept = Collections.newSetFromMap(new IdentityHashMap<GenericRecord, Boolean>());
+        kept.addAll(remaining);
+        boolean[] dropped = new boolean[this.records.size()];
+        for (int i = 0; i < dropped.length; i++) {
+            dropped[i] = !kept.contains(this.records.get(i));
+        }
+        return remove(dropped);
+    }
+
+    /**
+     * Drops pending records, keeping the order of the others
+     * @param dropped   true at the positions of the records to drop
+     * @return number of dropped records
+     */
+    private int remove(boolean[] dropped) {
+        int size = this.records.size();
+        // new position of each pending record, -1 when dropped
+        int[] positions = new int[size];
+        int kept = 0;
+        long keptBytes = 0;
+        for (int i = 0; i < size; i++) {
+            if (dropped[i]) {
+                positions[i] = -1;
+                continue;
+            }
+            positions[i] = kept;
+            this.records.set(kept, this.records.get(i));
+            this.sources.set(kept, this.sources.get(i));
+            this.recordSizes.set(kept, this.recordSizes.get(i));
+            keptBytes += this.recordSizes.get(kept);
+            kept++;
+        }
+        if (kept == size) {
+            return 0;
+        }
+        this.records.subList(kept, size).clear();
+        this.sources.subList(kept, size).clear();
+        this.recordSizes.subList(kept, size).clear();
+        for (Iterator<Map.Entry<List<Object>, Integer>> it = this.keySlots.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<List<Object>, Integer> slot = it.next();
+            int position = positions[slot.getValue()];
+            if (position < 0) {
+                it.remove();
+            } else {
+                slot.setValue(position);
+            }
+        }
+        this.pendingBytes = keptBytes;
+        this.metrics.recordBuffered(0, kept, keptBytes);
+        return size - kept;
+    }
+
+    /**
+     * Extracts primary key values of a record
+     * @param record       converted Kinetica record
+     * @param gpudbSchema  gpudb Type of the destination table
+     * @return primary key values, null when not coalescing or the table has no primary key
+     */
+    private List<Object> primaryKeyOf(GenericRecord record, Type gpudbSchema) {
+        if (!this.coalesceByPrimaryKey) {
+            return null;
+        }
+        if (gpudbSchema != this.keyType) {
+            List<Column> columns = gpudbSchema.getColumns();
+            List<Integer> positions = new ArrayList<>();
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).getProperties().contains(ColumnProperty.PRIMARY_KEY)) {
+                    positions.add(i);
+                }
+            }
+            this.keyColumns = new int[positions.size()];
+            for (int i = 0; i < this.keyColumns.length; i++) {
+                this.keyColumns[i] = positions.get(i);
+            }
+            this.keyType = gpudbSchema;
+        }
+        if (this.keyColumns.length == 0) {
+            return null;
+        }
+        Object[] values = new Object[this.keyColumns.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = record.get(this.keyColumns[i]);
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * @return true when the record count limit is reached
+     */
+    public boolean isRecordLimitReached() {
+        return this.records.size() >= this.maxRecords;
+    }
+
+    /**
+     * @return true when the estimated size limit is reached
+     */
+    public boolean isByteLimitReached() {
+        return this.maxBytes > 0 && this.pendingBytes >= this.maxBytes;
+    }
+
+    /**
+     * @return true when the batch should be flushed
+     */
+    public boolean isFull() {
+        return isRecordLimitReached() || isByteLimitReached();
+    }
+
+    public boolean isEmpty() {
+        return this.records.isEmpty();
+    }
+
+    public int size() {
+        return this.records.size();
+    }
+
+    public String getTableName() {
+        return this.tableName;
+    }
+
+    /**
+     * @return estimated encoded size of pending records
+     */
+    public long getPendingBytes() {
+        return this.pendingBytes;
+    }
+
+    /**
+     * @return time in milliseconds the oldest pending record was added
+     */
+    public long getPendingSince() {
+        return this.pendingSince;
+    }
+
+    /**
+     * @return a copy of pending records in the order they were added
+     */
+    public List<GenericRecord> getRecords() {
+        return new ArrayList<>(this.records);
+    }
+
+    /**
+     * @return a copy of Kafka records the pending records were converted from, at the same positions
+     */
+    public List<SinkRecord> getSources() {
+        return new ArrayList<>(this.sources);
+    }
+
+    /**
+     * @return current record count limit
+     */
+    public int getMaxRecords() {
+        return this.maxRecords;
+    }
+
+    public SinkTableMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Clears the batch once its records have been inserted into Kinetica
+     * and adjusts the record count limit when adaptive batching is enabled
+     * @param latencyNanos   insert round-trip time
+     */
+    public void flushed(long latencyNanos) {
+        int flushedRecords = this.records.size();
+        boolean recordLimit = isRecordLimitReached();
+        this.metrics.batchFlushed(flushedRecords, this.pendingBytes, recordLimit, isByteLimitReached(), latencyNanos);
+        if (flushedRecords > 0) {
+            this.metrics.pendingAgeFlushed(System.currentTimeMillis() - this.pendingSince);
+        }
+        if (this.controller != null) {
+            // a batch cut short by the byte limit is as full as it gets
+            this.maxRecords = this.controller.onFlush(flushedRecords, latencyNanos, isFull());
+            this.metrics.batchSizeChanged(this.maxRecords);
+            this.metrics.controllerUpdated(this.controller);
+        }
+        clear();
+    }
+
+    /**
+     * @return insert compression controller of the table, null when not set
+     */
+    public CompressionController getCompression() {
+        return this.compression;
+    }
+
+    /**
+     * @param compression   insert compression controller of the table
+     */
+    public void setCompression(CompressionController compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Clears the batch after its records were written to the spill journal instead of Kinetica
+     */
+    public void spilled() {
+        clear();
+    }
+
+    private void clear() {
+        this.records.clear();
+        this.sources.clear();
+        this.recordSizes.clear();
+        this.keySlots.clear();
+        this.pendingBytes = 0;
+    }
+}
@@ -0,0 +1,338 @@
+package com.kinetica.kafka;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-table ingest statistics of a sink task, registered as a JMX MBean under 
+ * <code>com.kinetica.kafka:type=sink-table-metrics,task=&lt;task&gt;,table=&lt;table&gt;</code>
+ */
+public class SinkTableMetrics implements SinkTableMetricsMBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SinkTableMetrics.class);
+
+    private static final String DOMAIN = "com.kinetica.kafka";
+
+    private final String taskName;
+    private final String tableName;
+    private ObjectName objectName;
+
+    private volatile long pendingRecords;
+    private volatile long pendingBytes;
+    private volatile long flushCount;
+    private volatile long flushedRecords;
+    private volatile long flushedBytes;
+    private volatile long lastFlushRecords;
+    private volatile long lastFlushBytes;
+    private volatile long maxRecordBytes;
+    private volatile long recordLimitFlushes;
+    private volatile long byteLimitFlushes;
+    private volatile long lastFlushLatencyMs;
+    private volatile long maxFlushLatencyMs;
+    private volatile long batchSize;
+    private volatile double recordsPerSecond;
+    private volatile long batchSizeIncreases;
+    private volatile long batchSizeDecreases;
+    private volatile long coalescedRecords;
+    private volatile long lastFlushAgeMs;
+    private volatile long maxFlushAgeMs;
+    private volatile long failedBatches;
+    private volatile long bisectRequests;
+    private volatile long errantRecords;
+    private volatile String compressionCodec = CompressionController.MODE_NONE;
+    private volatile double compressionRatio = 1.0;
+    private volatile long compressionSwitches;
+
+    /**
+     * Creates metrics for a single Kinetica table populated by a sink task 
+     * @param taskName    sink task identifier
+     * @param tableName   Kinetica table name
+     */
+    public SinkTableMetrics(String taskName, String tableName) {
+        this.taskName = taskName;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Registers this object with the platform MBean server, failures are logged and ignored
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            this.objectName = new ObjectName(DOMAIN + ":type=sink-table-metrics,task=" 
+                    + ObjectName.quote(this.taskName) + ",table=" + ObjectName.quote(this.tableName));
+            if (server.isRegistered(this.objectName)) {
+                server.unregisterMBean(this.objectName);
+            }
+            server.registerMBean(this, this.objectName);
+        } catch (Exception e) {
+            LOG.warn("Unable to register metrics for table {}: {}", this.tableName, e.getMessage());
+            this.objectName = null;
+        }
+    }
+
+    /**
+     * Removes this object from the platform MBean server
+     */
+    public void unregister() {
+        if (this.objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+        } catch (Exception e) {
+            LOG.debug("Unable to unregister metrics for table {}: {}", this.tableName, e.getMessage());
+        }
+        this.objectName = null;
+    }
+
+    /**
+     * Records a new record added to the table batch 
+     * @param recordBytes  estimated size of the record
+     * @param batchRecords number of records pending in the batch
+     * @param batchBytes   estimated size of the pending batch
+     */
+    public void recordBuffered(long recordBytes, long batchRecords, long batchBytes) {
+        this.pendingRecords = batchRecords;
+        this.pendingBytes = batchBytes;
+        if (recordBytes > this.maxRecordBytes) {
+            this.maxRecordBytes = recordBytes;
+        }
+    }
+
+    /**
+     * Records a batch successfully flushed to Kinetica 
+     * @param records     number of records flushed
+     * @param bytes       estimated size of flushed records
+     * @param recordLimit true when the flush was triggered by the record count limit
+     * @param byteLimit   true when the flush was triggered by the byte limit
+     * @param latencyNanos insert round-trip time
+     */
+    public void batchFlushed(long records, long bytes, boolean recordLimit, boolean byteLimit, long latencyNanos) {
+        long latencyMs = latencyNanos / 1000000L;
+        this.lastFlushLatencyMs = latencyMs;
+        if (latencyMs > this.maxFlushLatencyMs) {
+            this.maxFlushLatencyMs = latencyMs;
+        }
+        this.flushCount++;
+        this.flushedRecords += records;
+        this.flushedBytes += bytes;
+        this.lastFlushRecords = records;
+        this.lastFlushBytes = bytes;
+        this.pendingRecords = 0;
+        this.pendingBytes = 0;
+        if (recordLimit) {
+            this.recordLimitFlushes++;
+        } else if (byteLimit) {
+            this.byteLimitFlushes++;
+        }
+    }
+
+    /**
+     * Records how long the oldest record of a flushed batch was pending 
+     * @param ageMs   time since the oldest record was added
+     */
+    public void pendingAgeFlushed(long ageMs) {
+        this.lastFlushAgeMs = ageMs;
+        if (ageMs > this.maxFlushAgeMs) {
+            this.maxFlushAgeMs = ageMs;
+        }
+    }
+
+    /**
+     * Records a pending record replaced by a newer record with the same primary key
+     */
+    public void recordCoalesced() {
+        this.coalescedRecords++;
+    }
+
+    /**
+     * Records a batch with records rejected by Kinetica
+     */
+    public void batchFailed() {
+        this.failedBatches++;
+    }
+
+    /**
+     * Records an insert request sent while isolating rejected records
+     */
+    public void bisectRequested() {
+        this.bisectRequests++;
+    }
+
+    /**
+     * Records a rejected record reported to the dead letter queue
+     */
+    public void recordErrant() {
+        this.errantRecords++;
+    }
+
+    /**
+     * Records the current record count limit of the table batch 
+     * @param batchSize   number of records at which the batch is flushed
+     */
+    public void batchSizeChanged(long batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Records the state of the adaptive batch size controller after a flush 
+     * @param controller   batch size controller of the table
+     */
+    public void controllerUpdated(AdaptiveBatchController controller) {
+        this.recordsPerSecond = controller.getRecordsPerSecond();
+        this.batchSizeIncreases = controller.getIncreases();
+        this.batchSizeDecreases = controller.getDecreases();
+    }
+
+    /**
+     * Records the state of the insert compression controller after a flush 
+     * @param compression   compression controller of the table
+     */
+    public void compressionUpdated(CompressionController compression) {
+        this.compressionCodec = compression.getCodec();
+        this.compressionRatio = compression.getRatio();
+        this.compressionSwitches = compression.getSwitches();
+    }
+
+    @Override
+    public String getTableName() {
+        return this.tableName;
+    }
+
+    @Override
+    public long getPendingRecords() {
+        return this.pendingRecords;
+    }
+
+    @Override
+    public long getPendingBytes() {
+        return this.pendingBytes;
+    }
+
+    @Override
+    public long getFlushCount() {
+        return this.flushCount;
+    }
+
+    @Override
+    public long getFlushedRecords() {
+        return this.flushedRecords;
+    }
+
+    @Override
+    public long getFlushedBytes() {
+        return this.flushedBytes;
+    }
+
+    @Override
+    public long getLastFlushRecords() {
+        return this.lastFlushRecords;
+    }
+
+    @Override
+    public long getLastFlushBytes() {
+        return this.lastFlushBytes;
+    }
+
+    @Override
+    public long getMaxRecordBytes() {
+        return this.maxRecordBytes;
+    }
+
+    @Override
+    public double getAverageRecordBytes() {
+        long records = this.flushedRecords;
+        return records == 0 ? 0.0 : (double) this.flushedBytes / records;
+    }
+
+    @Override
+    public long getRecordLimitFlushes() {
+        return this.recordLimitFlushes;
+    }
+
+    @Override
+    public long getByteLimitFlushes() {
+        return this.byteLimitFlushes;
+    }
+
+    @Override
+    public long getLastFlushLatencyMs() {
+        return this.lastFlushLatencyMs;
+    }
+
+    @Override
+    public long getMaxFlushLatencyMs() {
+        return this.maxFlushLatencyMs;
+    }
+
+    @Override
+    public long getBatchSize() {
+        return this.batchSize;
+    }
+
+    @Override
+    public double getRecordsPerSecond() {
+        return this.recordsPerSecond;
+    }
+
+    @Override
+    public long getBatchSizeIncreases() {
+        return this.batchSizeIncreases;
+    }
+
+    @Override
+    public long getBatchSizeDecreases() {
+        return this.batchSizeDecreases;
+    }
+
+    @Override
+    public long getCoalescedRecords() {
+        return this.coalescedRecords;
+    }
+
+    @Override
+    public long getLastFlushAgeMs() {
+        return this.lastFlushAgeMs;
+    }
+
+    @Override
+    public long getMaxFlushAgeMs() {
+        return this.maxFlushAgeMs;
+    }
+
+    @Override
+    public long getFailedBatches() {
+        return this.failedBatches;
+    }
+
+    @Override
+    public long getBisectRequests() {
+        return this.bisectRequests;
+    }
+
+    @Override
+    public long getErrantRecords() {
+        return this.errantRecords;
+    }
+
+    @Override
+    public String getCompressionCodec() {
+        return this.compressionCodec;
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        return this.compressionRatio;
+    }
+
+    @Override
+    public long getCompressionSwitches() {
+        return this.compressionSwitches;
+    }
+}
@@ -0,0 +1,61 @@
+package com.kinetica.kafka;
+
+/**
+ * JMX view of per-table ingest statistics collected by {@link KineticaSinkTask}
+ */
+public interface SinkTableMetricsMBean {
+
+    String getTableName();
+
+    long getPendingRecords();
+
+    long getPendingBytes();
+
+    long getFlushCount();
+
+    long getFlushedRecords();
+
+    long getFlushedBytes();
+
+    long getLastFlushRecords();
+
+    long getLastFlushBytes();
+
+    long getMaxRecordBytes();
+
+    double getAverageRecordBytes();
+
+    long getRecordLimitFlushes();
+
+    long getByteLimitFlushes();
+
+    long getLastFlushLatencyMs();
+
+    long getMaxFlushLatencyMs();
+
+    long getBatchSize();
+
+    double getRecordsPerSecond();
+
+    long getBatchSizeIncreases();
+
+    long getBatchSizeDecreases();
+
+    long getCoalescedRecords();
+
+    long getLastFlushAgeMs();
+
+    long getMaxFlushAgeMs();
+
+    long getFailedBatches();
+
+    long getBisectRequests();
+
+    long getErrantRecords();
+
+    String getCompressionCodec();
+
+    double getCompressionRatio();
+
+    long getCompressionSwitches();
+}
@@ -0,0 +1,387 @@
+package com.kinetica.kafka;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Task-wide ingest statistics of a sink task, registered as a JMX MBean under 
+ * <code>com.kinetica.kafka:type=sink-task-metrics,task=&lt;task&gt;</code>
+ */
+public class SinkTaskMetrics implements SinkTaskMetricsMBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SinkTaskMetrics.class);
+
+    private static final String DOMAIN = "com.kinetica.kafka";
+
+    private final String taskName;
+    private final long memoryBudgetBytes;
+    private ObjectName objectName;
+
+    private volatile long pendingBytes;
+    private volatile long budgetFlushes;
+    private volatile long budgetFlushedTables;
+    private volatile long budgetBlockedMs;
+    private volatile long cachedTables;
+    private volatile long tableCacheHits;
+    private volatile long tableCacheMisses;
+    private volatile long tableEvictions;
+    private volatile long idleTableEvictions;
+    private volatile long pausedPartitions;
+    private volatile long partitionPauses;
+    private volatile long retriableErrors;
+    private volatile long lastRetryBackoffMs;
+    private volatile long throttledFlushes;
+    private volatile long lastThrottleDelayMs;
+    private volatile double rateLimitMultiplier = 1.0;
+    private volatile long spilledBatches;
+    private volatile long spilledRecords;
+    private volatile long replayedBatches;
+    private volatile long replayedRecords;
+    private volatile long rejectedSpillBatches;
+    private volatile long errantSpillRecords;
+    private volatile long spillPendingBatches;
+    private volatile long spillPendingBytes;
+    private volatile long parallelFlushes;
+    private volatile long parallelFlushedTables;
+    private volatile long lastParallelFlushMs;
+    private volatile long failovers;
+
+    /**
+     * Creates metrics for a sink task 
+     * @param taskName            sink task identifier
+     * @param memoryBudgetBytes   configured memory budget, 0 when unlimited
+     */
+    public SinkTaskMetrics(String taskName, long memoryBudgetBytes) {
+        this.taskName = taskName;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    /**
+     * Registers this object with the platform MBean server, failures are logged and ignored
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            this.objectName = new ObjectName(DOMAIN + ":type=sink-task-metrics,task=" + ObjectName.quote(this.taskName));
+            if (server.isRegistered(this.objectName)) {
+                server.unregisterMBean(this.objectName);
+            }
+            server.registerMBean(this, this.objectName);
+        } catch (Exception e) {
+            LOG.warn("Unable to register metrics for task {}: {}", this.taskName, e.getMessage());
+            this.objectName = null;
+        }
+    }
+
+    /**
+     * Removes this object from the platform MBean server
+     */
+    public void unregister() {
+        if (this.objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+        } catch (Exception e) {
+            LOG.debug("Unable to unregister metrics for task {}: {}", this.taskName, e.getMessage());
+        }
+        this.objectName = null;
+    }
+
+    /**
+     * Records the estimated size of records pending in all table batches 
+     * @param pendingBytes   estimated size of pending records
+     */
+    public void pendingBytesChanged(long pendingBytes) {
+        this.pendingBytes = pendingBytes;
+    }
+
+    /**
+     * Records table batches flushed because the memory budget was exceeded 
+     * @param tables     number of table batches flushed
+     * @param blockedMs  time spent flushing
+     */
+    public void budgetFlushed(long tables, long blockedMs) {
+        this.budgetFlushes++;
+        this.budgetFlushedTables += tables;
+        this.budgetBlockedMs += blockedMs;
+    }
+
+    /**
+     * Records a lookup of cached BulkInserter and type of a table 
+     * @param hit   true when the table was found in the task cache
+     */
+    public void tableLookup(boolean hit) {
+        if (hit) {
+            this.tableCacheHits++;
+        } else {
+            this.tableCacheMisses++;
+        }
+    }
+
+    /**
+     * Records a table evicted from the task cache 
+     * @param idle          true when the table was evicted for being idle, false when the cache was full
+     * @param cachedTables  number of tables remaining in the cache
+     */
+    public void tableEvicted(boolean idle, long cachedTables) {
+        this.tableEvictions++;
+        if (idle) {
+            this.idleTableEvictions++;
+        }
+        this.cachedTables = cachedTables;
+    }
+
+    /**
+     * Records the number of tables in the task cache 
+     * @param cachedTables  number of cached tables
+     */
+    public void cachedTablesChanged(long cachedTables) {
+        this.cachedTables = cachedTables;
+    }
+
+    /**
+     * Records the state of partitions paused by backpressure 
+     * @param backpressure   partition backpressure of the task
+     */
+    public void backpressureChanged(PartitionBackpressure backpressure) {
+        this.pausedPartitions = backpressure.getPausedCount();
+        this.partitionPauses = backpressure.getPauseCount();
+    }
+
+    /**
+     * Records a transient Kinetica error to be retried 
+     * @param backoffMs   time to wait before the retry
+     */
+    public void retried(long backoffMs) {
+        this.retriableErrors++;
+        this.lastRetryBackoffMs = backoffMs;
+    }
+
+    /**
+     * Records a table flush held back by rate limits 
+     * @param delayMs      time until the limit allows the flush
+     * @param multiplier   current schedule multiplier of rate limits
+     */
+    public void throttled(long delayMs, double multiplier) {
+        this.throttledFlushes++;
+        this.lastThrottleDelayMs = delayMs;
+        this.rateLimitMultiplier = multiplier;
+    }
+
+    /**
+     * Records a table batch spilled to the local journal 
+     * @param records   number of spilled records
+     * @param journal   spill journal of the task
+     */
+    public void spilled(long records, SpillJournal journal) {
+        this.spilledBatches++;
+        this.spilledRecords += records;
+        spillChanged(journal);
+    }
+
+    /**
+     * Records a spilled batch replayed into Kinetica 
+     * @param records   number of replayed records
+     * @param journal   spill journal of the task
+     */
+    public void spillReplayed(long records, SpillJournal journal) {
+        this.replayedBatches++;
+        this.replayedRecords += records;
+        spillChanged(journal);
+    }
+
+    /**
+     * Records spilled records Kinetica refused to insert, isolated from the rest of their batch
+     * @param records   number of rejected records
+     * @param journal   spill journal of the task
+     */
+    public void spillRejected(long records, SpillJournal journal) {
+        this.rejectedSpillBatches++;
+        this.errantSpillRecords += records;
+        spillChanged(journal);
+    }
+
+    /**
+     * Records the batches waiting in the spill journal 
+     * @param journal   spill journal of the task
+     */
+    public void spillChanged(SpillJournal journal) {
+        this.spillPendingBatches = journal.getPendingEntries();
+        this.spillPendingBytes = journal.getPendingBytes();
+    }
+
+    /**
+     * Records table batches inserted concurrently during a flush 
+     * @param tables      number of table batches inserted
+     * @param elapsedMs   time in milliseconds until all of them completed
+     */
+    public void parallelFlushed(int tables, long elapsedMs) {
+        this.parallelFlushes++;
+        this.parallelFlushedTables += tables;
+        this.lastParallelFlushMs = elapsedMs;
+    }
+
+    /**
+     * Records BulkInserters rebuilt after a Kinetica head node failover
+     */
+    public void failedOver() {
+        this.failovers++;
+    }
+
+    @Override
+    public long getPendingBytes() {
+        return this.pendingBytes;
+    }
+
+    @Override
+    public long getMemoryBudgetBytes() {
+        return this.memoryBudgetBytes;
+    }
+
+    @Override
+    public long getBudgetFlushes() {
+        return this.budgetFlushes;
+    }
+
+    @Override
+    public long getBudgetFlushedTables() {
+        return this.budgetFlushedTables;
+    }
+
+    @Override
+    public long getBudgetBlockedMs() {
+        return this.budgetBlockedMs;
+    }
+
+    @Override
+    public long getCachedTables() {
+        return this.cachedTables;
+    }
+
+    @Override
+    public long getTableCacheHits() {
+        return this.tableCacheHits;
+    }
+
+    @Override
+    public long getTableCacheMisses() {
+        return this.tableCacheMisses;
+    }
+
+    @Override
+    public double getTableCacheHitRate() {
+        long lookups = this.tableCacheHits + this.tableCacheMisses;
+        return lookups == 0 ? 0.0 : (double) this.tableCacheHits / lookups;
+    }
+
+    @Override
+    public long getTableEvictions() {
+        return this.tableEvictions;
+    }
+
+    @Override
+    public long getIdleTableEvictions() {
+        return this.idleTableEvictions;
+    }
+
+    @Override
+    public long getPausedPartitions() {
+        return this.pausedPartitions;
+    }
+
+    @Override
+    public long getPartitionPauses() {
+        return this.partitionPauses;
+    }
+
+    @Override
+    public long getRetriableErrors() {
+        return this.retriableErrors;
+    }
+
+    @Override
+    public long getLastRetryBackoffMs() {
+        return this.lastRetryBackoffMs;
+    }
+
+    @Override
+    public long getThrottledFlushes() {
+        return this.throttledFlushes;
+    }
+
+    @Override
+    public long getLastThrottleDelayMs() {
+        return this.lastThrottleDelayMs;
+    }
+
+    @Override
+    public double getRateLimitMultiplier() {
+        return this.rateLimitMultiplier;
+    }
+
+    @Override
+    public long getSpilledBatches() {
+        return this.spilledBatches;
+    }
+
+    @Override
+    public long getSpilledRecords() {
+        return this.spilledRecords;
+    }
+
+    @Override
+    public long getReplayedBatches() {
+        return this.replayedBatches;
+    }
+
+    @Override
+    public long getReplayedRecords() {
+        return this.replayedRecords;
+    }
+
+    @Override
+    public long getRejectedSpillBatches() {
+        return this.rejectedSpillBatches;
+    }
+
+    @Override
+    public long getErrantSpillRecords() {
+        return this.errantSpillRecords;
+    }
+
+    @Override
+    public long getSpillPendingBatches() {
+        return this.spillPendingBatches;
+    }
+
+    @Override
+    public long getSpillPendingBytes() {
+        return this.spillPendingBytes;
+    }
+
+    @Override
+    public long getParallelFlushes() {
+        return this.parallelFlushes;
+    }
+
+    @Override
+    public long getParallelFlushedTables() {
+        return this.parallelFlushedTables;
+    }
+
+    @Override
+    public long getLastParallelFlushMs() {
+        return this.lastParallelFlushMs;
+    }
+
+    @Override
+    public long getFailovers() {
+        return this.failovers;
+    }
+}
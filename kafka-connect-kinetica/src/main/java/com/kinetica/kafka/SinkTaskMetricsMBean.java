@@ -0,0 +1,67 @@
+package com.kinetica.kafka;
+
+/**
+ * JMX view of task-wide ingest statistics collected by {@link KineticaSinkTask}
+ */
+public interface SinkTaskMetricsMBean {
+
+    long getPendingBytes();
+
+    long getMemoryBudgetBytes();
+
+    long getBudgetFlushes();
+
+    long getBudgetFlushedTables();
+
+    long getBudgetBlockedMs();
+
+    long getCachedTables();
+
+    long getTableCacheHits();
+
+    long getTableCacheMisses();
+
+    double getTableCacheHitRate();
+
+    long getTableEvictions();
+
+    long getIdleTableEvictions();
+
+    long getPausedPartitions();
+
+    long getPartitionPauses();
+
+    long getRetriableErrors();
+
+    long getLastRetryBackoffMs();
+
+    long getThrottledFlushes();
+
+    long getLastThrottleDelayMs();
+
+    double getRateLimitMultiplier();
+
+    long getSpilledBatches();
+
+    long getSpilledRecords();
+
+    long getReplayedBatches();
+
+    long getReplayedRecords();
+
+    long getRejectedSpillBatches();
+
+    long getErrantSpillRecords();
+
+    long getSpillPendingBatches();
+
+    long getSpillPendingBytes();
+
+    long getParallelFlushes();
+
+    long getParallelFlushedTables();
+
+    long getLastParallelFlushMs();
+
+    long getFailovers();
+}
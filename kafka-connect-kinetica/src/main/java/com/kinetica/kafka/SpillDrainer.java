@@ -0,0 +1,227 @@
+package com.kinetica.kafka;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background thread replaying batches of a {@link SpillJournal} into Kinetica in the order they were spilled.
+ * Transient Kinetica errors are retried with exponential backoff. When Kinetica refuses a batch, the table 
+ * type is looked up again and the batch is inserted in halves until the records Kinetica refuses are isolated;
+ * only those are moved to the rejected journal subdirectory. Their offsets were committed when the batch was
+ * spilled, so they can not be reported to the dead letter queue.
+ */
+public class SpillDrainer implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillDrainer.class);
+
+    // time to wait for new entries while the journal is empty
+    private static final long IDLE_WAIT_MS = 1000L;
+
+    /**
+     * Inserts encoded records into a Kinetica table
+     */
+    public interface Replayer {
+        /**
+         * @param tableName   Kinetica table name
+         * @param records     Avro encoded records
+         * @throws Exception  when the records could not be inserted
+         */
+        void replay(String tableName, List<ByteBuffer> records) throws Exception;
+
+        /**
+         * Looks up the current type of a table after Kinetica refused a replayed batch, so that a table 
+         * altered or recreated while its batches were spilled is inserted into with its current type
+         * @param tableName   Kinetica table name
+         * @throws Exception  when the type could not be looked up
+         */
+        void refreshType(String tableName) throws Exception;
+    }
+
+    private final SpillJournal journal;
+    private final Replayer replayer;
+    private final RetryBackoff backoff;
+    private final SinkTaskMetrics metrics;
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates a drainer, the drainer has to be started
+     * @param name       thread name
+     * @param journal    journal to replay
+     * @param replayer   inserts replayed batches into Kinetica
+     * @param backoff    backoff between retries after transient Kinetica errors
+     * @param metrics    task metrics, may be null
+     */
+    public SpillDrainer(String name, SpillJournal journal, Replayer replayer, RetryBackoff backoff,
+            SinkTaskMetrics metrics) {
+        this.thread = KineticaThreads.newThread(name, this);
+        this.journal = journal;
+        this.replayer = replayer;
+        this.backoff = backoff;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void run() {
+        LOG.info("Starting spill journal drainer for {}", this.journal.getDir().getAbsolutePath());
+        while (this.running && !Thread.currentThread().isInterrupted()) {
+            try {
+                SpillJournal.Entry entry = this.journal.peek();
+                if (entry == null) {
+                    this.journal.awaitEntry(IDLE_WAIT_MS);
+                    continue;
+                }
+                drain(entry);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        LOG.info("Stopped spill journal drainer for {}", this.journal.getDir().getAbsolutePath());
+    }
+
+    /**
+     * Replays a single journal entry
+     * @param entry   oldest entry of the journal
+     * @throws InterruptedException  when the drainer is stopped while backing off
+     */
+    private void drain(SpillJournal.Entry entry) throws InterruptedException {
+        String tableName = entry.getTableName();
+        List<ByteBuffer> records = entry.getRecords();
+        try {
+            this.replayer.replay(tableName, records);
+            this.journal.commit(entry);
+            this.backoff.reset();
+            if (this.metrics != null) {
+                this.metrics.spillReplayed(records.size(), this.journal);
+            }
+            return;
+        } catch (Exception e) {
+            if (!this.running) {
+                throw new InterruptedException();
+            }
+            if (KineticaErrorClassifier.isRetriable(e)) {
+                backOff(String.format("Replay of %d spilled records into Kinetica table %s failed", 
+                        records.size(), tableName), e);
+                return;
+            }
+            LOG.warn("Kinetica table {} refused {} spilled records, isolating the rejected records: {}",
+                    tableName, records.size(), e.getMessage());
+        }
+        try {
+            this.replayer.refreshType(tableName);
+        } catch (Exception e) {
+            if (!this.running) {
+                throw new InterruptedException();
+            }
+            // nothing of the entry is inserted yet, it is replayed again from the start
+            backOff(String.format("Type lookup of Kinetica table %s failed", tableName), e);
+            return;
+        }
+        List<ByteBuffer> rejected = new ArrayList<>();
+        replayBisecting(tableName, records, rejected);
+        // the rest of the entry is inserted, retry moving the rejected records instead of replaying it again
+        while (true) {
+            try {
+                if (rejected.isEmpty()) {
+                    this.journal.commit(entry);
+                } else {
+                    LOG.error("Kinetica table {} rejected {} of {} spilled records, moving them to the rejected directory of {}",
+                            tableName, rejected.size(), records.size(), this.journal.getDir().getAbsolutePath());
+                    this.journal.reject(entry, rejected);
+                }
+                break;
+            } catch (IOException e) {
+                long backoffMs = this.backoff.nextBackoff();
+                LOG.error("Unable to move rejected spilled records of table {}, retrying in {} ms: {}",
+                        tableName, backoffMs, e.getMessage());
+                Thread.sleep(backoffMs);
+                if (!this.running) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+        this.backoff.reset();
+        if (this.metrics != null) {
+            this.metrics.spillReplayed(records.size() - rejected.size(), this.journal);
+            if (!rejected.isEmpty()) {
+                this.metrics.spillRejected(rejected.size(), this.journal);
+            }
+        }
+    }
+
+    /**
+     * Inserts records of a refused entry, splitting them in halves until the records Kinetica refuses are 
+     * isolated. Transient errors are retried in place, so that records already inserted are not sent again.
+     * @param tableName   Kinetica table name
+     * @param records     Avro encoded records
+     * @param rejected    receives the records Kinetica refuses to insert
+     * @throws InterruptedException  when the drainer is stopped
+     */
+    private void replayBisecting(String tableName, List<ByteBuffer> records, List<ByteBuffer> rejected) 
+            throws InterruptedException {
+        while (true) {
+            try {
+                this.replayer.replay(tableName, records);
+                return;
+            } catch (Exception e) {
+                if (!this.running) {
+                    throw new InterruptedException();
+                }
+                if (KineticaErrorClassifier.isRetriable(e)) {
+                    backOff(String.format("Replay of %d spilled records into Kinetica table %s failed", 
+                            records.size(), tableName), e);
+                    continue;
+                }
+                if (records.size() == 1) {
+                    LOG.warn("Kinetica table {} rejected a spilled record: {}", tableName, e.getMessage());
+                    rejected.add(records.get(0));
+                    return;
+                }
+            }
+            break;
+        }
+        int middle = records.size() / 2;
+        replayBisecting(tableName, records.subList(0, middle), rejected);
+        replayBisecting(tableName, records.subList(middle, records.size()), rejected);
+    }
+
+    /**
+     * Waits before the next attempt after a transient Kinetica error
+     * @param msg     description of the failed attempt
+     * @param cause   transient Kinetica error
+     * @throws InterruptedException  when the drainer is stopped while backing off
+     */
+    private void backOff(String msg, Exception cause) throws InterruptedException {
+        long backoffMs = this.backoff.nextBackoff();
+        LOG.warn("{}, retrying in {} ms (attempt {}): {}", msg, backoffMs, this.backoff.getAttempts(), 
+                cause.getMessage());
+        Thread.sleep(backoffMs);
+    }
+
+    /**
+     * Starts replaying the journal on a background thread
+     */
+    public void start() {
+        this.thread.start();
+    }
+
+    /**
+     * Stops the drainer, pending entries stay in the journal
+     * @param timeoutMs   longest time to wait for an ongoing replay to finish
+     */
+    public void shutdown(long timeoutMs) {
+        this.running = false;
+        this.thread.interrupt();
+        try {
+            this.thread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package com.kinetica.kafka;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local write-ahead journal of encoded table batches that could not be inserted while Kinetica was unreachable.
+ * Batches are appended to memory-mapped segment files and forced to disk before {@link #append(String, List)}
+ * returns, so that offsets of spilled records may be committed. Batches are read back in append order and
+ * a segment file is deleted once all of its batches have been replayed.
+ * <p>
+ * A segment starts with the position of the next batch to replay (8 bytes), followed by entries of
+ * [int payload length][int CRC32 of payload][payload]; a zero length marks the end of written entries.
+ * The payload holds [int table name length][UTF-8 table name][int record count] followed by
+ * [int record length][Avro encoded record] for each record.
+ */
+public class SpillJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillJournal.class);
+
+    private static final String SEGMENT_SUFFIX = ".spill";
+    private static final String REJECTED_DIR = "rejected";
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int ENTRY_HEADER_BYTES = 8;
+
+    private final File dir;
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    // number of pending entries per table name
+    private final HashMap<String, Integer> pendingTables = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // signalled when an entry is appended or the journal is closed
+    private final Condition entryAdded = this.lock.newCondition();
+
+    private long nextSequence = 0;
+    private long pendingBytes = 0;
+    private long pendingEntries = 0;
+    private boolean closed = false;
+    // journal of entries Kinetica refused to insert, created on first use
+    private SpillJournal rejected;
+
+    /**
+     * Opens the journal in the given directory, entries left by a previous task are recovered
+     * @param dir            journal directory, created when missing
+     * @param segmentBytes   size of a segment file
+     * @param maxBytes       most bytes of pending entries, 0 for unlimited
+     * @throws IOException   when the directory or a segment file can not be accessed
+     */
+    public SpillJournal(File dir, long segmentBytes, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = Math.min(segmentBytes, Integer.MAX_VALUE);
+        this.maxBytes = maxBytes;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create spill journal directory " + dir.getAbsolutePath());
+        }
+        File[] files = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File parent, String name) {
+                return name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            throw new IOException("Unable to list spill journal directory " + dir.getAbsolutePath());
+        }
+        // segment names are zero-padded sequence numbers
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            long sequence;
+            try {
+                sequence = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                LOG.warn("Ignoring unexpected file {} in spill journal", file.getAbsolutePath());
+                continue;
+            }
+            this.nextSequence = Math.max(this.nextSequence, sequence + 1);
+            Segment segment = recover(file);
+            if (segment.readPosition >= segment.writePosition) {
+                delete(segment);
+            } else {
+                this.segments.addLast(segment);
+            }
+        }
+        if (this.pendingEntries > 0) {
+            LOG.info("Recovered {} spilled batches ({} bytes) from {}", this.pendingEntries, this.pendingBytes,
+                    dir.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Appends a table batch to the journal and forces it to disk
+     * @param tableName   Kinetica table name
+     * @param records     Avro encoded records
+     * @return false when the journal has no room for the batch
+     * @throws IOException   when the journal is closed or the batch can not be written
+     */
+    public boolean append(String tableName, List<ByteBuffer> records) throws IOException {
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                throw new IOException("Spill journal " + this.dir.getAbsolutePath() + " is closed");
+            }
+            byte[] name = tableName.getBytes(StandardCharsets.UTF_8);
+            long payloadBytes = 4 + name.length + 4;
+            for (ByteBuffer record : records) {
+                payloadBytes += 4 + record.remaining();
+            }
+            long entryBytes = ENTRY_HEADER_BYTES + payloadBytes;
+            if (SEGMENT_HEADER_BYTES + entryBytes > Integer.MAX_VALUE
+                    || (this.maxBytes > 0 && this.pendingBytes + entryBytes > this.maxBytes)) {
+                return false;
+            }
+            Segment segment = this.segments.peekLast();
+            if (segment == null || segment.sealed 
+                    || segment.buffer.capacity() - segment.writePosition < entryBytes) {
+                if (segment != null) {
+                    segment.sealed = true;
+                }
+                segment = create(Math.max(this.segmentBytes, SEGMENT_HEADER_BYTES + entryBytes));
+                this.segments.addLast(segment);
+            }
+            int position = segment.writePosition;
+            ByteBuffer buffer = segment.buffer.duplicate();
+            buffer.position(position + ENTRY_HEADER_BYTES);
+            buffer.putInt(name.length).put(name).putInt(records.size());
+            for (ByteBuffer record : records) {
+                buffer.putInt(record.remaining());
+                buffer.put(record.duplicate());
+            }
+            ByteBuffer payload = segment.buffer.duplicate();
+            payload.position(position + ENTRY_HEADER_BYTES).limit(buffer.position());
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            // length goes last, a torn entry is either missing or fails its checksum
+            segment.buffer.putInt(position + 4, (int) crc.getValue());
+            segment.buffer.putInt(position, (int) payloadBytes);
+            segment.buffer.force();
+
+            segment.writePosition += (int) entryBytes;
+            this.pendingBytes += entryBytes;
+            this.pendingEntries++;
+            Integer count = this.pendingTables.get(tableName);
+            this.pendingTables.put(tableName, count == null ? 1 : count + 1);
+            this.entryAdded.signalAll();
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the oldest entry not replayed yet, null when the journal is empty
+     */
+    public Entry peek() {
+        this.lock.lock();
+        try {
+            Segment segment = this.segments.peekFirst();
+            if (this.closed || segment == null || segment.readPosition >= segment.writePosition) {
+                return null;
+            }
+            return read(segment, segment.readPosition);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for an entry to be appended
+     * @param timeoutMs   longest time to wait
+     * @throws InterruptedException  when the waiting thread is interrupted
+     */
+    public void awaitEntry(long timeoutMs) throws InterruptedException {
+        this.lock.lock();
+        try {
+            if (this.pendingEntries == 0 && !this.closed) {
+                // a Condition, not Object.wait, so that a waiting virtual thread does not pin its carrier
+                this.entryAdded.await(timeoutMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the oldest entry as replayed, its segment file is deleted once all of its entries are replayed.
+     * The replay position is not forced to disk, entries replayed shortly before a crash are replayed again.
+     * @param entry   entry returned by {@link #peek()}
+     */
+    public void commit(Entry entry) {
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            Segment segment = this.segments.peekFirst();
+            if (segment != entry.segment || segment.readPosition != entry.position) {
+                throw new IllegalStateException("Spill journal entry committed out of order");
+            }
+            segment.readPosition += entry.bytes;
+            segment.buffer.putLong(0, segment.readPosition);
+            this.pendingBytes -= entry.bytes;
+            this.pendingEntries--;
+            Integer count = this.pendingTables.get(entry.tableName);
+            if (count == null || count <= 1) {
+                this.pendingTables.remove(entry.tableName);
+            } else {
+                this.pendingTables.put(entry.tableName, count - 1);
+            }
+            if (segment.readPosition >= segment.writePosition) {
+                this.segments.removeFirst();
+                delete(segment);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the oldest entry as replayed and moves its records Kinetica refused to insert to the rejected 
+     * subdirectory, where they are kept for inspection but never replayed
+     * @param entry     entry returned by {@link #peek()}
+     * @param records   records of the entry Kinetica refused to insert
+     * @throws IOException   when the records can not be written
+     */
+    public void reject(Entry entry, List<ByteBuffer> records) throws IOException {
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            if (this.rejected == null) {
+                this.rejected = new SpillJournal(new File(this.dir, REJECTED_DIR), this.segmentBytes, 0);
+            }
+            this.rejected.append(entry.tableName, records);
+            commit(entry);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @param tableName   Kinetica table name
+     * @return true when batches of the table are waiting to be replayed
+     */
+    public boolean hasPending(String tableName) {
+        this.lock.lock();
+        try {
+            return this.pendingTables.containsKey(tableName);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return true when no batches are waiting to be replayed
+     */
+    public boolean isEmpty() {
+        this.lock.lock();
+        try {
+            return this.pendingEntries == 0;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return bytes of batches waiting to be replayed
+     */
+    public long getPendingBytes() {
+        this.lock.lock();
+        try {
+            return this.pendingBytes;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of batches waiting to be replayed
+     */
+    public long getPendingEntries() {
+        this.lock.lock();
+        try {
+            return this.pendingEntries;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of segment files holding pending batches
+     */
+    public int getSegmentCount() {
+        this.lock.lock();
+        try {
+            return this.segments.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return journal directory
+     */
+    public File getDir() {
+        return this.dir;
+    }
+
+    /**
+     * Closes the journal, pending entries are kept on disk and recovered by the next task
+     */
+    public void close() {
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.segments.clear();
+            this.pendingTables.clear();
+            if (this.rejected != null) {
+                this.rejected.close();
+            }
+            this.entryAdded.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Creates and maps a new segment file
+     * @param size   segment size in bytes
+     * @return writable segment
+     * @throws IOException   when the file can not be created
+     */
+    private Segment create(long size) throws IOException {
+        File file = new File(this.dir, String.format("%020d%s", this.nextSequence++, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer = map(file, size);
+        buffer.putLong(0, SEGMENT_HEADER_BYTES);
+        return new Segment(file, buffer, SEGMENT_HEADER_BYTES, SEGMENT_HEADER_BYTES);
+    }
+
+    /**
+     * Maps an existing segment file and scans it for valid entries, the segment is sealed
+     * @param file   segment file
+     * @return recovered segment
+     * @throws IOException   when the file can not be read
+     */
+    private Segment recover(File file) throws IOException {
+        MappedByteBuffer buffer = map(file, file.length());
+        int capacity = buffer.capacity();
+        long readPosition = capacity >= SEGMENT_HEADER_BYTES ? buffer.getLong(0) : 0;
+        Segment segment = new Segment(file, buffer, SEGMENT_HEADER_BYTES, SEGMENT_HEADER_BYTES);
+        segment.sealed = true;
+        int position = SEGMENT_HEADER_BYTES;
+        while (position + ENTRY_HEADER_BYTES <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0) {
+                break;
+            }
+            if ((long) position + ENTRY_HEADER_BYTES + length > capacity || !isValid(buffer, position, length)) {
+                LOG.warn("Spill journal segment {} is truncated at position {}", file.getAbsolutePath(), position);
+                break;
+            }
+            if (position >= readPosition) {
+                Entry entry = read(segment, position);
+                this.pendingBytes += entry.bytes;
+                this.pendingEntries++;
+                Integer count = this.pendingTables.get(entry.tableName);
+                this.pendingTables.put(entry.tableName, count == null ? 1 : count + 1);
+            }
+            position += ENTRY_HEADER_BYTES + length;
+        }
+        segment.writePosition = position;
+        segment.readPosition = (int) Math.max(SEGMENT_HEADER_BYTES, Math.min(readPosition, position));
+        return segment;
+    }
+
+    /**
+     * @param buffer     segment buffer
+     * @param position   position of the entry
+     * @param length     payload length
+     * @return true when the payload matches its checksum
+     */
+    private static boolean isValid(ByteBuffer buffer, int position, int length) {
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(position + ENTRY_HEADER_BYTES).limit(position + ENTRY_HEADER_BYTES + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return buffer.getInt(position + 4) == (int) crc.getValue();
+    }
+
+    /**
+     * Reads an entry, records are copied so that they outlive the segment file
+     * @param segment    segment holding the entry
+     * @param position   position of the entry
+     * @return entry
+     */
+    private static Entry read(Segment segment, int position) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int length = buffer.getInt(position);
+        buffer.position(position + ENTRY_HEADER_BYTES);
+        byte[] name = new byte[buffer.getInt()];
+        buffer.get(name);
+        int count = buffer.getInt();
+        List<ByteBuffer> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] record = new byte[buffer.getInt()];
+            buffer.get(record);
+            records.add(ByteBuffer.wrap(record));
+        }
+        return new Entry(segment, position, ENTRY_HEADER_BYTES + length,
+                new String(name, StandardCharsets.UTF_8), records);
+    }
+
+    /**
+     * @param file   segment file
+     * @param size   mapped size, the file is extended when shorter
+     * @return read-write mapping of the file
+     * @throws IOException   when the file can not be mapped
+     */
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * @param segment   fully replayed segment
+     */
+    private static void delete(Segment segment) {
+        if (!segment.file.delete()) {
+            LOG.warn("Unable to delete spill journal segment {}", segment.file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Memory-mapped segment file
+     */
+    private static class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private int readPosition;
+        private int writePosition;
+        // no entries are appended to a sealed segment
+        private boolean sealed = false;
+
+        Segment(File file, MappedByteBuffer buffer, int readPosition, int writePosition) {
+            this.file = file;
+            this.buffer = buffer;
+            this.readPosition = readPosition;
+            this.writePosition = writePosition;
+        }
+    }
+
+    /**
+     * Spilled table batch
+     */
+    public static class Entry {
+        private final Segment segment;
+        private final int position;
+        private final int bytes;
+        private final String tableName;
+        private final List<ByteBuffer> records;
+
+        Entry(Segment segment, int position, int bytes, String tableName, List<ByteBuffer> records) {
+            this.segment = segment;
+            this.position = position;
+            this.bytes = bytes;
+            this.tableName = tableName;
+            this.records = records;
+        }
+
+        /**
+         * @return Kinetica table name
+         */
+        public String getTableName() {
+            return this.tableName;
+        }
+
+        /**
+         * @return Avro encoded records
+         */
+        public List<ByteBuffer> getRecords() {
+            return this.records;
+        }
+
+        /**
+         * @return size of the entry in the journal
+         */
+        public int getBytes() {
+            return this.bytes;
+        }
+    }
+}
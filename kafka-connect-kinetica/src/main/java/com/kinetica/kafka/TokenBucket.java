@@ -0,0 +1,69 @@
+package com.kinetica.kafka;
+
+/**
+ * Token bucket allowing to go into debt: a batch of any size may be taken while the bucket is not empty, 
+ * the following batches have to wait until the debt is refilled. This enforces the average rate 
+ * even when a single batch holds more than a second worth of tokens.
+ * The bucket holds at most one second worth of tokens.
+ */
+public class TokenBucket {
+
+    private double ratePerSec;
+    private double tokens;
+    private long lastRefillMs;
+
+    /**
+     * Creates a full bucket
+     * @param ratePerSec   tokens added per second
+     * @param now          current time in milliseconds
+     */
+    public TokenBucket(double ratePerSec, long now) {
+        this.ratePerSec = ratePerSec;
+        this.tokens = ratePerSec;
+        this.lastRefillMs = now;
+    }
+
+    /**
+     * Changes the refill rate, keeping tokens collected so far
+     * @param ratePerSec   tokens added per second
+     * @param now          current time in milliseconds
+     */
+    public void setRate(double ratePerSec, long now) {
+        refill(now);
+        this.ratePerSec = ratePerSec;
+        this.tokens = Math.min(this.tokens, ratePerSec);
+    }
+
+    public double getRate() {
+        return this.ratePerSec;
+    }
+
+    /**
+     * Takes tokens from the bucket, possibly going into debt
+     * @param amount   tokens taken
+     * @param now      current time in milliseconds
+     */
+    public void consume(double amount, long now) {
+        refill(now);
+        this.tokens -= amount;
+    }
+
+    /**
+     * @param now   current time in milliseconds
+     * @return time in milliseconds until the bucket is out of debt, 0 when tokens are available
+     */
+    public long delayMs(long now) {
+        refill(now);
+        if (this.tokens >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-this.tokens * 1000.0 / this.ratePerSec);
+    }
+
+    private void refill(long now) {
+        if (now > this.lastRefillMs) {
+            this.tokens = Math.min(this.ratePerSec, this.tokens + (now - this.lastRefillMs) * this.ratePerSec / 1000.0);
+            this.lastRefillMs = now;
+        }
+    }
+}
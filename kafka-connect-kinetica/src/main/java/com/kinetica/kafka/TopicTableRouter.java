@@ -0,0 +1,222 @@
+package com.kinetica.kafka;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Routes Kafka topics to Kinetica tables. Routes of the topics listed in the connector configuration
+ * are computed once when the task starts; topics subscribed through topics.regex, or spelled differently
+ * from the configuration, are routed on first sight and cached. With multiple tables per topic the table
+ * is named after the record schema and cached per topic and schema name, so routing a record is a hash lookup.
+ */
+public class TopicTableRouter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TopicTableRouter.class);
+
+    // most tables cached per topic when tables are named after record schemas
+    private static final int MAX_SCHEMA_TABLES = 1024;
+
+    // configured topic names, empty when topics are subscribed by regex
+    private final String[] topics;
+    // destination table override names, empty when tables are named after topics or schemas
+    private final String[] overrides;
+    private final Pattern topicsRegex;
+    private final String prefix;
+    private final String collectionName;
+    private final boolean singleTablePerTopic;
+
+    // routes of configured topics, computed once
+    private final Map<String, Route> routes;
+    // routes of topics first seen in records
+    private final ConcurrentHashMap<String, Route> discovered = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a router and computes the routes of the configured topics
+     * @param topics                comma-separated topic names, may be null when subscribed by regex
+     * @param topicsRegex           topic subscription pattern, may be null
+     * @param tableOverride         comma-separated destination table names, may be empty
+     * @param tablePrefix           prefix of table names derived from topics or schemas, may be empty
+     * @param collectionName        Kinetica schema of tables without a schema in their name, may be empty
+     * @param singleTablePerTopic   true to name tables after topics, false to name them after record schemas
+     */
+    public TopicTableRouter(String topics, String topicsRegex, String tableOverride, String tablePrefix,
+            String collectionName, boolean singleTablePerTopic) {
+        this.topics = split(topics);
+        this.overrides = split(tableOverride);
+        this.topicsRegex = topicsRegex == null || topicsRegex.trim().isEmpty() ? null : Pattern.compile(topicsRegex.trim());
+        this.prefix = tablePrefix == null ? "" : tablePrefix.trim();
+        this.collectionName = collectionName;
+        this.singleTablePerTopic = singleTablePerTopic;
+
+        HashMap<String, Route> configured = new HashMap<>();
+        for (String topic : this.topics) {
+            configured.put(topic, new Route(topic));
+        }
+        this.routes = Collections.unmodifiableMap(configured);
+    }
+
+    /**
+     * @param topic        Kafka topic name
+     * @param schemaName   record schema name, may be null
+     * @return qualified Kinetica table name
+     * @throws ConnectException  when the topic has no destination table override
+     */
+    public String route(String topic, String schemaName) {
+        if (topic == null) {
+            return tableOf(null, schemaName);
+        }
+        Route route = this.routes.get(topic);
+        if (route == null) {
+            route = this.discovered.get(topic);
+            if (route == null) {
+                route = new Route(topic);
+                Route existing = this.discovered.putIfAbsent(topic, route);
+                if (existing != null) {
+                    route = existing;
+                } else if (this.topicsRegex != null && this.topicsRegex.matcher(topic).matches()) {
+                    LOG.info("Routing topic {} subscribed by {} to {}", topic, this.topicsRegex.pattern(),
+                            route.table != null ? route.table : "tables named after record schemas");
+                }
+            }
+        }
+        return route.table(schemaName);
+    }
+
+    /**
+     * Determines the table of a topic and record schema
+     * @param topic        Kafka topic name
+     * @param schemaName   record schema name, may be null
+     * @return qualified Kinetica table name
+     * @throws ConnectException  when the topic has no destination table override
+     */
+    private String tableOf(String topic, String schemaName) {
+        if (isOverridden()) {
+            // a single override name is used for a single topic or all topics matching the regex
+            if (this.overrides.length == 1 && this.topics.length <= 1) {
+                return addCollection(this.overrides[0]);
+            }
+            for (int i = 0; i < this.topics.length; i++) {
+                // find the topic position in config, then find a corresponding override name
+                if (topic != null && topic.trim().equalsIgnoreCase(this.topics[i])) {
+                    return addCollection(this.overrides[i]);
+                }
+            }
+            // no topic name matched current topic
+            throw new ConnectException("Could not determine an override table name for the topic from config params.");
+        }
+
+        if (topic != null && topic.contains(".")) {
+            // Clean up topic name from deprecated dot symbol.
+            topic = topic.replaceAll("[.]", KineticaSinkConnectorConfig.DEFAULT_DOT_REPLACEMENT);
+        }
+
+        // no override defined, determine table name from topic/schema and prefix
+        if (this.singleTablePerTopic) {
+            // if topic is undefined, take simple name of schema object
+            if (topic == null || topic.isEmpty()) {
+                return addCollection(this.prefix + getSimpleName(schemaName));
+            }
+            // otherwise name table after topic
+            return addCollection(this.prefix + topic);
+        } else {
+            if (schemaName == null) {
+                LOG.error("Could not determine table name from Schema, generating table name from topic.");
+                return addCollection(this.prefix + topic);
+            }
+            // generate the table from the schema
+            return addCollection(this.prefix + getSimpleName(schemaName));
+        }
+    }
+
+    /**
+     * @return true when destination table names are overridden, by a single name or one name per topic
+     */
+    public boolean isOverridden() {
+        return (this.overrides.length == 1 && this.topics.length <= 1)
+                || (this.overrides.length > 0 && this.overrides.length == this.topics.length);
+    }
+
+    /**
+     * Add collection name to table name, if available in connector config
+     * @param name      table name
+     * @return String   table name with collection prefix, if available
+     */
+    private String addCollection(String name) {
+        if (name.contains(".") || this.collectionName == null || this.collectionName.isEmpty()) {
+            // There is collection name in table name already, let core Kinetica validate it
+            return name;
+        }
+        // Add collection name from config
+        return this.collectionName + "." + name;
+    }
+
+    /**
+     * Remove package portion of class name
+     * @param fullName  full class name
+     * @return String   simple class name
+     */
+    private static String getSimpleName(String fullName) {
+        if (fullName != null && fullName.contains(".")) {
+            // name is dot-separated, remove the schema part
+            String[] parts = fullName.split("\\.");
+            return parts[parts.length - 1];
+        }
+        return fullName;
+    }
+
+    /**
+     * @param list   comma-separated list, may be null
+     * @return trimmed non-empty elements
+     */
+    private static String[] split(String list) {
+        if (list == null || list.trim().isEmpty()) {
+            return new String[0];
+        }
+        String[] items = list.split(",");
+        for (int i = 0; i < items.length; i++) {
+            items[i] = items[i].trim();
+        }
+        return items;
+    }
+
+    /**
+     * Destination of a topic: a fixed table, or tables named after record schemas
+     */
+    private class Route {
+        private final String topic;
+        // table of all records of the topic, null when it depends on the record schema
+        private final String table;
+        private final ConcurrentHashMap<String, String> schemaTables = new ConcurrentHashMap<>();
+
+        Route(String topic) {
+            this.topic = topic;
+            boolean fixed = isOverridden() || (TopicTableRouter.this.singleTablePerTopic && !topic.isEmpty());
+            this.table = fixed ? tableOf(topic, null) : null;
+        }
+
+        String table(String schemaName) {
+            if (this.table != null) {
+                return this.table;
+            }
+            if (schemaName == null) {
+                return tableOf(this.topic, null);
+            }
+            String result = this.schemaTables.get(schemaName);
+            if (result == null) {
+                result = tableOf(this.topic, schemaName);
+                // schemaless records are routed by their key, which need not be a bounded set of names
+                if (this.schemaTables.size() < MAX_SCHEMA_TABLES) {
+                    this.schemaTables.put(schemaName, result);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,503 @@
+package com.kinetica.kafka;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gpudb.Type;
+import com.gpudb.Type.Column;
+
+/**
+ * Local file of the Kinetica table types, known schema fingerprints and field mappings of a sink connector,
+ * shared by the tasks of the connector in the same worker JVM. The file is loaded when the first task starts,
+ * so that restarted tasks resume inserting without looking up every destination table first. Loaded types
+ * are validated against Kinetica on a background thread; tables found changed or dropped are looked up
+ * again on first use. Tasks store their current state at offset commits, the file is rewritten atomically
+ * only when the state changed.
+ * <p>
+ * The file starts with a magic number (4 bytes) and the number of tables (4 bytes), followed by entries of
+ * [int payload length][int CRC32 of payload][payload]. The payload holds the table name, type label and
+ * columns, the known schema fingerprints and the mapped and missing column names per schema fingerprint.
+ */
+public class WarmStartCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WarmStartCache.class);
+
+    public static final String FILE_SUFFIX = ".warm";
+    private static final int MAGIC = 0x4B575331;
+    // column types of Kinetica records, the index is stored in the file
+    private static final List<Class<?>> COLUMN_TYPES = Arrays.<Class<?>>asList(String.class, Integer.class,
+            Long.class, Float.class, Double.class, ByteBuffer.class);
+
+    // worker-wide registry of cache files
+    private static final HashMap<File, WarmStartCache> REGISTRY = new HashMap<>();
+
+    /**
+     * Checks a loaded table type against Kinetica
+     */
+    public interface Validator {
+        /**
+         * @param tableName   Kinetica table name
+         * @param type        loaded table type
+         * @return current table type, null when the table does not exist
+         * @throws Exception  when the type can not be looked up
+         */
+        Type validate(String tableName, Type type) throws Exception;
+    }
+
+    private final File file;
+    private final LinkedHashMap<String, Table> tables = new LinkedHashMap<>();
+    private final List<Table> loaded;
+    private int refCount = 0;
+    private boolean dirty = false;
+    private Thread validator;
+    private volatile boolean running = true;
+    private long validated = 0;
+    private long changed = 0;
+
+    private WarmStartCache(File file, List<Table> loaded) {
+        this.file = file;
+        this.loaded = Collections.unmodifiableList(loaded);
+        for (Table table : loaded) {
+            this.tables.put(table.name, table);
+        }
+    }
+
+    /**
+     * Returns the shared cache of a file, loading the file on first use
+     * @param file   cache file, its directory is created when missing
+     * @return shared cache, to be released by the caller
+     * @throws IOException  when the directory of the cache file can not be created
+     */
+    public static WarmStartCache acquire(File file) throws IOException {
+        File key = file.getAbsoluteFile();
+        synchronized (REGISTRY) {
+            WarmStartCache cache = REGISTRY.get(key);
+            if (cache == null) {
+                File dir = key.getParentFile();
+                if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("Unable to create warm-start cache directory " + dir.getAbsolutePath());
+                }
+                List<Table> loaded;
+                try {
+                    loaded = read(key);
+                } catch (IOException e) {
+                    // tables are looked up in Kinetica as without the file
+                    LOG.warn("Unable to read warm-start cache {}, starting cold: {}", key, e.getMessage());
+                    loaded = new ArrayList<>();
+                }
+                cache = new WarmStartCache(key, loaded);
+                REGISTRY.put(key, cache);
+                LOG.info("Loaded {} tables from warm-start cache {}", loaded.size(), key);
+            }
+            cache.refCount++;
+            return cache;
+        }
+    }
+
+    /**
+     * Releases a cache obtained from acquire, the last release stops validation and saves the file
+     */
+    public void release() {
+        synchronized (REGISTRY) {
+            this.refCount--;
+            if (this.refCount > 0 || REGISTRY.get(this.file) != this) {
+                return;
+            }
+            REGISTRY.remove(this.file);
+        }
+        this.running = false;
+        synchronized (this) {
+            if (this.validator != null) {
+                this.validator.interrupt();
+            }
+        }
+        try {
+            save();
+        } catch (IOException e) {
+            LOG.warn("Unable to write warm-start cache {}: {}", this.file, e.getMessage());
+        }
+    }
+
+    /**
+     * @return tables loaded from the file
+     */
+    public List<Table> getLoaded() {
+        return this.loaded;
+    }
+
+    /**
+     * Stores the current state of a table, written with the next save
+     * @param table   table state
+     */
+    public synchronized void put(Table table) {
+        Table previous = this.tables.put(table.name, table);
+        if (!table.equals(previous)) {
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Rewrites the file when a table state changed since it was loaded or last saved
+     * @return true when the file was written
+     * @throws IOException  when the file can not be written
+     */
+    public synchronized boolean save() throws IOException {
+        if (!this.dirty) {
+            return false;
+        }
+        write(this.file, this.tables.values());
+        this.dirty = false;
+        LOG.debug("Saved {} tables to warm-start cache {}", this.tables.size(), this.file);
+        return true;
+    }
+
+    /**
+     * Starts validating loaded table types on a background thread, once per cache
+     * @param name        thread name
+     * @param validator   looks up current table types in Kinetica
+     */
+    public synchronized void startValidation(String name, final Validator validator) {
+        if (this.validator != null || this.loaded.isEmpty()) {
+            return;
+        }
+        this.validator = KineticaThreads.newThread(name, new Runnable() {
+            @Override
+            public void run() {
+                validateAll(validator);
+            }
+        });
+        this.validator.start();
+    }
+
+    /**
+     * Looks up the type of each loaded table, a changed table is stored without field mappings and
+     * a dropped table is removed. Stops at the first failure, remaining tables are validated when
+     * inserts into them fail.
+     * @param validator   looks up current table types in Kinetica
+     */
+    protected void validateAll(Validator validator) {
+        for (Table table : this.loaded) {
+            if (!this.running) {
+                return;
+            }
+            Type current;
+            try {
+                current = validator.validate(table.name, table.type);
+            } catch (Exception e) {
+                LOG.warn("Stopped validating warm-start cache {} after {} tables: {}", this.file, this.validated,
+                        e.getMessage());
+                return;
+            }
+            synchronized (this) {
+                this.validated++;
+                if (current != null && sameType(current, table.type)) {
+                    continue;
+                }
+                this.changed++;
+                if (this.tables.get(table.name) != table) {
+                    // a task stored a newer state already
+                    continue;
+                }
+                if (current == null) {
+                    this.tables.remove(table.name);
+                } else {
+                    this.tables.put(table.name, new Table(table.name, current, null, null, null));
+                }
+                this.dirty = true;
+            }
+        }
+        LOG.info("Validated {} tables of warm-start cache {}, {} changed", this.validated, this.file, this.changed);
+    }
+
+    public synchronized long getValidated() {
+        return this.validated;
+    }
+
+    public synchronized long getChanged() {
+        return this.changed;
+    }
+
+    /**
+     * Compares column names, types and properties of two table types
+     * @param t1   table type
+     * @param t2   table type
+     * @return true when both types have the same columns
+     */
+    public static boolean sameType(Type t1, Type t2) {
+        if (t1 == t2) {
+            return true;
+        }
+        if (t1 == null || t2 == null || t1.getColumnCount() != t2.getColumnCount()) {
+            return false;
+        }
+        for (int i = 0; i < t1.getColumnCount(); i++) {
+            Column c1 = t1.getColumn(i);
+            Column c2 = t2.getColumn(i);
+            if (!c1.getName().equals(c2.getName()) || c1.getType() != c2.getType()
+                    || !new HashSet<>(c1.getProperties()).equals(new HashSet<>(c2.getProperties()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes tables to a temporary file and moves it over the cache file
+     * @param file     cache file
+     * @param tables   tables to write
+     * @throws IOException  when the file can not be written
+     */
+    protected static void write(File file, Collection<Table> tables) throws IOException {
+        List<byte[]> payloads = new ArrayList<>();
+        for (Table table : tables) {
+            byte[] payload = encode(table);
+            if (payload != null) {
+                payloads.add(payload);
+            }
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeInt(payloads.size());
+            CRC32 crc = new CRC32();
+            for (byte[] payload : payloads) {
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                out.writeInt(payload.length);
+                out.writeInt((int) crc.getValue());
+                out.write(payload);
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads tables from a cache file, entries failing their checksum are skipped
+     * @param file   cache file
+     * @return tables in file order, empty when the file does not exist
+     * @throws IOException  when the file can not be read or is not a cache file
+     */
+    protected static List<Table> read(File file) throws IOException {
+        List<Table> tables = new ArrayList<>();
+        if (!file.isFile()) {
+            return tables;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a warm-start cache file");
+            }
+            int count = in.readInt();
+            CRC32 crc = new CRC32();
+            for (int i = 0; i < count; i++) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 0 || length > file.length()) {
+                    throw new IOException("Invalid entry length " + length);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    LOG.warn("Skipping corrupted entry {} of warm-start cache {}", i, file);
+                    continue;
+                }
+                tables.add(decode(payload));
+            }
+        } catch (EOFException e) {
+            // file truncated, keep the tables read so far
+            LOG.warn("Warm-start cache {} is truncated after {} tables", file, tables.size());
+        }
+        return tables;
+    }
+
+    private static byte[] encode(Table table) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(table.name);
+        out.writeUTF(table.type.getLabel() == null ? "" : table.type.getLabel());
+        out.writeInt(table.type.getColumnCount());
+        for (Column column : table.type.getColumns()) {
+            int typeIndex = COLUMN_TYPES.indexOf(column.getType());
+            if (typeIndex < 0) {
+                LOG.debug("Not caching table {} with column {} of type {}", table.name, column.getName(),
+                        column.getType());
+                return null;
+            }
+            out.writeUTF(column.getName());
+            out.writeByte(typeIndex);
+            writeNames(out, column.getProperties());
+        }
+        out.writeInt(table.schemas.size());
+        for (Long key : table.schemas) {
+            writeKey(out, key);
+        }
+        out.writeInt(table.mapped.size());
+        for (Map.Entry<Long, List<String>> entry : table.mapped.entrySet()) {
+            writeKey(out, entry.getKey());
+            writeNames(out, entry.getValue());
+            List<String> missing = table.missing.get(entry.getKey());
+            writeNames(out, missing == null ? Collections.<String>emptyList() : missing);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Table decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String name = in.readUTF();
+        String label = in.readUTF();
+        int columnCount = in.readInt();
+        List<Column> columns = new ArrayList<>();
+        for (int i = 0; i < columnCount; i++) {
+            String columnName = in.readUTF();
+            int typeIndex = in.readByte();
+            if (typeIndex < 0 || typeIndex >= COLUMN_TYPES.size()) {
+                throw new IOException("Invalid type of column " + columnName + " of table " + name);
+            }
+            columns.add(new Column(columnName, COLUMN_TYPES.get(typeIndex), readNames(in)));
+        }
+        Set<Long> schemas = new HashSet<>();
+        int schemaCount = in.readInt();
+        for (int i = 0; i < schemaCount; i++) {
+            schemas.add(readKey(in));
+        }
+        Map<Long, List<String>> mapped = new HashMap<>();
+        Map<Long, List<String>> missing = new HashMap<>();
+        int mapperCount = in.readInt();
+        for (int i = 0; i < mapperCount; i++) {
+            Long key = readKey(in);
+            mapped.put(key, readNames(in));
+            missing.put(key, readNames(in));
+        }
+        return new Table(name, new Type(label, columns), schemas, mapped, missing);
+    }
+
+    private static void writeKey(DataOutputStream out, Long key) throws IOException {
+        // records without schema have no fingerprint
+        out.writeBoolean(key != null);
+        out.writeLong(key == null ? 0 : key);
+    }
+
+    private static Long readKey(DataInputStream in) throws IOException {
+        boolean present = in.readBoolean();
+        long key = in.readLong();
+        return present ? Long.valueOf(key) : null;
+    }
+
+    private static void writeNames(DataOutputStream out, List<String> names) throws IOException {
+        out.writeInt(names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    private static List<String> readNames(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add(in.readUTF());
+        }
+        return names;
+    }
+
+    /**
+     * Cached state of a Kinetica table: type, known schema fingerprints and the mapped and missing
+     * column names of field mappers per schema fingerprint
+     */
+    public static class Table {
+        private final String name;
+        private final Type type;
+        private final Set<Long> schemas;
+        private final Map<Long, List<String>> mapped;
+        private final Map<Long, List<String>> missing;
+
+        /**
+         * @param name      Kinetica table name
+         * @param type      Kinetica table type
+         * @param schemas   known schema fingerprints, may be null
+         * @param mapped    mapped column names per schema fingerprint, may be null
+         * @param missing   missing column names per schema fingerprint, may be null
+         */
+        public Table(String name, Type type, Set<Long> schemas, Map<Long, List<String>> mapped,
+                Map<Long, List<String>> missing) {
+            this.name = name;
+            this.type = type;
+            this.schemas = schemas == null ? new HashSet<Long>() : new HashSet<>(schemas);
+            this.mapped = mapped == null ? new HashMap<Long, List<String>>() : new HashMap<>(mapped);
+            this.missing = missing == null ? new HashMap<Long, List<String>>() : new HashMap<>(missing);
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public Type getType() {
+            return this.type;
+        }
+
+        public Set<Long> getSchemas() {
+            return this.schemas;
+        }
+
+        public Map<Long, List<String>> getMapped() {
+            return this.mapped;
+        }
+
+        public Map<Long, List<String>> getMissing() {
+            return this.missing;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Table)) {
+                return false;
+            }
+            Table other = (Table) o;
+            return this.name.equals(other.name) && sameType(this.type, other.type)
+                    && this.schemas.equals(other.schemas) && this.mapped.equals(other.mapped)
+                    && this.missing.equals(other.missing);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.name, this.schemas);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.kinetica.kafka;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Java 21 version of KineticaThreads, packaged in META-INF/versions/21 of the connector jar.
+ * Background threads are virtual threads, so that a source task monitoring thousands of tables
+ * or a sink task blocked on many inserts does not hold a platform thread and its stack for each.
+ * Virtual threads can be turned off with -Dkinetica.threads.virtual=false.
+ */
+public class KineticaThreads {
+
+    public static final String PROP_VIRTUAL = "kinetica.threads.virtual";
+
+    private static final boolean VIRTUAL = Boolean.parseBoolean(System.getProperty(PROP_VIRTUAL, "true"));
+
+    private KineticaThreads() {
+    }
+
+    /**
+     * Creates a background thread, the thread has to be started
+     * @param name   thread name
+     * @param task   code run by the thread
+     * @return unstarted thread
+     */
+    public static Thread newThread(String name, Runnable task) {
+        if (VIRTUAL) {
+            return Thread.ofVirtual().name(name).unstarted(task);
+        }
+        return Thread.ofPlatform().name(name).daemon(true).unstarted(task);
+    }
+
+    /**
+     * Creates a factory of background threads named prefix followed by a sequence number
+     * @param prefix   thread name prefix
+     * @return thread factory
+     */
+    public static ThreadFactory newThreadFactory(final String prefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return KineticaThreads.newThread(prefix + this.count.incrementAndGet(), runnable);
+            }
+        };
+    }
+
+    /**
+     * @return true when background threads are virtual threads
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+}
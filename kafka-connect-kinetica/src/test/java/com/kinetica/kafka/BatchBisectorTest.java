@@ -0,0 +1,153 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.gpudb.GPUdbException;
+
+/*
+ * Testing isolation of records rejected by Kinetica with a simulated insert function
+ */
+public class BatchBisectorTest {
+
+    /**
+     * Inserter rejecting bad records, or every record from a given request on with a transient error
+     */
+    private static class TestInserter implements BatchBisector.Inserter<Integer> {
+        private final Set<Integer> bad;
+        private final String badError;
+        private final List<Integer> inserted = new ArrayList<>();
+        private int requests;
+        private int transientFrom = Integer.MAX_VALUE;
+
+        TestInserter(Set<Integer> bad, String badError) {
+            this.bad = bad;
+            this.badError = badError;
+        }
+
+        @Override
+        public List<Integer> insert(List<Integer> records, List<GPUdbException> errors) {
+            this.requests++;
+            if (this.requests >= this.transientFrom) {
+                errors.add(new GPUdbException("Connection refused"));
+                return records;
+            }
+            List<Integer> failed = new ArrayList<>();
+            for (Integer record : records) {
+                if (this.bad.contains(record)) {
+                    failed.add(record);
+                }
+            }
+            if (!failed.isEmpty()) {
+                // a refused request inserts none of its records
+                errors.add(new GPUdbException(this.badError == null ? "Invalid value of record " + failed.get(0)
+                        : this.badError));
+                return records;
+            }
+            this.inserted.addAll(records);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reporter collecting rejected records
+     */
+    private static class TestReporter implements BatchBisector.Reporter<Integer> {
+        private final List<Integer> errant = new ArrayList<>();
+
+        @Override
+        public void errant(Integer record, GPUdbException error) {
+            this.errant.add(record);
+        }
+    }
+
+    private static List<Integer> range(int count) {
+        List<Integer> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(i);
+        }
+        return records;
+    }
+
+    @Test
+    public void oneBadRecordTest() {
+        TestInserter inserter = new TestInserter(new HashSet<>(Arrays.asList(37)), null);
+        TestReporter reporter = new TestReporter();
+        BatchBisector.Result<Integer> result = new BatchBisector<>(inserter, reporter).insert(range(100));
+
+        assertTrue(result.isCompleted());
+        assertEquals(Arrays.asList(37), reporter.errant);
+        assertEquals(99, inserter.inserted.size());
+        assertFalse(inserter.inserted.contains(37));
+        // about 2*log2(n) requests
+        assertTrue(inserter.requests <= 2 * 7 + 1);
+    }
+
+    @Test
+    public void allRecordsBadTest() {
+        // every record refused with the same error, e.g. missing permissions
+        TestInserter inserter = new TestInserter(new HashSet<>(range(100)), "Insufficient permissions");
+        TestReporter reporter = new TestReporter();
+        BatchBisector.Result<Integer> result = new BatchBisector<>(inserter, reporter).insert(range(100));
+
+        assertFalse(result.isCompleted());
+        assertFalse(result.isRetriable());
+        assertEquals("Insufficient permissions", result.getError().getMessage());
+        assertEquals(range(100), result.getRemaining());
+        assertTrue(reporter.errant.isEmpty());
+        // the whole batch and its two halves
+        assertEquals(3, inserter.requests);
+    }
+
+    @Test
+    public void manyBadRecordsTest() {
+        // records refused with errors of their own are still isolated
+        Set<Integer> bad = new HashSet<>(range(8));
+        TestInserter inserter = new TestInserter(bad, null);
+        TestReporter reporter = new TestReporter();
+        BatchBisector.Result<Integer> result = new BatchBisector<>(inserter, reporter).insert(range(8));
+
+        assertTrue(result.isCompleted());
+        assertEquals(range(8), reporter.errant);
+    }
+
+    @Test
+    public void transientErrorTest() {
+        TestInserter inserter = new TestInserter(new HashSet<>(Arrays.asList(3, 60)), null);
+        // Kinetica becomes unreachable after the whole batch and its two halves were sent
+        inserter.transientFrom = 4;
+        TestReporter reporter = new TestReporter();
+        BatchBisector.Result<Integer> result = new BatchBisector<>(inserter, reporter).insert(range(100));
+
+        assertFalse(result.isCompleted());
+        assertTrue(result.isRetriable());
+        assertEquals("Connection refused", result.getError().getMessage());
+        assertTrue(reporter.errant.isEmpty());
+        // both halves were refused, only records neither inserted nor reported are left
+        assertEquals(range(100), result.getRemaining());
+
+        // once record 3 was reported, records inserted or reported before the error are not left for a retry
+        inserter = new TestInserter(new HashSet<>(Arrays.asList(3, 60)), null);
+        inserter.transientFrom = 14;
+        reporter = new TestReporter();
+        result = new BatchBisector<>(inserter, reporter).insert(range(100));
+
+        assertTrue(result.isRetriable());
+        assertEquals(Arrays.asList(3), reporter.errant);
+        List<Integer> expected = range(100);
+        expected.removeAll(inserter.inserted);
+        expected.removeAll(reporter.errant);
+        assertEquals(expected, result.getRemaining());
+        assertTrue(result.getRemaining().contains(60));
+        assertFalse(result.getRemaining().contains(3));
+    }
+}
@@ -0,0 +1,128 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/*
+ * Testing the insert compression choice on simulated network throughput and compression samples
+ */
+public class CompressionControllerTest {
+
+    @Test
+    public void fixedModesTest() {
+        CompressionController none = new CompressionController(CompressionController.MODE_NONE);
+        CompressionController snappy = new CompressionController(CompressionController.MODE_SNAPPY);
+        assertFalse(none.needsSample());
+        assertFalse(none.isCompressed());
+        assertTrue(snappy.isCompressed());
+        assertFalse(snappy.onFlush(1000000, 1000000000L));
+        assertEquals(CompressionController.MODE_SNAPPY, snappy.getCodec());
+    }
+
+    /**
+     * Sends batches of 10 MB compressing to a third at 500 MB/s, with Kinetica spending 2 ns per byte
+     * @param auto                    controller choosing the codec of each batch
+     * @param networkBytesPerSecond   simulated network throughput
+     * @param flushes                 number of batches sent
+     */
+    private static void send(CompressionController auto, double networkBytesPerSecond, int flushes) {
+        long bytes = 10000000;
+        for (int i = 0; i < flushes; i++) {
+            if (auto.needsSample()) {
+                auto.sampled(1000000, 330000, 2000000L);
+            }
+            double nanos = bytes * 2.0;
+            if (auto.isCompressed()) {
+                nanos += bytes * 1e9 / 5e8 + bytes * 0.33 * 1e9 / networkBytesPerSecond;
+            } else {
+                nanos += bytes * 1e9 / networkBytesPerSecond;
+            }
+            auto.onFlush(bytes, (long) nanos);
+        }
+    }
+
+    @Test
+    public void autoModeTest() {
+        CompressionController auto = new CompressionController(CompressionController.MODE_AUTO);
+        assertTrue(auto.needsSample());
+        // text rows compress to a third at 500 MB/s
+        auto.sampled(1000000, 330000, 2000000L);
+        assertFalse(auto.needsSample());
+
+        // 10 MB/s link: first batch sent uncompressed, the next one probes compression
+        assertTrue(auto.onFlush(10000000, 1000000000L));
+        assertTrue(auto.isProbing());
+        assertTrue(auto.isCompressed());
+        assertEquals(CompressionController.MODE_NONE, auto.getCodec());
+
+        // compressed batch is faster, compression is chosen
+        assertFalse(auto.onFlush(10000000, 360000000L));
+        assertFalse(auto.isProbing());
+        assertTrue(auto.isCompressed());
+        assertEquals(CompressionController.MODE_SNAPPY, auto.getCodec());
+        assertEquals(1, auto.getSwitches());
+
+        // uncompressed batches are probed periodically, a slower probe keeps compression
+        for (int i = 2; i < CompressionController.PROBE_FLUSHES; i++) {
+            assertFalse(auto.onFlush(10000000, 360000000L));
+        }
+        assertTrue(auto.onFlush(10000000, 360000000L));
+        assertTrue(auto.isProbing());
+        assertFalse(auto.isCompressed());
+        assertTrue(auto.onFlush(10000000, 1000000000L));
+        assertTrue(auto.isCompressed());
+        assertEquals(1, auto.getSwitches());
+
+        // resampled after a number of flushes
+        for (int i = 0; i < CompressionController.RESAMPLE_FLUSHES; i++) {
+            auto.onFlush(1000, 1000000L);
+        }
+        assertTrue(auto.needsSample());
+    }
+
+    @Test
+    public void fastNetworkTest() {
+        CompressionController auto = new CompressionController(CompressionController.MODE_AUTO);
+        // slow link, compression pays off
+        send(auto, 1e7, 10);
+        assertTrue(auto.isCompressed());
+        assertEquals(CompressionController.MODE_SNAPPY, auto.getCodec());
+
+        // 10 Gb link: compressing takes longer than sending the raw bytes, turned off at the next probe
+        send(auto, 1.25e9, CompressionController.PROBE_FLUSHES + 1);
+        assertFalse(auto.isCompressed());
+        assertEquals(CompressionController.MODE_NONE, auto.getCodec());
+        assertEquals(2, auto.getSwitches());
+
+        // compression is not probed while the sampled ratio can not beat the fast link
+        send(auto, 1.25e9, 3 * CompressionController.PROBE_FLUSHES);
+        assertFalse(auto.isCompressed());
+        assertEquals(2, auto.getSwitches());
+
+        // slow link again, compression is probed and chosen
+        send(auto, 1e7, CompressionController.PROBE_FLUSHES + 2);
+        assertTrue(auto.isCompressed());
+        assertEquals(3, auto.getSwitches());
+    }
+
+    @Test
+    public void incompressibleTest() {
+        CompressionController auto = new CompressionController(CompressionController.MODE_AUTO);
+        auto.sampled(1000000, 990000, 2000000L);
+        for (int i = 0; i < 3 * CompressionController.PROBE_FLUSHES; i++) {
+            assertFalse(auto.onFlush(10000000, 1000000000L));
+        }
+        assertFalse(auto.isCompressed());
+        assertEquals(0, auto.getSwitches());
+    }
+
+    @Test
+    public void worthCompressingTest() {
+        assertTrue(CompressionController.worthCompressing(0.3, 1e7, 5e8));
+        assertFalse(CompressionController.worthCompressing(0.99, 1e7, 5e8));
+        assertFalse(CompressionController.worthCompressing(0.3, 2e9, 5e8));
+    }
+}
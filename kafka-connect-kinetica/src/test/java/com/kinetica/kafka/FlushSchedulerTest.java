@@ -0,0 +1,74 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gpudb.GenericRecord;
+import com.gpudb.Type;
+import com.gpudb.Type.Column;
+
+/*
+ * Testing earliest deadline first ordering of table flushes, no Kinetica instance required
+ */
+public class FlushSchedulerTest {
+
+    private Type type;
+
+    @Before
+    public void setup() {
+        List<Column> columns = new ArrayList<>();
+        columns.add(new Column("id", Integer.class));
+        this.type = new Type(columns);
+    }
+
+    private SinkTableBuffer buffer(String tableName, int records) {
+        SinkTableBuffer buffer = new SinkTableBuffer(tableName, 1000, 0, new SinkTableMetrics("test", tableName));
+        for (int i = 0; i < records; i++) {
+            GenericRecord record = new GenericRecord(this.type);
+            record.put("id", i);
+            buffer.add(record, this.type);
+        }
+        return buffer;
+    }
+
+    @Test
+    public void weightOrderTest() {
+        Map<String, Long> weights = SinkSchemaManager.parseTableValues("small:100", "weights");
+        FlushScheduler scheduler = new FlushScheduler(weights, 0);
+        SinkTableBuffer large = buffer("large", 500);
+        SinkTableBuffer small = buffer("small", 1);
+        SinkTableBuffer empty = buffer("empty", 0);
+
+        assertEquals(100, scheduler.weightOf("small"));
+        assertEquals(1, scheduler.weightOf("large"));
+        // the weighted table is due first even though it was filled last, empty batches are skipped
+        assertEquals(Arrays.asList("small", "large"), scheduler.flushOrder(Arrays.asList(large, empty, small)));
+        // nothing is overdue without a max pending age
+        assertTrue(scheduler.overdue(Arrays.asList(large, small), Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void overdueTest() {
+        Map<String, Long> weights = SinkSchemaManager.parseTableValues("fast:10", "weights");
+        FlushScheduler scheduler = new FlushScheduler(weights, 10000);
+        SinkTableBuffer slow = buffer("slow", 10);
+        SinkTableBuffer fast = buffer("fast", 10);
+        List<SinkTableBuffer> buffers = Arrays.asList(slow, fast);
+        long start = Math.min(slow.getPendingSince(), fast.getPendingSince());
+
+        assertTrue(scheduler.overdue(buffers, start).isEmpty());
+        assertEquals(Arrays.asList("fast"), scheduler.overdue(buffers, fast.getPendingSince() + 1000));
+        assertEquals(Arrays.asList("fast", "slow"), scheduler.overdue(buffers, slow.getPendingSince() + 10000));
+
+        fast.flushed(0);
+        assertEquals(Arrays.asList("slow"), scheduler.overdue(buffers, slow.getPendingSince() + 10000));
+    }
+}
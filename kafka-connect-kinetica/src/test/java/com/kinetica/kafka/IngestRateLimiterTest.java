@@ -0,0 +1,81 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.junit.Test;
+
+/*
+ * Testing token buckets, table limits and limit schedules, no Kinetica instance required
+ */
+public class IngestRateLimiterTest {
+
+    @Test
+    public void tokenBucketTest() {
+        TokenBucket bucket = new TokenBucket(1000, 0);
+        assertEquals(0, bucket.delayMs(0));
+
+        // a batch larger than the rate puts the bucket into debt
+        bucket.consume(3000, 0);
+        assertEquals(2000, bucket.delayMs(0));
+        assertEquals(500, bucket.delayMs(1500));
+        assertEquals(0, bucket.delayMs(2000));
+
+        // bucket never holds more than a second worth of tokens
+        bucket.consume(1500, 60000);
+        assertEquals(500, bucket.delayMs(60000));
+    }
+
+    @Test
+    public void tableLimitTest() {
+        Map<String, Long> tableRows = SinkSchemaManager.parseTableValues("ki_home.ticks:100, ki_home.refs:1000", "test");
+        assertEquals(2, tableRows.size());
+        assertEquals(Long.valueOf(100), tableRows.get("ki_home.ticks"));
+
+        IngestRateLimiter limiter = new IngestRateLimiter(0, 0, tableRows, new HashMap<String, Long>(), 
+                IngestRateLimiter.parseSchedule("", "test"));
+        assertTrue(limiter.isEnabled());
+        limiter.acquire("ki_home.ticks", 300, 0, 0);
+        limiter.acquire("ki_home.refs", 300, 0, 0);
+        limiter.acquire("ki_home.other", 300, 0, 0);
+        assertEquals(2000, limiter.delayMs("ki_home.ticks", 0));
+        assertEquals(0, limiter.delayMs("ki_home.refs", 0));
+        assertEquals(0, limiter.delayMs("ki_home.other", 0));
+    }
+
+    @Test
+    public void scheduleTest() {
+        double[] schedule = IngestRateLimiter.parseSchedule("22-6:4,12-14:0.5", "test");
+        assertEquals(4.0, schedule[22], 0.0);
+        assertEquals(4.0, schedule[0], 0.0);
+        assertEquals(4.0, schedule[5], 0.0);
+        assertEquals(1.0, schedule[6], 0.0);
+        assertEquals(0.5, schedule[13], 0.0);
+        assertEquals(1.0, schedule[14], 0.0);
+
+        // limit quadrupled at night
+        Calendar night = Calendar.getInstance();
+        night.set(2020, Calendar.JANUARY, 1, 23, 0, 0);
+        long now = night.getTimeInMillis();
+        IngestRateLimiter limiter = new IngestRateLimiter(100, 0, new HashMap<String, Long>(), 
+                new HashMap<String, Long>(), schedule);
+        limiter.acquire("ticks", 800, 0, now);
+        assertEquals(4.0, limiter.getMultiplier(), 0.0);
+        assertEquals(1000, limiter.delayMs("ticks", now));
+    }
+
+    @Test(expected = ConfigException.class)
+    public void invalidScheduleTest() {
+        IngestRateLimiter.parseSchedule("22-6", "test");
+    }
+
+    @Test(expected = ConfigException.class)
+    public void invalidTableLimitTest() {
+        SinkSchemaManager.parseTableValues("ticks:fast", "test");
+    }
+}
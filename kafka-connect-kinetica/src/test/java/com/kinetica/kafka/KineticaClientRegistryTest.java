@@ -0,0 +1,128 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gpudb.GPUdb;
+import com.gpudb.GPUdbException;
+import com.gpudb.WorkerList;
+
+/*
+ * Testing the worker-wide registry of Kinetica clients, no Kinetica instance required
+ */
+public class KineticaClientRegistryTest {
+
+    private static final String KINETICA_URL = "http://localhost:9191";
+
+    /**
+     * Factory of clients not connected to Kinetica, counting created clients and worker list lookups
+     */
+    private static class CountingFactory implements KineticaClientRegistry.Factory {
+        final List<List<URL>> created = new ArrayList<>();
+        int workerLists = 0;
+
+        @Override
+        public GPUdb createClient(List<URL> urls, GPUdb.Options options) throws GPUdbException {
+            this.created.add(urls);
+            return new GPUdb(urls, options.setDisableAutoDiscovery(true));
+        }
+
+        @Override
+        public WorkerList createWorkerList(GPUdb gpudb) throws GPUdbException {
+            this.workerLists++;
+            return new WorkerList();
+        }
+    }
+
+    private CountingFactory factory;
+
+    @Before
+    public void setup() {
+        this.factory = new CountingFactory();
+        KineticaClientRegistry.setFactory(this.factory);
+    }
+
+    @After
+    public void cleanup() {
+        KineticaClientRegistry.setFactory(null);
+    }
+
+    @Test
+    public void refCountTest() throws GPUdbException {
+        GPUdb first = KineticaClientRegistry.acquire(KINETICA_URL, "user", "pwd", 1000, 0, 0, false);
+        GPUdb second = KineticaClientRegistry.acquire(KINETICA_URL, "user", "pwd", 1000, 0, 0, false);
+        assertSame(first, second);
+        assertEquals(2, KineticaClientRegistry.getRefCount(first));
+        assertEquals(1, this.factory.created.size());
+
+        KineticaClientRegistry.release(first);
+        assertEquals(1, KineticaClientRegistry.getRefCount(first));
+        KineticaClientRegistry.release(second);
+        assertEquals(0, KineticaClientRegistry.getRefCount(first));
+        // releasing a client no longer registered is ignored
+        KineticaClientRegistry.release(first);
+        assertEquals(0, KineticaClientRegistry.getRefCount(first));
+
+        // the last release removed the client, the next task gets a new one
+        GPUdb third = KineticaClientRegistry.acquire(KINETICA_URL, "user", "pwd", 1000, 0, 0, false);
+        assertNotSame(first, third);
+        assertEquals(2, this.factory.created.size());
+        KineticaClientRegistry.release(third);
+    }
+
+    @Test
+    public void keyTest() throws Exception {
+        GPUdb client = KineticaClientRegistry.acquire(KINETICA_URL, "user", "pwd", 1000, 0, 0, false);
+        // any difference in URL, credentials or connection settings gets a client of its own
+        GPUdb[] others = new GPUdb[] {
+            KineticaClientRegistry.acquire(KINETICA_URL + ",http://127.0.0.1:9191", "user", "pwd", 1000, 0, 0, false),
+            KineticaClientRegistry.acquire(KINETICA_URL, "other", "pwd", 1000, 0, 0, false),
+            KineticaClientRegistry.acquire(KINETICA_URL, "user", "other", 1000, 0, 0, false),
+            KineticaClientRegistry.acquire(KINETICA_URL, "user", "pwd", 2000, 0, 0, false),
+            KineticaClientRegistry.acquire(KINETICA_URL, "user", "pwd", 1000, 10, 0, false),
+            KineticaClientRegistry.acquire(KINETICA_URL, "user", "pwd", 1000, 0, 10, false),
+            KineticaClientRegistry.acquire(KINETICA_URL, "user", "pwd", 1000, 0, 0, true)
+        };
+        assertEquals(1 + others.length, this.factory.created.size());
+        for (GPUdb other : others) {
+            assertNotSame(client, other);
+            assertEquals(1, KineticaClientRegistry.getRefCount(other));
+            KineticaClientRegistry.release(other);
+        }
+        // head node URLs are passed in configured order
+        assertEquals(Arrays.asList(new URL(KINETICA_URL), new URL("http://127.0.0.1:9191")), this.factory.created.get(1));
+        KineticaClientRegistry.release(client);
+    }
+
+    @Test
+    public void workerListTest() throws GPUdbException {
+        GPUdb client = KineticaClientRegistry.acquire(KINETICA_URL, "user", "pwd", 1000, 0, 0, false);
+        WorkerList workers = KineticaClientRegistry.getWorkerList(client);
+        assertSame(workers, KineticaClientRegistry.getWorkerList(client));
+        assertEquals(1, this.factory.workerLists);
+
+        // after a refresh the next BulkInserter looks the worker list up again
+        KineticaClientRegistry.refreshWorkerList(client);
+        WorkerList refreshed = KineticaClientRegistry.getWorkerList(client);
+        assertNotSame(workers, refreshed);
+        assertSame(refreshed, KineticaClientRegistry.getWorkerList(client));
+        assertEquals(2, this.factory.workerLists);
+        KineticaClientRegistry.release(client);
+
+        // worker lists of clients not obtained from the registry are not cached
+        GPUdb unregistered = this.factory.createClient(KineticaClientRegistry.parseUrls(KINETICA_URL), new GPUdb.Options());
+        KineticaClientRegistry.getWorkerList(unregistered);
+        KineticaClientRegistry.getWorkerList(unregistered);
+        assertEquals(4, this.factory.workerLists);
+    }
+}
@@ -0,0 +1,77 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.SocketTimeoutException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.gpudb.GPUdbException;
+
+/*
+ * Testing transient error classification and retry backoff, no Kinetica instance required
+ */
+public class KineticaErrorClassifierTest {
+
+    @Test
+    public void classifyTest() {
+        GPUdbException timeout = new GPUdbException("Connection to Kinetica failed");
+        timeout.initCause(new SocketTimeoutException("Read timed out"));
+        assertTrue(KineticaErrorClassifier.isRetriable(timeout));
+        assertTrue(KineticaErrorClassifier.isRetriable(new java.net.ConnectException("Connection refused")));
+        assertTrue(KineticaErrorClassifier.isRetriable(new GPUdbException("Service Unavailable (HTTP 503)")));
+        assertTrue(KineticaErrorClassifier.isRetriable(new GPUdbException("Request failed with status 502")));
+
+        assertFalse(KineticaErrorClassifier.isRetriable(new GPUdbException("Table ticks does not exist")));
+        assertFalse(KineticaErrorClassifier.isRetriable(
+                new GPUdbException("Insertion of record failed: value 5032 out of range")));
+        assertFalse(KineticaErrorClassifier.isRetriable(new GPUdbException(null)));
+    }
+
+    @Test
+    public void classifyTopLevelOnlyTest() {
+        // HTTP status of the outermost Kinetica error, wrapped by the connector
+        assertTrue(KineticaErrorClassifier.isRetriable(new org.apache.kafka.connect.errors.ConnectException(
+                "Insert failed", new GPUdbException("Bad Gateway (HTTP 502)"))));
+        assertTrue(KineticaErrorClassifier.isRetriable(new GPUdbException("Read timed out")));
+
+        // column names containing transport words
+        assertFalse(KineticaErrorClassifier.isRetriable(
+                new GPUdbException("Insertion of record failed: column timeout_ms is not nullable")));
+        assertFalse(KineticaErrorClassifier.isRetriable(
+                new GPUdbException("Unknown column failover_count in table ticks")));
+        assertFalse(KineticaErrorClassifier.isRetriable(new GPUdbException("Invalid value for column timeout")));
+
+        // nested server or data errors do not make the request retriable
+        assertFalse(KineticaErrorClassifier.isRetriable(new GPUdbException("Insertion of record failed",
+                new IllegalStateException("Internal Server Error while parsing connection refused flag"))));
+        assertFalse(KineticaErrorClassifier.isRetriable(new GPUdbException("Permission denied",
+                new GPUdbException("Service Unavailable (HTTP 503)"))));
+    }
+
+    @Test
+    public void backoffTest() {
+        RetryBackoff backoff = new RetryBackoff(100, 1000, 5, new Random(7));
+        long[] upperBounds = {100, 200, 400, 800, 1000};
+        for (long upper : upperBounds) {
+            long delay = backoff.nextBackoff();
+            assertTrue(delay >= upper / 2 && delay <= upper);
+            assertFalse(backoff.isExhausted());
+        }
+        backoff.nextBackoff();
+        assertTrue(backoff.isExhausted());
+
+        backoff.reset();
+        assertEquals(0, backoff.getAttempts());
+        assertTrue(backoff.nextBackoff() <= 100);
+
+        RetryBackoff unlimited = new RetryBackoff(100, 1000, 0, new Random(7));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(unlimited.nextBackoff() <= 1000);
+        }
+        assertFalse(unlimited.isExhausted());
+    }
+}
@@ -0,0 +1,94 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * Testing head node failover against two local HTTP stand-ins, one of which is stopped
+ */
+public class KineticaHealthProbeTest {
+
+    private HttpServer primary;
+    private HttpServer secondary;
+
+    private static HttpServer start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static URL url(HttpServer server) throws IOException {
+        return new URL("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @Before
+    public void setup() throws IOException {
+        this.primary = start();
+        this.secondary = start();
+    }
+
+    @After
+    public void cleanup() {
+        this.primary.stop(0);
+        this.secondary.stop(0);
+    }
+
+    @Test
+    public void failoverTest() throws IOException {
+        final List<URL> failovers = new ArrayList<>();
+        List<URL> urls = Arrays.asList(url(this.primary), url(this.secondary));
+        KineticaHealthProbe probe = new KineticaHealthProbe("test-probe", urls, 1000, 1000,
+                new KineticaHealthProbe.Listener() {
+                    @Override
+                    public void failover(URL from, URL to) {
+                        failovers.add(to);
+                    }
+                });
+        assertFalse(probe.probeAll());
+        assertEquals(urls.get(0), probe.getActiveUrl());
+
+        this.primary.stop(0);
+        assertTrue(probe.probeAll());
+        assertEquals(urls.get(1), probe.getActiveUrl());
+        assertEquals(Arrays.asList(urls.get(1)), failovers);
+
+        // the active head node is kept while healthy
+        assertFalse(probe.probeAll());
+        assertEquals(1, probe.getFailovers());
+
+        // no failover without a healthy head node
+        this.secondary.stop(0);
+        assertFalse(probe.probeAll());
+        assertEquals(urls.get(1), probe.getActiveUrl());
+    }
+
+    @Test
+    public void parseUrlsTest() throws Exception {
+        List<URL> urls = KineticaClientRegistry.parseUrls("http://head1:9191, http://head2:9191,");
+        assertEquals(2, urls.size());
+        assertEquals("head2", urls.get(1).getHost());
+    }
+}
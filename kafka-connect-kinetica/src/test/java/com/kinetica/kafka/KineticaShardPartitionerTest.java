@@ -0,0 +1,174 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.gpudb.ColumnProperty;
+import com.gpudb.GenericRecord;
+import com.gpudb.Type;
+import com.gpudb.Type.Column;
+
+/*
+ * Testing shard key hashing against the routing of the Kinetica Java API and rank to partition mapping, 
+ * no Kinetica instance required
+ */
+public class KineticaShardPartitionerTest {
+
+    @Test
+    public void murmurHashTest() {
+        byte[] hello = "hello".getBytes(StandardCharsets.UTF_8);
+        assertEquals(0xcbd8a7b341bd9b02L, KineticaShardPartitioner.murmurHash3(hello, 0, hello.length, 0));
+        assertEquals(0L, KineticaShardPartitioner.murmurHash3(new byte[0], 0, 0, 0));
+    }
+
+    @Test
+    public void partitionForTest() {
+        // 8 shards over 2 ranks
+        List<Integer> routing = Arrays.asList(1, 2, 1, 2, 1, 2, 1, 2);
+        for (long hash = -50; hash < 50; hash++) {
+            int rank = routing.get((int) Math.abs(hash % routing.size())) - 1;
+            int partition = KineticaShardPartitioner.partitionFor(hash, routing, 2, 6);
+            assertEquals(rank, partition % 2);
+            assertEquals(0, KineticaShardPartitioner.partitionFor(hash, routing, 2, 1));
+        }
+        assertEquals(3, KineticaShardPartitioner.partitionFor(-13, Collections.<Integer>emptyList(), 0, 5));
+    }
+
+    private static Type tickType() {
+        return new Type("tick", Arrays.asList(
+                new Column("id", Integer.class, ColumnProperty.SHARD_KEY),
+                new Column("tiny", Integer.class, ColumnProperty.SHARD_KEY, ColumnProperty.INT8, ColumnProperty.NULLABLE),
+                new Column("small", Integer.class, ColumnProperty.SHARD_KEY, ColumnProperty.INT16),
+                new Column("seq", Long.class, ColumnProperty.SHARD_KEY),
+                new Column("ts", Long.class, ColumnProperty.SHARD_KEY, ColumnProperty.TIMESTAMP),
+                new Column("price", Double.class, ColumnProperty.SHARD_KEY, ColumnProperty.NULLABLE),
+                new Column("ratio", Float.class, ColumnProperty.SHARD_KEY),
+                new Column("name", String.class, ColumnProperty.SHARD_KEY, ColumnProperty.NULLABLE),
+                new Column("code", String.class, ColumnProperty.SHARD_KEY, ColumnProperty.CHAR8),
+                new Column("day", String.class, ColumnProperty.SHARD_KEY, ColumnProperty.DATE),
+                new Column("at", String.class, ColumnProperty.SHARD_KEY, ColumnProperty.DATETIME),
+                new Column("clock", String.class, ColumnProperty.SHARD_KEY, ColumnProperty.TIME),
+                new Column("amount", String.class, ColumnProperty.SHARD_KEY, ColumnProperty.DECIMAL),
+                new Column("ip", String.class, ColumnProperty.SHARD_KEY, ColumnProperty.IPV4),
+                new Column("note", String.class, ColumnProperty.NULLABLE)));
+    }
+
+    /**
+     * Routes a record the way BulkInserter does, with the shard key builder of the Kinetica Java API
+     */
+    private static int kineticaRank(Type type, GenericRecord record, List<Integer> routing) throws Exception {
+        Class<?> builderClass = Class.forName("com.gpudb.RecordKeyBuilder");
+        Constructor<?> constructor = builderClass.getDeclaredConstructor(boolean.class, Type.class);
+        constructor.setAccessible(true);
+        Object builder = constructor.newInstance(false, type);
+        Method build = builderClass.getDeclaredMethod("build", Object.class);
+        build.setAccessible(true);
+        Object key = build.invoke(builder, record);
+        Method route = key.getClass().getDeclaredMethod("route", List.class);
+        route.setAccessible(true);
+        return (Integer) route.invoke(key, routing);
+    }
+
+    @Test
+    public void routingMatchesKineticaTest() throws Exception {
+        Type type = tickType();
+        // 16 shards over 4 ranks
+        List<Integer> routing = Arrays.asList(1, 2, 3, 4, 2, 1, 4, 3, 3, 4, 1, 2, 4, 3, 2, 1);
+        KineticaShardPartitioner partitioner = new KineticaShardPartitioner();
+        partitioner.setShardKey(type);
+        partitioner.setRoutingTable(routing);
+
+        Random random = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            GenericRecord record = new GenericRecord(type);
+            record.put("id", random.nextInt());
+            // nulls are zero-filled like Kinetica does
+            record.put("tiny", i % 5 == 0 ? null : random.nextInt(256) - 128);
+            record.put("small", random.nextInt(65536) - 32768);
+            record.put("seq", random.nextLong());
+            record.put("ts", 1600000000000L + random.nextInt(1000000000));
+            record.put("price", i % 7 == 0 ? null : random.nextDouble() * 1000);
+            record.put("ratio", random.nextFloat());
+            record.put("name", i % 3 == 0 ? null : "name-" + random.nextInt(1000));
+            record.put("code", "c" + random.nextInt(100000000));
+            record.put("day", String.format("20%02d-%02d-%02d", random.nextInt(40), 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            record.put("at", String.format("2021-03-%02d %02d:%02d:%02d.%03d", 1 + random.nextInt(28), random.nextInt(24), 
+                    random.nextInt(60), random.nextInt(60), random.nextInt(1000)));
+            record.put("clock", String.format("%02d:%02d:%02d", random.nextInt(24), random.nextInt(60), random.nextInt(60)));
+            record.put("amount", (random.nextInt(2000000) - 1000000) + "." + random.nextInt(10000));
+            record.put("ip", "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256));
+            record.put("note", "not part of the key " + i);
+
+            Map<String, Object> value = new HashMap<>();
+            for (Column column : type.getColumns()) {
+                value.put(column.getName(), record.get(column.getName()));
+            }
+            Long hash = partitioner.hash(null, value);
+            assertEquals(kineticaRank(type, record, routing), 
+                    KineticaShardPartitioner.partitionFor(hash, routing, 4, 4));
+        }
+        assertEquals(0, partitioner.getFallbacks());
+    }
+
+    @Test
+    public void recordFormatsTest() {
+        Type type = new Type("event", Arrays.asList(
+                new Column("id", Long.class, ColumnProperty.PRIMARY_KEY),
+                new Column("region", String.class, ColumnProperty.PRIMARY_KEY, ColumnProperty.CHAR16),
+                new Column("payload", String.class)));
+        KineticaShardPartitioner partitioner = new KineticaShardPartitioner();
+        // primary key is the shard key without shard_key columns
+        partitioner.setShardKey(type);
+
+        Map<String, Object> value = new HashMap<>();
+        value.put("id", 42L);
+        value.put("region", "emea");
+        value.put("payload", "a");
+        Map<String, Object> same = new HashMap<>(value);
+        same.put("payload", "b");
+        Long hash = partitioner.hash(null, value);
+        assertEquals(hash, partitioner.hash(null, same));
+
+        org.apache.avro.Schema schema = new org.apache.avro.Schema.Parser().parse("{\"type\":\"record\",\"name\":\"event\","
+                + "\"fields\":[{\"name\":\"id\",\"type\":\"long\"},{\"name\":\"region\",\"type\":\"string\"}]}");
+        org.apache.avro.generic.GenericRecord avro = new org.apache.avro.generic.GenericData.Record(schema);
+        avro.put("id", 42L);
+        avro.put("region", "emea");
+        assertEquals(hash, partitioner.hash(null, avro));
+        // shard key fields read from the record key when the value is not a record
+        assertEquals(hash, partitioner.hash(value, "raw value"));
+        assertEquals(0, partitioner.getFallbacks());
+
+        // POJOs and mistyped fields fall back to the key hash, counted and logged
+        assertNull(partitioner.hash("key", new Object()));
+        value.put("id", "forty-two");
+        assertNull(partitioner.hash(null, value));
+        assertEquals(2, partitioner.getFallbacks());
+    }
+
+    @Test
+    public void singleColumnKeyTest() {
+        KineticaShardPartitioner partitioner = new KineticaShardPartitioner();
+        partitioner.setShardKey(new Type("user", Arrays.asList(
+                new Column("user_id", Integer.class, ColumnProperty.SHARD_KEY, ColumnProperty.INT16),
+                new Column("name", String.class))));
+        Map<String, Object> value = new HashMap<>();
+        value.put("user_id", 7);
+        // the record key is the shard key value
+        assertEquals(partitioner.hash(null, value), partitioner.hash(7, null));
+        assertNull(partitioner.hash(null, null));
+        partitioner.close();
+    }
+}
@@ -1,24 +1,39 @@
 package com.kinetica.kafka;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import javax.management.ObjectName;
+
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.utils.AppInfoParser;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.gpudb.GPUdb;
+import com.gpudb.Type;
+import com.sun.net.httpserver.HttpServer;
+
 public class KineticaSinkTaskTest {
     
     private final static Logger LOG = LoggerFactory.getLogger(KineticaSinkTaskTest.class);
@@ -74,6 +89,172 @@ public class KineticaSinkTaskTest {
         
     }
     
+    @Test
+    public void pendingBytesBackpressureTest() throws Exception {
+        Map<String, String> config = new HashMap<>(this.config);
+        // records stay buffered, a single record exceeds the pending bytes threshold
+        config.put(KineticaSinkConnectorConfig.PARAM_BATCH_SIZE, "10000");
+        config.put(KineticaSinkConnectorConfig.PARAM_BACKPRESSURE_PENDING_BYTES, "1");
+        TestContext context = new TestContext();
+        context.assigned.add(new TopicPartition(TOPIC, PARTITION));
+
+        KineticaSinkTask task = new KineticaSinkTask();
+        task.initialize(context);
+        task.start(config);
+        try {
+            task.put(generateJSON(3));
+            // partitions are paused by put(), before the next offset commit flushes the batch
+            assertEquals(context.assigned, context.paused);
+            assertTrue(context.commitRequests > 0);
+            task.flush(null);
+        } finally {
+            task.stop();
+        }
+    }
+
+    @Test
+    public void sharedInserterBatchSizeTest() throws Exception {
+        Map<String, String> config = new HashMap<>(this.config);
+        config.put(KineticaSinkConnectorConfig.PARAM_BATCH_SIZE, "1000");
+        config.put(KineticaSinkConnectorConfig.PARAM_FLUSH_SHARED_INSERTERS, "true");
+        config.put(KineticaSinkConnectorConfig.TASK_COUNT, "4");
+
+        KineticaSinkTask task = new KineticaSinkTask();
+        task.start(config);
+        SinkSchemaManager mgr = new SinkSchemaManager(config);
+        try {
+            task.put(generateJSON(3));
+            task.flush(null);
+
+            String tableName = config.get(KineticaSinkConnectorConfig.PARAM_SCHEMA) + "." 
+                    + config.get(KineticaSinkConnectorConfig.PARAM_TABLE_PREFIX) + TABLE;
+            Type type = mgr.getExistingType(tableName);
+            // each task buffers its share of a batch, the shared pipeline sends the combined batch in one request
+            // per rank
+            int ranks = mgr.getRankCount();
+            assertEquals(250 * ranks, mgr.getBatchSize());
+            assertEquals(250 * ranks, mgr.getBulkInserter(tableName, type).getBatchSize());
+            assertEquals(1000 * ranks, mgr.getSharedBulkInserter(tableName, type).getBatchSize());
+        } finally {
+            mgr.close();
+            task.stop();
+        }
+    }
+
+    @Test
+    public void failoverKeepsPendingBatchesTest() throws Exception {
+        String kineticaUrl = this.config.get(KineticaSinkConnectorConfig.PARAM_URL);
+        HttpServer primary = TestUtils.startHeadNodeProxy(kineticaUrl);
+        Map<String, String> config = new HashMap<>(this.config);
+        config.put(KineticaSinkConnectorConfig.PARAM_URL, TestUtils.urlOf(primary) + "," + kineticaUrl);
+        config.put(KineticaSinkConnectorConfig.PARAM_HA_PROBE_INTERVAL, "100");
+        // records stay buffered until the offset commit
+        config.put(KineticaSinkConnectorConfig.PARAM_BATCH_SIZE, "10000");
+        config.put(KineticaSinkConnectorConfig.PARAM_FLUSH_MAX_PENDING_AGE, "0");
+        String tableName = config.get(KineticaSinkConnectorConfig.PARAM_SCHEMA) + "." 
+                + config.get(KineticaSinkConnectorConfig.PARAM_TABLE_PREFIX) + TABLE;
+
+        KineticaSinkTask task = new KineticaSinkTask();
+        task.start(config);
+        try {
+            task.put(generateJSON(3));
+            assertEquals(3L, tableMetric(tableName, "PendingRecords"));
+
+            // primary head node goes down while the batch is pending
+            primary.stop(0);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (taskMetric("Failovers") == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+                // the failover is handled on the task thread, as put() keeps being called
+                task.put(Collections.<SinkRecord>emptyList());
+            }
+            assertEquals(1L, taskMetric("Failovers"));
+            // BulkInserters were rebuilt, the pending batch is kept
+            assertEquals(3L, tableMetric(tableName, "PendingRecords"));
+
+            // and inserted through the new head node
+            task.flush(null);
+            assertEquals(0L, tableMetric(tableName, "PendingRecords"));
+            assertEquals(3L, tableMetric(tableName, "FlushedRecords"));
+            assertEquals(0L, tableMetric(tableName, "FailedBatches"));
+        } finally {
+            task.stop();
+            primary.stop(0);
+        }
+    }
+
+    @Test
+    public void evictTablesTest() throws Exception {
+        Map<String, String> config = new HashMap<>(this.config);
+        // records stay buffered, records of a second table evict the first one
+        config.put(KineticaSinkConnectorConfig.PARAM_BATCH_SIZE, "10000");
+        config.put(KineticaSinkConnectorConfig.PARAM_CACHE_MAX_TABLES, "1");
+        String prefix = config.get(KineticaSinkConnectorConfig.PARAM_SCHEMA) + "." 
+                + config.get(KineticaSinkConnectorConfig.PARAM_TABLE_PREFIX);
+        String evicted = prefix + TABLE;
+        String other = prefix + TABLE + "_other";
+
+        GPUdb gpudb = TestUtils.getGPUdb();
+        KineticaSinkTask task = new KineticaSinkTask();
+        task.start(config);
+        try {
+            task.put(generateJSON(3, TABLE, PARTITION));
+            assertEquals(3L, tableMetric(evicted, "PendingRecords"));
+            long inserted = gpudb.getRecords(evicted, 0, 10, null).getTotalNumberOfRecords();
+
+            task.put(generateJSON(2, TABLE + "_other", PARTITION + 1));
+            // pending records of the least recently used table were inserted before it was evicted
+            assertEquals(inserted + 3, gpudb.getRecords(evicted, 0, 10, null).getTotalNumberOfRecords());
+            assertEquals(1L, taskMetric("TableEvictions"));
+            assertEquals(1L, taskMetric("CachedTables"));
+            // its batch and metrics are dropped, only records of the other table are pending
+            assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(tableMetricName(evicted)));
+            assertEquals(2L, tableMetric(other, "PendingRecords"));
+            assertEquals(tableMetric(other, "PendingBytes"), taskMetric("PendingBytes"));
+            task.flush(null);
+        } finally {
+            task.stop();
+            TestUtils.tableCleanUp(gpudb, other);
+        }
+    }
+
+    /**
+     * Helper function
+     * Reads a sink task metric of a task started on the current thread
+     * @param name   metric name
+     * @return metric value
+     * @throws Exception
+     */
+    private static long taskMetric(String name) throws Exception {
+        return (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(
+                "com.kinetica.kafka:type=sink-task-metrics,task=" + ObjectName.quote(Thread.currentThread().getName())),
+                name);
+    }
+
+    /**
+     * Helper function
+     * Reads a sink table metric of a task started on the current thread
+     * @param tableName   Kinetica table name
+     * @param name        metric name
+     * @return metric value
+     * @throws Exception
+     */
+    private static long tableMetric(String tableName, String name) throws Exception {
+        return (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(tableMetricName(tableName), name);
+    }
+
+    /**
+     * Helper function
+     * Builds the MBean name of sink table metrics of a task started on the current thread
+     * @param tableName   Kinetica table name
+     * @return MBean name
+     * @throws Exception
+     */
+    private static ObjectName tableMetricName(String tableName) throws Exception {
+        return new ObjectName("com.kinetica.kafka:type=sink-table-metrics,task=" 
+                + ObjectName.quote(Thread.currentThread().getName()) + ",table=" + ObjectName.quote(tableName));
+    }
+
     /**
      * Helper function
      * Generates a given number of SinkRecords of key-value HashMap
@@ -81,15 +262,69 @@ public class KineticaSinkTaskTest {
      * @return Collection of SinkRecords
      */
     private Collection<SinkRecord> generateJSON(int number) {
+        return generateJSON(number, TABLE, PARTITION);
+    }
+
+    /**
+     * Helper function
+     * Generates a given number of SinkRecords of key-value HashMap for a table
+     * @param number     number of records to generate
+     * @param table      source table name, used as record key
+     * @param partition  Kafka partition of the records
+     * @return Collection of SinkRecords
+     */
+    private Collection<SinkRecord> generateJSON(int number, String table, int partition) {
         List<SinkRecord> sinkRecords = new ArrayList<SinkRecord>();
         HashMap<String, Object> data = null;
         
         for (int i = 0; i < number; i++) {
             data = TweetRecord.generateHashMap();
-            sinkRecords.add( new SinkRecord(TOPIC, PARTITION, null, TABLE, null, data, i)    );
+            sinkRecords.add( new SinkRecord(TOPIC, partition, null, table, null, data, i)    );
         }
             
         return sinkRecords;
     }
 
+    private static class TestContext implements SinkTaskContext {
+        final Set<TopicPartition> assigned = new HashSet<>();
+        final Set<TopicPartition> paused = new HashSet<>();
+        int commitRequests = 0;
+
+        @Override
+        public Map<String, String> configs() {
+            return null;
+        }
+
+        @Override
+        public void offset(Map<TopicPartition, Long> offsets) {
+        }
+
+        @Override
+        public void offset(TopicPartition tp, long offset) {
+        }
+
+        @Override
+        public void timeout(long timeoutMs) {
+        }
+
+        @Override
+        public Set<TopicPartition> assignment() {
+            return this.assigned;
+        }
+
+        @Override
+        public void pause(TopicPartition... partitions) {
+            this.paused.addAll(Arrays.asList(partitions));
+        }
+
+        @Override
+        public void resume(TopicPartition... partitions) {
+            this.paused.removeAll(Arrays.asList(partitions));
+        }
+
+        @Override
+        public void requestCommit() {
+            this.commitRequests++;
+        }
+    }
 }
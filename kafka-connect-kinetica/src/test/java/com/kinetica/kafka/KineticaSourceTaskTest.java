@@ -1,7 +1,9 @@
 package com.kinetica.kafka;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.FileReader;
 import java.io.Reader;
@@ -24,6 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import com.gpudb.GPUdb;
 import com.gpudb.RecordObject;
+import com.sun.net.httpserver.HttpServer;
 
 public class KineticaSourceTaskTest {
     private final static Logger LOG = LoggerFactory.getLogger(KineticaSourceTaskTest.class);
@@ -109,6 +112,46 @@ public class KineticaSourceTaskTest {
     }
   
 
+    @Test
+    public void failoverMovesMonitorsTest() throws Exception {
+        String kineticaUrl = this.config.get(KineticaSourceConnectorConfig.PARAM_URL);
+        HttpServer primary = TestUtils.startHeadNodeProxy(kineticaUrl);
+        Map<String, String> config = new HashMap<>(this.config);
+        config.put(KineticaSourceConnectorConfig.PARAM_URL, TestUtils.urlOf(primary) + "," + kineticaUrl);
+        config.put(KineticaSourceConnectorConfig.PARAM_HA_PROBE_INTERVAL, "100");
+        // both endpoints reach the table monitors of the same instance, spelled apart to tell them from each other
+        String secondaryMonitor = "tcp://127.0.0.1:9002";
+        config.put(KineticaSourceConnectorConfig.PARAM_MONITOR_URLS, "tcp://localhost:9002," + secondaryMonitor);
+
+        KineticaSourceTask task = new KineticaSourceTask();
+        task.start(config);
+        try {
+            List<Thread> monitors = task.getMonitorThreads();
+            assertEquals(1, monitors.size());
+            // table monitors are created through a client pinned to the head node of their endpoint
+            assertEquals(KineticaClientRegistry.parseUrls(TestUtils.urlOf(primary)), 
+                    task.getMonitorGpudb().getURLs());
+
+            // primary head node goes down while its table monitors run
+            primary.stop(0);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (task.getMonitorThreads().equals(monitors) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            // table monitors were stopped and recreated on the endpoint of the new head node
+            assertEquals(secondaryMonitor, task.getZmqUrl());
+            assertEquals(KineticaClientRegistry.parseUrls(kineticaUrl), task.getMonitorGpudb().getURLs());
+            List<Thread> moved = task.getMonitorThreads();
+            assertEquals(1, moved.size());
+            assertFalse(monitors.contains(moved.get(0)));
+            assertFalse(monitors.get(0).isAlive());
+            assertTrue(moved.get(0).isAlive());
+        } finally {
+            task.stop();
+            primary.stop(0);
+        }
+    }
+
     /**
      * Helper function
      * Generates a given number of SourceRecords of key-value HashMap
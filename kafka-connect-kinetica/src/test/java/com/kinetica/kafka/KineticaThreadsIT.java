@@ -0,0 +1,68 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.concurrent.ThreadFactory;
+
+import org.junit.Test;
+
+/*
+ * Testing the Java 21 classes of the multi-release connector jar. Run by the failsafe plugin of the java21 
+ * profile after packaging, with the connector jar instead of target/classes on the class path.
+ */
+public class KineticaThreadsIT {
+
+    /**
+     * @return major version of the running JVM
+     */
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        // Thread.isVirtual is called by reflection, test classes are compiled for Java 8
+        Method isVirtual = Thread.class.getMethod("isVirtual");
+        return (Boolean) isVirtual.invoke(thread);
+    }
+
+    @Test
+    public void virtualThreadsTest() throws Exception {
+        assumeTrue(javaVersion() >= 21);
+        URL location = KineticaThreads.class.getProtectionDomain().getCodeSource().getLocation();
+        assertTrue("Connector classes are not loaded from the packaged jar: " + location, 
+                location.getPath().endsWith(".jar"));
+
+        // the class is read from META-INF/versions/21 of the jar
+        URL resource = KineticaThreads.class.getResource("KineticaThreads.class");
+        assertTrue(resource.toString(), resource.toString().contains("META-INF/versions/21/"));
+        assertEquals(!"false".equals(System.getProperty(KineticaThreads.PROP_VIRTUAL)), KineticaThreads.isVirtual());
+        assumeTrue(KineticaThreads.isVirtual());
+
+        final boolean[] ran = new boolean[1];
+        Thread thread = KineticaThreads.newThread("test-monitor", new Runnable() {
+            @Override
+            public void run() {
+                ran[0] = true;
+            }
+        });
+        assertTrue(isVirtual(thread));
+        assertEquals("test-monitor", thread.getName());
+        thread.start();
+        thread.join(1000);
+        assertTrue(ran[0]);
+
+        ThreadFactory factory = KineticaThreads.newThreadFactory("test-flush-");
+        Thread flushThread = factory.newThread(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        assertTrue(isVirtual(flushThread));
+        assertEquals("test-flush-1", flushThread.getName());
+    }
+}
@@ -0,0 +1,40 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/*
+ * Testing creation of background threads, no Kinetica instance required
+ */
+public class KineticaThreadsTest {
+
+    @Test
+    public void threadFactoryTest() throws InterruptedException {
+        final AtomicBoolean ran = new AtomicBoolean();
+        ThreadFactory factory = KineticaThreads.newThreadFactory("test-flush-");
+        Thread first = factory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                ran.set(true);
+            }
+        });
+        Thread second = factory.newThread(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        assertEquals("test-flush-1", first.getName());
+        assertEquals("test-flush-2", second.getName());
+        // background threads never keep the worker JVM alive
+        assertTrue(first.isDaemon());
+
+        first.start();
+        first.join(1000);
+        assertTrue(ran.get());
+    }
+}
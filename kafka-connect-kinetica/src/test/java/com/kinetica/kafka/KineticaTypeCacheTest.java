@@ -0,0 +1,134 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.gpudb.GPUdbException;
+import com.gpudb.Type;
+
+/*
+ * Testing the worker-wide Kinetica type cache with stubbed type fetches, no Kinetica instance required
+ */
+public class KineticaTypeCacheTest {
+
+    /**
+     * Fetcher counting its calls, returning the current type or failing
+     */
+    private static class CountingFetcher implements KineticaTypeCache.Fetcher {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile Type type;
+        private volatile GPUdbException error;
+
+        CountingFetcher(Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public Type fetch() throws GPUdbException {
+            this.calls.incrementAndGet();
+            if (this.error != null) {
+                throw this.error;
+            }
+            return this.type;
+        }
+    }
+
+    private static Type newType() {
+        return new Type(new ArrayList<Type.Column>());
+    }
+
+    @Test
+    public void cachedWithinTtlTest() throws Exception {
+        Type type = newType();
+        CountingFetcher fetcher = new CountingFetcher(type);
+        for (int i = 0; i < 100; i++) {
+            assertSame(type, KineticaTypeCache.get("http://ttl:9191", "tweets", 60000, fetcher));
+        }
+        assertEquals(1, fetcher.calls.get());
+
+        // expired types are fetched again
+        Thread.sleep(KineticaTypeCache.MIN_REFRESH_BACKOFF_MS + 10);
+        KineticaTypeCache.get("http://ttl:9191", "tweets", 1, fetcher);
+        assertEquals(2, fetcher.calls.get());
+    }
+
+    @Test
+    public void refreshedByOtherCallerTest() throws Exception {
+        Type stale = newType();
+        CountingFetcher fetcher = new CountingFetcher(stale);
+        KineticaTypeCache.get("http://refresh:9191", "tweets", 60000, fetcher);
+
+        Type altered = newType();
+        fetcher.type = altered;
+        // within the refresh backoff the cached type is served
+        assertSame(stale, KineticaTypeCache.refresh("http://refresh:9191", "tweets", stale, fetcher));
+        Thread.sleep(KineticaTypeCache.MIN_REFRESH_BACKOFF_MS + 10);
+        assertSame(altered, KineticaTypeCache.refresh("http://refresh:9191", "tweets", stale, fetcher));
+        assertEquals(2, fetcher.calls.get());
+
+        // a second task still holding the stale type gets the refreshed one without a fetch
+        assertSame(altered, KineticaTypeCache.refresh("http://refresh:9191", "tweets", stale, fetcher));
+        assertEquals(2, fetcher.calls.get());
+    }
+
+    @Test
+    public void backoffOnErrorsTest() throws Exception {
+        Type type = newType();
+        CountingFetcher fetcher = new CountingFetcher(type);
+        KineticaTypeCache.get("http://backoff:9191", "tweets", 60000, fetcher);
+
+        fetcher.error = new GPUdbException("Connection refused");
+        Thread.sleep(KineticaTypeCache.MIN_REFRESH_BACKOFF_MS + 10);
+        try {
+            KineticaTypeCache.refresh("http://backoff:9191", "tweets", type, fetcher);
+            fail("Expected fetch error");
+        } catch (GPUdbException e) {
+            assertEquals("Connection refused", e.getMessage());
+        }
+        // failing batches keep the previous type until the backoff expires
+        for (int i = 0; i < 100; i++) {
+            assertSame(type, KineticaTypeCache.refresh("http://backoff:9191", "tweets", type, fetcher));
+        }
+        assertEquals(2, fetcher.calls.get());
+    }
+
+    @Test
+    public void missingTableErrorTest() throws Exception {
+        CountingFetcher fetcher = new CountingFetcher(null);
+        fetcher.error = new GPUdbException("Connection refused");
+        for (int i = 0; i < 10; i++) {
+            try {
+                KineticaTypeCache.get("http://missing:9191", "tweets", 60000, fetcher);
+                fail("Expected fetch error");
+            } catch (GPUdbException e) {
+                assertEquals("Connection refused", e.getMessage());
+            }
+        }
+        assertEquals(1, fetcher.calls.get());
+    }
+
+    @Test
+    public void updateAndInvalidateTest() throws Exception {
+        CountingFetcher fetcher = new CountingFetcher(null);
+        assertNull(KineticaTypeCache.get("http://update:9191", "tweets", 60000, fetcher));
+
+        // table created by the connector
+        Type created = newType();
+        KineticaTypeCache.update("http://update:9191", "tweets", created);
+        assertSame(created, KineticaTypeCache.get("http://update:9191", "tweets", 60000, fetcher));
+        assertEquals(1, fetcher.calls.get());
+
+        Type altered = newType();
+        fetcher.type = altered;
+        KineticaTypeCache.invalidate("http://update:9191", "tweets");
+        assertSame(altered, KineticaTypeCache.get("http://update:9191", "tweets", 60000, fetcher));
+        assertEquals(2, fetcher.calls.get());
+    }
+}
@@ -0,0 +1,48 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import com.gpudb.ColumnProperty;
+import com.gpudb.Type;
+
+/*
+ * Testing offset ledger bookkeeping and filter expressions, no Kinetica instance required
+ */
+public class OffsetLedgerTest {
+
+    @Test
+    public void recordTest() {
+        OffsetLedger ledger = new OffsetLedger(null, "kafka_offsets", "sink");
+        TopicPartition tp0 = new TopicPartition("ticker", 0);
+        TopicPartition tp1 = new TopicPartition("ticker", 1);
+        ledger.record(tp0, 10);
+        ledger.record(tp0, 5);
+        ledger.record(tp1, 3);
+        assertEquals(Long.valueOf(10), ledger.getPending().get(tp0));
+        assertEquals(Long.valueOf(3), ledger.getPending().get(tp1));
+
+        ledger.forget(Collections.singleton(tp1));
+        assertEquals(1, ledger.getPending().size());
+        ledger.forget(Collections.singleton(tp0));
+        assertTrue(ledger.getPending().isEmpty());
+    }
+
+    @Test
+    public void expressionTest() {
+        String expression = OffsetLedger.expression("o'brien", Arrays.asList(
+                new TopicPartition("trades", 1), new TopicPartition("quotes", 0), new TopicPartition("trades", 0)));
+        assertEquals("connector = 'o''brien' and topic in ('quotes', 'trades')", expression);
+
+        // connector, topic and partition identify a ledger row
+        Type type = OffsetLedger.ledgerType();
+        assertTrue(type.getColumn(OffsetLedger.COLUMN_PARTITION).getProperties().contains(ColumnProperty.PRIMARY_KEY));
+        assertTrue(type.getColumn(OffsetLedger.COLUMN_OFFSET).getProperties().isEmpty());
+    }
+}
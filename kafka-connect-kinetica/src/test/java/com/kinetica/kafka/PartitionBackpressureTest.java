@@ -0,0 +1,118 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * Testing partition pause and resume decisions, no Kinetica instance required
+ */
+public class PartitionBackpressureTest {
+
+    private static final TopicPartition TP0 = new TopicPartition("ticks", 0);
+    private static final TopicPartition TP1 = new TopicPartition("ticks", 1);
+
+    private TestContext context;
+
+    @Before
+    public void setup() {
+        this.context = new TestContext();
+        this.context.assigned.addAll(Arrays.asList(TP0, TP1));
+    }
+
+    @Test
+    public void latencyPauseTest() {
+        PartitionBackpressure backpressure = new PartitionBackpressure(500, 0, 2000);
+
+        // fast insert does not pause
+        backpressure.onFlush(this.context, Arrays.asList(TP0), 100, 0);
+        assertTrue(this.context.paused.isEmpty());
+
+        // slow insert pauses partitions of the batch for as long as the insert took
+        backpressure.onFlush(this.context, Arrays.asList(TP0), 800, 0);
+        assertEquals(new HashSet<>(Arrays.asList(TP0)), this.context.paused);
+        backpressure.maybeResume(this.context, 0, 700);
+        assertTrue(backpressure.isPaused(TP0));
+        backpressure.maybeResume(this.context, 0, 800);
+        assertTrue(this.context.paused.isEmpty());
+
+        // pause never exceeds max pause time
+        backpressure.onFlush(this.context, Arrays.asList(TP1), 60000, 1000);
+        backpressure.maybeResume(this.context, 0, 3000);
+        assertFalse(backpressure.isPaused(TP1));
+        assertEquals(2, backpressure.getPauseCount());
+    }
+
+    @Test
+    public void pendingBytesPauseTest() {
+        PartitionBackpressure backpressure = new PartitionBackpressure(0, 1000, 60000);
+
+        backpressure.onPending(this.context, 900, 0);
+        assertTrue(this.context.paused.isEmpty());
+
+        // all assigned partitions are paused and a commit is requested to flush pending batches
+        backpressure.onPending(this.context, 1200, 0);
+        assertEquals(this.context.assigned, this.context.paused);
+        assertEquals(1, this.context.commitRequests);
+        assertEquals(2, backpressure.getPausedCount());
+
+        // resumed once pending records drop below half of the threshold
+        backpressure.maybeResume(this.context, 600, 10);
+        assertEquals(2, this.context.paused.size());
+        backpressure.maybeResume(this.context, 400, 20);
+        assertTrue(this.context.paused.isEmpty());
+    }
+
+    private static class TestContext implements SinkTaskContext {
+        final Set<TopicPartition> assigned = new HashSet<>();
+        final Set<TopicPartition> paused = new HashSet<>();
+        int commitRequests = 0;
+
+        @Override
+        public Map<String, String> configs() {
+            return null;
+        }
+
+        @Override
+        public void offset(Map<TopicPartition, Long> offsets) {
+        }
+
+        @Override
+        public void offset(TopicPartition tp, long offset) {
+        }
+
+        @Override
+        public void timeout(long timeoutMs) {
+        }
+
+        @Override
+        public Set<TopicPartition> assignment() {
+            return this.assigned;
+        }
+
+        @Override
+        public void pause(TopicPartition... partitions) {
+            this.paused.addAll(Arrays.asList(partitions));
+        }
+
+        @Override
+        public void resume(TopicPartition... partitions) {
+            this.paused.removeAll(Arrays.asList(partitions));
+        }
+
+        @Override
+        public void requestCommit() {
+            this.commitRequests++;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.junit.Test;
+
+/*
+ * Testing structural fingerprints of Kafka record schemas, no Kinetica instance required
+ */
+public class SchemaFingerprintTest {
+
+    private static Schema schema(Integer version, boolean optionalName) {
+        return SchemaBuilder.struct()
+                .name("com.kinetica.Tweet")
+                .version(version)
+                .field("id", Schema.INT64_SCHEMA)
+                .field("name", optionalName ? Schema.OPTIONAL_STRING_SCHEMA : Schema.STRING_SCHEMA)
+                .build();
+    }
+
+    @Test
+    public void equalSchemasTest() {
+        // converters like JsonConverter create a new Schema object per record
+        Schema first = schema(null, false);
+        Schema second = schema(null, false);
+        assertNotSame(first, second);
+        assertEquals(SchemaFingerprint.of(first), SchemaFingerprint.of(second));
+    }
+
+    @Test
+    public void unversionedEvolutionTest() {
+        // unversioned schemas with different fields must not share cached state
+        assertNotEquals(SchemaFingerprint.of(schema(null, false)), SchemaFingerprint.of(schema(null, true)));
+        Schema added = SchemaBuilder.struct()
+                .name("com.kinetica.Tweet")
+                .field("id", Schema.INT64_SCHEMA)
+                .field("name", Schema.STRING_SCHEMA)
+                .field("text", Schema.OPTIONAL_STRING_SCHEMA)
+                .build();
+        assertNotEquals(SchemaFingerprint.of(schema(null, false)), SchemaFingerprint.of(added));
+        // field names are part of the structure
+        Schema renamed = SchemaBuilder.struct()
+                .name("com.kinetica.Tweet")
+                .field("id", Schema.INT64_SCHEMA)
+                .field("title", Schema.STRING_SCHEMA)
+                .build();
+        assertNotEquals(SchemaFingerprint.of(schema(null, false)), SchemaFingerprint.of(renamed));
+    }
+
+    @Test
+    public void versionTest() {
+        assertNotEquals(SchemaFingerprint.of(schema(1, false)), SchemaFingerprint.of(schema(2, false)));
+        assertNotEquals(SchemaFingerprint.of(schema(null, false)), SchemaFingerprint.of(schema(1, false)));
+    }
+
+    @Test
+    public void schemalessTest() {
+        assertNull(SchemaFingerprint.of(null));
+        assertNull(SchemaFingerprint.of(new HashMap<String, Object>()));
+    }
+}
@@ -0,0 +1,63 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.gpudb.BulkInserter;
+import com.gpudb.GPUdbException;
+import com.gpudb.GenericRecord;
+import com.gpudb.Type;
+import com.gpudb.Type.Column;
+
+/*
+ * Testing the worker-wide registry of shared insert pipelines, no Kinetica instance required
+ */
+public class SharedTableInserterTest {
+
+    private static class CountingFactory implements SharedTableInserter.Factory {
+        int created = 0;
+
+        @Override
+        public BulkInserter<GenericRecord> create() throws GPUdbException {
+            this.created++;
+            return null;
+        }
+    }
+
+    @Test
+    public void registryTest() throws GPUdbException {
+        Type type = new Type(Arrays.asList(new Column("id", Integer.class)));
+        Type altered = new Type(Arrays.asList(new Column("id", Integer.class), new Column("name", String.class)));
+        CountingFactory factory = new CountingFactory();
+        int before = SharedTableInserter.registrySize();
+
+        SharedTableInserter first = SharedTableInserter.acquire("sink", "t1", type, factory);
+        SharedTableInserter second = SharedTableInserter.acquire("sink", "t1", type, factory);
+        assertSame(first, second);
+        assertEquals(2, first.getRefCount());
+        assertEquals(1, factory.created);
+
+        // other connectors and other Types get pipelines of their own
+        SharedTableInserter other = SharedTableInserter.acquire("other", "t1", type, factory);
+        SharedTableInserter newer = SharedTableInserter.acquire("sink", "t1", altered, factory);
+        assertNotSame(first, other);
+        assertNotSame(first, newer);
+        assertEquals(before + 3, SharedTableInserter.registrySize());
+
+        first.release();
+        assertEquals(before + 3, SharedTableInserter.registrySize());
+        second.release();
+        other.release();
+        newer.release();
+        assertEquals(before, SharedTableInserter.registrySize());
+
+        // pipelines are created again once all tasks released them
+        SharedTableInserter.acquire("sink", "t1", type, factory).release();
+        assertEquals(4, factory.created);
+    }
+}
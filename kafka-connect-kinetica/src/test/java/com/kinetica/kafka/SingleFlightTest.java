@@ -0,0 +1,105 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.gpudb.GPUdbException;
+
+/*
+ * Testing single-flight calls shared by concurrent callers, no Kinetica instance required
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void sharedCallTest() throws Exception {
+        final SingleFlight<String, String> flights = new SingleFlight<>();
+        final AtomicInteger created = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> results = new ArrayList<>();
+        final int callers = 8;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        String result = flights.execute("tweets", new SingleFlight.Call<String>() {
+                            @Override
+                            public String call() throws Exception {
+                                // table creation in progress while the other tasks arrive
+                                release.await(10, TimeUnit.SECONDS);
+                                return "type-" + created.incrementAndGet();
+                            }
+                        });
+                        synchronized (results) {
+                            results.add(result);
+                        }
+                    } catch (Exception e) {
+                        // reported by the result count
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (flights.getShared() < callers - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        assertEquals(1, created.get());
+        assertEquals(1, flights.getCalls());
+        assertEquals(callers - 1, flights.getShared());
+        assertEquals(callers, results.size());
+        for (String result : results) {
+            assertEquals("type-1", result);
+        }
+
+        // completed calls are not cached
+        assertEquals("again", flights.execute("tweets", new SingleFlight.Call<String>() {
+            @Override
+            public String call() {
+                return "again";
+            }
+        }));
+        assertEquals(2, flights.getCalls());
+    }
+
+    @Test
+    public void errorTest() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        final GPUdbException error = new GPUdbException("table creation failed");
+        try {
+            flights.execute("tweets", new SingleFlight.Call<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw error;
+                }
+            });
+            fail("error of the call must be thrown");
+        } catch (GPUdbException e) {
+            assertSame(error, e);
+        }
+        // failed calls are retried by the next caller
+        assertEquals("ok", flights.execute("tweets", new SingleFlight.Call<String>() {
+            @Override
+            public String call() {
+                return "ok";
+            }
+        }));
+    }
+}
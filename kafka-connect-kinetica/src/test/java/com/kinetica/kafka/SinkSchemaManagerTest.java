@@ -1,12 +1,20 @@
 package com.kinetica.kafka;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.Collection;
+import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.connect.sink.SinkTask;
 import org.junit.After;
 import org.junit.Before;
@@ -14,7 +22,9 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import com.gpudb.GPUdb;
+import com.gpudb.GPUdbException;
 import com.gpudb.RecordObject;
+import com.gpudb.WorkerList;
 
 
 public class SinkSchemaManagerTest {
@@ -731,4 +741,77 @@ public class SinkSchemaManagerTest {
         
         TestUtils.tableCleanUp(this.gpudb, destinationTable);
     } 
+
+    @Test
+    public void evictTableTest() throws Exception {
+        Map<String, String> config = baseSinkConfig();
+        config.put(SinkTask.TOPICS_CONFIG, "topic1");
+        SinkSchemaManager schemaMgr = new SinkSchemaManager(config);
+        String tableName = "evicted_table";
+        Schema known = SchemaBuilder.struct().name("Known").field("id", Schema.INT32_SCHEMA).build();
+        Schema failing = SchemaBuilder.struct().name("Failing").field("id", Schema.STRING_SCHEMA).build();
+
+        schemaMgr.addToKnownSchemas(tableName, known);
+        schemaMgr.addToBlackListed(tableName, failing);
+        KineticaFieldMapper mapper = schemaMgr.getFieldMapper(tableName, schemaMgr.schemaKey(known));
+        assertTrue(schemaMgr.isTableCached(tableName));
+
+        // known schema versions and field mappers are dropped, mappers are rebuilt with the next record
+        schemaMgr.evictTable(tableName);
+        assertFalse(schemaMgr.isTableCached(tableName));
+        assertNotSame(mapper, schemaMgr.getFieldMapper(tableName, schemaMgr.schemaKey(known)));
+        // schemas known to fail are not retried
+        assertTrue(schemaMgr.isBlackListed(tableName, failing));
+        schemaMgr.close();
+    }
+
+    @Test
+    public void multiHeadBatchSizeTest() throws Exception {
+        // a cluster of 4 ranks, no Kinetica instance required
+        KineticaClientRegistry.setFactory(new KineticaClientRegistry.Factory() {
+            @Override
+            public GPUdb createClient(List<URL> urls, GPUdb.Options options) throws GPUdbException {
+                return new GPUdb(urls, options.setDisableAutoDiscovery(true));
+            }
+
+            @Override
+            public WorkerList createWorkerList(GPUdb gpudb) throws GPUdbException {
+                WorkerList workers = new WorkerList();
+                for (int rank = 1; rank <= 4; rank++) {
+                    try {
+                        workers.add(new URL("http://localhost:" + (9190 + rank * 10)));
+                    } catch (MalformedURLException e) {
+                        throw new GPUdbException(e.getMessage());
+                    }
+                }
+                return workers;
+            }
+        });
+        try {
+            Map<String, String> config = baseSinkConfig();
+            config.put(SinkTask.TOPICS_CONFIG, "topic1");
+            config.put(KineticaSinkConnectorConfig.PARAM_ENABLE_MULTI_HEAD, "true");
+            config.put(KineticaSinkConnectorConfig.PARAM_ADAPTIVE_BATCH_ENABLED, "true");
+            config.put(KineticaSinkConnectorConfig.PARAM_ADAPTIVE_BATCH_MIN_SIZE, "10");
+            config.put(KineticaSinkConnectorConfig.PARAM_ADAPTIVE_BATCH_MAX_SIZE, "1000");
+            SinkSchemaManager schemaMgr = new SinkSchemaManager(config);
+
+            // a table batch is split across ranks, it is flushed once it holds a batch for each rank
+            assertEquals(4, schemaMgr.getRankCount());
+            assertEquals(400, schemaMgr.getBatchSize());
+            AdaptiveBatchController controller = schemaMgr.createBatchController();
+            assertEquals(400, controller.getBatchSize());
+            assertEquals(4000, controller.getMaxSize());
+            schemaMgr.close();
+
+            // without multi-head inserts all records go to the head node
+            config.put(KineticaSinkConnectorConfig.PARAM_ENABLE_MULTI_HEAD, "false");
+            schemaMgr = new SinkSchemaManager(config);
+            assertEquals(1, schemaMgr.getRankCount());
+            assertEquals(100, schemaMgr.getBatchSize());
+            schemaMgr.close();
+        } finally {
+            KineticaClientRegistry.setFactory(null);
+        }
+    }
 }
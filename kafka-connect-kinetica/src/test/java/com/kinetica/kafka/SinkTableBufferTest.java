@@ -0,0 +1,303 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gpudb.ColumnProperty;
+import com.gpudb.GPUdbException;
+import com.gpudb.GenericRecord;
+import com.gpudb.Type;
+import com.gpudb.Type.Column;
+
+/*
+ * Testing record size estimates and batch limits, no Kinetica instance required
+ */
+public class SinkTableBufferTest {
+
+    private static final String TABLE = "buffer_test";
+
+    private Type type;
+
+    @Before
+    public void setup() {
+        List<Column> columns = new ArrayList<>();
+        columns.add(new Column("id", Integer.class));
+        columns.add(new Column("ts", Long.class));
+        columns.add(new Column("price", Double.class));
+        columns.add(new Column("text", String.class, ColumnProperty.NULLABLE));
+        columns.add(new Column("payload", ByteBuffer.class, ColumnProperty.NULLABLE));
+        this.type = new Type(columns);
+    }
+
+    private GenericRecord record(int id, String text, int payloadSize) {
+        GenericRecord record = new GenericRecord(this.type);
+        record.put("id", id);
+        record.put("ts", 1L);
+        record.put("price", 1.5d);
+        record.put("text", text);
+        record.put("payload", payloadSize < 0 ? null : ByteBuffer.wrap(new byte[payloadSize]));
+        return record;
+    }
+
+    @Test
+    public void estimateTest() {
+        // int 1 + long 1 + double 8 + nullable string (1 + 1 + 5) + null bytes (1)
+        assertEquals(18, RecordSizeEstimator.estimate(record(1, "hello", -1), this.type));
+        // two-byte varint for 1000 and for a 200 byte payload length
+        assertEquals(215, RecordSizeEstimator.estimate(record(1000, null, 200), this.type));
+        // multi-byte characters are counted in UTF-8 bytes
+        assertEquals(5, RecordSizeEstimator.estimateValue("\u00e9\u00e9"));
+        assertEquals(5, RecordSizeEstimator.estimateValue("\ud83d\ude00"));
+    }
+
+    @Test
+    public void recordLimitTest() {
+        SinkTableBuffer buffer = new SinkTableBuffer(TABLE, 3, 0, new SinkTableMetrics("test", TABLE));
+        buffer.add(record(1, "a", -1), this.type);
+        buffer.add(record(2, "b", -1), this.type);
+        assertFalse(buffer.isFull());
+        buffer.add(record(3, "c", -1), this.type);
+        assertTrue(buffer.isRecordLimitReached());
+        assertFalse(buffer.isByteLimitReached());
+
+        buffer.flushed(0);
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.getPendingBytes());
+        assertEquals(1, buffer.getMetrics().getRecordLimitFlushes());
+        assertEquals(3, buffer.getMetrics().getFlushedRecords());
+    }
+
+    @Test
+    public void byteLimitTest() {
+        SinkTableBuffer buffer = new SinkTableBuffer(TABLE, 10000, 1024, new SinkTableMetrics("test", TABLE));
+        buffer.add(record(1, null, 500), this.type);
+        assertFalse(buffer.isFull());
+        buffer.add(record(2, null, 500), this.type);
+        assertTrue(buffer.isByteLimitReached());
+        assertEquals(2, buffer.size());
+
+        long pending = buffer.getPendingBytes();
+        buffer.flushed(0);
+        assertEquals(1, buffer.getMetrics().getByteLimitFlushes());
+        assertEquals(pending, buffer.getMetrics().getLastFlushBytes());
+        assertEquals(pending / 2.0, buffer.getMetrics().getAverageRecordBytes(), 0.001);
+    }
+
+    @Test
+    public void adaptiveBatchSizeTest() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(2, 2, 5, 100);
+        SinkTableBuffer buffer = new SinkTableBuffer(TABLE, 10000, 0, new SinkTableMetrics("test", TABLE), controller);
+        assertEquals(2, buffer.getMaxRecords());
+
+        // full batches inserted fast grow the batch size additively up to the max size
+        buffer.add(record(1, "a", -1), this.type);
+        buffer.add(record(2, "b", -1), this.type);
+        buffer.flushed(10000000L);
+        assertEquals(4, buffer.getMaxRecords());
+        for (int i = 0; i < 4; i++) {
+            buffer.add(record(i, "c", -1), this.type);
+        }
+        buffer.flushed(10000000L);
+        assertEquals(5, buffer.getMaxRecords());
+
+        // partial batch flushed on commit does not grow the batch size
+        buffer.add(record(1, "d", -1), this.type);
+        buffer.flushed(10000000L);
+        assertEquals(5, buffer.getMaxRecords());
+
+        // slow insert halves the batch size, never below the min size
+        buffer.add(record(1, "e", -1), this.type);
+        buffer.flushed(500000000L);
+        assertEquals(2, buffer.getMaxRecords());
+        buffer.add(record(1, "f", -1), this.type);
+        buffer.flushed(500000000L);
+        assertEquals(2, buffer.getMaxRecords());
+
+        assertEquals(2, buffer.getMetrics().getBatchSizeIncreases());
+        assertEquals(1, buffer.getMetrics().getBatchSizeDecreases());
+        assertEquals(500, buffer.getMetrics().getLastFlushLatencyMs());
+        assertEquals(2, buffer.getMetrics().getBatchSize());
+    }
+
+    @Test
+    public void coalesceByPrimaryKeyTest() {
+        List<Column> columns = new ArrayList<>();
+        columns.add(new Column("symbol", String.class, ColumnProperty.PRIMARY_KEY));
+        columns.add(new Column("price", Double.class));
+        Type tickerType = new Type(columns);
+
+        SinkTableBuffer buffer = new SinkTableBuffer(TABLE, 10000, 0, new SinkTableMetrics("test", TABLE), null, true);
+        String[] symbols = {"AAPL", "MSFT", "AAPL", "AAPL", "MSFT", "GOOG"};
+        for (int i = 0; i < symbols.length; i++) {
+            GenericRecord record = new GenericRecord(tickerType);
+            record.put("symbol", symbols[i]);
+            record.put("price", (double) i);
+            buffer.add(record, tickerType);
+        }
+
+        // one record per key, in order of first appearance, holding the most recent values
+        List<GenericRecord> records = buffer.getRecords();
+        assertEquals(3, records.size());
+        assertEquals("AAPL", records.get(0).get("symbol"));
+        assertEquals(3.0, records.get(0).get("price"));
+        assertEquals("MSFT", records.get(1).get("symbol"));
+        assertEquals(4.0, records.get(1).get("price"));
+        assertEquals("GOOG", records.get(2).get("symbol"));
+        assertEquals(3, buffer.getMetrics().getCoalescedRecords());
+        assertEquals(3 * RecordSizeEstimator.estimate(records.get(0), tickerType), buffer.getPendingBytes());
+
+        // without coalescing every record is kept
+        SinkTableBuffer plain = new SinkTableBuffer(TABLE, 10000, 0, new SinkTableMetrics("test", TABLE));
+        for (int i = 0; i < symbols.length; i++) {
+            GenericRecord record = new GenericRecord(tickerType);
+            record.put("symbol", symbols[i]);
+            record.put("price", (double) i);
+            plain.add(record, tickerType);
+        }
+        assertEquals(symbols.length, plain.size());
+    }
+
+    @Test
+    public void removePartitionsTest() {
+        List<Column> columns = new ArrayList<>();
+        columns.add(new Column("symbol", String.class, ColumnProperty.PRIMARY_KEY));
+        columns.add(new Column("price", Double.class));
+        Type tickerType = new Type(columns);
+
+        SinkTableBuffer buffer = new SinkTableBuffer(TABLE, 10000, 0, new SinkTableMetrics("test", TABLE), null, true);
+        String[] symbols = {"AAPL", "MSFT", "GOOG", "IBM"};
+        for (int i = 0; i < symbols.length; i++) {
+            GenericRecord record = new GenericRecord(tickerType);
+            record.put("symbol", symbols[i]);
+            record.put("price", (double) i);
+            buffer.add(record, tickerType, new SinkRecord("ticker", i % 2, null, null, null, null, i));
+        }
+
+        // records of the revoked partition are dropped, the others keep their order
+        assertEquals(2, buffer.removePartitions(Collections.singleton(new TopicPartition("ticker", 0))));
+        assertEquals(0, buffer.removePartitions(Collections.singleton(new TopicPartition("other", 1))));
+        List<GenericRecord> records = buffer.getRecords();
+        assertEquals(2, records.size());
+        assertEquals("MSFT", records.get(0).get("symbol"));
+        assertEquals("IBM", records.get(1).get("symbol"));
+        assertEquals(RecordSizeEstimator.estimate(records.get(0), tickerType) 
+                + RecordSizeEstimator.estimate(records.get(1), tickerType), buffer.getPendingBytes());
+
+        // primary keys of kept records still coalesce, keys of dropped records start a new slot
+        GenericRecord update = new GenericRecord(tickerType);
+        update.put("symbol", "IBM");
+        update.put("price", 10.0);
+        buffer.add(update, tickerType, new SinkRecord("ticker", 1, null, null, null, null, 5));
+        GenericRecord readded = new GenericRecord(tickerType);
+        readded.put("symbol", "AAPL");
+        readded.put("price", 11.0);
+        buffer.add(readded, tickerType, new SinkRecord("ticker", 1, null, null, null, null, 6));
+        records = buffer.getRecords();
+        assertEquals(3, records.size());
+        assertEquals(10.0, records.get(1).get("price"));
+        assertEquals("AAPL", records.get(2).get("symbol"));
+    }
+
+    @Test
+    public void retainAfterTransientErrorTest() {
+        SinkTableBuffer buffer = new SinkTableBuffer(TABLE, 10000, 0, new SinkTableMetrics("test", TABLE));
+        for (int i = 0; i < 16; i++) {
+            buffer.add(record(i, "text " + i, 10), this.type, new SinkRecord("ticks", 0, null, null, null, null, i));
+        }
+        final List<GenericRecord> inserted = new ArrayList<>();
+        final List<GenericRecord> errant = new ArrayList<>();
+        BatchBisector<GenericRecord> bisector = new BatchBisector<>(new BatchBisector.Inserter<GenericRecord>() {
+            private int requests;
+
+            @Override
+            public List<GenericRecord> insert(List<GenericRecord> records, List<GPUdbException> errors) {
+                this.requests++;
+                if (this.requests > 9) {
+                    // Kinetica becomes unreachable in the middle of bisection
+                    errors.add(new GPUdbException("Connection refused"));
+                    return records;
+                }
+                for (GenericRecord record : records) {
+                    if ((Integer) record.get("id") == 2 || (Integer) record.get("id") == 12) {
+                        errors.add(new GPUdbException("Invalid value of record " + record.get("id")));
+                        return records;
+                    }
+                }
+                inserted.addAll(records);
+                return new ArrayList<>();
+            }
+        }, new BatchBisector.Reporter<GenericRecord>() {
+            @Override
+            public void errant(GenericRecord record, GPUdbException error) {
+                errant.add(record);
+            }
+        });
+        BatchBisector.Result<GenericRecord> result = bisector.insert(buffer.getRecords());
+        assertTrue(result.isRetriable());
+        assertEquals(1, errant.size());
+
+        // records inserted or reported before the error are not retried
+        assertEquals(inserted.size() + errant.size(), buffer.retain(result.getRemaining()));
+        List<GenericRecord> records = buffer.getRecords();
+        assertEquals(result.getRemaining(), records);
+        assertFalse(records.contains(errant.get(0)));
+        for (GenericRecord record : inserted) {
+            assertFalse(records.contains(record));
+        }
+        long bytes = 0;
+        for (GenericRecord record : records) {
+            bytes += RecordSizeEstimator.estimate(record, this.type);
+        }
+        assertEquals(bytes, buffer.getPendingBytes());
+        assertEquals(records.size(), buffer.getMetrics().getPendingRecords());
+        // Kafka records still line up with the kept records
+        List<SinkRecord> sources = buffer.getSources();
+        assertEquals(records.size(), sources.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(((Integer) records.get(i).get("id")).longValue(), sources.get(i).kafkaOffset());
+        }
+    }
+
+    @Test
+    public void memoryBudgetTest() {
+        List<SinkTableBuffer> buffers = new ArrayList<>();
+        long pendingBytes = 0;
+        for (int payloadSize : new int[] { 2800, 3000, 2700, 2900 }) {
+            SinkTableBuffer buffer = new SinkTableBuffer(TABLE + payloadSize, 10000, 0, 
+                    new SinkTableMetrics("test", TABLE + payloadSize));
+            buffer.add(record(1, null, payloadSize), this.type, null);
+            pendingBytes += buffer.getPendingBytes();
+            buffers.add(buffer);
+        }
+        buffers.add(new SinkTableBuffer(TABLE + "empty", 10000, 0, new SinkTableMetrics("test", TABLE + "empty")));
+        long budget = 10000;
+
+        // within the budget nothing is flushed, no budget means no limit
+        assertTrue(KineticaSinkTask.selectBudgetFlushes(buffers, budget, budget).isEmpty());
+        assertTrue(KineticaSinkTask.selectBudgetFlushes(buffers, pendingBytes, 0).isEmpty());
+
+        // the largest batches are flushed until pending records fit into 75% of the budget
+        List<SinkTableBuffer> flushed = KineticaSinkTask.selectBudgetFlushes(buffers, pendingBytes, budget);
+        assertEquals(2, flushed.size());
+        assertEquals(TABLE + 3000, flushed.get(0).getTableName());
+        assertEquals(TABLE + 2900, flushed.get(1).getTableName());
+        long remaining = pendingBytes;
+        for (SinkTableBuffer buffer : flushed) {
+            remaining -= buffer.getPendingBytes();
+        }
+        assertTrue(remaining <= budget * 3 / 4);
+        // flushing only the largest batch would not have been enough
+        assertTrue(pendingBytes - flushed.get(0).getPendingBytes() > budget * 3 / 4);
+    }
+}
@@ -0,0 +1,277 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gpudb.GPUdbException;
+
+/*
+ * Testing spill journal append, recovery and replay against a local directory, no Kinetica instance required
+ */
+public class SpillJournalTest {
+
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        this.dir = Files.createTempDirectory("spill-journal-test").toFile();
+    }
+
+    @After
+    public void cleanup() {
+        delete(this.dir);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static List<ByteBuffer> records(String... values) {
+        List<ByteBuffer> records = new ArrayList<>();
+        for (String value : values) {
+            records.add(ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)));
+        }
+        return records;
+    }
+
+    private static String text(ByteBuffer record) {
+        return new String(record.array(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void appendReplayTest() throws IOException {
+        SpillJournal journal = new SpillJournal(this.dir, 65536, 0);
+        assertTrue(journal.isEmpty());
+        assertTrue(journal.append("t1", records("a", "b")));
+        assertTrue(journal.append("t2", records("c")));
+        assertTrue(journal.hasPending("t1"));
+        assertEquals(2, journal.getPendingEntries());
+
+        SpillJournal.Entry entry = journal.peek();
+        assertEquals("t1", entry.getTableName());
+        assertEquals("b", text(entry.getRecords().get(1)));
+        journal.commit(entry);
+        assertFalse(journal.hasPending("t1"));
+
+        entry = journal.peek();
+        assertEquals("t2", entry.getTableName());
+        journal.commit(entry);
+        assertTrue(journal.isEmpty());
+        assertEquals(0, journal.getPendingBytes());
+        assertNull(journal.peek());
+        // fully replayed segments are deleted
+        assertEquals(0, this.dir.listFiles().length);
+        journal.close();
+    }
+
+    @Test
+    public void recoveryTest() throws IOException {
+        SpillJournal journal = new SpillJournal(this.dir, 65536, 0);
+        journal.append("t1", records("a"));
+        journal.append("t1", records("b"));
+        journal.append("t1", records("c"));
+        journal.commit(journal.peek());
+        journal.close();
+
+        // a torn entry following the three written ones is ignored,
+        // each takes 23 bytes: 8 bytes header, table name length and name, record count, record length and value
+        File segment = this.dir.listFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.seek(8 + 3 * 23);
+            raf.writeInt(10);
+            raf.writeInt(12345);
+        }
+
+        SpillJournal recovered = new SpillJournal(this.dir, 65536, 0);
+        assertEquals(2, recovered.getPendingEntries());
+        assertEquals("b", text(recovered.peek().getRecords().get(0)));
+        recovered.commit(recovered.peek());
+        // recovered segments are sealed, new batches go to a new segment
+        recovered.append("t2", records("d"));
+        assertEquals(2, recovered.getSegmentCount());
+        assertEquals("c", text(recovered.peek().getRecords().get(0)));
+        recovered.commit(recovered.peek());
+        assertEquals("t2", recovered.peek().getTableName());
+        recovered.close();
+    }
+
+    @Test
+    public void maxBytesTest() throws IOException {
+        SpillJournal journal = new SpillJournal(this.dir, 65536, 100);
+        assertTrue(journal.append("t1", records(new String(new byte[50], StandardCharsets.UTF_8))));
+        assertFalse(journal.append("t1", records(new String(new byte[50], StandardCharsets.UTF_8))));
+        // batches larger than a segment get a segment of their own
+        SpillJournal unlimited = new SpillJournal(new File(this.dir, "large"), 65536, 0);
+        assertTrue(unlimited.append("t1", Arrays.asList(ByteBuffer.allocate(100000))));
+        assertEquals(100000, unlimited.peek().getRecords().get(0).remaining());
+        journal.close();
+        unlimited.close();
+    }
+
+    @Test
+    public void drainerTest() throws Exception {
+        final SpillJournal journal = new SpillJournal(this.dir, 65536, 0);
+        final List<String> replayed = new ArrayList<>();
+        final int[] outages = { 2 };
+        SpillDrainer.Replayer replayer = new SpillDrainer.Replayer() {
+            @Override
+            public void replay(String tableName, List<ByteBuffer> records) throws Exception {
+                if (outages[0] > 0) {
+                    outages[0]--;
+                    throw new GPUdbException("Connection refused");
+                }
+                if (tableName.equals("bad")) {
+                    throw new GPUdbException("Invalid record");
+                }
+                synchronized (replayed) {
+                    replayed.add(tableName + ":" + text(records.get(0)));
+                }
+            }
+
+            @Override
+            public void refreshType(String tableName) {
+            }
+        };
+        journal.append("t1", records("a"));
+        journal.append("bad", records("x"));
+        journal.append("t1", records("b"));
+        SpillDrainer drainer = new SpillDrainer("test-drainer", journal, replayer,
+                new RetryBackoff(1, 10, 0, new Random(0)), null);
+        drainer.start();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!journal.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        drainer.shutdown(1000);
+
+        assertTrue(journal.isEmpty());
+        synchronized (replayed) {
+            assertEquals(Arrays.asList("t1:a", "t1:b"), replayed);
+        }
+        // rejected batch is kept for inspection
+        SpillJournal rejected = new SpillJournal(new File(this.dir, "rejected"), 65536, 0);
+        assertEquals("bad", rejected.peek().getTableName());
+        rejected.close();
+        journal.close();
+    }
+
+    @Test
+    public void drainerRejectsOnlyBadRecordsTest() throws Exception {
+        final SpillJournal journal = new SpillJournal(this.dir, 65536, 0);
+        final List<String> replayed = new ArrayList<>();
+        final List<String> refreshed = new ArrayList<>();
+        SpillDrainer.Replayer replayer = new SpillDrainer.Replayer() {
+            @Override
+            public void replay(String tableName, List<ByteBuffer> records) throws Exception {
+                for (ByteBuffer record : records) {
+                    if (text(record).startsWith("bad")) {
+                        throw new GPUdbException("Insertion of record failed: column timeout_ms out of range");
+                    }
+                }
+                synchronized (replayed) {
+                    for (ByteBuffer record : records) {
+                        replayed.add(text(record));
+                    }
+                }
+            }
+
+            @Override
+            public void refreshType(String tableName) {
+                synchronized (refreshed) {
+                    refreshed.add(tableName);
+                }
+            }
+        };
+        journal.append("t1", records("a", "bad1", "b", "c", "d", "bad2", "e"));
+        SinkTaskMetrics metrics = new SinkTaskMetrics("test-drainer", 0);
+        SpillDrainer drainer = new SpillDrainer("test-drainer", journal, replayer,
+                new RetryBackoff(1, 10, 0, new Random(0)), metrics);
+        drainer.start();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!journal.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        drainer.shutdown(1000);
+
+        assertTrue(journal.isEmpty());
+        synchronized (replayed) {
+            assertEquals(Arrays.asList("a", "b", "c", "d", "e"), replayed);
+        }
+        synchronized (refreshed) {
+            assertEquals(Arrays.asList("t1"), refreshed);
+        }
+        assertEquals(5, metrics.getReplayedRecords());
+        assertEquals(2, metrics.getErrantSpillRecords());
+        // only the refused records are kept for inspection
+        SpillJournal rejected = new SpillJournal(new File(this.dir, "rejected"), 65536, 0);
+        List<ByteBuffer> kept = rejected.peek().getRecords();
+        assertEquals(2, kept.size());
+        assertEquals("bad1", text(kept.get(0)));
+        assertEquals("bad2", text(kept.get(1)));
+        rejected.close();
+        journal.close();
+    }
+
+    @Test
+    public void awaitEntryTest() throws Exception {
+        final SpillJournal journal = new SpillJournal(this.dir, 65536, 0);
+        final long[] waited = new long[1];
+        Runnable waiter = new Runnable() {
+            @Override
+            public void run() {
+                long start = System.currentTimeMillis();
+                try {
+                    journal.awaitEntry(10000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                waited[0] = System.currentTimeMillis() - start;
+            }
+        };
+        // the spill drainer waits on a virtual thread on Java 21
+        Thread drainer = KineticaThreads.newThread("test-drainer", waiter);
+        drainer.start();
+        Thread.sleep(100);
+        assertTrue(journal.append("t1", records("a")));
+        drainer.join(5000);
+        assertFalse(drainer.isAlive());
+        assertTrue(waited[0] < 5000);
+
+        // with entries pending there is nothing to wait for
+        long start = System.currentTimeMillis();
+        journal.awaitEntry(10000);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+
+        // closing the journal wakes up the waiting thread
+        journal.commit(journal.peek());
+        drainer = KineticaThreads.newThread("test-drainer", waiter);
+        drainer.start();
+        Thread.sleep(100);
+        journal.close();
+        drainer.join(5000);
+        assertFalse(drainer.isAlive());
+    }
+}
@@ -1,7 +1,14 @@
 package com.kinetica.kafka;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -11,6 +18,9 @@ import org.apache.kafka.connect.errors.ConnectException;
 import com.gpudb.GPUdb;
 import com.gpudb.GPUdbException;
 import com.gpudb.protocol.HasSchemaResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 
 public class TestUtils {
     private final static String DEFAULT_COLLECTION = "ki_home";
@@ -103,4 +113,72 @@ public class TestUtils {
     	tableCleanUp(gpudb, tableName);
     	gpudb = null;
     }
+
+    /**
+     * Helper function used to stand in for a Kinetica head node that can be stopped: requests are
+     * forwarded to a running Kinetica instance until the returned server is stopped
+     * @param target    URL of the Kinetica head node requests are forwarded to
+     * @return started HTTP server listening on a local port
+     * @throws IOException
+     */
+    public static HttpServer startHeadNodeProxy(final String target) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] response;
+                int status;
+                try {
+                    HttpURLConnection connection = (HttpURLConnection) new URL(target 
+                            + exchange.getRequestURI()).openConnection();
+                    connection.setRequestMethod(exchange.getRequestMethod());
+                    String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                    if (contentType != null) {
+                        connection.setRequestProperty("Content-Type", contentType);
+                    }
+                    byte[] request = readAll(exchange.getRequestBody());
+                    if (request.length > 0) {
+                        connection.setDoOutput(true);
+                        try (OutputStream out = connection.getOutputStream()) {
+                            out.write(request);
+                        }
+                    }
+                    status = connection.getResponseCode();
+                    InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+                    response = in == null ? new byte[0] : readAll(in);
+                } catch (IOException e) {
+                    // Kinetica itself is unreachable, the stand-in still answers
+                    status = 502;
+                    response = new byte[0];
+                }
+                exchange.sendResponseHeaders(status, response.length == 0 ? -1 : response.length);
+                if (response.length > 0) {
+                    exchange.getResponseBody().write(response);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    /**
+     * @param server    running HTTP server
+     * @return URL of the server
+     */
+    public static String urlOf(HttpServer server) {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
 }
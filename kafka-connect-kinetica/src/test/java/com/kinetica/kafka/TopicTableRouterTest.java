@@ -0,0 +1,70 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.kafka.connect.errors.ConnectException;
+import org.junit.Test;
+
+/*
+ * Testing topic to table routing, no Kinetica instance required
+ */
+public class TopicTableRouterTest {
+
+    @Test
+    public void tablePerTopicTest() {
+        TopicTableRouter router = new TopicTableRouter("tweets,app.events", null, "", "kafka_", "ki_home", true);
+        assertFalse(router.isOverridden());
+        assertEquals("ki_home.kafka_tweets", router.route("tweets", "com.kinetica.Tweet"));
+        // dots are not allowed in table names derived from topics
+        assertEquals("ki_home.kafka_app" + KineticaSinkConnectorConfig.DEFAULT_DOT_REPLACEMENT + "events",
+                router.route("app.events", null));
+    }
+
+    @Test
+    public void tablePerSchemaTest() {
+        TopicTableRouter router = new TopicTableRouter("mixed", null, "", "", "", false);
+        assertEquals("Tweet", router.route("mixed", "com.kinetica.Tweet"));
+        assertEquals("Click", router.route("mixed", "com.kinetica.Click"));
+        // repeated lookups are served from the route cache
+        assertEquals("Tweet", router.route("mixed", "com.kinetica.Tweet"));
+        assertEquals("mixed", router.route("mixed", null));
+    }
+
+    @Test
+    public void overrideTest() {
+        TopicTableRouter router = new TopicTableRouter("tweets, clicks", null, "t1, web.t2", "kafka_", "ki_home", true);
+        assertTrue(router.isOverridden());
+        assertEquals("ki_home.t1", router.route("tweets", null));
+        // tables qualified with a schema are not moved into the configured one
+        assertEquals("web.t2", router.route("clicks", null));
+        // topic names are matched case insensitively
+        assertEquals("ki_home.t1", router.route("TWEETS", null));
+        try {
+            router.route("orders", null);
+            fail("topic without override must not be routed");
+        } catch (ConnectException e) {
+            // expected
+        }
+
+        // override lists of different length are ignored
+        router = new TopicTableRouter("tweets,clicks", null, "t1", "", "", true);
+        assertFalse(router.isOverridden());
+        assertEquals("clicks", router.route("clicks", null));
+    }
+
+    @Test
+    public void topicsRegexTest() {
+        TopicTableRouter router = new TopicTableRouter(null, "sensor-.*", "", "kafka_", "", true);
+        assertEquals("kafka_sensor-1", router.route("sensor-1", null));
+        assertEquals("kafka_sensor-2", router.route("sensor-2", null));
+
+        // all topics matching the regex into a single table
+        router = new TopicTableRouter(null, "sensor-.*", "readings", "kafka_", "iot", true);
+        assertTrue(router.isOverridden());
+        assertEquals("iot.readings", router.route("sensor-1", null));
+        assertEquals("iot.readings", router.route("sensor-7", null));
+    }
+}
@@ -0,0 +1,187 @@
+package com.kinetica.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gpudb.Type;
+import com.gpudb.Type.Column;
+
+/*
+ * Testing warm-start cache files and validation against a local directory, no Kinetica instance required
+ */
+public class WarmStartCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        this.dir = Files.createTempDirectory("warm-start-cache-test").toFile();
+    }
+
+    @After
+    public void cleanup() {
+        File[] children = this.dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        this.dir.delete();
+    }
+
+    private static Type tweetType(String... extraColumns) {
+        List<Column> columns = new ArrayList<>(Arrays.asList(
+                new Column("id", Long.class, "primary_key"),
+                new Column("text", String.class, "char256", "nullable"),
+                new Column("score", Double.class),
+                new Column("payload", ByteBuffer.class, "nullable")));
+        for (String column : extraColumns) {
+            columns.add(new Column(column, Integer.class, "nullable"));
+        }
+        return new Type("tweet", columns);
+    }
+
+    private static WarmStartCache.Table tweets(String name, Type type) {
+        Map<Long, List<String>> mapped = new HashMap<>();
+        Map<Long, List<String>> missing = new HashMap<>();
+        mapped.put(42L, Arrays.asList("id", "text"));
+        missing.put(42L, Arrays.asList("score"));
+        // schemaless records have no fingerprint
+        mapped.put(null, Arrays.asList("id", "payload", "score", "text"));
+        missing.put(null, Collections.<String>emptyList());
+        return new WarmStartCache.Table(name, type, new HashSet<>(Arrays.asList(42L, null)), mapped, missing);
+    }
+
+    @Test
+    public void roundTripTest() throws Exception {
+        File file = new File(this.dir, "sink" + WarmStartCache.FILE_SUFFIX);
+        WarmStartCache.Table table = tweets("ki_home.tweets", tweetType());
+        WarmStartCache.write(file, Arrays.asList(table, tweets("ki_home.retweets", tweetType("likes"))));
+
+        List<WarmStartCache.Table> loaded = WarmStartCache.read(file);
+        assertEquals(2, loaded.size());
+        assertEquals(table, loaded.get(0));
+        assertEquals("ki_home.retweets", loaded.get(1).getName());
+        assertEquals(5, loaded.get(1).getType().getColumnCount());
+        assertEquals("tweet", loaded.get(0).getType().getLabel());
+        assertTrue(loaded.get(0).getSchemas().contains(null));
+        assertEquals(Arrays.asList("score"), loaded.get(0).getMissing().get(42L));
+    }
+
+    @Test
+    public void corruptedFileTest() throws Exception {
+        File file = new File(this.dir, "sink" + WarmStartCache.FILE_SUFFIX);
+        WarmStartCache.write(file, Arrays.asList(tweets("tweets", tweetType()), tweets("retweets", tweetType())));
+
+        // flip a byte in the last entry
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 1);
+            byte last = raf.readByte();
+            raf.seek(raf.length() - 1);
+            raf.writeByte(last ^ 0xFF);
+        }
+        List<WarmStartCache.Table> loaded = WarmStartCache.read(file);
+        assertEquals(1, loaded.size());
+        assertEquals("tweets", loaded.get(0).getName());
+
+        // not a cache file, tasks start cold
+        Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        WarmStartCache cache = WarmStartCache.acquire(file);
+        try {
+            assertTrue(cache.getLoaded().isEmpty());
+        } finally {
+            cache.release();
+        }
+    }
+
+    @Test
+    public void saveOnChangeTest() throws Exception {
+        File file = new File(this.dir, "sink" + WarmStartCache.FILE_SUFFIX);
+        WarmStartCache cache = WarmStartCache.acquire(file);
+        WarmStartCache other = WarmStartCache.acquire(file);
+        try {
+            cache.put(tweets("tweets", tweetType()));
+            assertTrue(cache.save());
+            // unchanged state of another task of the connector is not written again
+            other.put(tweets("tweets", tweetType()));
+            assertFalse(other.save());
+            other.put(tweets("tweets", tweetType("likes")));
+            assertTrue(other.save());
+        } finally {
+            other.release();
+            cache.release();
+        }
+
+        cache = WarmStartCache.acquire(file);
+        try {
+            assertEquals(1, cache.getLoaded().size());
+            assertEquals(5, cache.getLoaded().get(0).getType().getColumnCount());
+        } finally {
+            cache.release();
+        }
+    }
+
+    @Test
+    public void validationTest() throws Exception {
+        File file = new File(this.dir, "sink" + WarmStartCache.FILE_SUFFIX);
+        WarmStartCache.write(file, Arrays.asList(tweets("tweets", tweetType()), tweets("retweets", tweetType()),
+                tweets("dropped", tweetType())));
+        WarmStartCache cache = WarmStartCache.acquire(file);
+        try {
+            cache.validateAll(new WarmStartCache.Validator() {
+                @Override
+                public Type validate(String tableName, Type type) {
+                    if (tableName.equals("dropped")) {
+                        return null;
+                    }
+                    return tableName.equals("retweets") ? tweetType("likes") : tweetType();
+                }
+            });
+            assertEquals(3, cache.getValidated());
+            assertEquals(2, cache.getChanged());
+            assertTrue(cache.save());
+        } finally {
+            cache.release();
+        }
+
+        List<WarmStartCache.Table> loaded = WarmStartCache.read(file);
+        assertEquals(2, loaded.size());
+        assertEquals(tweets("tweets", tweetType()), loaded.get(0));
+        // changed table keeps its new type, schemas are matched again on first use
+        assertEquals(5, loaded.get(1).getType().getColumnCount());
+        assertTrue(loaded.get(1).getMapped().isEmpty());
+        assertNull(loaded.get(1).getMissing().get(42L));
+    }
+
+    @Test
+    public void sameTypeTest() {
+        assertTrue(WarmStartCache.sameType(tweetType(), tweetType()));
+        assertFalse(WarmStartCache.sameType(tweetType(), tweetType("likes")));
+        assertFalse(WarmStartCache.sameType(tweetType(), null));
+        Type reordered = new Type("tweet", Arrays.asList(
+                new Column("id", Long.class, "primary_key"),
+                new Column("text", String.class, "nullable", "char256"),
+                new Column("score", Double.class),
+                new Column("payload", ByteBuffer.class, "nullable")));
+        assertTrue(WarmStartCache.sameType(tweetType(), reordered));
+    }
+}